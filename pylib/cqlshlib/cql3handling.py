@@ -70,9 +70,11 @@ class Cql3ParsingRuleSet(CqlParsingRuleSet):
         ('compaction', 'compaction_strategy_options',
             ('class', 'max_threshold', 'tombstone_compaction_interval', 'tombstone_threshold', 'enabled', 'unchecked_tombstone_compaction')),
         ('compression', 'compression_parameters',
-            ('sstable_compression', 'chunk_length_kb', 'crc_check_chance')),
+            ('sstable_compression', 'chunk_length_kb', 'crc_check_chance', 'min_compress_ratio')),
         ('caching', None,
             ('rows_per_partition', 'keys')),
+        ('disk_access_mode', None,
+            ('index', 'data')),
     )
 
     obsolete_cf_options = ()
@@ -448,6 +450,8 @@ def cf_prop_val_completer(ctxt, cass):
         return ["{'class': '"]
     if this_opt == 'caching':
         return ["{'keys': '"]
+    if this_opt == 'disk_access_mode':
+        return ["{'index': '"]
     if any(this_opt == opt[0] for opt in CqlRuleSet.obsolete_cf_options):
         return ["'<obsolete_option>'"]
     if this_opt in ('read_repair_chance', 'bloom_filter_fp_chance',
@@ -472,6 +476,8 @@ def cf_prop_val_mapkey_completer(ctxt, cass):
         return map(escape_value, set(subopts).difference(keysseen))
     if optname == 'caching':
         return map(escape_value, set(subopts).difference(keysseen))
+    if optname == 'disk_access_mode':
+        return map(escape_value, set(subopts).difference(keysseen))
     if optname == 'compaction':
         opts = set(subopts)
         try:
@@ -509,6 +515,8 @@ def cf_prop_val_mapval_completer(ctxt, cass):
             return ["'ALL'", "'NONE'", Hint('#rows_per_partition')]
         elif key == 'keys':
             return ["'ALL'", "'NONE'"]
+    elif opt == 'disk_access_mode':
+        return ["'auto'", "'mmap'", "'standard'"]
     return ()
 
 def cf_prop_val_mapender_completer(ctxt, cass):
@@ -32,6 +32,9 @@ import static org.apache.cassandra.concurrent.SEPWorker.Work;
 
 public class SEPExecutor extends AbstractTracingAwareExecutorService
 {
+    // the executor, if any, a worker of which the current thread has reserved to run its own tasks
+    private static final ThreadLocal<SEPExecutor> reservedBy = new ThreadLocal<>();
+
     private final SharedExecutorPool pool;
 
     public final int maxWorkers;
@@ -182,6 +185,12 @@ public class SEPExecutor extends AbstractTracingAwareExecutorService
     public void maybeExecuteImmediately(Runnable command)
     {
         FutureTask<?> ft = newTaskFor(command, null);
+        if (reservedBy.get() == this)
+        {
+            ft.run();
+            return;
+        }
+
         if (!takeWorkPermit(false))
         {
             addTask(ft);
@@ -203,6 +212,42 @@ public class SEPExecutor extends AbstractTracingAwareExecutorService
         }
     }
 
+    /**
+     * Reserves a worker for the current thread, which then runs the tasks it passes to {@link #maybeExecuteImmediately}
+     * itself, without ever waiting for a worker, until {@link #releaseWorker()}.
+     *
+     * @return false, reserving nothing, if every worker is busy or some tasks are waiting for one
+     */
+    public boolean reserveWorker()
+    {
+        assert reservedBy.get() == null;
+        while (true)
+        {
+            long current = permits.get();
+            int workPermits = workPermits(current);
+            if (workPermits == 0 || taskPermits(current) > 0)
+                return false;
+            if (permits.compareAndSet(current, updateWorkPermits(current, workPermits - 1)))
+                break;
+        }
+        reservedBy.set(this);
+        return true;
+    }
+
+    public boolean hasReservedWorker()
+    {
+        return reservedBy.get() == this;
+    }
+
+    public void releaseWorker()
+    {
+        assert reservedBy.get() == this;
+        reservedBy.remove();
+        returnWorkPermit();
+        // as in maybeExecuteImmediately, the permit may go wasted if we don't attempt to spawn another worker
+        maybeSchedule();
+    }
+
     public synchronized void shutdown()
     {
         shuttingDown = true;
@@ -97,6 +97,7 @@ public class Config
     public Integer concurrent_reads = 32;
     public Integer concurrent_writes = 32;
     public Integer concurrent_counter_writes = 32;
+    public int concurrent_sstable_probes = 0;
 
     @Deprecated
     public Integer concurrent_replicates = null;
@@ -138,6 +139,11 @@ public class Config
     public Integer native_transport_max_frame_size_in_mb = 256;
     public volatile Long native_transport_max_concurrent_connections = -1L;
     public volatile Long native_transport_max_concurrent_connections_per_ip = -1L;
+    public volatile Integer native_transport_max_in_flight_requests_per_connection = 1024;
+    public volatile Integer native_transport_max_in_flight_bytes_per_connection_in_mb = 64;
+    public volatile Integer native_transport_max_in_flight_requests = -1;
+    public volatile Integer native_transport_max_in_flight_bytes_in_mb;
+    public InlineExecution native_transport_inline_execution = InlineExecution.disabled;
 
     @Deprecated
     public Integer thrift_max_message_length_in_mb = 16;
@@ -247,7 +253,7 @@ public class Config
 
     /*
      * Strategy to use for coalescing messages in OutboundTcpConnection.
-     * Can be fixed, movingaverage, timehorizon, disabled. Setting is case and leading/trailing
+     * Can be fixed, movingaverage, timehorizon, adaptive, disabled. Setting is case and leading/trailing
      * whitespace insensitive. You can also specify a subclass of CoalescingStrategies.CoalescingStrategy by name.
      */
     public String otc_coalescing_strategy = "TIMEHORIZON";
@@ -256,7 +262,7 @@ public class Config
      * How many microseconds to wait for coalescing. For fixed strategy this is the amount of time after the first
      * messgae is received before it will be sent with any accompanying messages. For moving average this is the
      * maximum amount of time that will be waited as well as the interval at which messages must arrive on average
-     * for coalescing to be enabled.
+     * for coalescing to be enabled.  For adaptive this is the maximum latency coalescing may add to a message.
      */
     public static final int otc_coalescing_window_us_default = 200;
     public int otc_coalescing_window_us = otc_coalescing_window_us_default;
@@ -327,6 +333,13 @@ public class Config
         all, none, dc
     }
 
+    public static enum InlineExecution
+    {
+        disabled,
+        cached_reads,
+        local_reads
+    }
+
     public static enum DiskAccessMode
     {
         auto,
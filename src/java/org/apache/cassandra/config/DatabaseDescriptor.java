@@ -384,6 +384,11 @@ public class DatabaseDescriptor
             throw new ConfigurationException("concurrent_writes must be at least 2, but was " + conf.concurrent_writes, false);
         }
 
+        if (conf.concurrent_sstable_probes < 0)
+        {
+            throw new ConfigurationException("concurrent_sstable_probes must not be negative, but was " + conf.concurrent_sstable_probes, false);
+        }
+
         if (conf.concurrent_counter_writes != null && conf.concurrent_counter_writes < 2)
             throw new ConfigurationException("concurrent_counter_writes must be at least 2, but was " + conf.concurrent_counter_writes, false);
 
@@ -413,6 +418,9 @@ public class DatabaseDescriptor
         if (conf.thrift_framed_transport_size_in_mb <= 0)
             throw new ConfigurationException("thrift_framed_transport_size_in_mb must be positive, but was " + conf.thrift_framed_transport_size_in_mb, false);
 
+        if (conf.native_transport_max_in_flight_bytes_in_mb == null)
+            conf.native_transport_max_in_flight_bytes_in_mb = (int) (Runtime.getRuntime().maxMemory() / (10 * 1048576));
+
         if (conf.native_transport_max_frame_size_in_mb <= 0)
             throw new ConfigurationException("native_transport_max_frame_size_in_mb must be positive, but was " + conf.native_transport_max_frame_size_in_mb, false);
 
@@ -1034,6 +1042,11 @@ public class DatabaseDescriptor
         return conf.concurrent_counter_writes;
     }
 
+    public static int getConcurrentSSTableProbes()
+    {
+        return conf.concurrent_sstable_probes;
+    }
+
     public static int getFlushWriters()
     {
             return conf.memtable_flush_writers;
@@ -1266,6 +1279,46 @@ public class DatabaseDescriptor
         conf.native_transport_max_concurrent_connections_per_ip = native_transport_max_concurrent_connections_per_ip;
     }
 
+    public static int getNativeTransportMaxInFlightRequestsPerConnection()
+    {
+        return conf.native_transport_max_in_flight_requests_per_connection;
+    }
+
+    public static void setNativeTransportMaxInFlightRequestsPerConnection(int maxInFlightRequests)
+    {
+        conf.native_transport_max_in_flight_requests_per_connection = maxInFlightRequests;
+    }
+
+    public static long getNativeTransportMaxInFlightBytesPerConnection()
+    {
+        return conf.native_transport_max_in_flight_bytes_per_connection_in_mb * 1024L * 1024L;
+    }
+
+    public static void setNativeTransportMaxInFlightBytesPerConnectionInMB(int maxInFlightMegabytes)
+    {
+        conf.native_transport_max_in_flight_bytes_per_connection_in_mb = maxInFlightMegabytes;
+    }
+
+    public static int getNativeTransportMaxInFlightRequests()
+    {
+        return conf.native_transport_max_in_flight_requests;
+    }
+
+    public static void setNativeTransportMaxInFlightRequests(int maxInFlightRequests)
+    {
+        conf.native_transport_max_in_flight_requests = maxInFlightRequests;
+    }
+
+    public static long getNativeTransportMaxInFlightBytes()
+    {
+        return conf.native_transport_max_in_flight_bytes_in_mb * 1024L * 1024L;
+    }
+
+    public static Config.InlineExecution getNativeTransportInlineExecution()
+    {
+        return conf.native_transport_inline_execution;
+    }
+
     public static double getCommitLogSyncBatchWindow()
     {
         return conf.commitlog_sync_batch_window_in_ms;
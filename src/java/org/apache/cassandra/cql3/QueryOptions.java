@@ -25,6 +25,7 @@ import java.util.List;
 
 import io.netty.buffer.ByteBuf;
 
+import org.apache.cassandra.cql3.statements.SelectStatement;
 import org.apache.cassandra.db.ConsistencyLevel;
 import org.apache.cassandra.service.QueryState;
 import org.apache.cassandra.service.pager.PagingState;
@@ -47,6 +48,9 @@ public abstract class QueryOptions
 
     public static final CBCodec<QueryOptions> codec = new Codec();
 
+    // the read of the statement executed with these options, if it was prepared ahead of its execution
+    private SelectStatement.PreparedRead preparedRead;
+
     public static QueryOptions fromProtocolV1(ConsistencyLevel consistency, List<ByteBuffer> values)
     {
         return new DefaultQueryOptions(consistency, values, false, SpecificOptions.DEFAULT, Server.VERSION_1);
@@ -124,6 +128,17 @@ public abstract class QueryOptions
         return this;
     }
 
+    /** The read of the statement executed with these options, or null if it was not prepared ahead of its execution. */
+    public SelectStatement.PreparedRead getPreparedRead()
+    {
+        return preparedRead;
+    }
+
+    public void setPreparedRead(SelectStatement.PreparedRead preparedRead)
+    {
+        this.preparedRead = preparedRead;
+    }
+
     static class DefaultQueryOptions extends QueryOptions
     {
         private final ConsistencyLevel consistency;
@@ -21,6 +21,8 @@ import java.nio.ByteBuffer;
 import java.util.*;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 
 import org.apache.cassandra.transport.*;
 import org.apache.cassandra.db.marshal.AbstractType;
@@ -171,6 +173,10 @@ public class ResultSet
 
     public static class Codec implements CBCodec<ResultSet>
     {
+        // referencing a value costs about as much as copying a few hundred bytes
+        private static final int MIN_REFERENCED_VALUE_SIZE = Integer.getInteger("cassandra.native_transport_min_referenced_value_size", 1024);
+        private static final int CHUNK_SIZE = 8192;
+
         /*
          * Format:
          *   - metadata
@@ -204,6 +210,74 @@ public class ResultSet
             }
         }
 
+        /**
+         * Encodes @param rs as encode() does, but appending it to @param dest piece by piece instead of into a buffer
+         * that had to be sized first.  The values of at least MIN_REFERENCED_VALUE_SIZE bytes which are on heap are
+         * referenced rather than copied, and everything else is written to pooled buffers of CHUNK_SIZE bytes,
+         * allocated as needed.  The values off heap are always copied, as they may be in memory that gets reused once
+         * the read is over.  The pieces appended to @param dest are released with it, even if this throws.
+         */
+        public void encode(ResultSet rs, CompositeByteBuf dest, int version)
+        {
+            ByteBuf current = CBUtil.allocator.buffer(CHUNK_SIZE);
+            try
+            {
+                ResultMetadata.codec.encode(rs.metadata, current, version);
+                current.writeInt(rs.rows.size());
+                for (List<ByteBuffer> row : rs.rows)
+                {
+                    for (int i = 0; i < rs.metadata.columnCount; i++)
+                    {
+                        ByteBuffer value = row.get(i);
+                        if (value != null && value.hasArray() && value.remaining() >= MIN_REFERENCED_VALUE_SIZE)
+                        {
+                            current = writable(dest, current, 4);
+                            current.writeInt(value.remaining());
+                            ByteBuf next = CBUtil.allocator.buffer(CHUNK_SIZE);
+                            addComponent(dest, current);
+                            current = next;
+                            addComponent(dest, Unpooled.wrappedBuffer(value));
+                        }
+                        else
+                        {
+                            current = writable(dest, current, CBUtil.sizeOfValue(value));
+                            CBUtil.writeValue(value, current);
+                        }
+                    }
+                }
+            }
+            catch (Throwable e)
+            {
+                current.release();
+                throw e;
+            }
+            addComponent(dest, current);
+        }
+
+        private static ByteBuf writable(CompositeByteBuf dest, ByteBuf current, int size)
+        {
+            if (current.writableBytes() >= size)
+                return current;
+
+            ByteBuf next = CBUtil.allocator.buffer(Math.max(CHUNK_SIZE, size));
+            addComponent(dest, current);
+            return next;
+        }
+
+        /**
+         * Appends @param buffer to @param dest, which takes ownership of it.
+         */
+        public static void addComponent(CompositeByteBuf dest, ByteBuf buffer)
+        {
+            if (!buffer.isReadable())
+            {
+                buffer.release();
+                return;
+            }
+            dest.addComponent(buffer);
+            dest.writerIndex(dest.writerIndex() + buffer.readableBytes());
+        }
+
         public int encodedSize(ResultSet rs, int version)
         {
             int size = ResultMetadata.codec.encodedSize(rs.metadata, version) + 4;
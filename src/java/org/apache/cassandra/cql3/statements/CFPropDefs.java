@@ -30,6 +30,7 @@ import org.apache.cassandra.db.compaction.AbstractCompactionStrategy;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.exceptions.SyntaxException;
 import org.apache.cassandra.io.compress.CompressionParameters;
+import org.apache.cassandra.io.util.DiskAccessOptions;
 
 public class CFPropDefs extends PropertyDefinitions
 {
@@ -46,6 +47,7 @@ public class CFPropDefs extends PropertyDefinitions
     public static final String KW_SPECULATIVE_RETRY = "speculative_retry";
     public static final String KW_BF_FP_CHANCE = "bloom_filter_fp_chance";
     public static final String KW_MEMTABLE_FLUSH_PERIOD = "memtable_flush_period_in_ms";
+    public static final String KW_DISK_ACCESS_MODE = "disk_access_mode";
 
     public static final String KW_COMPACTION = "compaction";
     public static final String KW_COMPRESSION = "compression";
@@ -70,6 +72,7 @@ public class CFPropDefs extends PropertyDefinitions
         keywords.add(KW_COMPACTION);
         keywords.add(KW_COMPRESSION);
         keywords.add(KW_MEMTABLE_FLUSH_PERIOD);
+        keywords.add(KW_DISK_ACCESS_MODE);
 
         obsoleteKeywords.add("index_interval");
         obsoleteKeywords.add("replicate_on_write");
@@ -128,6 +131,7 @@ public class CFPropDefs extends PropertyDefinitions
             throw new ConfigurationException(KW_MAX_INDEX_INTERVAL + " must be greater than " + KW_MIN_INDEX_INTERVAL + ", but was " + maxIndexInterval);
 
         SpeculativeRetry.fromString(getString(KW_SPECULATIVE_RETRY, SpeculativeRetry.RetryType.NONE.name()));
+        getDiskAccessOptions();
     }
 
     public Class<? extends AbstractCompactionStrategy> getCompactionStrategy()
@@ -166,6 +170,12 @@ public class CFPropDefs extends PropertyDefinitions
         return options;
     }
 
+    public DiskAccessOptions getDiskAccessOptions() throws SyntaxException, ConfigurationException
+    {
+        Map<String, String> options = getMap(KW_DISK_ACCESS_MODE);
+        return options == null ? null : DiskAccessOptions.fromMap(options);
+    }
+
     public Integer getDefaultTimeToLive() throws SyntaxException
     {
         return getInt(KW_DEFAULT_TIME_TO_LIVE, 0);
@@ -204,6 +214,9 @@ public class CFPropDefs extends PropertyDefinitions
         CachingOptions cachingOptions = getCachingOptions();
         if (cachingOptions != null)
             cfm.caching(cachingOptions);
+        DiskAccessOptions diskAccessOptions = getDiskAccessOptions();
+        if (diskAccessOptions != null)
+            cfm.diskAccess(diskAccessOptions);
     }
 
     @Override
@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.cql3.statements;
 
+import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.*;
 
@@ -157,9 +158,13 @@ public class SelectStatement implements CQLStatement
 
         cl.validateForRead(keyspace());
 
-        int limit = getLimit(options);
-        long now = System.currentTimeMillis();
-        Pageable command = getPageableCommand(options, limit, now);
+        PreparedRead read = options.getPreparedRead();
+        if (read == null || read.statement != this)
+            read = new PreparedRead(this, options);
+
+        int limit = read.limit;
+        long now = read.now;
+        Pageable command = read.command;
 
         int pageSize = options.getPageSize();
 
@@ -171,10 +176,10 @@ public class SelectStatement implements CQLStatement
 
         if (pageSize <= 0 || command == null || !QueryPagers.mayNeedPaging(command, pageSize))
         {
-            return execute(command, options, limit, now, state);
+            return execute(command, options, limit, now, state, read.replicas);
         }
 
-        QueryPager pager = QueryPagers.pager(command, cl, state.getClientState(), options.getPagingState());
+        QueryPager pager = QueryPagers.pager(command, cl, state.getClientState(), options.getPagingState(), read.replicas);
 
         if (selection.isAggregate())
             return pageAggregateQuery(pager, options, pageSize, now);
@@ -208,7 +213,36 @@ public class SelectStatement implements CQLStatement
         return getPageableCommand(options, getLimit(options), System.currentTimeMillis());
     }
 
-    private ResultMessage.Rows execute(Pageable command, QueryOptions options, int limit, long now, QueryState state) throws RequestValidationException, RequestExecutionException
+    /**
+     * @return whether this statement, executed with @param options, is expected to be served by this node alone and
+     * from its row cache if @param cachedOnly, which makes it cheap enough to be executed by the thread that received
+     * it rather than handed to another. The read is prepared into @param options to be reused by its execution,
+     * wherever it happens.
+     */
+    public boolean isLocalRead(QueryOptions options, boolean cachedOnly) throws RequestValidationException
+    {
+        ConsistencyLevel cl = options.getConsistency();
+        if (cl != ConsistencyLevel.ONE && cl != ConsistencyLevel.LOCAL_ONE)
+            return false;
+
+        // aggregates are paged through the whole of their partitions
+        if (selection.isAggregate())
+            return false;
+
+        PreparedRead read = new PreparedRead(this, options);
+        options.setPreparedRead(read);
+        if (read.command == null)
+            return true;
+
+        if (!(read.command instanceof Pageable.ReadCommands))
+            return false;
+
+        List<ReadCommand> commands = ((Pageable.ReadCommands) read.command).commands;
+        read.replicas = StorageProxy.getLiveSortedEndpoints(commands);
+        return StorageProxy.isLocalRead(commands, read.replicas, cachedOnly);
+    }
+
+    private ResultMessage.Rows execute(Pageable command, QueryOptions options, int limit, long now, QueryState state, List<List<InetAddress>> replicas) throws RequestValidationException, RequestExecutionException
     {
         List<Row> rows;
         if (command == null)
@@ -218,7 +252,7 @@ public class SelectStatement implements CQLStatement
         else
         {
             rows = command instanceof Pageable.ReadCommands
-                 ? StorageProxy.read(((Pageable.ReadCommands)command).commands, options.getConsistency(), state.getClientState())
+                 ? StorageProxy.read(((Pageable.ReadCommands)command).commands, options.getConsistency(), state.getClientState(), replicas)
                  : StorageProxy.getRangeSlice((RangeSliceCommand)command, options.getConsistency());
         }
 
@@ -1026,6 +1060,28 @@ public class SelectStatement implements CQLStatement
         }
     }
 
+    /**
+     * The read performed by a statement, built ahead of its execution to decide where to execute it, see
+     * {@link #isLocalRead(QueryOptions, boolean)}
+     */
+    public static class PreparedRead
+    {
+        private final SelectStatement statement;
+        private final int limit;
+        private final long now;
+        private final Pageable command;
+        // the live replicas of each partition read, closest first, if looked up ahead of the read
+        private List<List<InetAddress>> replicas;
+
+        private PreparedRead(SelectStatement statement, QueryOptions options) throws RequestValidationException
+        {
+            this.statement = statement;
+            this.limit = statement.getLimit(options);
+            this.now = System.currentTimeMillis();
+            this.command = statement.getPageableCommand(options, limit, now);
+        }
+    }
+
     /**
      * Used in orderResults(...) method when single 'ORDER BY' condition where given
      */
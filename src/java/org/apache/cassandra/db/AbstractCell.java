@@ -42,6 +42,7 @@ public abstract class AbstractCell implements Cell
                                                       final Version version,
                                                       final CellNameType type)
     {
+        final OnDiskAtom.Serializer serializer = type.onDiskAtomSerializer().forPartition(version);
         return new AbstractIterator<OnDiskAtom>()
         {
             protected OnDiskAtom computeNext()
@@ -49,7 +50,7 @@ public abstract class AbstractCell implements Cell
                 OnDiskAtom atom;
                 try
                 {
-                    atom = type.onDiskAtomSerializer().deserializeFromSSTable(in, flag, expireBefore, version);
+                    atom = serializer.deserializeFromSSTable(in, flag, expireBefore, version);
                 }
                 catch (IOException e)
                 {
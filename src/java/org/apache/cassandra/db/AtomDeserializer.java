@@ -36,6 +36,8 @@ import org.apache.cassandra.io.sstable.format.Version;
 public class AtomDeserializer
 {
     private final CellNameType type;
+    // null unless the sstable uses the compact cell encoding
+    private final CompactAtomSerializer compactSerializer;
     private final CellNameType.Deserializer nameDeserializer;
     private final DataInput in;
     private final ColumnSerializer.Flag flag;
@@ -49,7 +51,8 @@ public class AtomDeserializer
     public AtomDeserializer(CellNameType type, DataInput in, ColumnSerializer.Flag flag, int expireBefore, Version version)
     {
         this.type = type;
-        this.nameDeserializer = type.newDeserializer(in);
+        this.compactSerializer = version.hasCompactCellEncoding() ? new CompactAtomSerializer(type) : null;
+        this.nameDeserializer = compactSerializer == null ? type.newDeserializer(in) : compactSerializer.newNameDeserializer(in);
         this.in = in;
         this.flag = flag;
         this.expireBefore = expireBefore;
@@ -105,9 +108,13 @@ public class AtomDeserializer
         assert !name.isEmpty(); // This would imply hasNext() hasn't been called
 
         nextFlags = nextFlags == Integer.MIN_VALUE ? in.readUnsignedByte() : nextFlags;
-        OnDiskAtom atom = (nextFlags & ColumnSerializer.RANGE_TOMBSTONE_MASK) != 0
-                        ? type.rangeTombstoneSerializer().deserializeBody(in, name, version)
-                        : type.columnSerializer().deserializeColumnBody(in, (CellName)name, nextFlags, flag, expireBefore);
+        OnDiskAtom atom;
+        if (compactSerializer != null)
+            atom = compactSerializer.deserializeBody(in, name, nextFlags, flag, expireBefore, version);
+        else
+            atom = (nextFlags & ColumnSerializer.RANGE_TOMBSTONE_MASK) != 0
+                 ? type.rangeTombstoneSerializer().deserializeBody(in, name, version)
+                 : type.columnSerializer().deserializeColumnBody(in, (CellName)name, nextFlags, flag, expireBefore);
         nextFlags = Integer.MIN_VALUE;
         return atom;
     }
@@ -119,7 +126,9 @@ public class AtomDeserializer
     {
         nameDeserializer.skipNext();
         nextFlags = nextFlags == Integer.MIN_VALUE ? in.readUnsignedByte() : nextFlags;
-        if ((nextFlags & ColumnSerializer.RANGE_TOMBSTONE_MASK) != 0)
+        if (compactSerializer != null)
+            compactSerializer.skipBody(in, nextFlags, version);
+        else if ((nextFlags & ColumnSerializer.RANGE_TOMBSTONE_MASK) != 0)
             type.rangeTombstoneSerializer().skipBody(in, version);
         else
             type.columnSerializer().skipColumnBody(in, nextFlags);
@@ -20,16 +20,32 @@ package org.apache.cassandra.db;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
 import java.util.TreeSet;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.Uninterruptibles;
 
+import org.apache.cassandra.concurrent.JMXEnabledThreadPoolExecutor;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
 import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.filter.NamesQueryFilter;
@@ -37,17 +53,42 @@ import org.apache.cassandra.db.filter.QueryFilter;
 import org.apache.cassandra.db.marshal.CounterColumnType;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.net.RequestDeadline;
+import org.apache.cassandra.tracing.TraceState;
 import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.utils.SearchIterator;
 import org.apache.cassandra.utils.memory.HeapAllocator;
 
 public class CollationController
 {
+    // opens the sstable iterators of a read ahead of the merge, so that their index and data seeks overlap
+    private static volatile ExecutorService probeExecutor = DatabaseDescriptor.getConcurrentSSTableProbes() > 0
+                                                       ? new JMXEnabledThreadPoolExecutor(DatabaseDescriptor.getConcurrentSSTableProbes(),
+                                                                                          StageManager.KEEPALIVE,
+                                                                                          TimeUnit.SECONDS,
+                                                                                          new LinkedBlockingQueue<Runnable>(),
+                                                                                          new NamedThreadFactory("SSTableProbes"),
+                                                                                          "internal")
+                                                       : null;
+
+    /**
+     * Replaces the executor probing sstables, null disabling the probes, and returns the previous one.
+     */
+    @VisibleForTesting
+    static ExecutorService setProbeExecutor(ExecutorService executor)
+    {
+        ExecutorService previous = probeExecutor;
+        probeExecutor = executor;
+        return previous;
+    }
+
     private final ColumnFamilyStore cfs;
     private final QueryFilter filter;
     private final int gcBefore;
 
     private int sstablesIterated = 0;
+    // iterators being opened on the probe executor, removed as the merge consumes them
+    private Map<SSTableReader, Future<OnDiskAtomIterator>> probes = Collections.emptyMap();
 
     public CollationController(ColumnFamilyStore cfs, QueryFilter filter, int gcBefore)
     {
@@ -107,10 +148,15 @@ public class CollationController
 
             /* add the SSTables on disk */
             Collections.sort(view.sstables, SSTableReader.maxTimestampComparator);
+            ExecutorService executor = probeExecutor;
+            if (executor != null)
+                startTimeOrderedProbes(executor, view.sstables, container, namesFilter, filterColumns);
 
             // read sorted sstables
+            long deadline = RequestDeadline.current();
             for (SSTableReader sstable : view.sstables)
             {
+                RequestDeadline.check(deadline);
                 // if we've already seen a row tombstone with a timestamp greater
                 // than the most recent update to this sstable, we're done, since the rest of the sstables
                 // will also be older
@@ -124,7 +170,7 @@ public class CollationController
 
                 Tracing.trace("Merging data from sstable {}", sstable.descriptor.generation);
                 sstable.incrementReadCount();
-                OnDiskAtomIterator iter = reducedFilter.getSSTableColumnIterator(sstable);
+                OnDiskAtomIterator iter = getSSTableColumnIterator(sstable, reducedFilter);
                 iterators.add(iter);
                 isEmpty = false;
                 if (iter.getColumnFamily() != null)
@@ -170,6 +216,7 @@ public class CollationController
         }
         finally
         {
+            closeProbes();
             for (OnDiskAtomIterator iter : iterators)
                 FileUtils.closeQuietly(iter);
         }
@@ -245,8 +292,25 @@ public class CollationController
             long minTimestamp = Long.MAX_VALUE;
             int nonIntersectingSSTables = 0;
 
+            ExecutorService executor = probeExecutor;
+            if (executor != null)
+            {
+                // probe the sstables the loop below visits, as far as the memtables tell
+                Map<SSTableReader, QueryFilter> toProbe = new LinkedHashMap<>();
+                for (SSTableReader sstable : view.sstables)
+                {
+                    if (sstable.getMaxTimestamp() < returnDeletionInfo.getTopLevelDeletion().markedForDeleteAt)
+                        break;
+                    if (filter.shouldInclude(sstable))
+                        toProbe.put(sstable, filter);
+                }
+                startProbes(executor, toProbe);
+            }
+
+            long deadline = RequestDeadline.current();
             for (SSTableReader sstable : view.sstables)
             {
+                RequestDeadline.check(deadline);
                 minTimestamp = Math.min(minTimestamp, sstable.getMinTimestamp());
                 // if we've already seen a row tombstone with a timestamp greater
                 // than the most recent update to this sstable, we can skip it
@@ -267,7 +331,7 @@ public class CollationController
                 }
 
                 sstable.incrementReadCount();
-                OnDiskAtomIterator iter = filter.getSSTableColumnIterator(sstable);
+                OnDiskAtomIterator iter = getSSTableColumnIterator(sstable, filter);
                 iterators.add(iter);
                 if (iter.getColumnFamily() != null)
                 {
@@ -276,6 +340,8 @@ public class CollationController
                     sstablesIterated++;
                 }
             }
+            // iterators of the sstables eliminated by a row tombstone
+            closeProbes();
 
             int includedDueToTombstones = 0;
             // Check for row tombstone in the skipped sstables
@@ -321,12 +387,115 @@ public class CollationController
         }
         finally
         {
+            closeProbes();
             for (Object iter : iterators)
                 if (iter instanceof Closeable)
                     FileUtils.closeQuietly((Closeable) iter);
         }
     }
 
+    /**
+     * Starts probing the sstables collectTimeOrderedData visits, as far as the memtables merged in @param container
+     * tell: the loop stops at the first sstable older than the row tombstone, or for which the memtables already have
+     * newer data for all the columns.  Each probe reads the columns still wanted at that point.  It can't see the
+     * columns the newer sstables will reduce away, so it may read extra, older cells, which are simply superseded in
+     * the container.
+     */
+    private void startTimeOrderedProbes(ExecutorService executor, List<SSTableReader> sstables, ColumnFamily container, NamesQueryFilter namesFilter, TreeSet<CellName> filterColumns)
+    {
+        QueryFilter probeFilter = new QueryFilter(filter.key, filter.cfName, namesFilter.withUpdatedColumns(new TreeSet<>(filterColumns)), filter.timestamp);
+        Map<SSTableReader, QueryFilter> toProbe = new LinkedHashMap<>();
+        for (SSTableReader sstable : sstables)
+        {
+            if (sstable.getMaxTimestamp() < container.deletionInfo().getTopLevelDeletion().markedForDeleteAt)
+                break;
+
+            reduceNameFilter(probeFilter, container, sstable.getMaxTimestamp());
+            SortedSet<CellName> columns = ((NamesQueryFilter) probeFilter.filter).columns;
+            if (columns.isEmpty())
+                break;
+
+            toProbe.put(sstable, new QueryFilter(filter.key, filter.cfName, namesFilter.withUpdatedColumns(new TreeSet<>(columns)), filter.timestamp));
+        }
+        startProbes(executor, toProbe);
+    }
+
+    /**
+     * Starts opening the iterators of @param toProbe sstables with their filter on @param executor, if there is
+     * more than one, so that the merge finds them ready instead of seeking in each sstable in turn.  The data the
+     * merge reads can still make it stop before some of them, in which case closeProbes() cancels those that haven't
+     * started yet.
+     */
+    private void startProbes(ExecutorService executor, Map<SSTableReader, QueryFilter> toProbe)
+    {
+        if (toProbe.size() < 2)
+            return;
+
+        // the probes trace to the session of the read, if it is traced
+        final TraceState state = Tracing.instance.get();
+        probes = new HashMap<>(toProbe.size());
+        for (Map.Entry<SSTableReader, QueryFilter> entry : toProbe.entrySet())
+        {
+            final SSTableReader sstable = entry.getKey();
+            final QueryFilter probeFilter = entry.getValue();
+            probes.put(sstable, executor.submit(new Callable<OnDiskAtomIterator>()
+            {
+                public OnDiskAtomIterator call()
+                {
+                    TraceState oldState = Tracing.instance.get();
+                    Tracing.instance.set(state);
+                    try
+                    {
+                        Tracing.trace("Probing sstable {}", sstable.descriptor.generation);
+                        return probeFilter.getSSTableColumnIterator(sstable);
+                    }
+                    finally
+                    {
+                        Tracing.instance.set(oldState);
+                    }
+                }
+            }));
+        }
+    }
+
+    private OnDiskAtomIterator getSSTableColumnIterator(SSTableReader sstable, QueryFilter filter)
+    {
+        Future<OnDiskAtomIterator> probe = probes.remove(sstable);
+        if (probe == null)
+            return filter.getSSTableColumnIterator(sstable);
+
+        try
+        {
+            return Uninterruptibles.getUninterruptibly(probe);
+        }
+        catch (ExecutionException e)
+        {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Closes the iterators of the probes the merge didn't use, waiting for the ones that are already running.
+     */
+    private void closeProbes()
+    {
+        for (Future<OnDiskAtomIterator> probe : probes.values())
+        {
+            if (probe.cancel(false))
+                continue;
+
+            try
+            {
+                FileUtils.closeQuietly(Uninterruptibles.getUninterruptibly(probe));
+            }
+            catch (ExecutionException e)
+            {
+                // the sstable wasn't needed, so neither is its error
+            }
+        }
+        probes = Collections.emptyMap();
+    }
+
     public int getSstablesIterated()
     {
         return sstablesIterated;
@@ -24,8 +24,11 @@ import java.util.*;
 import com.google.common.annotations.VisibleForTesting;
 
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.composites.CType;
 import org.apache.cassandra.db.composites.Composite;
 import org.apache.cassandra.io.sstable.IndexHelper;
+import org.apache.cassandra.io.sstable.PrefixCompressedColumnIndex;
+import org.apache.cassandra.io.sstable.format.Version;
 import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.utils.ByteBufferUtil;
 
@@ -69,10 +72,23 @@ public class ColumnIndex
         private final DeletionInfo deletionInfo; // only used for serializing and calculating row header size
 
         private final OnDiskAtom.Serializer atomSerializer;
+        // if not null, the index built is a PrefixCompressedColumnIndex of this type
+        private final CType compressedIndexType;
 
         public Builder(ColumnFamily cf,
                        ByteBuffer key,
                        DataOutputPlus output)
+        {
+            this(cf, key, output, DatabaseDescriptor.getSSTableFormat().info.getLatestVersion());
+        }
+
+        /**
+         * @param version the version of the sstable the atoms are written to
+         */
+        public Builder(ColumnFamily cf,
+                       ByteBuffer key,
+                       DataOutputPlus output,
+                       Version version)
         {
             assert cf != null;
             assert key != null;
@@ -84,7 +100,8 @@ public class ColumnIndex
             this.result = new ColumnIndex(new ArrayList<IndexHelper.IndexInfo>());
             this.output = output;
             this.tombstoneTracker = new RangeTombstone.Tracker(cf.getComparator());
-            this.atomSerializer = cf.getComparator().onDiskAtomSerializer();
+            this.atomSerializer = cf.getComparator().onDiskAtomSerializer().forPartition(version);
+            this.compressedIndexType = version.hasPrefixCompressedColumnIndex() ? cf.getComparator() : null;
         }
 
         /**
@@ -179,6 +196,7 @@ public class ColumnIndex
             {
                 firstColumn = column;
                 startPosition = endPosition;
+                atomSerializer.startBlock();
                 // TODO: have that use the firstColumn as min + make sure we optimize that on read
                 endPosition += tombstoneTracker.writeOpenedMarker(firstColumn, output, atomSerializer);
                 blockSize = 0; // We don't count repeated tombstone marker in the block size, to avoid a situation
@@ -231,6 +249,9 @@ public class ColumnIndex
 
             // we should always have at least one computed index block, but we only write it out if there is more than that.
             assert result.columnsIndex.size() > 0;
+            // encode the index once here, so that serializing the row index entry doesn't have to do it every time
+            if (compressedIndexType != null && result.columnsIndex.size() > 1)
+                return new ColumnIndex(PrefixCompressedColumnIndex.create(result.columnsIndex, compressedIndexType));
             return result;
         }
 
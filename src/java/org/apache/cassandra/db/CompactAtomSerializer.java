@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.CellNameType;
+import org.apache.cassandra.db.composites.Composite;
+import org.apache.cassandra.io.sstable.format.Version;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.vint.EncodedDataInputStream;
+import org.apache.cassandra.utils.vint.EncodedDataOutputStream;
+
+/**
+ * Serializes the atoms of a partition in the compact sstable encoding (see Version#hasCompactCellEncoding).
+ *
+ * Atom names are written as the length of the prefix they share with the previous atom name, followed by the
+ * remaining bytes.  Cell timestamps, and the local deletion time of expiring cells, are written as the difference
+ * with the ones of the previous cell.  Lengths and differences are vint encoded.  An empty name (two zero bytes)
+ * still marks the end of the row, as in the legacy encoding.
+ *
+ * The first atom of each column index block is written in full, without DELTA_MASK in its flags, so that readers
+ * can start at any block.  Instances are thus stateful, and must see all the atoms of a single partition in order.
+ */
+public class CompactAtomSerializer extends OnDiskAtom.Serializer
+{
+    // set on cells whose timestamps are written relatively to the ones of the previous cell
+    public final static int DELTA_MASK = 0x20;
+
+    private final CellNameType type;
+
+    private ByteBuffer previousName = ByteBufferUtil.EMPTY_BYTE_BUFFER;
+    private boolean hasPreviousCell;
+    private long previousTimestamp;
+    private int previousLocalDeletionTime;
+
+    public CompactAtomSerializer(CellNameType type)
+    {
+        super(type);
+        this.type = type;
+    }
+
+    @Override
+    public OnDiskAtom.Serializer forPartition(Version version)
+    {
+        return new CompactAtomSerializer(type);
+    }
+
+    @Override
+    public void startBlock()
+    {
+        previousName = ByteBufferUtil.EMPTY_BYTE_BUFFER;
+        hasPreviousCell = false;
+        previousTimestamp = 0;
+        previousLocalDeletionTime = 0;
+    }
+
+    @Override
+    public void serializeForSSTable(OnDiskAtom atom, DataOutputPlus out) throws IOException
+    {
+        ByteBuffer name = atom.name().toByteBuffer();
+        assert name.hasRemaining();
+        int shared = ByteBufferUtil.sharedPrefixLength(previousName, name);
+        EncodedDataOutputStream.writeVLong(shared, out);
+        EncodedDataOutputStream.writeVLong(name.remaining() - shared, out);
+        ByteBuffer suffix = name.duplicate();
+        suffix.position(suffix.position() + shared);
+        out.write(suffix);
+        previousName = name;
+
+        if (atom instanceof RangeTombstone)
+        {
+            RangeTombstone tombstone = (RangeTombstone) atom;
+            out.writeByte(ColumnSerializer.RANGE_TOMBSTONE_MASK);
+            type.serializer().serialize(tombstone.max, out);
+            DeletionTime.serializer.serialize(tombstone.data, out);
+            return;
+        }
+
+        Cell cell = (Cell) atom;
+        out.writeByte(cell.serializationFlags() | (hasPreviousCell ? DELTA_MASK : 0));
+        if (cell instanceof CounterCell)
+        {
+            out.writeLong(((CounterCell) cell).timestampOfLastDelete());
+        }
+        else if (cell instanceof ExpiringCell)
+        {
+            EncodedDataOutputStream.writeVLong(((ExpiringCell) cell).getTimeToLive(), out);
+            if (hasPreviousCell)
+                EncodedDataOutputStream.writeVLong((long) cell.getLocalDeletionTime() - previousLocalDeletionTime, out);
+            else
+                out.writeInt(cell.getLocalDeletionTime());
+            previousLocalDeletionTime = cell.getLocalDeletionTime();
+        }
+        if (hasPreviousCell)
+            EncodedDataOutputStream.writeVLong(cell.timestamp() - previousTimestamp, out);
+        else
+            out.writeLong(cell.timestamp());
+        EncodedDataOutputStream.writeVLong(cell.value().remaining(), out);
+        out.write(cell.value().duplicate());
+
+        previousTimestamp = cell.timestamp();
+        hasPreviousCell = true;
+    }
+
+    /**
+     * @return the size @param atom would have if it was serialized next.  Unlike serializeForSSTable, this
+     * doesn't change our state.
+     */
+    @Override
+    public long serializedSizeForSSTable(OnDiskAtom atom)
+    {
+        TypeSizes sizes = TypeSizes.VINT;
+        ByteBuffer name = atom.name().toByteBuffer();
+        int shared = ByteBufferUtil.sharedPrefixLength(previousName, name);
+        long size = sizes.sizeof(shared) + sizes.sizeof(name.remaining() - shared) + name.remaining() - shared;
+        size += 1; // flags
+
+        if (atom instanceof RangeTombstone)
+        {
+            RangeTombstone tombstone = (RangeTombstone) atom;
+            return size
+                 + type.serializer().serializedSize(tombstone.max, TypeSizes.NATIVE)
+                 + DeletionTime.serializer.serializedSize(tombstone.data, TypeSizes.NATIVE);
+        }
+
+        Cell cell = (Cell) atom;
+        if (cell instanceof CounterCell)
+        {
+            size += TypeSizes.NATIVE.sizeof(((CounterCell) cell).timestampOfLastDelete());
+        }
+        else if (cell instanceof ExpiringCell)
+        {
+            size += sizes.sizeof(((ExpiringCell) cell).getTimeToLive());
+            size += hasPreviousCell
+                  ? sizes.sizeof((long) cell.getLocalDeletionTime() - previousLocalDeletionTime)
+                  : TypeSizes.NATIVE.sizeof(cell.getLocalDeletionTime());
+        }
+        size += hasPreviousCell
+              ? sizes.sizeof(cell.timestamp() - previousTimestamp)
+              : TypeSizes.NATIVE.sizeof(cell.timestamp());
+        int valueLength = cell.value().remaining();
+        return size + sizes.sizeof(valueLength) + valueLength;
+    }
+
+    @Override
+    public OnDiskAtom deserializeFromSSTable(DataInput in, ColumnSerializer.Flag flag, int expireBefore, Version version) throws IOException
+    {
+        ByteBuffer name = readName(in);
+        if (!name.hasRemaining())
+        {
+            // SSTableWriter.END_OF_ROW
+            return null;
+        }
+
+        int b = in.readUnsignedByte();
+        return deserializeBody(in, type.fromByteBuffer(name), b, flag, expireBefore, version);
+    }
+
+    /**
+     * Reads the next atom name, which is empty at the end of the row.
+     */
+    ByteBuffer readName(DataInput in) throws IOException
+    {
+        int shared = (int) EncodedDataInputStream.readVLong(in);
+        int length = (int) EncodedDataInputStream.readVLong(in);
+        if (shared == 0 && length == 0)
+            return ByteBufferUtil.EMPTY_BYTE_BUFFER;
+
+        if (shared > previousName.remaining())
+            throw new ColumnSerializer.CorruptColumnException(String.format("invalid shared name prefix length %d (previous name is %d bytes)",
+                                                                            shared, previousName.remaining()));
+
+        byte[] bytes = new byte[shared + length];
+        ByteBufferUtil.arrayCopy(previousName, previousName.position(), bytes, 0, shared);
+        in.readFully(bytes, shared, length);
+        previousName = ByteBuffer.wrap(bytes);
+        return previousName;
+    }
+
+    OnDiskAtom deserializeBody(DataInput in, Composite name, int mask, ColumnSerializer.Flag flag, int expireBefore, Version version) throws IOException
+    {
+        if ((mask & ColumnSerializer.RANGE_TOMBSTONE_MASK) != 0)
+            return type.rangeTombstoneSerializer().deserializeBody(in, name, version);
+
+        CellName cellName = (CellName) name;
+        boolean isDelta = startCell(mask);
+        if ((mask & ColumnSerializer.COUNTER_MASK) != 0)
+        {
+            long timestampOfLastDelete = in.readLong();
+            long ts = readTimestamp(in, isDelta);
+            ByteBuffer value = readValue(in);
+            return BufferCounterCell.create(cellName, value, ts, timestampOfLastDelete, flag);
+        }
+        else if ((mask & ColumnSerializer.EXPIRATION_MASK) != 0)
+        {
+            int ttl = (int) EncodedDataInputStream.readVLong(in);
+            int expiration = readLocalDeletionTime(in, isDelta);
+            long ts = readTimestamp(in, isDelta);
+            ByteBuffer value = readValue(in);
+            return BufferExpiringCell.create(cellName, value, ts, ttl, expiration, expireBefore, flag);
+        }
+        else
+        {
+            long ts = readTimestamp(in, isDelta);
+            ByteBuffer value = readValue(in);
+            return (mask & ColumnSerializer.COUNTER_UPDATE_MASK) != 0
+                   ? new BufferCounterUpdateCell(cellName, value, ts)
+                   : ((mask & ColumnSerializer.DELETION_MASK) == 0
+                      ? new BufferCell(cellName, value, ts)
+                      : new BufferDeletedCell(cellName, value, ts));
+        }
+    }
+
+    void skipBody(DataInput in, int mask, Version version) throws IOException
+    {
+        if ((mask & ColumnSerializer.RANGE_TOMBSTONE_MASK) != 0)
+        {
+            type.rangeTombstoneSerializer().skipBody(in, version);
+            return;
+        }
+
+        // we still have to decode the deltas, since the next cell is relative to this one
+        boolean isDelta = startCell(mask);
+        if ((mask & ColumnSerializer.COUNTER_MASK) != 0)
+        {
+            FileUtils.skipBytesFully(in, 8);
+        }
+        else if ((mask & ColumnSerializer.EXPIRATION_MASK) != 0)
+        {
+            EncodedDataInputStream.readVLong(in);
+            readLocalDeletionTime(in, isDelta);
+        }
+        readTimestamp(in, isDelta);
+        FileUtils.skipBytesFully(in, (int) EncodedDataInputStream.readVLong(in));
+    }
+
+    /**
+     * A cell without DELTA_MASK is the first of its index block, so the writer encoded everything that follows
+     * relative to the same zeroed state startBlock() gave it.
+     */
+    private boolean startCell(int mask)
+    {
+        if ((mask & DELTA_MASK) != 0)
+            return true;
+
+        previousTimestamp = 0;
+        previousLocalDeletionTime = 0;
+        return false;
+    }
+
+    private long readTimestamp(DataInput in, boolean isDelta) throws IOException
+    {
+        previousTimestamp = isDelta ? previousTimestamp + EncodedDataInputStream.readVLong(in) : in.readLong();
+        return previousTimestamp;
+    }
+
+    private int readLocalDeletionTime(DataInput in, boolean isDelta) throws IOException
+    {
+        previousLocalDeletionTime = isDelta
+                                  ? (int) (previousLocalDeletionTime + EncodedDataInputStream.readVLong(in))
+                                  : in.readInt();
+        return previousLocalDeletionTime;
+    }
+
+    private static ByteBuffer readValue(DataInput in) throws IOException
+    {
+        int length = (int) EncodedDataInputStream.readVLong(in);
+        return ByteBufferUtil.read(in, length);
+    }
+
+    /**
+     * @return a CellNameType.Deserializer reading the names of the atoms deserialized by this serializer.
+     * The names are always fully materialized, since they can't be compared before being rebuilt anyway.
+     */
+    CellNameType.Deserializer newNameDeserializer(final DataInput in)
+    {
+        return new CellNameType.Deserializer()
+        {
+            private ByteBuffer next;
+            private Composite nextComposite;
+
+            public boolean hasNext() throws IOException
+            {
+                maybeReadNext();
+                return next.hasRemaining();
+            }
+
+            public boolean hasUnprocessed() throws IOException
+            {
+                return next != null;
+            }
+
+            public int compareNextTo(Composite composite) throws IOException
+            {
+                maybeReadNext();
+
+                if (composite.isEmpty())
+                    return next.hasRemaining() ? 1 : 0;
+
+                return type.compare(nextComposite(), composite);
+            }
+
+            private void maybeReadNext() throws IOException
+            {
+                if (next != null)
+                    return;
+
+                next = readName(in);
+                nextComposite = null;
+            }
+
+            private Composite nextComposite()
+            {
+                if (nextComposite == null)
+                    nextComposite = type.fromByteBuffer(next);
+                return nextComposite;
+            }
+
+            public Composite readNext() throws IOException
+            {
+                maybeReadNext();
+                Composite c = nextComposite();
+                next = null;
+                return c;
+            }
+
+            public void skipNext() throws IOException
+            {
+                maybeReadNext();
+                next = null;
+            }
+        };
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.Schema;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.CellNameType;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.vint.EncodedDataInputStream;
+import org.apache.cassandra.utils.vint.EncodedDataOutputStream;
+
+/**
+ * Serializes the mutations sent over an internode connection in a compact encoding, that both ends of the connection
+ * agree to use during their handshake (see MessagingService.COMPACT_MUTATIONS_HEADER_FLAG).
+ *
+ * Compared to Mutation.serializer, lengths and counts are vints, and cell timestamps and local deletion times are
+ * written as the vint encoded difference with the ones of the previous cell sent over the connection.  Table ids
+ * and cell names are looked up in dictionaries of the ones recently sent: one that is found is written as its index,
+ * others are written in full (names as the bytes they don't share with the previous name of the same table), then
+ * take the place of the oldest entry of their dictionary.
+ *
+ * Instances are thus stateful: the one serializing the mutations sent by one end of a connection and the one
+ * deserializing them at the other end must see the same mutations in the same order, and are discarded with the
+ * connection.
+ */
+public class CompactMutationSerializer
+{
+    static final int TABLE_DICTIONARY_SIZE = 64;
+    static final int NAME_DICTIONARY_SIZE = 1024;
+    // longer names, typically including clustering values, are unlikely to be sent again
+    static final int MAX_DICTIONARY_NAME_LENGTH = 64;
+
+    private final Dictionary<UUID> tables;
+    private final Dictionary<ByteBuffer> names;
+
+    private long previousTimestamp;
+    private int previousLocalDeletionTime;
+
+    private CompactMutationSerializer(boolean serializing)
+    {
+        tables = new Dictionary<>(TABLE_DICTIONARY_SIZE, serializing);
+        names = new Dictionary<>(NAME_DICTIONARY_SIZE, serializing);
+    }
+
+    /**
+     * @return a serializer for the mutations sent over a new connection
+     */
+    public static CompactMutationSerializer forSending()
+    {
+        return new CompactMutationSerializer(true);
+    }
+
+    /**
+     * @return a deserializer for the mutations received over a new connection
+     */
+    public static CompactMutationSerializer forReceiving()
+    {
+        return new CompactMutationSerializer(false);
+    }
+
+    public void serialize(Mutation mutation, DataOutputPlus out, int version) throws IOException
+    {
+        assert tables.indexes != null : "not a serializer";
+
+        writeBytes(mutation.key(), out);
+        EncodedDataOutputStream.writeVLong(mutation.getColumnFamilies().size(), out);
+        for (ColumnFamily cf : mutation.getColumnFamilies())
+            serialize(cf, out, version);
+    }
+
+    private void serialize(ColumnFamily cf, DataOutputPlus out, int version) throws IOException
+    {
+        int index = tables.indexOf(cf.id());
+        if (index >= 0)
+        {
+            EncodedDataOutputStream.writeVLong((index << 1) | 1, out);
+        }
+        else
+        {
+            EncodedDataOutputStream.writeVLong(0, out);
+            out.writeLong(cf.id().getMostSignificantBits());
+            out.writeLong(cf.id().getLeastSignificantBits());
+            tables.add(cf.id());
+        }
+
+        if (cf.deletionInfo().isLive())
+        {
+            out.writeBoolean(false);
+        }
+        else
+        {
+            out.writeBoolean(true);
+            cf.getComparator().deletionInfoSerializer().serialize(cf.deletionInfo(), out, version);
+        }
+
+        EncodedDataOutputStream.writeVLong(cf.getColumnCount(), out);
+        ByteBuffer previousName = ByteBufferUtil.EMPTY_BYTE_BUFFER;
+        for (Cell cell : cf)
+        {
+            ByteBuffer name = cell.name().toByteBuffer();
+            writeName(name, previousName, out);
+            previousName = name;
+
+            out.writeByte(cell.serializationFlags());
+            if (cell instanceof CounterCell)
+            {
+                out.writeLong(((CounterCell) cell).timestampOfLastDelete());
+            }
+            else if (cell instanceof ExpiringCell)
+            {
+                EncodedDataOutputStream.writeVLong(((ExpiringCell) cell).getTimeToLive(), out);
+                EncodedDataOutputStream.writeVLong((long) cell.getLocalDeletionTime() - previousLocalDeletionTime, out);
+                previousLocalDeletionTime = cell.getLocalDeletionTime();
+            }
+            EncodedDataOutputStream.writeVLong(cell.timestamp() - previousTimestamp, out);
+            previousTimestamp = cell.timestamp();
+            writeBytes(cell.value(), out);
+        }
+    }
+
+    private void writeName(ByteBuffer name, ByteBuffer previousName, DataOutputPlus out) throws IOException
+    {
+        int index = names.indexOf(name);
+        if (index >= 0)
+        {
+            EncodedDataOutputStream.writeVLong((index << 1) | 1, out);
+            return;
+        }
+
+        int shared = ByteBufferUtil.sharedPrefixLength(previousName, name);
+        EncodedDataOutputStream.writeVLong(shared << 1, out);
+        EncodedDataOutputStream.writeVLong(name.remaining() - shared, out);
+        ByteBuffer suffix = name.duplicate();
+        suffix.position(suffix.position() + shared);
+        out.write(suffix);
+
+        if (name.remaining() <= MAX_DICTIONARY_NAME_LENGTH)
+            names.add(ByteBufferUtil.clone(name));
+    }
+
+    private static void writeBytes(ByteBuffer bytes, DataOutputPlus out) throws IOException
+    {
+        EncodedDataOutputStream.writeVLong(bytes.remaining(), out);
+        out.write(bytes.duplicate());
+    }
+
+    public Mutation deserialize(DataInput in, int version) throws IOException
+    {
+        assert tables.indexes == null : "not a deserializer";
+
+        ByteBuffer key = readBytes(in);
+        int size = (int) EncodedDataInputStream.readVLong(in);
+        assert size > 0;
+
+        Map<UUID, ColumnFamily> modifications = size == 1 ? null : new HashMap<UUID, ColumnFamily>(size);
+        ColumnFamily cf = null;
+        for (int i = 0; i < size; i++)
+        {
+            cf = deserializeOneCf(in, version);
+            if (modifications != null)
+                modifications.put(cf.id(), cf);
+        }
+        if (modifications == null)
+            modifications = Collections.singletonMap(cf.id(), cf);
+        return new Mutation(cf.metadata().ksName, key, modifications);
+    }
+
+    private ColumnFamily deserializeOneCf(DataInput in, int version) throws IOException
+    {
+        int header = (int) EncodedDataInputStream.readVLong(in);
+        UUID cfId;
+        if ((header & 1) != 0)
+        {
+            cfId = tables.get(header >>> 1);
+        }
+        else
+        {
+            cfId = new UUID(in.readLong(), in.readLong());
+            tables.add(cfId);
+        }
+
+        // our state is not consistent with the sender's anymore, but the connection is closed on such errors
+        CFMetaData metadata = Schema.instance.getCFMetaData(cfId);
+        if (metadata == null)
+            throw new UnknownColumnFamilyException("Couldn't find cfId=" + cfId, cfId);
+
+        ColumnFamily cf = ArrayBackedSortedColumns.factory.create(metadata);
+        CellNameType type = cf.getComparator();
+        if (in.readBoolean())
+            cf.delete(type.deletionInfoSerializer().deserialize(in, version));
+
+        int count = (int) EncodedDataInputStream.readVLong(in);
+        ByteBuffer previousName = ByteBufferUtil.EMPTY_BYTE_BUFFER;
+        for (int i = 0; i < count; i++)
+        {
+            ByteBuffer name = readName(in, previousName);
+            previousName = name;
+            cf.addColumn(deserializeCellBody(in, type.cellFromByteBuffer(name), in.readUnsignedByte()));
+        }
+        return cf;
+    }
+
+    private ByteBuffer readName(DataInput in, ByteBuffer previousName) throws IOException
+    {
+        int header = (int) EncodedDataInputStream.readVLong(in);
+        if ((header & 1) != 0)
+            return names.get(header >>> 1);
+
+        int shared = header >>> 1;
+        int length = (int) EncodedDataInputStream.readVLong(in);
+        if (shared > previousName.remaining())
+            throw new ColumnSerializer.CorruptColumnException(String.format("invalid shared name prefix length %d (previous name is %d bytes)",
+                                                                            shared, previousName.remaining()));
+
+        byte[] bytes = new byte[shared + length];
+        ByteBufferUtil.arrayCopy(previousName, previousName.position(), bytes, 0, shared);
+        in.readFully(bytes, shared, length);
+        ByteBuffer name = ByteBuffer.wrap(bytes);
+        if (name.remaining() <= MAX_DICTIONARY_NAME_LENGTH)
+            names.add(name);
+        return name;
+    }
+
+    private Cell deserializeCellBody(DataInput in, CellName name, int mask) throws IOException
+    {
+        if ((mask & ColumnSerializer.COUNTER_MASK) != 0)
+        {
+            long timestampOfLastDelete = in.readLong();
+            long ts = readTimestamp(in);
+            ByteBuffer value = readBytes(in);
+            return BufferCounterCell.create(name, value, ts, timestampOfLastDelete, ColumnSerializer.Flag.FROM_REMOTE);
+        }
+        else if ((mask & ColumnSerializer.EXPIRATION_MASK) != 0)
+        {
+            int ttl = (int) EncodedDataInputStream.readVLong(in);
+            previousLocalDeletionTime = (int) (previousLocalDeletionTime + EncodedDataInputStream.readVLong(in));
+            long ts = readTimestamp(in);
+            ByteBuffer value = readBytes(in);
+            return BufferExpiringCell.create(name, value, ts, ttl, previousLocalDeletionTime, Integer.MIN_VALUE, ColumnSerializer.Flag.FROM_REMOTE);
+        }
+        else
+        {
+            long ts = readTimestamp(in);
+            ByteBuffer value = readBytes(in);
+            return (mask & ColumnSerializer.COUNTER_UPDATE_MASK) != 0
+                   ? new BufferCounterUpdateCell(name, value, ts)
+                   : ((mask & ColumnSerializer.DELETION_MASK) == 0
+                      ? new BufferCell(name, value, ts)
+                      : new BufferDeletedCell(name, value, ts));
+        }
+    }
+
+    private long readTimestamp(DataInput in) throws IOException
+    {
+        previousTimestamp += EncodedDataInputStream.readVLong(in);
+        return previousTimestamp;
+    }
+
+    private static ByteBuffer readBytes(DataInput in) throws IOException
+    {
+        return ByteBufferUtil.read(in, (int) EncodedDataInputStream.readVLong(in));
+    }
+
+    /**
+     * A fixed number of entries, each new one taking the place of the oldest, so that both ends of a connection
+     * update theirs identically.  Only the serializing end needs to look entries up.
+     */
+    private static class Dictionary<T>
+    {
+        private final Object[] entries;
+        private final Map<T, Integer> indexes;
+        private int next;
+
+        Dictionary(int size, boolean serializing)
+        {
+            entries = new Object[size];
+            indexes = serializing ? new HashMap<T, Integer>(size * 2) : null;
+        }
+
+        int indexOf(T entry)
+        {
+            Integer index = indexes.get(entry);
+            return index == null ? -1 : index;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int index) throws IOException
+        {
+            if (index >= entries.length || entries[index] == null)
+                throw new IOException(String.format("invalid dictionary index %d", index));
+            return (T) entries[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        void add(T entry)
+        {
+            if (indexes != null)
+            {
+                if (entries[next] != null)
+                    indexes.remove((T) entries[next]);
+                indexes.put(entry, next);
+            }
+            entries[next] = entry;
+            next = (next + 1) % entries.length;
+        }
+    }
+}
@@ -64,7 +64,8 @@ public class MutationVerbHandler implements IVerbHandler<Mutation>
             int size = in.readInt();
 
             // tell the recipients who to send their ack to
-            MessageOut<Mutation> message = new MessageOut<>(verb, mutation, Mutation.serializer).withParameter(Mutation.FORWARD_FROM, from.getAddress());
+            MessageOut<Mutation> message = new MessageOut<>(verb, mutation, Mutation.serializer).withParameter(Mutation.FORWARD_FROM, from.getAddress())
+                                                                                                .withDeadline(RequestDeadline.current());
             // Send a message to each of the addresses on our Forward List
             for (int i = 0; i < size; i++)
             {
@@ -52,6 +52,23 @@ public interface OnDiskAtom
             this.type = type;
         }
 
+        /**
+         * @return a serializer for the atoms of a single partition in the encoding of sstable @param version.
+         * The returned serializer may be stateful, in which case it must see every atom of the partition in order.
+         */
+        public Serializer forPartition(Version version)
+        {
+            return version.hasCompactCellEncoding() ? new CompactAtomSerializer(type) : this;
+        }
+
+        /**
+         * Called by writers at the start of each column index block, so that readers can start deserializing
+         * from there without having read the previous atoms.  This is a no-op unless the encoding is stateful.
+         */
+        public void startBlock()
+        {
+        }
+
         public void serializeForSSTable(OnDiskAtom atom, DataOutputPlus out) throws IOException
         {
             if (atom instanceof Cell)
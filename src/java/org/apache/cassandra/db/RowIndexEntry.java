@@ -27,8 +27,10 @@ import java.util.List;
 import com.google.common.primitives.Ints;
 
 import org.apache.cassandra.cache.IMeasurableMemory;
+import org.apache.cassandra.db.composites.CType;
 import org.apache.cassandra.io.ISerializer;
 import org.apache.cassandra.io.sstable.IndexHelper;
+import org.apache.cassandra.io.sstable.PrefixCompressedColumnIndex;
 import org.apache.cassandra.io.sstable.format.Version;
 import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.io.util.FileUtils;
@@ -64,6 +66,15 @@ public class RowIndexEntry<T> implements IMeasurableMemory
             return new RowIndexEntry<>(position);
     }
 
+    /**
+     * @return a copy of this entry for the same row written at @param newPosition.  This is only valid if the
+     * serialized row is unchanged, since the promoted index offsets are relative to the start of the row.
+     */
+    public RowIndexEntry<T> withPosition(long newPosition)
+    {
+        return new RowIndexEntry<>(newPosition);
+    }
+
     /**
      * @return true if this index entry contains the row-level tombstone and column summary.  Otherwise,
      * caller should fetch these from the row header.
@@ -107,15 +118,33 @@ public class RowIndexEntry<T> implements IMeasurableMemory
     public static class Serializer implements IndexSerializer<IndexHelper.IndexInfo>
     {
         private final ISerializer<IndexHelper.IndexInfo> idxSerializer;
+        // if not null, the columns index is serialized as a PrefixCompressedColumnIndex of this type
+        private final CType compressedIndexType;
 
         public Serializer(ISerializer<IndexHelper.IndexInfo> idxSerializer)
+        {
+            this(idxSerializer, null);
+        }
+
+        public Serializer(ISerializer<IndexHelper.IndexInfo> idxSerializer, CType compressedIndexType)
         {
             this.idxSerializer = idxSerializer;
+            this.compressedIndexType = compressedIndexType;
         }
 
         public void serialize(RowIndexEntry<IndexHelper.IndexInfo> rie, DataOutputPlus out) throws IOException
         {
             out.writeLong(rie.position);
+
+            if (rie.isIndexed() && compressedIndexType != null)
+            {
+                PrefixCompressedColumnIndex index = compressedIndex(rie);
+                out.writeInt(compressedPromotedSize(rie.deletionTime(), index));
+                DeletionTime.serializer.serialize(rie.deletionTime(), out);
+                index.serialize(out);
+                return;
+            }
+
             out.writeInt(rie.promotedSize(idxSerializer));
 
             if (rie.isIndexed())
@@ -127,6 +156,24 @@ public class RowIndexEntry<T> implements IMeasurableMemory
             }
         }
 
+        /**
+         * Entries built for this version by ColumnIndex.Builder already hold their index encoded, so this only has to
+         * encode the index of entries built otherwise.
+         */
+        private PrefixCompressedColumnIndex compressedIndex(RowIndexEntry<IndexHelper.IndexInfo> rie)
+        {
+            List<IndexHelper.IndexInfo> index = rie.columnsIndex();
+            return index instanceof PrefixCompressedColumnIndex
+                 ? (PrefixCompressedColumnIndex) index
+                 : PrefixCompressedColumnIndex.create(index, compressedIndexType);
+        }
+
+        private static int compressedPromotedSize(DeletionTime deletionTime, PrefixCompressedColumnIndex index)
+        {
+            return Ints.checkedCast(DeletionTime.serializer.serializedSize(deletionTime, TypeSizes.NATIVE)
+                                    + index.serializedSize(TypeSizes.NATIVE));
+        }
+
         public RowIndexEntry<IndexHelper.IndexInfo> deserialize(DataInput in, Version version) throws IOException
         {
             long position = in.readLong();
@@ -135,6 +182,8 @@ public class RowIndexEntry<T> implements IMeasurableMemory
             if (size > 0)
             {
                 DeletionTime deletionTime = DeletionTime.serializer.deserialize(in);
+                if (compressedIndexType != null)
+                    return new IndexedEntry(position, deletionTime, PrefixCompressedColumnIndex.deserialize(in, compressedIndexType));
 
                 int entries = in.readInt();
                 List<IndexHelper.IndexInfo> columnsIndex = new ArrayList<>(entries);
@@ -166,6 +215,13 @@ public class RowIndexEntry<T> implements IMeasurableMemory
 
         public int serializedSize(RowIndexEntry<IndexHelper.IndexInfo> rie)
         {
+            if (rie.isIndexed() && compressedIndexType != null)
+            {
+                PrefixCompressedColumnIndex index = compressedIndex(rie);
+                int promotedSize = compressedPromotedSize(rie.deletionTime(), index);
+                return TypeSizes.NATIVE.sizeof(rie.position) + TypeSizes.NATIVE.sizeof(promotedSize) + promotedSize;
+            }
+
             int size = TypeSizes.NATIVE.sizeof(rie.position) + TypeSizes.NATIVE.sizeof(rie.promotedSize(idxSerializer));
 
             if (rie.isIndexed())
@@ -204,6 +260,12 @@ public class RowIndexEntry<T> implements IMeasurableMemory
             this.columnsIndex = columnsIndex;
         }
 
+        @Override
+        public RowIndexEntry<IndexHelper.IndexInfo> withPosition(long newPosition)
+        {
+            return new IndexedEntry(newPosition, deletionTime, columnsIndex);
+        }
+
         @Override
         public DeletionTime deletionTime()
         {
@@ -231,6 +293,9 @@ public class RowIndexEntry<T> implements IMeasurableMemory
         @Override
         public long unsharedHeapSize()
         {
+            if (columnsIndex instanceof PrefixCompressedColumnIndex)
+                return BASE_SIZE + deletionTime.unsharedHeapSize() + ((PrefixCompressedColumnIndex) columnsIndex).unsharedHeapSize();
+
             long entrySize = 0;
             for (IndexHelper.IndexInfo idx : columnsIndex)
                 entrySize += idx.unsharedHeapSize();
@@ -24,6 +24,7 @@ import java.security.MessageDigest;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.RowIndexEntry;
 import org.apache.cassandra.io.sstable.ColumnStats;
+import org.apache.cassandra.io.sstable.format.Version;
 import org.apache.cassandra.io.util.SequentialWriter;
 
 /**
@@ -41,13 +42,14 @@ public abstract class AbstractCompactedRow implements Closeable
     }
 
     /**
-     * write the row (size + column index + filter + column data, but NOT row key) to @param out.
+     * write the row (size + column index + filter + column data, but NOT row key) to @param out, in the format of
+     * sstables of @param version.
      *
      * write() may change internal state; it is NOT valid to call write() or update() a second time.
      *
      * @return index information for the written row, or null if the compaction resulted in only expired tombstones.
      */
-    public abstract RowIndexEntry write(long currentPosition, SequentialWriter out) throws IOException;
+    public abstract RowIndexEntry write(long currentPosition, SequentialWriter out, Version version) throws IOException;
 
     /**
      * update @param digest with the data bytes of the row (not including row key or row size).
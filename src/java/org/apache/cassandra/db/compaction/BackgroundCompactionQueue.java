@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.util.*;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+
+import org.apache.cassandra.db.ColumnFamilyStore;
+
+/**
+ * Node-wide queue of the tables waiting for a background compaction check.
+ *
+ * Background compaction tasks are not bound to a table: each one picks, when it starts running, the pending table
+ * whose backlog hurts reads the most (see {@link #score(ColumnFamilyStore)}).  That score is divided by one plus
+ * the number of background compactions the table is already running, so that a single table with a huge backlog
+ * cannot monopolize the compactors.  Tables with equal priority are served in submission order.
+ *
+ * A table is scored when it is submitted, which is whenever a flush or a compaction may have changed its backlog,
+ * and keeps the score of its latest submission until it is picked.
+ */
+public class BackgroundCompactionQueue
+{
+    private static class Pending
+    {
+        // submitted checks not yet picked up
+        int count;
+        double score;
+    }
+
+    // iteration order is the order of first submission
+    private final LinkedHashMap<ColumnFamilyStore, Pending> pending = new LinkedHashMap<>();
+    private final Multiset<ColumnFamilyStore> running = HashMultiset.create();
+
+    public void add(ColumnFamilyStore cfs)
+    {
+        // scoring looks at the metrics and sstables of the table, so it's done without holding the lock
+        add(cfs, score(cfs));
+    }
+
+    @VisibleForTesting
+    synchronized void add(ColumnFamilyStore cfs, double score)
+    {
+        Pending entry = pending.get(cfs);
+        if (entry == null)
+        {
+            entry = new Pending();
+            pending.put(cfs, entry);
+        }
+        entry.count++;
+        entry.score = score;
+    }
+
+    /**
+     * Withdraws one check of @param cfs added but not picked up, e.g. because the task that was to run it couldn't
+     * be submitted.
+     */
+    public synchronized void remove(ColumnFamilyStore cfs)
+    {
+        Pending entry = pending.get(cfs);
+        if (entry != null && --entry.count == 0)
+            pending.remove(cfs);
+    }
+
+    /**
+     * @return the table that should be checked next, or null if there is none.  The caller must call
+     * {@link #finished(ColumnFamilyStore)} for it once done.
+     */
+    public synchronized ColumnFamilyStore poll()
+    {
+        ColumnFamilyStore best = null;
+        double bestPriority = -1;
+        for (Map.Entry<ColumnFamilyStore, Pending> entry : pending.entrySet())
+        {
+            double priority = priority(entry.getKey(), entry.getValue());
+            if (priority > bestPriority)
+            {
+                best = entry.getKey();
+                bestPriority = priority;
+            }
+        }
+
+        if (best == null)
+            return null;
+
+        remove(best);
+        running.add(best);
+        return best;
+    }
+
+    public synchronized void finished(ColumnFamilyStore cfs)
+    {
+        running.remove(cfs);
+    }
+
+    /**
+     * @return the pending tables as keyspace.table, mapped to their current priority, highest first.
+     */
+    public Map<String, Double> snapshot()
+    {
+        List<Map.Entry<String, Double>> entries = new ArrayList<>();
+        synchronized (this)
+        {
+            for (Map.Entry<ColumnFamilyStore, Pending> entry : pending.entrySet())
+            {
+                ColumnFamilyStore cfs = entry.getKey();
+                String name = cfs.keyspace.getName() + '.' + cfs.name;
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(name, priority(cfs, entry.getValue())));
+            }
+        }
+
+        Collections.sort(entries, new Comparator<Map.Entry<String, Double>>()
+        {
+            public int compare(Map.Entry<String, Double> e1, Map.Entry<String, Double> e2)
+            {
+                return Double.compare(e2.getValue(), e1.getValue());
+            }
+        });
+
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : entries)
+            result.put(entry.getKey(), entry.getValue());
+        return result;
+    }
+
+    private double priority(ColumnFamilyStore cfs, Pending entry)
+    {
+        return entry.score / (1 + running.count(cfs));
+    }
+
+    /**
+     * How much compacting @param cfs would lower read latency.  This grows with the number of sstables reads
+     * currently touch, with the estimated backlog of compaction tasks, with the number of sstables in L0 (which
+     * every read has to check) and with the ratio of droppable tombstones.
+     */
+    static double score(ColumnFamilyStore cfs)
+    {
+        if (!cfs.isValid())
+            return 0;
+
+        double sstablesPerRead = Math.max(1, cfs.metric.sstablesPerReadHistogram.cf.getSnapshot().getMean());
+
+        CompactionStrategyManager strategy = cfs.getCompactionStrategyManager();
+        double backlog = strategy.getEstimatedRemainingTasks()
+                       + (double) strategy.getUnleveledSSTables() / Math.max(1, cfs.getMinimumCompactionThreshold());
+
+        return sstablesPerRead * (1 + backlog) * (1 + cfs.getDroppableTombstoneRatio());
+    }
+}
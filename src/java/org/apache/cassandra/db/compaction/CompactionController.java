@@ -162,6 +162,16 @@ public class CompactionController implements AutoCloseable
         return cfs.name;
     }
 
+    /**
+     * @return whether the rows that only live in one sstable may be copied as is, see RawCompactedRow.  A
+     * RawCompactedRow has to read its cells a second time to compute its digest, so a compaction that only
+     * needs the digest of its rows is better off returning false.
+     */
+    public boolean canCopyRawRows()
+    {
+        return true;
+    }
+
     /**
      * @return the largest timestamp before which it's okay to drop tombstones for the given partition;
      * i.e., after the maxPurgeableTimestamp there may exist newer data that still needs to be suppressed
@@ -78,6 +78,14 @@ public class CompactionIterable extends AbstractCompactionIterable
             CompactionIterable.this.updateCounterFor(rows.size());
             try
             {
+                // rows that only live in one sstable can often be copied as is
+                if (rows.size() == 1)
+                {
+                    AbstractCompactedRow copied = RawCompactedRow.tryCreate(controller, rows.get(0), format.getLatestVersion());
+                    if (copied != null)
+                        return copied;
+                }
+
                 // create a new container for rows, since we're going to clear ours for the next one,
                 // and the AbstractCompactionRow code should be able to assume that the collection it receives
                 // won't be pulled out from under it.
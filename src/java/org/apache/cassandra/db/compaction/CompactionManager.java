@@ -27,15 +27,21 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import javax.management.openmbean.OpenDataException;
@@ -131,6 +137,7 @@ public class CompactionManager implements CompactionManagerMBean
 
     private final CompactionMetrics metrics = new CompactionMetrics(executor, validationExecutor);
     private final Multiset<ColumnFamilyStore> compactingCF = ConcurrentHashMultiset.create();
+    private final BackgroundCompactionQueue backgroundQueue = new BackgroundCompactionQueue();
 
     private final RateLimiter compactionRateLimiter = RateLimiter.create(Double.MAX_VALUE);
 
@@ -186,7 +193,19 @@ public class CompactionManager implements CompactionManagerMBean
                 return Collections.emptyList();
             }
             compactingCF.add(cfs);
-            futures.add(executor.submit(new BackgroundCompactionTask(cfs)));
+            backgroundQueue.add(cfs);
+            try
+            {
+                futures.add(executor.submit(new BackgroundCompactionTask()));
+            }
+            catch (RejectedExecutionException e)
+            {
+                // the check would never be picked up, and would keep the table from being queued again
+                backgroundQueue.remove(cfs);
+                compactingCF.remove(cfs);
+                logger.info("Executor has shut down, not submitting background task");
+                return futures;
+            }
             // if we have room for more compactions, then fill up executor
         } while (executor.getActiveCount() + futures.size() < executor.getMaximumPoolSize());
 
@@ -208,18 +227,17 @@ public class CompactionManager implements CompactionManagerMBean
     }
 
     // the actual sstables to compact are not determined until we run the BCT; that way, if new sstables
-    // are created between task submission and execution, we execute against the most up-to-date information
+    // are created between task submission and execution, we execute against the most up-to-date information.
+    // For the same reason, neither is the table: every submission queues one check in backgroundQueue, and
+    // each task runs whichever pending check currently has the highest priority.
     class BackgroundCompactionTask implements Runnable
     {
-        private final ColumnFamilyStore cfs;
-
-        BackgroundCompactionTask(ColumnFamilyStore cfs)
-        {
-            this.cfs = cfs;
-        }
-
         public void run()
         {
+            ColumnFamilyStore cfs = backgroundQueue.poll();
+            if (cfs == null)
+                return;
+
             try
             {
                 logger.debug("Checking {}.{}", cfs.keyspace.getName(), cfs.name);
@@ -240,6 +258,7 @@ public class CompactionManager implements CompactionManagerMBean
             }
             finally
             {
+                backgroundQueue.finished(cfs);
                 compactingCF.remove(cfs);
             }
             submitBackground(cfs);
@@ -1153,25 +1172,78 @@ public class CompactionManager implements CompactionManagerMBean
      * @param ranges Repaired ranges to be placed into one of the new sstables. The repaired table will be tracked via
      * the {@link org.apache.cassandra.io.sstable.metadata.StatsMetadata#repairedAt} field.
      */
-    private void doAntiCompaction(ColumnFamilyStore cfs, Collection<Range<Token>> ranges, LifecycleTransaction repaired, long repairedAt)
+    private void doAntiCompaction(final ColumnFamilyStore cfs, final Collection<Range<Token>> ranges, LifecycleTransaction repaired, final long repairedAt)
     {
         logger.info("Performing anticompaction on {} sstables", repaired.originals().size());
 
         //Group SSTables
         Collection<Collection<SSTableReader>> groupedSSTables = cfs.getCompactionStrategyManager().groupSSTablesForAntiCompaction(repaired.originals());
-        // iterate over sstables to check if the repaired / unrepaired ranges intersect them.
-        int antiCompactedSSTableCount = 0;
+        // groups don't share any sstable, so once each has its own transaction they can be anticompacted concurrently
+        final Queue<LifecycleTransaction> pending = new ConcurrentLinkedQueue<>();
         for (Collection<SSTableReader> sstableGroup : groupedSSTables)
+            pending.add(repaired.split(sstableGroup));
+
+        final AtomicInteger antiCompactedSSTableCount = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable worker = new Runnable()
+        {
+            public void run()
+            {
+                LifecycleTransaction txn;
+                // once a group has failed, the groups nobody has started on are left for aborting
+                while (failure.get() == null && (txn = pending.poll()) != null)
+                {
+                    try (LifecycleTransaction groupTxn = txn)
+                    {
+                        antiCompactedSSTableCount.addAndGet(antiCompactGroup(cfs, ranges, groupTxn, repairedAt));
+                    }
+                    catch (Throwable t)
+                    {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            }
+        };
+
+        // We are usually running on a compaction thread ourselves, so we can't just submit every group and wait, as
+        // that could deadlock with a single compactor.  Instead we work through the groups too, and any free compactor
+        // slot joins in; a helper that only starts once everything is taken simply has nothing left to do.
+        int helperCount = Math.min(pending.size(), executor.getMaximumPoolSize()) - 1;
+        List<AntiCompactionHelper> helpers = new ArrayList<>();
+        List<Future<?>> helperFutures = new ArrayList<>();
+        for (int i = 0; i < helperCount && !executor.isShutdown(); i++)
+        {
+            AntiCompactionHelper helper = new AntiCompactionHelper(worker);
+            helperFutures.add(executor.submit(helper));
+            helpers.add(helper);
+        }
+
+        try
+        {
+            worker.run();
+        }
+        finally
         {
-            try (LifecycleTransaction txn = repaired.split(sstableGroup))
+            // helpers still queued behind other compactions are claimed back rather than waited for, but any helper
+            // that did start may still be rewriting a group
+            List<Future<?>> started = new ArrayList<>();
+            for (int i = 0; i < helpers.size(); i++)
             {
-                int antiCompacted = antiCompactGroup(cfs, ranges, txn, repairedAt);
-                antiCompactedSSTableCount += antiCompacted;
+                if (!helpers.get(i).claim())
+                    started.add(helperFutures.get(i));
             }
+            FBUtilities.waitOnFutures(started);
+
+            Throwable fail = failure.get();
+            LifecycleTransaction txn;
+            while ((txn = pending.poll()) != null)
+                fail = txn.abort(fail);
+            if (fail != null)
+                throw Throwables.propagate(fail);
         }
 
         String format = "Anticompaction completed successfully, anticompacted from {} to {} sstable(s).";
-        logger.info(format, repaired.originals().size(), antiCompactedSSTableCount);
+        logger.info(format, repaired.originals().size(), antiCompactedSSTableCount.get());
     }
 
     private int antiCompactGroup(ColumnFamilyStore cfs, Collection<Range<Token>> ranges,
@@ -1269,8 +1341,34 @@ public class CompactionManager implements CompactionManagerMBean
         {
             JVMStabilityInspector.inspectThrowable(e);
             logger.error("Error anticompacting " + anticompactionGroup, e);
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Runs the anticompaction worker on a compaction thread, unless the anticompaction claims it back first because
+     * it was still waiting for a slot when all the groups were done.
+     */
+    private static final class AntiCompactionHelper implements Runnable
+    {
+        private final Runnable worker;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private AntiCompactionHelper(Runnable worker)
+        {
+            this.worker = worker;
+        }
+
+        public void run()
+        {
+            if (claim())
+                worker.run();
+        }
+
+        private boolean claim()
+        {
+            return claimed.compareAndSet(false, true);
         }
-        return 0;
     }
 
     /**
@@ -1384,6 +1482,18 @@ public class CompactionManager implements CompactionManagerMBean
              */
             return Long.MAX_VALUE;
         }
+
+        @Override
+        public boolean canCopyRawRows()
+        {
+            // validation only needs the digest of every row, which a raw copy would read twice
+            return false;
+        }
+    }
+
+    public Map<String, Double> getBackgroundCompactionQueue()
+    {
+        return backgroundQueue.snapshot();
     }
 
     public int getActiveCompactions()
@@ -30,6 +30,12 @@ public interface CompactionManagerMBean
     /** List of running compaction summary strings. */
     public List<String> getCompactionSummary();
 
+    /**
+     * Tables waiting for a background compaction check, as keyspace.table, mapped to their
+     * priority; the table with the highest priority is checked first.
+     */
+    public Map<String, Double> getBackgroundCompactionQueue();
+
     /** compaction history **/
     public TabularData getCompactionHistory();
 
@@ -265,8 +265,7 @@ public class DateTieredCompactionStrategy extends AbstractCompactionStrategy
      * @return a list of buckets of files. The list is ordered such that the files with newest timestamps come first.
      *         Each bucket is also a list of files ordered from newest to oldest.
      */
-    @VisibleForTesting
-    static <T> List<List<T>> getBuckets(Collection<Pair<T, Long>> files, long timeUnit, int base, long now)
+    public static <T> List<List<T>> getBuckets(Collection<Pair<T, Long>> files, long timeUnit, int base, long now)
     {
         // Sort files by age. Newest first.
         final List<Pair<T, Long>> sortedFiles = Lists.newArrayList(files);
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
+import org.apache.cassandra.db.composites.CellNameType;
+import org.apache.cassandra.io.sstable.ColumnNameHelper;
+import org.apache.cassandra.io.sstable.ColumnStats;
+import org.apache.cassandra.io.sstable.SSTable;
+import org.apache.cassandra.io.sstable.SSTableIdentityIterator;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.sstable.format.Version;
+import org.apache.cassandra.io.sstable.metadata.StatsMetadata;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.SequentialWriter;
+import org.apache.cassandra.utils.StreamingHistogram;
+
+/**
+ * RawCompactedRow copies the serialized form of a row that is present in a single input sstable,
+ * and in which nothing can be purged, straight to the output.  Unlike LazilyCompactedRow, the cells
+ * are never merged nor reserialized, and the promoted column index is reused as is since its
+ * offsets are relative to the start of the row.
+ */
+public class RawCompactedRow extends AbstractCompactedRow
+{
+    private final SSTableIdentityIterator row;
+    private final ColumnStats columnStats;
+    private boolean closed;
+
+    private RawCompactedRow(SSTableIdentityIterator row, ColumnStats columnStats)
+    {
+        super(row.getKey());
+        this.row = row;
+        this.columnStats = columnStats;
+    }
+
+    /**
+     * @return a RawCompactedRow for @param iter if its serialized form can be copied verbatim to a new
+     * sstable of @param version, or null if it has to go through LazilyCompactedRow.
+     */
+    public static RawCompactedRow tryCreate(CompactionController controller, OnDiskAtomIterator iter, Version version)
+    {
+        if (!controller.canCopyRawRows() || !(iter instanceof SSTableIdentityIterator))
+            return null;
+
+        SSTableIdentityIterator row = (SSTableIdentityIterator) iter;
+        if (!row.isCopyable() || !row.getSSTable().descriptor.version.equals(version))
+            return null;
+
+        // counters may need their legacy shards cleaned up, and 2i need to be told about shadowed cells
+        ColumnFamilyStore cfs = controller.cfs;
+        if (cfs.metadata.isCounter() || cfs.indexManager.hasIndexes())
+            return null;
+
+        SSTableReader sstable = row.getSSTable();
+        StatsMetadata stats = sstable.getSSTableMetadata();
+
+        // a fully expired sstable is better off being purged by a regular compaction
+        if (stats.maxLocalDeletionTime < controller.gcBefore)
+            return null;
+
+        DeletionTime topLevelDeletion = row.getColumnFamily().deletionInfo().getTopLevelDeletion();
+        long maxPurgeableTimestamp = Long.MIN_VALUE;
+        if (!topLevelDeletion.isLive() && topLevelDeletion.localDeletionTime < controller.gcBefore)
+        {
+            maxPurgeableTimestamp = controller.maxPurgeableTimestamp(row.getKey());
+            if (topLevelDeletion.markedForDeleteAt < maxPurgeableTimestamp)
+                return null;
+        }
+
+        // Without any tombstone or expiring cell in the sstable there is nothing to purge.  Otherwise tombstones can
+        // only be purged if they are older than the data in the sstables we're not compacting.
+        if (!stats.estimatedTombstoneDropTime.getAsMap().isEmpty())
+        {
+            if (maxPurgeableTimestamp == Long.MIN_VALUE)
+                maxPurgeableTimestamp = controller.maxPurgeableTimestamp(row.getKey());
+            if (sstable.getMinTimestamp() < maxPurgeableTimestamp)
+                return null;
+        }
+
+        // the cells are still scanned for the row's own stats, but they are never merged nor reserialized
+        return new RawCompactedRow(row, collectStats(row, topLevelDeletion, cfs.metadata.comparator));
+    }
+
+    private static ColumnStats collectStats(SSTableIdentityIterator row, DeletionTime topLevelDeletion, CellNameType comparator)
+    {
+        ColumnStats.MinLongTracker minTimestampTracker = new ColumnStats.MinLongTracker(Long.MIN_VALUE);
+        ColumnStats.MaxLongTracker maxTimestampTracker = new ColumnStats.MaxLongTracker(Long.MAX_VALUE);
+        ColumnStats.MaxIntTracker maxDeletionTimeTracker = new ColumnStats.MaxIntTracker(Integer.MAX_VALUE);
+        StreamingHistogram tombstones = new StreamingHistogram(SSTable.TOMBSTONE_HISTOGRAM_BIN_SIZE);
+        List<ByteBuffer> minColumnNames = Collections.emptyList();
+        List<ByteBuffer> maxColumnNames = Collections.emptyList();
+        int columns = 0;
+
+        minTimestampTracker.update(topLevelDeletion.isLive() ? Long.MAX_VALUE : topLevelDeletion.markedForDeleteAt);
+        maxTimestampTracker.update(topLevelDeletion.markedForDeleteAt);
+        maxDeletionTimeTracker.update(topLevelDeletion.isLive() ? Integer.MIN_VALUE : topLevelDeletion.localDeletionTime);
+        if (!topLevelDeletion.isLive())
+            tombstones.update(topLevelDeletion.localDeletionTime);
+
+        while (row.hasNext())
+        {
+            OnDiskAtom atom = row.next();
+            if (atom instanceof RangeTombstone)
+            {
+                RangeTombstone t = (RangeTombstone) atom;
+                minColumnNames = ColumnNameHelper.minComponents(minColumnNames, t.min, comparator);
+                maxColumnNames = ColumnNameHelper.maxComponents(maxColumnNames, t.max, comparator);
+            }
+            else
+            {
+                columns++;
+                minColumnNames = ColumnNameHelper.minComponents(minColumnNames, atom.name(), comparator);
+                maxColumnNames = ColumnNameHelper.maxComponents(maxColumnNames, atom.name(), comparator);
+            }
+
+            int deletionTime = atom.getLocalDeletionTime();
+            if (deletionTime < Integer.MAX_VALUE)
+                tombstones.update(deletionTime);
+            minTimestampTracker.update(atom.timestamp());
+            maxTimestampTracker.update(atom.timestamp());
+            maxDeletionTimeTracker.update(deletionTime);
+        }
+
+        return new ColumnStats(columns,
+                               minTimestampTracker.get(),
+                               maxTimestampTracker.get(),
+                               maxDeletionTimeTracker.get(),
+                               tombstones,
+                               minColumnNames,
+                               maxColumnNames,
+                               false);
+    }
+
+    public RowIndexEntry write(long currentPosition, SequentialWriter dataFile, Version version) throws IOException
+    {
+        assert !closed;
+        assert row.getSSTable().descriptor.version.equals(version) : version;
+
+        row.copyTo(dataFile.stream);
+        close();
+
+        return row.getIndexEntry().withPosition(currentPosition);
+    }
+
+    public void update(MessageDigest digest)
+    {
+        assert !closed;
+
+        // collecting the stats consumed the cells, so go over them again from the start of the row
+        SSTableIdentityIterator cells = row.rewind();
+        DeletionTime topLevelDeletion = cells.getColumnFamily().deletionInfo().getTopLevelDeletion();
+        try (DataOutputBuffer out = new DataOutputBuffer())
+        {
+            DeletionTime.serializer.serialize(topLevelDeletion, out);
+
+            // like LazilyCompactedRow, empty rows without a tombstone don't update the digest, see CASSANDRA-8979
+            if (cells.hasNext() || !topLevelDeletion.isLive())
+                digest.update(out.getData(), 0, out.getLength());
+        }
+        catch (IOException e)
+        {
+            throw new AssertionError(e);
+        }
+
+        while (cells.hasNext())
+            cells.next().updateDigest(digest);
+        close();
+    }
+
+    public ColumnStats columnStats()
+    {
+        return columnStats;
+    }
+
+    public void close()
+    {
+        row.close();
+        closed = true;
+    }
+}
@@ -117,7 +117,10 @@ public class CompressedRandomAccessReader extends RandomAccessReader
 
             try
             {
-                metadata.compressor().uncompress(compressed, buffer);
+                if (chunk.compressed)
+                    metadata.compressor().uncompress(compressed, buffer);
+                else
+                    buffer.put(compressed);
             }
             catch (IOException e)
             {
@@ -178,7 +181,10 @@ public class CompressedRandomAccessReader extends RandomAccessReader
 
             try
             {
-                metadata.compressor().uncompress(compressedChunk, buffer);
+                if (chunk.compressed)
+                    metadata.compressor().uncompress(compressedChunk, buffer);
+                else
+                    buffer.put(compressedChunk);
             }
             catch (IOException e)
             {
@@ -44,7 +44,11 @@ public class CompressedSequentialWriter extends SequentialWriter
 
     // index file writer (random I/O)
     private final CompressionMetadata.Writer metadataWriter;
-    private final ICompressor compressor;
+    private ICompressor compressor;
+    private final double minCompressRatio;
+
+    // samples the first chunks until we have enough to train a dictionary, if the compressor uses one
+    private CompressionDictionaryTrainer dictionaryTrainer;
 
     // used to store compressed data
     private ByteBuffer compressed;
@@ -65,6 +69,7 @@ public class CompressedSequentialWriter extends SequentialWriter
     {
         super(file, parameters.chunkLength(), parameters.sstableCompressor.preferredBufferType());
         this.compressor = parameters.sstableCompressor;
+        this.minCompressRatio = parameters.minCompressRatio();
 
         // buffer for compression should be the same size as buffer itself
         compressed = compressor.preferredBufferType().allocate(compressor.initialCompressedBufferLength(buffer.capacity()));
@@ -72,6 +77,9 @@ public class CompressedSequentialWriter extends SequentialWriter
         /* Index File (-CompressionInfo.db component) and it's header */
         metadataWriter = CompressionMetadata.Writer.open(parameters, offsetsPath);
 
+        if (compressor instanceof IDictionaryCompressor && ((IDictionaryCompressor) compressor).dictionaryLength() > 0)
+            dictionaryTrainer = new CompressionDictionaryTrainer(((IDictionaryCompressor) compressor).dictionaryLength());
+
         this.sstableMetadataCollector = sstableMetadataCollector;
         crcMetadata = new DataIntegrityMetadata.ChecksumWriter(new DataOutputStream(Channels.newOutputStream(channel)));
     }
@@ -104,6 +112,8 @@ public class CompressedSequentialWriter extends SequentialWriter
         {
             // compressing data with buffer re-use
             buffer.flip();
+            if (dictionaryTrainer != null)
+                dictionaryTrainer.add(buffer);
             compressed.clear();
             compressor.compress(buffer, compressed);
         }
@@ -112,23 +122,30 @@ public class CompressedSequentialWriter extends SequentialWriter
             throw new RuntimeException("Compression exception", e); // shouldn't happen
         }
 
-        int compressedLength = compressed.position();
-        uncompressedSize += buffer.position();
+        if (dictionaryTrainer != null && dictionaryTrainer.isComplete())
+            trainDictionary();
+
+        // store the chunk as is if compressing it didn't save enough, so that reads don't have to decompress it
+        int uncompressedLength = buffer.position();
+        boolean storeCompressed = uncompressedLength >= compressed.position() * minCompressRatio;
+        ByteBuffer toWrite = storeCompressed ? compressed : buffer.duplicate();
+        toWrite.flip();
+        int compressedLength = toWrite.remaining();
+        uncompressedSize += uncompressedLength;
         compressedSize += compressedLength;
 
         try
         {
             // write an offset of the newly written chunk to the index file
-            metadataWriter.addOffset(chunkOffset);
+            metadataWriter.addOffset(chunkOffset, storeCompressed);
             chunkCount++;
 
             // write out the compressed data
-            compressed.flip();
-            channel.write(compressed);
+            channel.write(toWrite);
 
             // write corresponding checksum
-            compressed.rewind();
-            crcMetadata.appendDirect(compressed, true);
+            toWrite.rewind();
+            crcMetadata.appendDirect(toWrite, true);
             lastFlushOffset += compressedLength + 4;
 
             // adjust our bufferOffset to account for the new uncompressed data we've now written out
@@ -145,6 +162,20 @@ public class CompressedSequentialWriter extends SequentialWriter
             runPostFlush.run();
     }
 
+    /**
+     * Compresses the following chunks with a dictionary trained on the ones we've written so far.
+     */
+    private void trainDictionary()
+    {
+        byte[] dictionary = dictionaryTrainer.train();
+        dictionaryTrainer = null;
+        if (dictionary.length == 0)
+            return;
+
+        compressor = ((IDictionaryCompressor) compressor).withDictionary(dictionary);
+        metadataWriter.setDictionary(dictionary);
+    }
+
     public CompressionMetadata open(long overrideLength)
     {
         if (overrideLength <= 0)
@@ -197,7 +228,10 @@ public class CompressedSequentialWriter extends SequentialWriter
                 // Repopulate buffer from compressed data
                 buffer.clear();
                 compressed.flip();
-                compressor.uncompress(compressed, buffer);
+                if (metadataWriter.isCompressed(realMark.nextChunkIndex - 1))
+                    compressor.uncompress(compressed, buffer);
+                else
+                    buffer.put(compressed);
             }
             catch (IOException e)
             {
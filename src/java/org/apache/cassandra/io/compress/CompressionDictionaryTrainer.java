@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.compress;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+/**
+ * Trains a compression dictionary on the first bytes written to an sstable.  Partitions are written in token order,
+ * so these are a random sample of the sstable's partitions.
+ *
+ * The sample is cut into segments, and the dictionary is made of the segments holding the most frequent k-mers.
+ * Segments are picked greedily, and the k-mers of a picked segment stop counting for the others, so that the
+ * dictionary doesn't hold the same content twice.  The best segments come last, since that is the end of the
+ * dictionary compressors refer to with the shortest distances.
+ */
+public class CompressionDictionaryTrainer
+{
+    // how many times the length of the dictionary we sample
+    static final int SAMPLE_RATIO = 8;
+    private static final int KMER_LENGTH = 8;
+    private static final int SEGMENT_LENGTH = 256;
+    private static final int HASH_BITS = 18;
+
+    private final int dictionaryLength;
+    private final byte[] sample;
+    private int sampleLength;
+
+    public CompressionDictionaryTrainer(int dictionaryLength)
+    {
+        assert dictionaryLength > 0;
+        this.dictionaryLength = dictionaryLength;
+        this.sample = new byte[dictionaryLength * SAMPLE_RATIO];
+    }
+
+    /**
+     * Adds the remaining bytes of @param buffer to the sample, without moving its position.
+     */
+    public void add(ByteBuffer buffer)
+    {
+        int length = Math.min(buffer.remaining(), sample.length - sampleLength);
+        ByteBufferUtil.arrayCopy(buffer, buffer.position(), sample, sampleLength, length);
+        sampleLength += length;
+    }
+
+    public boolean isComplete()
+    {
+        return sampleLength == sample.length;
+    }
+
+    /**
+     * @return a dictionary of at most dictionaryLength bytes, which is empty if the sample has no repeated content.
+     */
+    public byte[] train()
+    {
+        int[] counts = new int[1 << HASH_BITS];
+        for (int i = 0; i + KMER_LENGTH <= sampleLength; i++)
+            counts[hash(i)]++;
+
+        // The score of a segment can only decrease as other segments are picked, so the queue is ordered by
+        // possibly stale scores that are upper bounds of the actual ones, and we only refresh the head.
+        PriorityQueue<Segment> queue = new PriorityQueue<>();
+        for (int start = 0; start + SEGMENT_LENGTH <= sampleLength; start += SEGMENT_LENGTH)
+            queue.add(new Segment(start, score(start, counts)));
+
+        List<Segment> picked = new ArrayList<>();
+        while (picked.size() < dictionaryLength / SEGMENT_LENGTH && !queue.isEmpty())
+        {
+            Segment best = queue.poll();
+            best.score = score(best.start, counts);
+            if (!queue.isEmpty() && best.score < queue.peek().score)
+            {
+                queue.add(best);
+                continue;
+            }
+
+            if (best.score == 0)
+                break;
+
+            picked.add(best);
+            for (int i = best.start; i <= best.start + SEGMENT_LENGTH - KMER_LENGTH; i++)
+                counts[hash(i)] = 0;
+        }
+
+        byte[] dictionary = new byte[picked.size() * SEGMENT_LENGTH];
+        for (int i = 0; i < picked.size(); i++)
+            System.arraycopy(sample, picked.get(i).start, dictionary, dictionary.length - (i + 1) * SEGMENT_LENGTH, SEGMENT_LENGTH);
+        return dictionary;
+    }
+
+    private long score(int start, int[] counts)
+    {
+        long score = 0;
+        for (int i = start; i <= start + SEGMENT_LENGTH - KMER_LENGTH; i++)
+        {
+            // k-mers that only appear once are of no use in a dictionary
+            int count = counts[hash(i)];
+            if (count > 1)
+                score += count;
+        }
+        return score;
+    }
+
+    private int hash(int position)
+    {
+        long kmer = 0;
+        for (int i = 0; i < KMER_LENGTH; i++)
+            kmer = (kmer << 8) | (sample[position + i] & 0xFF);
+        return (int) ((kmer * 0x9E3779B97F4A7C15L) >>> (64 - HASH_BITS));
+    }
+
+    private static class Segment implements Comparable<Segment>
+    {
+        final int start;
+        long score;
+
+        Segment(int start, long score)
+        {
+            this.start = start;
+            this.score = score;
+        }
+
+        public int compareTo(Segment other)
+        {
+            // best scores first
+            return Long.compare(other.score, score);
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -68,6 +69,11 @@ public class CompressionMetadata
     private final long chunkOffsetsSize;
     public final String indexFilePath;
     public final CompressionParameters parameters;
+    // the dictionary trained for this sstable, if its compressor uses one
+    private final byte[] dictionary;
+    private final ICompressor compressor;
+    // the chunks stored as is, because they didn't compress well enough
+    private final BitSet uncompressedChunks;
 
     /**
      * Create metadata about given compressed file including uncompressed data length, chunk size
@@ -83,11 +89,19 @@ public class CompressionMetadata
     public static CompressionMetadata create(String dataFilePath)
     {
         Descriptor desc = Descriptor.fromFilename(dataFilePath);
-        return new CompressionMetadata(desc.filenameFor(Component.COMPRESSION_INFO), new File(dataFilePath).length());
+        return new CompressionMetadata(desc.filenameFor(Component.COMPRESSION_INFO),
+                                       new File(dataFilePath).length(),
+                                       desc.version.hasCompressionDictionary(),
+                                       desc.version.hasUncompressedChunks());
     }
 
     @VisibleForTesting
     CompressionMetadata(String indexFilePath, long compressedLength)
+    {
+        this(indexFilePath, compressedLength, true, true);
+    }
+
+    private CompressionMetadata(String indexFilePath, long compressedLength, boolean hasDictionary, boolean hasUncompressedChunks)
     {
         this.indexFilePath = indexFilePath;
 
@@ -115,6 +129,29 @@ public class CompressionMetadata
             dataLength = stream.readLong();
             compressedFileLength = compressedLength;
             chunkOffsets = readChunkOffsets(stream);
+
+            if (hasDictionary)
+            {
+                byte[] bytes = new byte[stream.readInt()];
+                stream.readFully(bytes);
+                dictionary = bytes.length == 0 ? null : bytes;
+            }
+            else
+            {
+                dictionary = null;
+            }
+
+            if (hasUncompressedChunks)
+            {
+                long[] words = new long[stream.readInt()];
+                for (int i = 0; i < words.length; i++)
+                    words[i] = stream.readLong();
+                uncompressedChunks = BitSet.valueOf(words);
+            }
+            else
+            {
+                uncompressedChunks = new BitSet();
+            }
         }
         catch (FileNotFoundException e)
         {
@@ -126,21 +163,56 @@ public class CompressionMetadata
         }
 
         this.chunkOffsetsSize = chunkOffsets.size();
+        this.compressor = compressor(parameters, dictionary, indexFilePath);
     }
 
-    private CompressionMetadata(String filePath, CompressionParameters parameters, SafeMemory offsets, long offsetsSize, long dataLength, long compressedLength)
+    private CompressionMetadata(String filePath, CompressionParameters parameters, byte[] dictionary, BitSet uncompressedChunks, SafeMemory offsets, long offsetsSize, long dataLength, long compressedLength)
     {
         this.indexFilePath = filePath;
         this.parameters = parameters;
+        this.dictionary = dictionary;
+        this.uncompressedChunks = uncompressedChunks;
         this.dataLength = dataLength;
         this.compressedFileLength = compressedLength;
         this.chunkOffsets = offsets;
         this.chunkOffsetsSize = offsetsSize;
+        this.compressor = compressor(parameters, dictionary, filePath);
+    }
+
+    private static ICompressor compressor(CompressionParameters parameters, byte[] dictionary, String filePath)
+    {
+        if (dictionary == null)
+            return parameters.sstableCompressor;
+
+        if (!(parameters.sstableCompressor instanceof IDictionaryCompressor))
+            throw new CorruptSSTableException(new IOException(parameters.sstableCompressor.getClass().getSimpleName() + " doesn't support dictionaries"), filePath);
+        return ((IDictionaryCompressor) parameters.sstableCompressor).withDictionary(dictionary);
     }
 
+    /**
+     * @return the compressor for the chunks of this file, which uses its dictionary if it has one.
+     */
     public ICompressor compressor()
     {
-        return parameters.sstableCompressor;
+        return compressor;
+    }
+
+    public boolean hasDictionary()
+    {
+        return dictionary != null;
+    }
+
+    /**
+     * @return the dictionary trained for this file, or null if it doesn't have one.
+     */
+    public byte[] dictionary()
+    {
+        return dictionary;
+    }
+
+    public boolean hasUncompressedChunks()
+    {
+        return !uncompressedChunks.isEmpty();
     }
 
     public int chunkLength()
@@ -225,7 +297,7 @@ public class CompressionMetadata
                                 ? compressedFileLength
                                 : chunkOffsets.getLong(idx + 8);
 
-        return new Chunk(chunkOffset, (int) (nextChunkOffset - chunkOffset - 4)); // "4" bytes reserved for checksum
+        return new Chunk(chunkOffset, (int) (nextChunkOffset - chunkOffset - 4), !uncompressedChunks.get(idx / 8)); // "4" bytes reserved for checksum
     }
 
     /**
@@ -254,7 +326,7 @@ public class CompressionMetadata
                 long nextChunkOffset = offset + 8 == chunkOffsetsSize
                                      ? compressedFileLength
                                      : chunkOffsets.getLong(offset + 8);
-                offsets.add(new Chunk(chunkOffset, (int) (nextChunkOffset - chunkOffset - 4))); // "4" bytes reserved for checksum
+                offsets.add(new Chunk(chunkOffset, (int) (nextChunkOffset - chunkOffset - 4), !uncompressedChunks.get(i))); // "4" bytes reserved for checksum
             }
         }
         return offsets.toArray(new Chunk[offsets.size()]);
@@ -273,6 +345,8 @@ public class CompressionMetadata
         private int maxCount = 100;
         private SafeMemory offsets = new SafeMemory(maxCount * 8L);
         private int count = 0;
+        private byte[] dictionary;
+        private final BitSet uncompressedChunks = new BitSet();
 
         // provided by user when setDescriptor
         private long dataLength, chunkCount;
@@ -288,7 +362,10 @@ public class CompressionMetadata
             return new Writer(parameters, path);
         }
 
-        public void addOffset(long offset)
+        /**
+         * @param compressed false if the chunk at this offset is stored as is
+         */
+        public void addOffset(long offset, boolean compressed)
         {
             if (count == maxCount)
             {
@@ -296,9 +373,18 @@ public class CompressionMetadata
                 offsets.close();
                 offsets = newOffsets;
             }
+            uncompressedChunks.set(count, !compressed);
             offsets.setLong(8L * count++, offset);
         }
 
+        /**
+         * Records the dictionary the chunks following the current one are compressed with.
+         */
+        public void setDictionary(byte[] dictionary)
+        {
+            this.dictionary = dictionary;
+        }
+
         private void writeHeader(DataOutput out, long dataLength, int chunks)
         {
             try
@@ -350,6 +436,13 @@ public class CompressionMetadata
                 writeHeader(out, dataLength, count);
                 for (int i = 0 ; i < count ; i++)
                     out.writeLong(offsets.getLong(i * 8L));
+                out.writeInt(dictionary == null ? 0 : dictionary.length);
+                if (dictionary != null)
+                    out.write(dictionary);
+                long[] words = uncompressedChunks.toLongArray();
+                out.writeInt(words.length);
+                for (long word : words)
+                    out.writeLong(word);
             }
             catch (IOException e)
             {
@@ -372,7 +465,7 @@ public class CompressionMetadata
             if (count < this.count)
                 compressedLength = offsets.getLong(count * 8L);
 
-            return new CompressionMetadata(filePath, parameters, offsets, count * 8L, dataLength, compressedLength);
+            return new CompressionMetadata(filePath, parameters, dictionary, (BitSet) uncompressedChunks.clone(), offsets, count * 8L, dataLength, compressedLength);
         }
 
         /**
@@ -387,6 +480,14 @@ public class CompressionMetadata
             return offsets.getLong(chunkIndex * 8L);
         }
 
+        /**
+         * @return false if the chunk of the given index is stored as is.
+         */
+        public boolean isCompressed(int chunkIndex)
+        {
+            return !uncompressedChunks.get(chunkIndex);
+        }
+
         /**
          * Reset the writer so that the next chunk offset written will be the
          * one of {@code chunkIndex}.
@@ -396,6 +497,7 @@ public class CompressionMetadata
         public void resetAndTruncate(int chunkIndex)
         {
             count = chunkIndex;
+            uncompressedChunks.clear(chunkIndex, Math.max(chunkIndex, uncompressedChunks.length()));
         }
 
         protected Throwable doPreCleanup(Throwable failed)
@@ -423,13 +525,21 @@ public class CompressionMetadata
 
         public final long offset;
         public final int length;
+        // false if the chunk is stored as is
+        public final boolean compressed;
 
         public Chunk(long offset, int length)
+        {
+            this(offset, length, true);
+        }
+
+        public Chunk(long offset, int length, boolean compressed)
         {
             assert(length > 0);
 
             this.offset = offset;
             this.length = length;
+            this.compressed = compressed;
         }
 
         public boolean equals(Object o)
@@ -438,19 +548,20 @@ public class CompressionMetadata
             if (o == null || getClass() != o.getClass()) return false;
 
             Chunk chunk = (Chunk) o;
-            return length == chunk.length && offset == chunk.offset;
+            return length == chunk.length && offset == chunk.offset && compressed == chunk.compressed;
         }
 
         public int hashCode()
         {
             int result = (int) (offset ^ (offset >>> 32));
             result = 31 * result + length;
+            result = 31 * result + (compressed ? 1 : 0);
             return result;
         }
 
         public String toString()
         {
-            return String.format("Chunk<offset: %d, length: %d>", offset, length);
+            return String.format("Chunk<offset: %d, length: %d%s>", offset, length, compressed ? "" : ", uncompressed");
         }
     }
 
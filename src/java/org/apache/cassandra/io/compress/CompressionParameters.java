@@ -43,17 +43,21 @@ public class CompressionParameters
 {
     public final static int DEFAULT_CHUNK_LENGTH = 65536;
     public final static double DEFAULT_CRC_CHECK_CHANCE = 1.0;
+    public final static double DEFAULT_MIN_COMPRESS_RATIO = 0.0;
     public final static IVersionedSerializer<CompressionParameters> serializer = new Serializer();
 
     public static final String SSTABLE_COMPRESSION = "sstable_compression";
     public static final String CHUNK_LENGTH_KB = "chunk_length_kb";
     public static final String CRC_CHECK_CHANCE = "crc_check_chance";
+    public static final String MIN_COMPRESS_RATIO = "min_compress_ratio";
 
-    public static final Set<String> GLOBAL_OPTIONS = ImmutableSet.of(CRC_CHECK_CHANCE);
+    public static final Set<String> GLOBAL_OPTIONS = ImmutableSet.of(CRC_CHECK_CHANCE, MIN_COMPRESS_RATIO);
 
     public final ICompressor sstableCompressor;
     private final Integer chunkLength;
     private volatile double crcCheckChance;
+    // chunks compressing to less than this ratio (uncompressed/compressed length) are stored uncompressed
+    private final double minCompressRatio;
     public final Map<String, String> otherOptions; // Unrecognized options, can be use by the compressor
     private CFMetaData liveMetadata;
 
@@ -81,6 +85,7 @@ public class CompressionParameters
         chunkLength = null;
         otherOptions = Collections.emptyMap();
         crcCheckChance = DEFAULT_CRC_CHECK_CHANCE;
+        minCompressRatio = DEFAULT_MIN_COMPRESS_RATIO;
     }
 
     public CompressionParameters(ICompressor sstableCompressor, Integer chunkLength, Map<String, String> otherOptions) throws ConfigurationException
@@ -90,6 +95,8 @@ public class CompressionParameters
         this.otherOptions = otherOptions;
         String chance = otherOptions.get(CRC_CHECK_CHANCE);
         this.crcCheckChance = (chance == null) ? DEFAULT_CRC_CHECK_CHANCE : parseCrcCheckChance(chance);
+        String ratio = otherOptions.get(MIN_COMPRESS_RATIO);
+        this.minCompressRatio = (ratio == null) ? DEFAULT_MIN_COMPRESS_RATIO : parseMinCompressRatio(ratio);
     }
 
     public CompressionParameters copy()
@@ -139,6 +146,35 @@ public class CompressionParameters
             throw new ConfigurationException("crc_check_chance should be between 0.0 and 1.0");
     }
 
+    /**
+     * @return the ratio of uncompressed to compressed length a chunk has to reach to be stored compressed; chunks of
+     * incompressible data are then stored as is, so reads don't pay for decompressing them. 0 always compresses.
+     */
+    public double minCompressRatio()
+    {
+        return minCompressRatio;
+    }
+
+    private static double parseMinCompressRatio(String minCompressRatio) throws ConfigurationException
+    {
+        try
+        {
+            double ratio = Double.parseDouble(minCompressRatio);
+            validateMinCompressRatio(ratio);
+            return ratio;
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ConfigurationException(MIN_COMPRESS_RATIO + " should be a double");
+        }
+    }
+
+    private static void validateMinCompressRatio(double minCompressRatio) throws ConfigurationException
+    {
+        if (minCompressRatio < 0.0d || Double.isInfinite(minCompressRatio) || Double.isNaN(minCompressRatio))
+            throw new ConfigurationException(MIN_COMPRESS_RATIO + " should be a positive number, or 0 to always compress");
+    }
+
     public int chunkLength()
     {
         return chunkLength == null ? DEFAULT_CHUNK_LENGTH : chunkLength;
@@ -275,6 +311,7 @@ public class CompressionParameters
         }
 
         validateCrcCheckChance(crcCheckChance);
+        validateMinCompressRatio(minCompressRatio);
     }
 
     public Map<String, String> asThriftOptions()
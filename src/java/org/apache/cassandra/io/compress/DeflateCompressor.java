@@ -17,10 +17,12 @@
  */
 package org.apache.cassandra.io.compress;
 
+import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.utils.FBUtilities;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
@@ -28,42 +30,75 @@ import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
-public class DeflateCompressor implements ICompressor
+public class DeflateCompressor implements IDictionaryCompressor
 {
-    public static final DeflateCompressor instance = new DeflateCompressor();
+    public static final String DICTIONARY_LENGTH_KB = "dictionary_length_kb";
+    // the largest preset dictionary deflate can make use of is its window
+    private static final int MAX_DICTIONARY_LENGTH_KB = 32;
 
-    private final ThreadLocal<Deflater> deflater;
-    private final ThreadLocal<Inflater> inflater;
+    public static final DeflateCompressor instance = new DeflateCompressor(0, null);
 
-    public static DeflateCompressor create(Map<String, String> compressionOptions)
+    // shared by all instances, since each sstable using a dictionary has its own
+    private static final ThreadLocal<Deflater> deflater = new ThreadLocal<Deflater>()
     {
-        // no specific options supported so far
-        return instance;
-    }
+        @Override
+        protected Deflater initialValue()
+        {
+            return new Deflater();
+        }
+    };
+    private static final ThreadLocal<Inflater> inflater = new ThreadLocal<Inflater>()
+    {
+        @Override
+        protected Inflater initialValue()
+        {
+            return new Inflater();
+        }
+    };
 
-    private DeflateCompressor()
+    private final int dictionaryLength;
+    private final byte[] dictionary;
+
+    public static DeflateCompressor create(Map<String, String> compressionOptions) throws ConfigurationException
     {
-        deflater = new ThreadLocal<Deflater>()
+        String dictionaryLengthKB = compressionOptions.get(DICTIONARY_LENGTH_KB);
+        if (dictionaryLengthKB == null)
+            return instance;
+
+        int dictionaryLength;
+        try
         {
-            @Override
-            protected Deflater initialValue()
-            {
-                return new Deflater();
-            }
-        };
-        inflater = new ThreadLocal<Inflater>()
+            dictionaryLength = Integer.parseInt(dictionaryLengthKB);
+        }
+        catch (NumberFormatException e)
         {
-            @Override
-            protected Inflater initialValue()
-            {
-                return new Inflater();
-            }
-        };
+            throw new ConfigurationException("Invalid value for " + DICTIONARY_LENGTH_KB, e);
+        }
+        if (dictionaryLength < 0 || dictionaryLength > MAX_DICTIONARY_LENGTH_KB)
+            throw new ConfigurationException(String.format("%s must be between 0 and %d", DICTIONARY_LENGTH_KB, MAX_DICTIONARY_LENGTH_KB));
+
+        return dictionaryLength == 0 ? instance : new DeflateCompressor(dictionaryLength * 1024, null);
+    }
+
+    private DeflateCompressor(int dictionaryLength, byte[] dictionary)
+    {
+        this.dictionaryLength = dictionaryLength;
+        this.dictionary = dictionary;
     }
 
     public Set<String> supportedOptions()
     {
-        return Collections.emptySet();
+        return Collections.singleton(DICTIONARY_LENGTH_KB);
+    }
+
+    public int dictionaryLength()
+    {
+        return dictionaryLength;
+    }
+
+    public ICompressor withDictionary(byte[] dictionary)
+    {
+        return new DeflateCompressor(dictionaryLength, dictionary);
     }
 
     public int initialCompressedBufferLength(int sourceLen)
@@ -87,8 +122,7 @@ public class DeflateCompressor implements ICompressor
 
     public int compressArray(byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset, int maxOutputLength)
     {
-        Deflater def = deflater.get();
-        def.reset();
+        Deflater def = resetDeflater();
         def.setInput(input, inputOffset, inputLength);
         def.finish();
         if (def.needsInput())
@@ -101,8 +135,7 @@ public class DeflateCompressor implements ICompressor
 
     public void compressBuffer(ByteBuffer input, ByteBuffer output)
     {
-        Deflater def = deflater.get();
-        def.reset();
+        Deflater def = resetDeflater();
 
         byte[] buffer = FBUtilities.getThreadLocalScratchBuffer();
         // Use half the buffer for input, half for output.
@@ -158,7 +191,7 @@ public class DeflateCompressor implements ICompressor
                 inf.setInput(buffer, 0, chunkLen);
                 while (!inf.needsInput())
                 {
-                    int len = inf.inflate(buffer, chunkLen, chunkLen);
+                    int len = inflate(inf, buffer, chunkLen, chunkLen);
                     output.put(buffer, chunkLen, len);
                 }
             }
@@ -167,7 +200,7 @@ public class DeflateCompressor implements ICompressor
             inf.setInput(buffer, 0, inputLength);
             while (!inf.needsInput())
             {
-                int len = inf.inflate(buffer, chunkLen, chunkLen);
+                int len = inflate(inf, buffer, chunkLen, chunkLen);
                 output.put(buffer, chunkLen, len);
             }
         }
@@ -193,7 +226,7 @@ public class DeflateCompressor implements ICompressor
         // We assume output is big enough
         try
         {
-            return inf.inflate(output, outputOffset, maxOutputLength);
+            return inflate(inf, output, outputOffset, maxOutputLength);
         }
         catch (DataFormatException e)
         {
@@ -201,6 +234,49 @@ public class DeflateCompressor implements ICompressor
         }
     }
 
+    private Deflater resetDeflater()
+    {
+        Deflater def = deflater.get();
+        def.reset();
+        if (dictionary != null)
+            def.setDictionary(dictionary);
+        return def;
+    }
+
+    /**
+     * Inflates like Inflater.inflate, providing our dictionary if the data was compressed with one.
+     */
+    private int inflate(Inflater inf, byte[] output, int outputOffset, int maxOutputLength) throws DataFormatException
+    {
+        int length = inf.inflate(output, outputOffset, maxOutputLength);
+        if (length == 0 && inf.needsDictionary())
+        {
+            if (dictionary == null)
+                throw new DataFormatException("Compressed data requires a dictionary");
+            inf.setDictionary(dictionary);
+            length = inf.inflate(output, outputOffset, maxOutputLength);
+        }
+        return length;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+            return true;
+        if (!(o instanceof DeflateCompressor))
+            return false;
+
+        DeflateCompressor that = (DeflateCompressor) o;
+        return dictionaryLength == that.dictionaryLength && Arrays.equals(dictionary, that.dictionary);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * dictionaryLength + Arrays.hashCode(dictionary);
+    }
+
     public boolean supports(BufferType bufferType)
     {
         return true;
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.compress;
+
+/**
+ * A compressor that can be primed with a dictionary.  When a table uses one, each sstable trains its own dictionary
+ * on the data it is written (see CompressionDictionaryTrainer) and stores it in its CompressionInfo component, so
+ * that small chunks can refer to content that is typical of the whole sstable.
+ */
+public interface IDictionaryCompressor extends ICompressor
+{
+    /**
+     * @return the length of the dictionaries to train, or 0 if this compressor shouldn't use any.
+     */
+    public int dictionaryLength();
+
+    /**
+     * @return a compressor that uses @param dictionary.  It must still uncompress chunks that were compressed
+     * without any dictionary, since an sstable's first chunks are written before its dictionary is trained.
+     */
+    public ICompressor withDictionary(byte[] dictionary);
+}
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.google.common.collect.ImmutableMap;
 
@@ -40,6 +41,8 @@ import org.apache.cassandra.db.composites.Composite;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.exceptions.InvalidRequestException;
 import org.apache.cassandra.exceptions.RequestValidationException;
 import org.apache.cassandra.io.sstable.format.SSTableFormat;
@@ -84,15 +87,94 @@ public class CQLSSTableWriter implements Closeable
         Config.setClientMode(true);
     }
 
-    private final AbstractSSTableSimpleWriter writer;
+    private final Builder builder;
     private final UpdateStatement insert;
     private final List<ColumnSpecification> boundNames;
 
-    private CQLSSTableWriter(AbstractSSTableSimpleWriter writer, UpdateStatement insert, List<ColumnSpecification> boundNames)
+    // the unwrapped token ranges the output is split by, sorted by left bound, and the index of the writer of each
+    private final List<Range<Token>> ranges;
+    private final int[] rangeWriters;
+
+    // the writers of the (only) thread adding rows, or of each thread adding rows in concurrent mode
+    private final AbstractSSTableSimpleWriter[] writers;
+    private final ThreadLocal<AbstractSSTableSimpleWriter[]> threadWriters;
+    private final Queue<AbstractSSTableSimpleWriter> allWriters = new ConcurrentLinkedQueue<>();
+
+    private CQLSSTableWriter(Builder builder)
     {
-        this.writer = writer;
-        this.insert = insert;
-        this.boundNames = boundNames;
+        this.builder = builder;
+        this.insert = builder.insert;
+        this.boundNames = builder.boundNames;
+
+        List<Pair<Range<Token>, Integer>> unwrapped = new ArrayList<>();
+        for (int i = 0; i < builder.ranges.size(); i++)
+            for (Range<Token> range : builder.ranges.get(i).unwrap())
+                unwrapped.add(Pair.create(range, i));
+        Collections.sort(unwrapped, new Comparator<Pair<Range<Token>, Integer>>()
+        {
+            public int compare(Pair<Range<Token>, Integer> p1, Pair<Range<Token>, Integer> p2)
+            {
+                return p1.left.left.compareTo(p2.left.left);
+            }
+        });
+        this.ranges = new ArrayList<>(unwrapped.size());
+        this.rangeWriters = new int[unwrapped.size()];
+        for (int i = 0; i < unwrapped.size(); i++)
+        {
+            ranges.add(unwrapped.get(i).left);
+            rangeWriters[i] = unwrapped.get(i).right;
+        }
+
+        if (builder.concurrent)
+        {
+            this.writers = null;
+            this.threadWriters = new ThreadLocal<AbstractSSTableSimpleWriter[]>()
+            {
+                protected AbstractSSTableSimpleWriter[] initialValue()
+                {
+                    return newWriters();
+                }
+            };
+        }
+        else
+        {
+            this.writers = newWriters();
+            this.threadWriters = null;
+        }
+    }
+
+    private AbstractSSTableSimpleWriter[] newWriters()
+    {
+        AbstractSSTableSimpleWriter[] writers = new AbstractSSTableSimpleWriter[Math.max(1, builder.ranges.size())];
+        for (int i = 0; i < writers.length; i++)
+        {
+            writers[i] = builder.newWriter();
+            allWriters.add(writers[i]);
+        }
+        return writers;
+    }
+
+    private AbstractSSTableSimpleWriter writerFor(ByteBuffer key) throws InvalidRequestException
+    {
+        AbstractSSTableSimpleWriter[] writers = threadWriters == null ? this.writers : threadWriters.get();
+        if (ranges.isEmpty())
+            return writers[0];
+
+        Token token = builder.partitioner.getToken(key);
+        // the last range starting before the token is the only one that can contain it, ranges being start-exclusive
+        int low = 0;
+        int high = ranges.size() - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            if (ranges.get(mid).left.compareTo(token) < 0)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        if (high < 0 || !ranges.get(high).contains(token))
+            throw new InvalidRequestException(String.format("Partition key token %s is not in any of the token ranges of this writer", token));
+        return writers[rangeWriters[high]];
     }
 
     /**
@@ -221,6 +303,7 @@ public class CQLSSTableWriter implements Closeable
         {
             for (ByteBuffer key : keys)
             {
+                AbstractSSTableSimpleWriter writer = writerFor(key);
                 if (writer.shouldStartNewRow() || !key.equals(writer.currentKey().getKey()))
                     writer.newRow(key);
                 insert.addUpdateForKey(writer.currentColumnFamily(), key, clusteringPrefix, params, false);
@@ -267,10 +350,28 @@ public class CQLSSTableWriter implements Closeable
      * <p>
      * This method should be called, otherwise the produced sstables are not
      * guaranteed to be complete (and won't be in practice).
+     * <p>
+     * In concurrent mode, this should only be called once all the threads adding
+     * rows are done with it.
      */
     public void close() throws IOException
     {
-        writer.close();
+        IOException exception = null;
+        for (AbstractSSTableSimpleWriter writer : allWriters)
+        {
+            try
+            {
+                writer.close();
+            }
+            catch (IOException e)
+            {
+                // keep closing the other writers, so that their own sstables are complete
+                if (exception == null)
+                    exception = e;
+            }
+        }
+        if (exception != null)
+            throw exception;
     }
 
     /**
@@ -290,6 +391,9 @@ public class CQLSSTableWriter implements Closeable
         private boolean sorted = false;
         private long bufferSizeInMB = 128;
 
+        private boolean concurrent = false;
+        private List<Range<Token>> ranges = Collections.emptyList();
+
         protected Builder() {}
 
         /**
@@ -489,6 +593,43 @@ public class CQLSSTableWriter implements Closeable
             return this;
         }
 
+        /**
+         * Creates a CQLSSTableWriter that rows can be added to by many threads at once.
+         * <p>
+         * Each thread adding rows then gets its own writers: rows are sorted in a
+         * per-thread buffer (of the size given by withBufferSizeInMB), which is written
+         * as a new sstable by a background thread of its own when full. Several sstables
+         * are thus built concurrently, and so the memory used is up to twice the buffer
+         * size per thread (per token range if withTokenRanges is used), which the buffer
+         * size should account for.
+         * <p>
+         * If used with sorted(), the rows added by each thread should be in sorted order.
+         *
+         * @return this builder.
+         */
+        public Builder concurrent()
+        {
+            this.concurrent = true;
+            return this;
+        }
+
+        /**
+         * The token ranges to split the created sstables by.
+         * <p>
+         * If this option is used, each created sstable only contains partitions of one
+         * of these ranges, so using the ranges of the target ring means each sstable can
+         * be streamed to the replicas of its range only. Adding a row whose partition key
+         * is not in any of the ranges is an error. By default, sstables are not split.
+         *
+         * @param ranges the ranges to split by, which shouldn't overlap.
+         * @return this builder.
+         */
+        public Builder withTokenRanges(Collection<Range<Token>> ranges)
+        {
+            this.ranges = new ArrayList<>(ranges);
+            return this;
+        }
+
         private static <T extends CQLStatement> Pair<T, List<ColumnSpecification>> getStatement(String query, Class<T> klass, String type)
         {
             try
@@ -519,6 +660,12 @@ public class CQLSSTableWriter implements Closeable
             if (insert == null)
                 throw new IllegalStateException("No insert statement specified, you should provide an insert statement through using()");
 
+            return new CQLSSTableWriter(this);
+        }
+
+        @SuppressWarnings("resource")
+        private AbstractSSTableSimpleWriter newWriter()
+        {
             AbstractSSTableSimpleWriter writer = sorted
                                                ? new SSTableSimpleWriter(directory, schema, partitioner)
                                                : new BufferedWriter(directory, schema, partitioner, bufferSizeInMB);
@@ -526,7 +673,7 @@ public class CQLSSTableWriter implements Closeable
             if (formatType != null)
                 writer.setSSTableFormatType(formatType);
 
-            return new CQLSSTableWriter(writer, insert, boundNames);
+            return writer;
         }
     }
 
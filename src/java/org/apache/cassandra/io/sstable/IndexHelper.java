@@ -89,6 +89,16 @@ public class IndexHelper
         if (lastIndex >= indexList.size())
             return -1;
 
+        if (indexList instanceof PrefixCompressedColumnIndex)
+        {
+            PrefixCompressedColumnIndex index = (PrefixCompressedColumnIndex) indexList;
+            if (lastIndex < 0)
+                return index.indexFor(name, comparator, reversed, 0, index.size());
+            return reversed
+                 ? index.indexFor(name, comparator, true, 0, lastIndex + 1)
+                 : index.indexFor(name, comparator, false, lastIndex, index.size());
+        }
+
         IndexInfo target = new IndexInfo(name, name, 0, 0);
         /*
         Take the example from the unit test, and say your index looks like this:
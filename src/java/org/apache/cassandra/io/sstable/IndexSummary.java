@@ -18,11 +18,13 @@
 package org.apache.cassandra.io.sstable;
 
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -289,8 +291,17 @@ public class IndexSummary extends WrappedSharedCloseable
             out.write(t.entries, 0, t.entriesLength);
         }
 
-        @SuppressWarnings("resource")
         public IndexSummary deserialize(DataInputStream in, IPartitioner partitioner, boolean haveSamplingLevel, int expectedMinIndexInterval, int maxIndexInterval) throws IOException
+        {
+            return deserialize(in, partitioner, haveSamplingLevel, expectedMinIndexInterval, maxIndexInterval, null);
+        }
+
+        /**
+         * @param channel if not null, the channel @param in reads from, without buffering: the summary entries are
+         * then mapped from it rather than copied off heap, and the channel is positioned right after the summary.
+         */
+        @SuppressWarnings("resource")
+        public IndexSummary deserialize(DataInputStream in, IPartitioner partitioner, boolean haveSamplingLevel, int expectedMinIndexInterval, int maxIndexInterval, FileChannel channel) throws IOException
         {
             int minIndexInterval = in.readInt();
             if (minIndexInterval != expectedMinIndexInterval)
@@ -320,17 +331,35 @@ public class IndexSummary extends WrappedSharedCloseable
                                                     " the current max index interval (%d)", effectiveIndexInterval, maxIndexInterval));
             }
 
+            // the offsets need correcting below, so they're always copied, but they're small compared to the entries
             Memory offsets = Memory.allocate(offsetCount * 4);
-            Memory entries = Memory.allocate(offheapSize - offsets.size());
+            Memory entries = null;
             try
             {
-                FBUtilities.copy(in, new MemoryOutputStream(offsets), offsets.size());
-                FBUtilities.copy(in, new MemoryOutputStream(entries), entries.size());
+                if (channel != null)
+                {
+                    ByteBuffer buffer = offsets.asByteBuffer(0, (int) offsets.size());
+                    while (buffer.hasRemaining())
+                    {
+                        if (channel.read(buffer) < 0)
+                            throw new EOFException();
+                    }
+                    long position = channel.position();
+                    entries = MappedMemory.map(channel, position, offheapSize - offsets.size());
+                    channel.position(position + entries.size());
+                }
+                else
+                {
+                    entries = Memory.allocate(offheapSize - offsets.size());
+                    FBUtilities.copy(in, new MemoryOutputStream(offsets), offsets.size());
+                    FBUtilities.copy(in, new MemoryOutputStream(entries), entries.size());
+                }
             }
             catch (IOException ioe)
             {
                 offsets.free();
-                entries.free();
+                if (entries != null)
+                    entries.free();
                 throw ioe;
             }
             // our on-disk representation treats the offsets and the summary data as one contiguous structure,
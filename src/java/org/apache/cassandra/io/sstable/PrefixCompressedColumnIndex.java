@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.sstable;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.db.composites.CType;
+import org.apache.cassandra.db.composites.Composite;
+import org.apache.cassandra.io.util.ByteBufferDataInput;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.ObjectSizes;
+import org.apache.cassandra.utils.vint.EncodedDataInputStream;
+import org.apache.cassandra.utils.vint.EncodedDataOutputStream;
+
+/**
+ * A promoted column index kept in its serialized form, so that wide partitions don't have their whole list of
+ * IndexInfo deserialized on every key cache miss.
+ *
+ * Block boundaries are prefix compressed: the first name of a block is stored as the bytes it doesn't share with
+ * the last name of the previous block, and its last name as the bytes it doesn't share with its first name.  Offsets
+ * are vints relative to the end of the previous block, and widths are vints.  Every RESTART_INTERVAL entries, one
+ * entry is encoded on its own (nothing shared, absolute offset), and the positions of these restart points follow
+ * the entries.  Lookups binary search the restart points, then decode at most RESTART_INTERVAL entries.  get(int)
+ * resumes from the entry it decoded last when it can, so walking the index forwards decodes each entry once.
+ */
+public class PrefixCompressedColumnIndex extends AbstractList<IndexHelper.IndexInfo> implements RandomAccess
+{
+    static final int RESTART_INTERVAL = 16;
+
+    private static final long EMPTY_SIZE = ObjectSizes.measure(new PrefixCompressedColumnIndex(null, 0, new byte[0]));
+
+    private final CType type;
+    private final int size;
+    // the encoded entries, followed by the position of each restart point as an int
+    private final byte[] data;
+    private final int restartsOffset;
+    // where the last get(int) stopped; shared by all the readers of the partition
+    private volatile Position last;
+
+    private PrefixCompressedColumnIndex(CType type, int size, byte[] data)
+    {
+        this.type = type;
+        this.size = size;
+        this.data = data;
+        this.restartsOffset = data.length - restartCount(size) * TypeSizes.NATIVE.sizeof(0);
+    }
+
+    public static PrefixCompressedColumnIndex create(List<IndexHelper.IndexInfo> index, CType type)
+    {
+        if (index instanceof PrefixCompressedColumnIndex)
+            return (PrefixCompressedColumnIndex) index;
+
+        try (DataOutputBuffer out = new DataOutputBuffer())
+        {
+            int[] restarts = new int[restartCount(index.size())];
+            ByteBuffer previousName = ByteBufferUtil.EMPTY_BYTE_BUFFER;
+            long previousEnd = 0;
+            for (int i = 0; i < index.size(); i++)
+            {
+                if (i % RESTART_INTERVAL == 0)
+                {
+                    restarts[i / RESTART_INTERVAL] = out.getLength();
+                    previousName = ByteBufferUtil.EMPTY_BYTE_BUFFER;
+                    previousEnd = 0;
+                }
+
+                IndexHelper.IndexInfo info = index.get(i);
+                ByteBuffer firstName = info.firstName.toByteBuffer();
+                ByteBuffer lastName = info.lastName.toByteBuffer();
+                writeName(previousName, firstName, out);
+                writeName(firstName, lastName, out);
+                EncodedDataOutputStream.writeVLong(info.offset - previousEnd, out);
+                EncodedDataOutputStream.writeVLong(info.width, out);
+
+                previousName = lastName;
+                previousEnd = info.offset + info.width;
+            }
+
+            for (int restart : restarts)
+                out.writeInt(restart);
+
+            return new PrefixCompressedColumnIndex(type, index.size(), Arrays.copyOf(out.getData(), out.getLength()));
+        }
+        catch (IOException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void writeName(ByteBuffer previous, ByteBuffer name, DataOutputPlus out) throws IOException
+    {
+        int shared = ByteBufferUtil.sharedPrefixLength(previous, name);
+        EncodedDataOutputStream.writeVLong(shared, out);
+        EncodedDataOutputStream.writeVLong(name.remaining() - shared, out);
+        ByteBuffer suffix = name.duplicate();
+        suffix.position(suffix.position() + shared);
+        out.write(suffix);
+    }
+
+    private static int restartCount(int size)
+    {
+        return (size + RESTART_INTERVAL - 1) / RESTART_INTERVAL;
+    }
+
+    public void serialize(DataOutputPlus out) throws IOException
+    {
+        out.writeInt(size);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    public long serializedSize(TypeSizes typeSizes)
+    {
+        return typeSizes.sizeof(size) + typeSizes.sizeof(data.length) + data.length;
+    }
+
+    public static PrefixCompressedColumnIndex deserialize(DataInput in, CType type) throws IOException
+    {
+        int size = in.readInt();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new PrefixCompressedColumnIndex(type, size, data);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public IndexHelper.IndexInfo get(int i)
+    {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException(String.format("%d (size %d)", i, size));
+
+        // entries can only be decoded from the previous one within a restart interval
+        Cursor cursor = new Cursor();
+        Position last = this.last;
+        if (last != null && last.index <= i && last.index / RESTART_INTERVAL == i / RESTART_INTERVAL)
+            cursor.seek(last);
+        else
+            cursor.seekToRestart(i / RESTART_INTERVAL);
+        while (cursor.index < i)
+            cursor.next();
+        this.last = cursor.position();
+        return cursor.toIndexInfo();
+    }
+
+    /**
+     * Same as IndexHelper.indexFor, over the entries of this index between @param from (inclusive) and @param to
+     * (exclusive), but only decoding the entries it compares @param name to.
+     */
+    public int indexFor(Composite name, CType comparator, boolean reversed, int from, int to)
+    {
+        // Going forward, we want the first block whose last name is >= name.  Reversed, we want the last block whose
+        // first name is <= name, i.e. the one before the first block whose first name is > name.  Either way, this
+        // is based on the first block "past" name, which is found by binary searching the restart points, then
+        // scanning the interval preceding the first restart point that is past name.
+        Cursor cursor = new Cursor();
+        int low = 0;
+        int high = restartCount(size);
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            cursor.seekToRestart(mid);
+            cursor.next();
+            if (cursor.isPast(name, comparator, reversed))
+                high = mid;
+            else
+                low = mid + 1;
+        }
+
+        int firstPast = Math.min(low * RESTART_INTERVAL, size);
+        if (low > 0)
+        {
+            cursor.seekToRestart(low - 1);
+            cursor.next();
+            while (cursor.index + 1 < firstPast)
+            {
+                cursor.next();
+                if (cursor.isPast(name, comparator, reversed))
+                {
+                    firstPast = cursor.index;
+                    break;
+                }
+            }
+        }
+
+        return reversed
+             ? Math.max(from - 1, Math.min(firstPast - 1, to - 1))
+             : Math.min(to, Math.max(from, firstPast));
+    }
+
+    public long unsharedHeapSize()
+    {
+        return EMPTY_SIZE + ObjectSizes.sizeOfArray(data);
+    }
+
+    /**
+     * Decodes the entries following a restart point, one at a time.
+     */
+    private class Cursor
+    {
+        private final ByteBufferDataInput in = new ByteBufferDataInput(ByteBuffer.wrap(data), null, 0, 0);
+        private int index;
+        private ByteBuffer firstName;
+        private ByteBuffer lastName;
+        private long offset;
+        private long width;
+
+        void seekToRestart(int restart)
+        {
+            try
+            {
+                in.seek(ByteBuffer.wrap(data).getInt(restartsOffset + restart * TypeSizes.NATIVE.sizeof(0)));
+            }
+            catch (IOException e)
+            {
+                throw new AssertionError(e);
+            }
+            index = restart * RESTART_INTERVAL - 1;
+            lastName = ByteBufferUtil.EMPTY_BYTE_BUFFER;
+            offset = 0;
+            width = 0;
+        }
+
+        void seek(Position position)
+        {
+            try
+            {
+                in.seek(position.dataPosition);
+            }
+            catch (IOException e)
+            {
+                throw new AssertionError(e);
+            }
+            index = position.index;
+            firstName = position.firstName;
+            lastName = position.lastName;
+            offset = position.offset;
+            width = position.width;
+        }
+
+        Position position()
+        {
+            return new Position(index, (int) in.getPosition(), firstName, lastName, offset, width);
+        }
+
+        void next()
+        {
+            try
+            {
+                firstName = readName(lastName);
+                lastName = readName(firstName);
+                offset += width + EncodedDataInputStream.readVLong(in);
+                width = EncodedDataInputStream.readVLong(in);
+                index++;
+            }
+            catch (IOException e)
+            {
+                throw new AssertionError(e);
+            }
+        }
+
+        private ByteBuffer readName(ByteBuffer previous) throws IOException
+        {
+            int shared = (int) EncodedDataInputStream.readVLong(in);
+            int length = (int) EncodedDataInputStream.readVLong(in);
+            byte[] bytes = new byte[shared + length];
+            ByteBufferUtil.arrayCopy(previous, previous.position(), bytes, 0, shared);
+            in.readFully(bytes, shared, length);
+            return ByteBuffer.wrap(bytes);
+        }
+
+        boolean isPast(Composite name, CType comparator, boolean reversed)
+        {
+            return reversed
+                 ? comparator.compare(type.fromByteBuffer(firstName), name) > 0
+                 : comparator.compare(type.fromByteBuffer(lastName), name) >= 0;
+        }
+
+        IndexHelper.IndexInfo toIndexInfo()
+        {
+            return new IndexHelper.IndexInfo(type.fromByteBuffer(firstName), type.fromByteBuffer(lastName), offset, width);
+        }
+    }
+
+    /**
+     * The state of a Cursor that has just decoded an entry, from which it can carry on decoding the following ones.
+     */
+    private static final class Position
+    {
+        private final int index;
+        private final int dataPosition;
+        private final ByteBuffer firstName;
+        private final ByteBuffer lastName;
+        private final long offset;
+        private final long width;
+
+        private Position(int index, int dataPosition, ByteBuffer firstName, ByteBuffer lastName, long offset, long width)
+        {
+            this.index = index;
+            this.dataPosition = dataPosition;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.offset = offset;
+            this.width = width;
+        }
+    }
+}
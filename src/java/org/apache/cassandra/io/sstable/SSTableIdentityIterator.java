@@ -18,6 +18,7 @@
 package org.apache.cassandra.io.sstable;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 import org.apache.cassandra.config.CFMetaData;
@@ -26,9 +27,11 @@ import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.sstable.format.Version;
+import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.io.util.FileDataInput;
 import org.apache.cassandra.io.util.RandomAccessReader;
 import org.apache.cassandra.serializers.MarshalException;
+import org.apache.cassandra.utils.ByteBufferUtil;
 
     public class SSTableIdentityIterator implements Comparable<SSTableIdentityIterator>, OnDiskAtomIterator
 {
@@ -44,6 +47,12 @@ import org.apache.cassandra.serializers.MarshalException;
     // Not every SSTableIdentifyIterator is attached to a sstable, so this can be null.
     private final SSTableReader sstable;
 
+    // Only set when the row was reached through the primary index and its serialized size is known,
+    // in which case the row can be copied verbatim by compaction; otherwise null and -1 respectively.
+    // The index entry is kept serialized until needed, as it may hold the column index of a wide row.
+    private final ByteBuffer serializedIndexEntry;
+    private final long dataSize;
+
     /**
      * Used to iterate through the columns of a row.
      * @param sstable SSTable we are reading ffrom.
@@ -64,7 +73,20 @@ import org.apache.cassandra.serializers.MarshalException;
      */
     public SSTableIdentityIterator(SSTableReader sstable, RandomAccessReader file, DecoratedKey key, boolean checkData)
     {
-        this(sstable.metadata, file, file.getPath(), key, checkData, sstable, ColumnSerializer.Flag.LOCAL);
+        this(sstable.metadata, file, file.getPath(), key, checkData, sstable, ColumnSerializer.Flag.LOCAL, null, -1);
+    }
+
+    /**
+     * Used to iterate through the columns of a row whose position and serialized size are known.
+     * @param sstable SSTable we are reading from.
+     * @param file Reading using this file, positioned just after the row key.
+     * @param key Key of this row.
+     * @param serializedIndexEntry the serialized primary index entry of this row.
+     * @param dataSize the serialized size of the row, key and header included.
+     */
+    public SSTableIdentityIterator(SSTableReader sstable, RandomAccessReader file, DecoratedKey key, ByteBuffer serializedIndexEntry, long dataSize)
+    {
+        this(sstable.metadata, file, file.getPath(), key, false, sstable, ColumnSerializer.Flag.LOCAL, serializedIndexEntry, dataSize);
     }
 
     // sstable may be null *if* checkData is false
@@ -75,7 +97,9 @@ import org.apache.cassandra.serializers.MarshalException;
                                     DecoratedKey key,
                                     boolean checkData,
                                     SSTableReader sstable,
-                                    ColumnSerializer.Flag flag)
+                                    ColumnSerializer.Flag flag,
+                                    ByteBuffer serializedIndexEntry,
+                                    long dataSize)
     {
         assert !checkData || (sstable != null);
         this.in = in;
@@ -84,6 +108,8 @@ import org.apache.cassandra.serializers.MarshalException;
         this.flag = flag;
         this.validateColumns = checkData;
         this.sstable = sstable;
+        this.serializedIndexEntry = serializedIndexEntry;
+        this.dataSize = dataSize;
 
         Version dataVersion = sstable == null ? DatabaseDescriptor.getSSTableFormat().info.getLatestVersion() : sstable.descriptor.version;
         int expireBefore = (int) (System.currentTimeMillis() / 1000);
@@ -112,6 +138,76 @@ import org.apache.cassandra.serializers.MarshalException;
         return columnFamily;
     }
 
+    /**
+     * @return the sstable this row is read from, or null if it is not attached to one.
+     */
+    public SSTableReader getSSTable()
+    {
+        return sstable;
+    }
+
+    /**
+     * @return the primary index entry of this row.  Only valid if {@link #isCopyable()}.
+     */
+    public RowIndexEntry getIndexEntry() throws IOException
+    {
+        assert isCopyable();
+
+        DataInputStream in = new DataInputStream(ByteBufferUtil.inputStream(serializedIndexEntry.duplicate()));
+        return sstable.descriptor.version.getSSTableFormat().getIndexSerializer(sstable.metadata, sstable.descriptor.version).deserialize(in, sstable.descriptor.version);
+    }
+
+    /**
+     * @return true if the serialized form of this row can be copied with {@link #copyTo}.
+     */
+    public boolean isCopyable()
+    {
+        return serializedIndexEntry != null && dataSize >= 0;
+    }
+
+    /**
+     * Copies the serialized row, including its key and header, to @param out without deserializing it.
+     * This repositions the underlying file, so the row must not be iterated afterwards.
+     */
+    public void copyTo(DataOutputPlus out) throws IOException
+    {
+        assert isCopyable();
+
+        RandomAccessReader file = (RandomAccessReader) in;
+        try
+        {
+            file.seek(serializedIndexEntry.getLong(serializedIndexEntry.position()));
+            file.transferTo(out, dataSize);
+        }
+        catch (EOFException e)
+        {
+            sstable.markSuspect();
+            throw new CorruptSSTableException(e, filename);
+        }
+    }
+
+    /**
+     * @return a new iterator over this row, starting over from its first cell.  Only valid if {@link #isCopyable()},
+     * and like {@link #copyTo} this repositions the underlying file.
+     */
+    public SSTableIdentityIterator rewind()
+    {
+        assert isCopyable();
+
+        RandomAccessReader file = (RandomAccessReader) in;
+        try
+        {
+            file.seek(serializedIndexEntry.getLong(serializedIndexEntry.position()));
+            ByteBufferUtil.skipShortLength(file); // key
+        }
+        catch (IOException e)
+        {
+            sstable.markSuspect();
+            throw new CorruptSSTableException(e, filename);
+        }
+        return new SSTableIdentityIterator(sstable, file, key, serializedIndexEntry, dataSize);
+    }
+
     public boolean hasNext()
     {
         try
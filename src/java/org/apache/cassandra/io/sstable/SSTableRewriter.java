@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.io.sstable;
 
+import java.io.IOException;
 import java.util.*;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -26,10 +27,12 @@ import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.RowIndexEntry;
 import org.apache.cassandra.db.compaction.AbstractCompactedRow;
+import org.apache.cassandra.io.FSReadError;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.io.sstable.format.SSTableWriter;
 import org.apache.cassandra.db.lifecycle.LifecycleTransaction;
-import org.apache.cassandra.utils.CLibrary;
+import org.apache.cassandra.io.util.FileDataInput;
+import org.apache.cassandra.utils.Pair;
 import org.apache.cassandra.utils.concurrent.Transactional;
 
 /**
@@ -39,6 +42,9 @@ import org.apache.cassandra.utils.concurrent.Transactional;
  * Then we move the starts of each reader forwards to that point, replace them in the Tracker, and attach a runnable
  * for on-close (i.e. when all references expire) that drops the page cache prior to that key position
  *
+ * The rows that were in the key cache of the readers we rewrite are read from each new reader before it replaces
+ * them, so that the hot rows aren't read cold from disk right after the switch.
+ *
  * hard-links are created for each partially written sstable so that readers opened against them continue to work past
  * the rename of the temporary file, which is deleted once all readers against the hard-link have been closed.
  * If for any reason the writer is rolled over, we immediately rename and fully expose the completed file in the Tracker.
@@ -59,7 +65,6 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
     // the set of final readers we will expose on commit
     private final LifecycleTransaction transaction; // the readers we are rewriting (updated as they are replaced)
     private final List<SSTableReader> preparedForCommit = new ArrayList<>();
-    private final Map<Descriptor, Integer> fileDescriptors = new HashMap<>(); // the file descriptors for each reader descriptor we are rewriting
 
     private long currentlyOpenedEarlyAt; // the position (in MB) in the target file we last (re)opened at
 
@@ -68,6 +73,12 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
 
     private SSTableWriter writer;
     private Map<DecoratedKey, RowIndexEntry> cachedKeys = new HashMap<>();
+    // the data file ranges of the rows of the current writer that are in cachedKeys, until they are preheated
+    private List<Pair<Long, Long>> hotRows = new ArrayList<>();
+    // cachedKeys and hotRows of the writers we switched away from without opening them early, which are carried
+    // over to their readers when they are finally opened
+    private final Map<SSTableWriter, Map<DecoratedKey, RowIndexEntry>> unopenedCachedKeys = new HashMap<>();
+    private final Map<SSTableWriter, List<Pair<Long, Long>>> unopenedHotRows = new HashMap<>();
 
     // for testing (TODO: remove when have byteman setup)
     private boolean throwEarly, throwLate;
@@ -86,8 +97,6 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
     public SSTableRewriter(ColumnFamilyStore cfs, LifecycleTransaction transaction, long maxAge, boolean isOffline, long preemptiveOpenInterval)
     {
         this.transaction = transaction;
-        for (SSTableReader sstable : this.transaction.originals())
-            fileDescriptors.put(sstable.descriptor, CLibrary.getfd(sstable.getFilename()));
         this.cfs = cfs;
         this.maxAge = maxAge;
         this.isOffline = isOffline;
@@ -130,7 +139,10 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
                     }
                 }
                 if (save)
+                {
                     cachedKeys.put(row.key, index);
+                    hotRows.add(Pair.create(index.position, writer.getFilePointer()));
+                }
             }
         }
         return index;
@@ -158,16 +170,14 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
             if (isOffline)
             {
                 for (SSTableReader reader : transaction.originals())
-                {
-                    RowIndexEntry index = reader.getPosition(key, SSTableReader.Operator.GE);
-                    CLibrary.trySkipCache(fileDescriptors.get(reader.descriptor), 0, index == null ? 0 : index.position);
-                }
+                    reader.dropPageCache(key);
             }
             else
             {
                 SSTableReader reader = writer.setMaxDataAge(maxAge).openEarly();
                 if (reader != null)
                 {
+                    preheat(reader, hotRows);
                     transaction.update(reader, false);
                     currentlyOpenedEarlyAt = writer.getFilePointer();
                     moveStarts(reader, reader.last);
@@ -259,6 +269,42 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
         }
     }
 
+    /**
+     * Reads the @param rows that @param reader covers, removing them from the list, so that they are in the page
+     * cache when the reader replaces the ones we are rewriting.  Only the first column_index_size_in_kb of each row
+     * is read, which is all a read needs of most rows, and bounds the work for wide ones.
+     *
+     * @return the number of bytes read
+     */
+    @VisibleForTesting
+    static long preheat(SSTableReader reader, List<Pair<Long, Long>> rows)
+    {
+        byte[] buffer = new byte[4096];
+        long read = 0;
+        int preheated = 0;
+        for (; preheated < rows.size() && rows.get(preheated).right <= reader.uncompressedLength(); preheated++)
+        {
+            Pair<Long, Long> row = rows.get(preheated);
+            try (FileDataInput in = reader.getFileDataInput(row.left))
+            {
+                long remaining = Math.min(row.right - row.left, DatabaseDescriptor.getColumnIndexSize());
+                while (remaining > 0)
+                {
+                    int length = (int) Math.min(buffer.length, remaining);
+                    in.readFully(buffer, 0, length);
+                    remaining -= length;
+                    read += length;
+                }
+            }
+            catch (IOException e)
+            {
+                throw new FSReadError(e, reader.getFilename());
+            }
+        }
+        rows.subList(0, preheated).clear();
+        return read;
+    }
+
     public void switchWriter(SSTableWriter newWriter)
     {
         if (newWriter != null)
@@ -280,11 +326,19 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
         {
             // we leave it as a tmp file, but we open it and add it to the Tracker
             reader = writer.setMaxDataAge(maxAge).openFinalEarly();
+            preheat(reader, hotRows);
             transaction.update(reader, false);
             moveStarts(reader, reader.last);
             transaction.checkpoint();
         }
+        else if (!cachedKeys.isEmpty())
+        {
+            unopenedCachedKeys.put(writer, cachedKeys);
+            unopenedHotRows.put(writer, hotRows);
+            cachedKeys = new HashMap<>();
+        }
 
+        hotRows = new ArrayList<>();
         currentlyOpenedEarlyAt = 0;
         writer = newWriter;
     }
@@ -338,7 +392,15 @@ public class SSTableRewriter extends Transactional.AbstractTransactional impleme
             assert writer.getFilePointer() > 0;
             writer.setRepairedAt(repairedAt).setOpenResult(true).prepareToCommit();
             SSTableReader reader = writer.finished();
+            if (unopenedHotRows.containsKey(writer))
+                preheat(reader, unopenedHotRows.remove(writer));
+            // the reader only gets its key cache once it is part of the transaction
             transaction.update(reader, false);
+            if (unopenedCachedKeys.containsKey(writer))
+            {
+                for (Map.Entry<DecoratedKey, RowIndexEntry> cacheKey : unopenedCachedKeys.remove(writer).entrySet())
+                    reader.cacheKey(cacheKey.getKey(), cacheKey.getValue());
+            }
             preparedForCommit.add(reader);
         }
         transaction.checkpoint();
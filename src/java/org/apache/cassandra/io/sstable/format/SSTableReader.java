@@ -395,7 +395,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         // special implementation of load to use non-pooled SegmentedFile builders
         try(SegmentedFile.Builder ibuilder = new BufferedSegmentedFile.Builder();
             SegmentedFile.Builder dbuilder = sstable.compression
-                ? new CompressedSegmentedFile.Builder(null)
+                ? new CompressedSegmentedFile.Builder(null, metadata.getDiskAccess().dataAccessMode() == Config.DiskAccessMode.mmap)
                 : new BufferedSegmentedFile.Builder())
         {
             if (!sstable.loadSummary(ibuilder, dbuilder))
@@ -558,7 +558,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         this.sstableMetadata = sstableMetadata;
         this.maxDataAge = maxDataAge;
         this.openReason = openReason;
-        this.rowIndexEntrySerializer = descriptor.version.getSSTableFormat().getIndexSerializer(metadata);
+        this.rowIndexEntrySerializer = descriptor.version.getSSTableFormat().getIndexSerializer(metadata, descriptor.version);
     }
 
     public static long getTotalBytes(Iterable<SSTableReader> sstables)
@@ -653,6 +653,15 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
      */
     private void loadBloomFilter() throws IOException
     {
+        if (mapSummaryAndFilter())
+        {
+            try (FileInputStream file = new FileInputStream(descriptor.filenameFor(Component.FILTER)))
+            {
+                bf = FilterFactory.map(new DataInputStream(file), file.getChannel());
+            }
+            return;
+        }
+
         try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(descriptor.filenameFor(Component.FILTER)))))
         {
             bf = FilterFactory.deserialize(stream, true);
@@ -666,8 +675,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
      */
     private void load(boolean recreateBloomFilter, boolean saveSummaryIfCreated) throws IOException
     {
-        try(SegmentedFile.Builder ibuilder = SegmentedFile.getBuilder(DatabaseDescriptor.getIndexAccessMode(), false);
-            SegmentedFile.Builder dbuilder = SegmentedFile.getBuilder(DatabaseDescriptor.getDiskAccessMode(), compression))
+        try(SegmentedFile.Builder ibuilder = SegmentedFile.getBuilder(metadata.getDiskAccess().indexAccessMode(), false);
+            SegmentedFile.Builder dbuilder = SegmentedFile.getBuilder(metadata.getDiskAccess().dataAccessMode(), compression))
         {
             boolean summaryLoaded = loadSummary(ibuilder, dbuilder);
             boolean builtSummary = false;
@@ -691,8 +700,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                 logger.info("Detected erroneously downsampled index summary; will rebuild summary at full sampling");
                 FileUtils.deleteWithConfirm(new File(descriptor.filenameFor(Component.SUMMARY)));
 
-                try(SegmentedFile.Builder ibuilderRebuild = SegmentedFile.getBuilder(DatabaseDescriptor.getIndexAccessMode(), false);
-                    SegmentedFile.Builder dbuilderRebuild = SegmentedFile.getBuilder(DatabaseDescriptor.getDiskAccessMode(), compression))
+                try(SegmentedFile.Builder ibuilderRebuild = SegmentedFile.getBuilder(metadata.getDiskAccess().indexAccessMode(), false);
+                    SegmentedFile.Builder dbuilderRebuild = SegmentedFile.getBuilder(metadata.getDiskAccess().dataAccessMode(), compression))
                 {
                     buildSummary(false, ibuilderRebuild, dbuilderRebuild, false, Downsampling.BASE_SAMPLING_LEVEL);
                     ifile = ibuilderRebuild.complete(descriptor.filenameFor(Component.PRIMARY_INDEX));
@@ -733,7 +742,7 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
             try (IndexSummaryBuilder summaryBuilder = summaryLoaded ? null : new IndexSummaryBuilder(estimatedKeys, metadata.getMinIndexInterval(), samplingLevel))
             {
                 long indexPosition;
-                RowIndexEntry.IndexSerializer rowIndexSerializer = descriptor.getFormat().getIndexSerializer(metadata);
+                RowIndexEntry.IndexSerializer rowIndexSerializer = descriptor.getFormat().getIndexSerializer(metadata, descriptor.version);
 
                 while ((indexPosition = primaryIndex.getFilePointer()) != indexSize)
                 {
@@ -771,6 +780,10 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
      * if loaded index summary has different index interval from current value stored in schema,
      * then Summary.db file will be deleted and this returns false to rebuild summary.
      *
+     * If the segment bounds it records can't be used by @param ibuilder and @param dbuilder, which happens when the
+     * disk access modes changed since it was written, this returns false to rebuild the summary, but leaves the file
+     * for the caller to overwrite or not.
+     *
      * @param ibuilder
      * @param dbuilder
      * @return true if index summary is loaded successfully from Summary.db file.
@@ -785,14 +798,27 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         DataInputStream iStream = null;
         try
         {
-            iStream = new DataInputStream(new FileInputStream(summariesFile));
+            FileInputStream file = new FileInputStream(summariesFile);
+            iStream = new DataInputStream(file);
             indexSummary = IndexSummary.serializer.deserialize(
                     iStream, partitioner, descriptor.version.hasSamplingLevel(),
-                    metadata.getMinIndexInterval(), metadata.getMaxIndexInterval());
+                    metadata.getMinIndexInterval(), metadata.getMaxIndexInterval(),
+                    mapSummaryAndFilter() ? file.getChannel() : null);
             first = partitioner.decorateKey(ByteBufferUtil.readWithLength(iStream));
             last = partitioner.decorateKey(ByteBufferUtil.readWithLength(iStream));
-            ibuilder.deserializeBounds(iStream);
-            dbuilder.deserializeBounds(iStream);
+            // summaries written before the access mode could be set per table have the bounds of the builders of
+            // the time, which followed the global modes
+            List<Long> ibounds = SegmentedFile.Builder.deserializeBounds(iStream, DatabaseDescriptor.getIndexAccessMode() == Config.DiskAccessMode.mmap);
+            List<Long> dbounds = ibounds == null ? null : SegmentedFile.Builder.deserializeBounds(iStream, !compression && DatabaseDescriptor.getDiskAccessMode() == Config.DiskAccessMode.mmap);
+            if (ibounds == null || dbounds == null || !ibuilder.canUseBounds(ibounds) || !dbuilder.canUseBounds(dbounds))
+            {
+                logger.debug("Cannot use the segment bounds of SSTable Summary File {} with the current disk access modes", summariesFile.getPath());
+                indexSummary.close();
+                indexSummary = null;
+                return false;
+            }
+            ibuilder.useBounds(ibounds);
+            dbuilder.useBounds(dbounds);
         }
         catch (IOException e)
         {
@@ -813,6 +839,15 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         return true;
     }
 
+    /**
+     * When index files are mapped, the summary and bloom filter are too: they are then used in place rather than
+     * copied off heap, which makes opening sstables cheap, and they're only paged in as they are accessed.
+     */
+    private boolean mapSummaryAndFilter()
+    {
+        return metadata.getDiskAccess().indexAccessMode() == Config.DiskAccessMode.mmap;
+    }
+
     /**
      * Validates that an index summary has full sampling, as expected when the serialization format does not support
      * persisting the sampling level.
@@ -1048,8 +1083,8 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
                 // we can use the existing index summary to make a smaller one
                 newSummary = IndexSummaryBuilder.downsample(indexSummary, samplingLevel, minIndexInterval, partitioner);
 
-                try(SegmentedFile.Builder ibuilder = SegmentedFile.getBuilder(DatabaseDescriptor.getIndexAccessMode(), false);
-                    SegmentedFile.Builder dbuilder = SegmentedFile.getBuilder(DatabaseDescriptor.getDiskAccessMode(), compression))
+                try(SegmentedFile.Builder ibuilder = SegmentedFile.getBuilder(metadata.getDiskAccess().indexAccessMode(), false);
+                    SegmentedFile.Builder dbuilder = SegmentedFile.getBuilder(metadata.getDiskAccess().dataAccessMode(), compression))
                 {
                     saveSummary(ibuilder, dbuilder, newSummary);
                 }
@@ -1108,6 +1143,23 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         return indexSummary.getOffHeapSize();
     }
 
+    /**
+     * @return the number of bytes read from the index and data files with read calls, which doesn't include the
+     * memory-mapped parts of these files
+     */
+    public long getBytesRead()
+    {
+        return ifile.bytesRead() + dfile.bytesRead();
+    }
+
+    /**
+     * @return the number of bytes of the index and data files that are memory-mapped
+     */
+    public long getMappedSize()
+    {
+        return ifile.mappedLength() + dfile.mappedLength();
+    }
+
     public int getMinIndexInterval()
     {
         return indexSummary.getMinIndexInterval();
@@ -1133,6 +1185,22 @@ public abstract class SSTableReader extends SSTable implements SelfRefCounted<SS
         }
     }
 
+    /**
+     * Drops the page cache of the data and index files before @param key, or all of it if there is no key past it
+     */
+    public void dropPageCache(DecoratedKey key)
+    {
+        RowIndexEntry index = getPosition(key, Operator.GE);
+        if (index == null)
+        {
+            dfile.dropPageCache(0);
+            ifile.dropPageCache(0);
+            return;
+        }
+        dfile.dropPageCache(index.position);
+        ifile.dropPageCache(getIndexScanPosition(key));
+    }
+
     /**
      * Gets the position in the index file to start scanning to find the given key (at most indexInterval keys away,
      * modulo downsampling of the index summary). Always returns a value >= 0
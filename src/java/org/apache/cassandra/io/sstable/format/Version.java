@@ -52,6 +52,14 @@ public abstract class Version
 
     public abstract boolean hasNewFileName();
 
+    public abstract boolean hasCompactCellEncoding();
+
+    public abstract boolean hasPrefixCompressedColumnIndex();
+
+    public abstract boolean hasCompressionDictionary();
+
+    public abstract boolean hasUncompressedChunks();
+
     public String getVersion()
     {
         return version;
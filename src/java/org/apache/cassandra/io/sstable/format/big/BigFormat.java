@@ -94,9 +94,10 @@ public class BigFormat implements SSTableFormat
     }
 
     @Override
-    public RowIndexEntry.IndexSerializer getIndexSerializer(CFMetaData cfMetaData)
+    public RowIndexEntry.IndexSerializer getIndexSerializer(CFMetaData cfMetaData, Version version)
     {
-        return new RowIndexEntry.Serializer(new IndexHelper.IndexInfo.Serializer(cfMetaData.comparator));
+        return new RowIndexEntry.Serializer(new IndexHelper.IndexInfo.Serializer(cfMetaData.comparator),
+                                            version.hasPrefixCompressedColumnIndex() ? cfMetaData.comparator : null);
     }
 
     static class WriterFactory extends SSTableWriter.Factory
@@ -125,7 +126,7 @@ public class BigFormat implements SSTableFormat
     // we always incremented the major version.
     static class BigVersion extends Version
     {
-        public static final String current_version = "la";
+        public static final String current_version = "le";
         public static final String earliest_supported_version = "jb";
 
         // jb (2.0.1): switch from crc32 to adler32 for compression checksums
@@ -135,6 +136,15 @@ public class BigFormat implements SSTableFormat
         //             switch uncompressed checksums to adler32
         //             tracks presense of legacy (local and remote) counter shards
         // la (2.2.0): new file name format
+        // lb (3.0.0): compact cell encoding: prefix compressed cell names, vint encoded lengths and
+        //             timestamps delta encoded within column index blocks (see CompactAtomSerializer)
+        // lc (3.0.0): prefix compressed promoted column index (see PrefixCompressedColumnIndex)
+        // ld (3.0.0): per-sstable compression dictionary in CompressionInfo
+        // le (3.0.0): chunks stored uncompressed, flagged in CompressionInfo
+        //
+        // The "m" versions belong to an unrelated format, so the versions from lb on are minor versions that are
+        // NOT forward-compatible: nodes of earlier releases consider them compatible but can't decode them, which
+        // is why nothing written in them may be streamed to such nodes (see NEWS.txt).
 
         private final boolean isLatestVersion;
         private final boolean hasSamplingLevel;
@@ -143,6 +153,10 @@ public class BigFormat implements SSTableFormat
         private final boolean hasRepairedAt;
         private final boolean tracksLegacyCounterShards;
         private final boolean newFileName;
+        private final boolean compactCellEncoding;
+        private final boolean prefixCompressedColumnIndex;
+        private final boolean compressionDictionary;
+        private final boolean uncompressedChunks;
 
         public BigVersion(String version)
         {
@@ -155,6 +169,10 @@ public class BigFormat implements SSTableFormat
             hasRepairedAt = version.compareTo("ka") >= 0;
             tracksLegacyCounterShards = version.compareTo("ka") >= 0;
             newFileName = version.compareTo("la") >= 0;
+            compactCellEncoding = version.compareTo("lb") >= 0;
+            prefixCompressedColumnIndex = version.compareTo("lc") >= 0;
+            compressionDictionary = version.compareTo("ld") >= 0;
+            uncompressedChunks = version.compareTo("le") >= 0;
         }
 
         @Override
@@ -199,6 +217,30 @@ public class BigFormat implements SSTableFormat
             return newFileName;
         }
 
+        @Override
+        public boolean hasCompactCellEncoding()
+        {
+            return compactCellEncoding;
+        }
+
+        @Override
+        public boolean hasPrefixCompressedColumnIndex()
+        {
+            return prefixCompressedColumnIndex;
+        }
+
+        @Override
+        public boolean hasCompressionDictionary()
+        {
+            return compressionDictionary;
+        }
+
+        @Override
+        public boolean hasUncompressedChunks()
+        {
+            return uncompressedChunks;
+        }
+
         @Override
         public boolean isCompatible()
         {
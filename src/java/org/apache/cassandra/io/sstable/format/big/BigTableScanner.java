@@ -18,6 +18,7 @@
 package org.apache.cassandra.io.sstable.format.big;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -92,7 +93,7 @@ public class BigTableScanner implements ISSTableScanner
         this.ifile = sstable.openIndexReader();
         this.sstable = sstable;
         this.dataRange = dataRange;
-        this.rowIndexEntrySerializer = sstable.descriptor.version.getSSTableFormat().getIndexSerializer(sstable.metadata);
+        this.rowIndexEntrySerializer = sstable.descriptor.version.getSSTableFormat().getIndexSerializer(sstable.metadata, sstable.descriptor.version);
 
         List<AbstractBounds<RowPosition>> boundsList = new ArrayList<>(2);
         addRange(dataRange.keyRange(), boundsList);
@@ -112,7 +113,7 @@ public class BigTableScanner implements ISSTableScanner
         this.ifile = sstable.openIndexReader();
         this.sstable = sstable;
         this.dataRange = null;
-        this.rowIndexEntrySerializer = sstable.descriptor.version.getSSTableFormat().getIndexSerializer(sstable.metadata);
+        this.rowIndexEntrySerializer = sstable.descriptor.version.getSSTableFormat().getIndexSerializer(sstable.metadata, sstable.descriptor.version);
 
         List<AbstractBounds<RowPosition>> boundsList = new ArrayList<>(tokenRanges.size());
         for (Range<Token> range : Range.normalize(tokenRanges))
@@ -238,6 +239,20 @@ public class BigTableScanner implements ISSTableScanner
         return new KeyScanningIterator();
     }
 
+    /**
+     * An index entry of which only the position has been deserialized.
+     */
+    private static class SerializedEntry extends RowIndexEntry
+    {
+        private final ByteBuffer serialized;
+
+        private SerializedEntry(ByteBuffer serialized)
+        {
+            super(serialized.getLong(serialized.position()));
+            this.serialized = serialized;
+        }
+    }
+
     protected class KeyScanningIterator extends AbstractIterator<OnDiskAtomIterator>
     {
         private DecoratedKey nextKey;
@@ -245,6 +260,22 @@ public class BigTableScanner implements ISSTableScanner
         private DecoratedKey currentKey;
         private RowIndexEntry currentEntry;
 
+        /**
+         * Scans of a full row only need its position, so we keep the rest of its index entry serialized: the column
+         * index of a wide partition is then only deserialized if compaction copies the row verbatim.
+         */
+        private RowIndexEntry readEntry(DecoratedKey key) throws IOException
+        {
+            if (dataRange != null && !dataRange.selectsFullRowFor(key.getKey()))
+                return rowIndexEntrySerializer.deserialize(ifile, sstable.descriptor.version);
+
+            long start = ifile.getFilePointer();
+            RowIndexEntry.Serializer.skip(ifile);
+            int length = (int) (ifile.getFilePointer() - start);
+            ifile.seek(start);
+            return new SerializedEntry(ifile.readBytes(length));
+        }
+
         protected OnDiskAtomIterator computeNext()
         {
             try
@@ -264,7 +295,7 @@ public class BigTableScanner implements ISSTableScanner
                             return endOfData();
 
                         currentKey = sstable.partitioner.decorateKey(ByteBufferUtil.readWithShortLength(ifile));
-                        currentEntry = rowIndexEntrySerializer.deserialize(ifile, sstable.descriptor.version);
+                        currentEntry = readEntry(currentKey);
                     } while (!currentRange.contains(currentKey));
                 }
                 else
@@ -274,16 +305,19 @@ public class BigTableScanner implements ISSTableScanner
                     currentEntry = nextEntry;
                 }
 
+                long currentEnd;
                 if (ifile.isEOF())
                 {
                     nextEntry = null;
                     nextKey = null;
+                    currentEnd = dfile.length();
                 }
                 else
                 {
                     // we need the position of the start of the next key, regardless of whether it falls in the current range
                     nextKey = sstable.partitioner.decorateKey(ByteBufferUtil.readWithShortLength(ifile));
-                    nextEntry = rowIndexEntrySerializer.deserialize(ifile, sstable.descriptor.version);
+                    nextEntry = readEntry(nextKey);
+                    currentEnd = nextEntry.position;
 
                     if (!currentRange.contains(nextKey))
                     {
@@ -296,6 +330,8 @@ public class BigTableScanner implements ISSTableScanner
                 {
                     dfile.seek(currentEntry.position + currentEntry.headerOffset());
                     ByteBufferUtil.readWithShortLength(dfile); // key
+                    if (currentEntry instanceof SerializedEntry)
+                        return new SSTableIdentityIterator(sstable, dfile, currentKey, ((SerializedEntry) currentEntry).serialized, currentEnd - currentEntry.position);
                     return new SSTableIdentityIterator(sstable, dfile, currentKey);
                 }
 
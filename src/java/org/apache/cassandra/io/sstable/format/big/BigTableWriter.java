@@ -33,7 +33,6 @@ import org.apache.cassandra.io.sstable.format.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.cassandra.config.CFMetaData;
-import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.compaction.AbstractCompactedRow;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.io.FSWriteError;
@@ -76,12 +75,12 @@ public class BigTableWriter extends SSTableWriter
                                              descriptor.filenameFor(Component.COMPRESSION_INFO),
                                              metadata.compressionParameters(),
                                              metadataCollector);
-            dbuilder = SegmentedFile.getCompressedBuilder((CompressedSequentialWriter) dataFile);
+            dbuilder = SegmentedFile.getCompressedBuilder((CompressedSequentialWriter) dataFile, metadata.getDiskAccess().dataAccessMode());
         }
         else
         {
             dataFile = SequentialWriter.open(new File(getFilename()), new File(descriptor.filenameFor(Component.CRC)));
-            dbuilder = SegmentedFile.getBuilder(DatabaseDescriptor.getDiskAccessMode(), false);
+            dbuilder = SegmentedFile.getBuilder(metadata.getDiskAccess().dataAccessMode(), false);
         }
         iwriter = new IndexWriter(keyCount, dataFile);
     }
@@ -133,7 +132,7 @@ public class BigTableWriter extends SSTableWriter
         RowIndexEntry entry;
         try
         {
-            entry = row.write(startPosition, dataFile);
+            entry = row.write(startPosition, dataFile, descriptor.version);
             if (entry == null)
                 return null;
             long endPosition = dataFile.getFilePointer();
@@ -161,7 +160,7 @@ public class BigTableWriter extends SSTableWriter
         long endPosition;
         try
         {
-            RowIndexEntry entry = rawAppend(cf, startPosition, decoratedKey, dataFile.stream);
+            RowIndexEntry entry = rawAppend(cf, startPosition, decoratedKey, dataFile.stream, descriptor.version);
             endPosition = dataFile.getFilePointer();
             afterAppend(decoratedKey, endPosition, entry);
         }
@@ -172,11 +171,11 @@ public class BigTableWriter extends SSTableWriter
         metadataCollector.update(endPosition - startPosition, cf.getColumnStats());
     }
 
-    private static RowIndexEntry rawAppend(ColumnFamily cf, long startPosition, DecoratedKey key, DataOutputPlus out) throws IOException
+    private static RowIndexEntry rawAppend(ColumnFamily cf, long startPosition, DecoratedKey key, DataOutputPlus out, Version version) throws IOException
     {
         assert cf.hasColumns() || cf.isMarkedForDelete();
 
-        ColumnIndex.Builder builder = new ColumnIndex.Builder(cf, key.getKey(), out);
+        ColumnIndex.Builder builder = new ColumnIndex.Builder(cf, key.getKey(), out, version);
         ColumnIndex index = builder.build(cf);
 
         out.writeShort(END_OF_ROW);
@@ -202,7 +201,7 @@ public class BigTableWriter extends SSTableWriter
         ColumnFamily cf = ArrayBackedSortedColumns.factory.create(metadata);
         cf.delete(DeletionTime.serializer.deserialize(in));
 
-        ColumnIndex.Builder columnIndexer = new ColumnIndex.Builder(cf, key.getKey(), dataFile.stream);
+        ColumnIndex.Builder columnIndexer = new ColumnIndex.Builder(cf, key.getKey(), dataFile.stream, descriptor.version);
 
         if (cf.deletionInfo().getTopLevelDeletion().localDeletionTime < Integer.MAX_VALUE)
         {
@@ -453,7 +452,7 @@ public class BigTableWriter extends SSTableWriter
         IndexWriter(long keyCount, final SequentialWriter dataFile)
         {
             indexFile = SequentialWriter.open(new File(descriptor.filenameFor(Component.PRIMARY_INDEX)));
-            builder = SegmentedFile.getBuilder(DatabaseDescriptor.getIndexAccessMode(), false);
+            builder = SegmentedFile.getBuilder(metadata.getDiskAccess().indexAccessMode(), false);
             summary = new IndexSummaryBuilder(keyCount, metadata.getMinIndexInterval(), Downsampling.BASE_SAMPLING_LEVEL);
             bf = FilterFactory.getFilter(keyCount, metadata.getBloomFilterFpChance(), true);
             // register listeners to be alerted when the data files are flushed
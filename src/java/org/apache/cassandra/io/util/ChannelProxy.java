@@ -24,6 +24,7 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.cassandra.io.FSReadError;
 import org.apache.cassandra.utils.CLibrary;
@@ -43,6 +44,8 @@ public final class ChannelProxy extends SharedCloseableImpl
 {
     private final String filePath;
     private final FileChannel channel;
+    // bytes read through any copy of this proxy
+    private final AtomicLong bytesRead;
 
     public static FileChannel openChannel(File file)
     {
@@ -72,6 +75,7 @@ public final class ChannelProxy extends SharedCloseableImpl
 
         this.filePath = filePath;
         this.channel = channel;
+        this.bytesRead = new AtomicLong();
     }
 
     public ChannelProxy(ChannelProxy copy)
@@ -80,6 +84,7 @@ public final class ChannelProxy extends SharedCloseableImpl
 
         this.filePath = copy.filePath;
         this.channel = copy.channel;
+        this.bytesRead = copy.bytesRead;
     }
 
     private final static class Cleanup implements RefCounted.Tidy
@@ -125,7 +130,10 @@ public final class ChannelProxy extends SharedCloseableImpl
     {
         try
         {
-            return channel.read(buffer, position);
+            int read = channel.read(buffer, position);
+            if (read > 0)
+                bytesRead.addAndGet(read);
+            return read;
         }
         catch (IOException e)
         {
@@ -133,6 +141,11 @@ public final class ChannelProxy extends SharedCloseableImpl
         }
     }
 
+    public long bytesRead()
+    {
+        return bytesRead.get();
+    }
+
     public long transferTo(long position, long count, WritableByteChannel target)
     {
         try
@@ -23,8 +23,6 @@ import java.util.TreeMap;
 
 import com.google.common.util.concurrent.RateLimiter;
 
-import org.apache.cassandra.config.Config;
-import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.io.compress.CompressedRandomAccessReader;
 import org.apache.cassandra.io.compress.CompressedSequentialWriter;
 import org.apache.cassandra.io.compress.CompressedThrottledReader;
@@ -33,13 +31,12 @@ import org.apache.cassandra.io.compress.CompressionMetadata;
 public class CompressedSegmentedFile extends SegmentedFile implements ICompressedFile
 {
     public final CompressionMetadata metadata;
-    private static final boolean useMmap = DatabaseDescriptor.getDiskAccessMode() == Config.DiskAccessMode.mmap;
     private static int MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
     private final TreeMap<Long, MappedByteBuffer> chunkSegments;
 
-    public CompressedSegmentedFile(ChannelProxy channel, CompressionMetadata metadata)
+    public CompressedSegmentedFile(ChannelProxy channel, CompressionMetadata metadata, boolean useMmap)
     {
-        this(channel, metadata, createMappedSegments(channel, metadata));
+        this(channel, metadata, useMmap ? createMappedSegments(channel, metadata) : null);
     }
 
     public CompressedSegmentedFile(ChannelProxy channel, CompressionMetadata metadata, TreeMap<Long, MappedByteBuffer> chunkSegments)
@@ -66,10 +63,19 @@ public class CompressedSegmentedFile extends SegmentedFile implements ICompresse
         return chunkSegments;
     }
 
+    public long mappedLength()
+    {
+        if (chunkSegments == null)
+            return 0;
+
+        long mapped = 0;
+        for (MappedByteBuffer segment : chunkSegments.values())
+            mapped += segment.capacity();
+        return mapped;
+    }
+
     static TreeMap<Long, MappedByteBuffer> createMappedSegments(ChannelProxy channel, CompressionMetadata metadata)
     {
-        if (!useMmap)
-            return null;
         TreeMap<Long, MappedByteBuffer> chunkSegments = new TreeMap<>();
         long offset = 0;
         long lastSegmentOffset = 0;
@@ -126,9 +132,11 @@ public class CompressedSegmentedFile extends SegmentedFile implements ICompresse
     public static class Builder extends SegmentedFile.Builder
     {
         protected final CompressedSequentialWriter writer;
-        public Builder(CompressedSequentialWriter writer)
+        private final boolean useMmap;
+        public Builder(CompressedSequentialWriter writer, boolean useMmap)
         {
             this.writer = writer;
+            this.useMmap = useMmap;
         }
 
         public void addPotentialBoundary(long boundary)
@@ -146,7 +154,7 @@ public class CompressedSegmentedFile extends SegmentedFile implements ICompresse
 
         public SegmentedFile complete(ChannelProxy channel, long overrideLength)
         {
-            return new CompressedSegmentedFile(channel, metadata(channel.filePath(), overrideLength));
+            return new CompressedSegmentedFile(channel, metadata(channel.filePath(), overrideLength), useMmap);
         }
     }
 
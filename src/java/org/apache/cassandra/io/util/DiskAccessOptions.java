@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import java.util.Map;
+
+import com.google.common.base.Objects;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static org.apache.cassandra.utils.FBUtilities.fromJsonMap;
+
+/*
+CQL: { 'index' : 'auto|mmap|standard', 'data' : 'auto|mmap|standard' }
+
+How the index and data files of the sstables of a table are read: 'auto' follows disk_access_mode from cassandra.yaml.
+ */
+public class DiskAccessOptions
+{
+    public static final String INDEX = "index";
+    public static final String DATA = "data";
+
+    public static final DiskAccessOptions DEFAULT = new DiskAccessOptions(Config.DiskAccessMode.auto, Config.DiskAccessMode.auto);
+
+    public final Config.DiskAccessMode index;
+    public final Config.DiskAccessMode data;
+
+    public DiskAccessOptions(Config.DiskAccessMode index, Config.DiskAccessMode data)
+    {
+        this.index = index;
+        this.data = data;
+    }
+
+    public static DiskAccessOptions fromString(String options) throws ConfigurationException
+    {
+        return fromMap(fromJsonMap(options));
+    }
+
+    public static DiskAccessOptions fromMap(Map<String, String> options) throws ConfigurationException
+    {
+        Config.DiskAccessMode index = Config.DiskAccessMode.auto;
+        Config.DiskAccessMode data = Config.DiskAccessMode.auto;
+        for (Map.Entry<String, String> entry : options.entrySet())
+        {
+            if (entry.getKey().equals(INDEX))
+                index = parseMode(entry.getKey(), entry.getValue());
+            else if (entry.getKey().equals(DATA))
+                data = parseMode(entry.getKey(), entry.getValue());
+            else
+                throw new ConfigurationException("Only supported DiskAccessOptions parameters are 'index' and 'data', but was '" + entry.getKey() + "'");
+        }
+        return new DiskAccessOptions(index, data);
+    }
+
+    private static Config.DiskAccessMode parseMode(String option, String value) throws ConfigurationException
+    {
+        String mode = value.toLowerCase();
+        if (mode.equals(Config.DiskAccessMode.auto.name()))
+            return Config.DiskAccessMode.auto;
+        if (mode.equals(Config.DiskAccessMode.mmap.name()))
+            return Config.DiskAccessMode.mmap;
+        if (mode.equals(Config.DiskAccessMode.standard.name()))
+            return Config.DiskAccessMode.standard;
+        throw new ConfigurationException("'" + option + "' can only have values 'auto', 'mmap' or 'standard', but was '" + value + "'");
+    }
+
+    /**
+     * @return the access mode of the index files, resolving 'auto' to the configured indexAccessMode
+     */
+    public Config.DiskAccessMode indexAccessMode()
+    {
+        return resolve(index, DatabaseDescriptor.getIndexAccessMode());
+    }
+
+    /**
+     * @return the access mode of the data files, resolving 'auto' to the configured disk_access_mode
+     */
+    public Config.DiskAccessMode dataAccessMode()
+    {
+        return resolve(data, DatabaseDescriptor.getDiskAccessMode());
+    }
+
+    private static Config.DiskAccessMode resolve(Config.DiskAccessMode mode, Config.DiskAccessMode configured)
+    {
+        // files that are memory-mapped can't be deleted through their snapshot hard-links on Windows, see CASSANDRA-6993
+        if (mode == Config.DiskAccessMode.auto || FBUtilities.isWindows())
+            return configured;
+        return mode;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("{\"%s\":\"%s\", \"%s\":\"%s\"}", INDEX, index, DATA, data);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        DiskAccessOptions o2 = (DiskAccessOptions) o;
+        return index == o2.index && data == o2.data;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hashCode(index, data);
+    }
+}
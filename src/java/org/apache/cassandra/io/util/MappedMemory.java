@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.cassandra.utils.memory.MemoryUtil;
+
+/**
+ * A region of a file mapped in memory, for on-disk structures that have the same layout as their off-heap form and
+ * can so be used in place instead of being copied off heap.  Pages are only read in as they are accessed.
+ *
+ * The mapping is read only: writing to it would crash the JVM, so all writes throw UnsupportedOperationException.
+ */
+public class MappedMemory extends Memory
+{
+    // null for an empty region, which has nothing to map
+    private final MappedByteBuffer buffer;
+
+    private MappedMemory()
+    {
+        super(0, 0);
+        this.buffer = null;
+    }
+
+    private MappedMemory(MappedByteBuffer buffer)
+    {
+        super(MemoryUtil.getAddress(buffer), buffer.capacity());
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps @param size bytes of @param channel, starting at @param position.  The mapping outlives the channel.
+     * An empty region maps nothing, since a zero length mapping has no address.
+     */
+    public static MappedMemory map(FileChannel channel, long position, long size) throws IOException
+    {
+        if (size < 0 || size > Integer.MAX_VALUE)
+            throw new IOException(String.format("Cannot map %d bytes", size));
+        if (size == 0)
+            return new MappedMemory();
+        return new MappedMemory(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    @Override
+    public long size()
+    {
+        // an empty region has no address to begin with
+        return buffer == null ? 0 : super.size();
+    }
+
+    @Override
+    public void setByte(long offset, byte b)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setMemory(long offset, long bytes, byte b)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setLong(long offset, long l)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setInt(long offset, int l)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setShort(long offset, short l)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setBytes(long memoryOffset, ByteBuffer buffer)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setBytes(long memoryOffset, byte[] buffer, int bufferOffset, int count)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void put(long trgOffset, Memory memory, long srcOffset, long size)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void free()
+    {
+        if (peer != 0 && buffer != null)
+            FileUtils.clean(buffer);
+        peer = 0;
+    }
+}
@@ -78,6 +78,14 @@ public class Memory implements AutoCloseable
             throw new OutOfMemoryError();
     }
 
+    // create a memory object over memory allocated by other means, such as a mapped file; the subclass is
+    // responsible for releasing it
+    protected Memory(long peer, long bytes)
+    {
+        this.peer = peer;
+        this.size = bytes;
+    }
+
     // create a memory object that references the exacy same memory location as the one provided.
     // this should ONLY be used by SafeMemory
     protected Memory(Memory copyOf)
@@ -17,7 +17,6 @@
  */
 package org.apache.cassandra.io.util;
 
-import java.io.*;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
@@ -60,6 +59,17 @@ public class MmappedSegmentedFile extends SegmentedFile
         return new MmappedSegmentedFile(this);
     }
 
+    public long mappedLength()
+    {
+        long mapped = 0;
+        for (Segment segment : segments)
+        {
+            if (segment.right != null)
+                mapped += segment.right.capacity();
+        }
+        return mapped;
+    }
+
     /**
      * @return The segment entry for the given position.
      */
@@ -157,6 +167,27 @@ public class MmappedSegmentedFile extends SegmentedFile
             boundaries.add(0L);
         }
 
+        @Override
+        protected List<Long> bounds()
+        {
+            return boundaries;
+        }
+
+        /**
+         * A summary written for a file that wasn't mapped has no bounds, which the segments of a mapped file need.
+         */
+        @Override
+        public boolean canUseBounds(List<Long> bounds)
+        {
+            return !bounds.isEmpty();
+        }
+
+        @Override
+        public void useBounds(List<Long> bounds)
+        {
+            boundaries = new ArrayList<>(bounds);
+        }
+
         public void addPotentialBoundary(long boundary)
         {
             if (boundary - currentStart <= MAX_SEGMENT_SIZE)
@@ -216,28 +247,5 @@ public class MmappedSegmentedFile extends SegmentedFile
             }
             return segments;
         }
-
-        @Override
-        public void serializeBounds(DataOutput out) throws IOException
-        {
-            super.serializeBounds(out);
-            out.writeInt(boundaries.size());
-            for (long position: boundaries)
-                out.writeLong(position);
-        }
-
-        @Override
-        public void deserializeBounds(DataInput in) throws IOException
-        {
-            super.deserializeBounds(in);
-
-            int size = in.readInt();
-            List<Long> temp = new ArrayList<>(size);
-            
-            for (int i = 0; i < size; i++)
-                temp.add(in.readLong());
-
-            boundaries = temp;
-        }
     }
 }
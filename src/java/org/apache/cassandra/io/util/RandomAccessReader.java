@@ -351,6 +351,33 @@ public class RandomAccessReader extends AbstractDataInput implements FileDataInp
         }
     }
 
+    /**
+     * Copies @param length bytes starting at the current position to @param out, straight from
+     * our buffer, without materializing them in an intermediate array.
+     */
+    public void transferTo(DataOutputPlus out, long length) throws IOException
+    {
+        assert length >= 0 : "length should not be negative: " + length;
+
+        if (buffer == null)
+            throw new IllegalStateException("Attempted to read from closed RAR");
+
+        while (length > 0)
+        {
+            if (isEOF())
+                throw new EOFException();
+            if (!buffer.hasRemaining())
+                reBuffer();
+
+            int toCopy = (int) Math.min(length, buffer.remaining());
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(slice.position() + toCopy);
+            out.write(slice);
+            buffer.position(buffer.position() + toCopy);
+            length -= toCopy;
+        }
+    }
+
     public long length()
     {
         return fileLength;
@@ -22,7 +22,10 @@ import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import com.google.common.base.Throwables;
@@ -130,19 +133,35 @@ public abstract class SegmentedFile extends SharedCloseableImpl
         CLibrary.trySkipCache(channel.getFileDescriptor(), 0, before);
     }
 
+    /**
+     * @return the number of bytes read from the file by the readers of this SegmentedFile and its copies
+     */
+    public long bytesRead()
+    {
+        return channel.bytesRead();
+    }
+
+    /**
+     * @return the number of bytes of the file that are memory-mapped
+     */
+    public long mappedLength()
+    {
+        return 0;
+    }
+
     /**
      * @return A SegmentedFile.Builder.
      */
     public static Builder getBuilder(Config.DiskAccessMode mode, boolean compressed)
     {
-        return compressed ? new CompressedSegmentedFile.Builder(null)
+        return compressed ? new CompressedSegmentedFile.Builder(null, mode == Config.DiskAccessMode.mmap)
                           : mode == Config.DiskAccessMode.mmap ? new MmappedSegmentedFile.Builder()
                                                                : new BufferedSegmentedFile.Builder();
     }
 
-    public static Builder getCompressedBuilder(CompressedSequentialWriter writer)
+    public static Builder getCompressedBuilder(CompressedSequentialWriter writer, Config.DiskAccessMode mode)
     {
-        return new CompressedSegmentedFile.Builder(writer);
+        return new CompressedSegmentedFile.Builder(writer, mode == Config.DiskAccessMode.mmap);
     }
 
     /**
@@ -158,6 +177,9 @@ public abstract class SegmentedFile extends SharedCloseableImpl
      */
     public static abstract class Builder implements AutoCloseable
     {
+        // precedes the bounds in summaries, where the global disk access mode used to be
+        private static final String BOUNDS_MARKER = "bounds";
+
         private ChannelProxy channel;
 
         /**
@@ -183,15 +205,62 @@ public abstract class SegmentedFile extends SharedCloseableImpl
             return complete(getChannel(path), overrideLength);
         }
 
+        /**
+         * @return the segment bounds to record in the summary, empty for builders of files that have no segments
+         */
+        protected List<Long> bounds()
+        {
+            return Collections.emptyList();
+        }
+
+        /**
+         * @return true if @param bounds read from a summary can be used by this builder
+         */
+        public boolean canUseBounds(List<Long> bounds)
+        {
+            return true;
+        }
+
+        /**
+         * Uses @param bounds read from a summary instead of the potential boundaries of the file.
+         */
+        public void useBounds(List<Long> bounds)
+        {
+        }
+
         public void serializeBounds(DataOutput out) throws IOException
         {
-            out.writeUTF(DatabaseDescriptor.getDiskAccessMode().name());
+            List<Long> bounds = bounds();
+            out.writeUTF(BOUNDS_MARKER);
+            out.writeInt(bounds.size());
+            for (long position : bounds)
+                out.writeLong(position);
         }
 
-        public void deserializeBounds(DataInput in) throws IOException
+        /**
+         * Reads the bounds of a builder from a summary.  Summaries written before the access mode could be set per
+         * table record the global disk access mode instead of the bounds marker, and are only followed by bounds
+         * when the builder of the time had some, as given by @param legacyBounds.
+         *
+         * @return the bounds read, or null if the summary was written under another global disk access mode, in which
+         * case the bounds that follow can't be told apart from what follows them
+         */
+        public static List<Long> deserializeBounds(DataInput in, boolean legacyBounds) throws IOException
         {
-            if (!in.readUTF().equals(DatabaseDescriptor.getDiskAccessMode().name()))
-                throw new IOException("Cannot deserialize SSTable Summary component because the DiskAccessMode was changed!");
+            String marker = in.readUTF();
+            if (!marker.equals(BOUNDS_MARKER))
+            {
+                if (!marker.equals(DatabaseDescriptor.getDiskAccessMode().name()))
+                    return null;
+                if (!legacyBounds)
+                    return Collections.emptyList();
+            }
+
+            int size = in.readInt();
+            List<Long> bounds = new ArrayList<>(size);
+            for (int i = 0; i < size; i++)
+                bounds.add(in.readLong());
+            return bounds;
         }
 
         public Throwable close(Throwable accumulate)
@@ -107,6 +107,10 @@ public class ColumnFamilyMetrics
     public final Gauge<Long> indexSummaryOffHeapMemoryUsed;
     /** Off heap memory used by compression meta data*/
     public final Gauge<Long> compressionMetadataOffHeapMemoryUsed;
+    /** Bytes read from the index and data files of live sstables with read calls, i.e. outside of their mapped parts */
+    public final Gauge<Long> readBytes;
+    /** Size of the memory-mapped parts of the index and data files of live sstables */
+    public final Gauge<Long> mappedBytes;
     /** Key cache hit rate  for this CF */
     public final Gauge<Double> keyCacheHitRate;
     /** Tombstones scanned in queries on this CF */
@@ -571,6 +575,26 @@ public class ColumnFamilyMetrics
                 return total;
             }
         });
+        readBytes = createColumnFamilyGauge("ReadBytes", new Gauge<Long>()
+        {
+            public Long getValue()
+            {
+                long total = 0;
+                for (SSTableReader sst : cfs.getSSTables())
+                    total += sst.getBytesRead();
+                return total;
+            }
+        });
+        mappedBytes = createColumnFamilyGauge("MappedBytes", new Gauge<Long>()
+        {
+            public Long getValue()
+            {
+                long total = 0;
+                for (SSTableReader sst : cfs.getSSTables())
+                    total += sst.getMappedSize();
+                return total;
+            }
+        });
         speculativeRetries = createColumnFamilyCounter("SpeculativeRetries");
         keyCacheHitRate = Metrics.register(factory.createMetricName("KeyCacheHitRate"), new RatioGauge()
         {
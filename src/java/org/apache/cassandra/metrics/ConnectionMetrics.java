@@ -18,13 +18,19 @@
 package org.apache.cassandra.metrics;
 
 import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 
 import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
 
 
+import org.apache.cassandra.net.MessagingService;
+import org.apache.cassandra.net.OutboundTcpConnection;
 import org.apache.cassandra.net.OutboundTcpConnectionPool;
 
 /**
@@ -36,6 +42,8 @@ public class ConnectionMetrics
 
     /** Total number of timeouts happened on this node */
     public static final Meter totalTimeouts = Metrics.meter(DefaultNameFactory.createMetricName(TYPE_NAME, "TotalTimeouts", null));
+    /** Time between the timeout of a callback and its expiry, in microseconds */
+    public static final Histogram callbackExpiryLag = Metrics.histogram(DefaultNameFactory.createMetricName(TYPE_NAME, "CallbackExpiryLag", null));
 
     public final String address;
     /** Pending tasks for large message TCP Connections */
@@ -50,11 +58,27 @@ public class ConnectionMetrics
     public final Gauge<Long> smallMessageCompletedTasks;
     /** Dropped tasks for small message TCP Connections */
     public final Gauge<Long> smallMessageDroppedTasks;
+    /** Pending tasks for urgent message TCP Connections */
+    public final Gauge<Integer> urgentMessagePendingTasks;
+    /** Completed tasks for urgent message TCP Connections */
+    public final Gauge<Long> urgentMessageCompletedTasks;
+    /** Dropped tasks for urgent message TCP Connections */
+    public final Gauge<Long> urgentMessageDroppedTasks;
+
+    /** Average number of messages written per flush, over all the connections to this IP */
+    public final Gauge<Double> messagesPerFlush;
+    /** Average latency added by coalescing to each flush, in microseconds */
+    public final Gauge<Double> coalescingDelay;
+    /** Number of flushes, hence of writes to the socket, saved by coalescing */
+    public final Gauge<Long> savedFlushes;
 
     /** Number of timeouts for specific IP */
     public final Meter timeouts;
 
     private final MetricNameFactory factory;
+    private final ConcurrentMap<MessagingService.Verb, VerbMetrics> verbMetrics = new ConcurrentHashMap<>();
+    // once released, the metrics of new verbs aren't registered anymore, since nothing would remove them
+    private boolean released;
 
     /**
      * Create metrics for given connection pool.
@@ -111,17 +135,165 @@ public class ConnectionMetrics
                 return connectionPool.smallMessages.getDroppedMessages();
             }
         });
+        urgentMessagePendingTasks = Metrics.register(factory.createMetricName("UrgentMessagePendingTasks"), new Gauge<Integer>()
+        {
+            public Integer getValue()
+            {
+                return connectionPool.urgentMessages.getPendingMessages();
+            }
+        });
+        urgentMessageCompletedTasks = Metrics.register(factory.createMetricName("UrgentMessageCompletedTasks"), new Gauge<Long>()
+        {
+            public Long getValue()
+            {
+                return connectionPool.urgentMessages.getCompletedMesssages();
+            }
+        });
+        urgentMessageDroppedTasks = Metrics.register(factory.createMetricName("UrgentMessageDroppedTasks"), new Gauge<Long>()
+        {
+            public Long getValue()
+            {
+                return connectionPool.urgentMessages.getDroppedMessages();
+            }
+        });
+        messagesPerFlush = Metrics.register(factory.createMetricName("MessagesPerFlush"), new Gauge<Double>()
+        {
+            public Double getValue()
+            {
+                long flushes = flushes(connectionPool);
+                return flushes == 0 ? 0d : (double) messages(connectionPool) / flushes;
+            }
+        });
+        coalescingDelay = Metrics.register(factory.createMetricName("CoalescingDelay"), new Gauge<Double>()
+        {
+            public Double getValue()
+            {
+                long flushes = flushes(connectionPool);
+                long parkedNanos = 0;
+                for (OutboundTcpConnection connection : connections(connectionPool))
+                    parkedNanos += connection.getCoalescingStrategy().getParkedNanos();
+                return flushes == 0 ? 0d : (double) TimeUnit.NANOSECONDS.toMicros(parkedNanos) / flushes;
+            }
+        });
+        savedFlushes = Metrics.register(factory.createMetricName("SavedFlushes"), new Gauge<Long>()
+        {
+            public Long getValue()
+            {
+                return messages(connectionPool) - flushes(connectionPool);
+            }
+        });
         timeouts = Metrics.meter(factory.createMetricName("Timeouts"));
     }
 
-    public void release()
+    /**
+     * @return the metrics of the messages of the given verb exchanged with this IP, registered the first time
+     * a message of that verb is, unless these metrics have been released already
+     */
+    public VerbMetrics forVerb(MessagingService.Verb verb)
+    {
+        VerbMetrics metrics = verbMetrics.get(verb);
+        if (metrics != null)
+            return metrics;
+
+        // a connection can still be writing a message after its pool has been closed: registering then would
+        // leak the histograms, so registration is serialized with release()
+        synchronized (this)
+        {
+            metrics = verbMetrics.get(verb);
+            if (metrics == null)
+            {
+                metrics = new VerbMetrics(verb, !released);
+                verbMetrics.put(verb, metrics);
+            }
+            return metrics;
+        }
+    }
+
+    private static OutboundTcpConnection[] connections(OutboundTcpConnectionPool connectionPool)
+    {
+        return new OutboundTcpConnection[]{ connectionPool.smallMessages, connectionPool.largeMessages, connectionPool.urgentMessages };
+    }
+
+    private static long flushes(OutboundTcpConnectionPool connectionPool)
+    {
+        long flushes = 0;
+        for (OutboundTcpConnection connection : connections(connectionPool))
+            flushes += connection.getCoalescingStrategy().getFlushes();
+        return flushes;
+    }
+
+    private static long messages(OutboundTcpConnectionPool connectionPool)
+    {
+        long messages = 0;
+        for (OutboundTcpConnection connection : connections(connectionPool))
+            messages += connection.getCoalescingStrategy().getMessages();
+        return messages;
+    }
+
+    public synchronized void release()
     {
+        released = true;
         Metrics.remove(factory.createMetricName("LargeMessagePendingTasks"));
         Metrics.remove(factory.createMetricName("LargeMessageCompletedTasks"));
         Metrics.remove(factory.createMetricName("LargeMessageDroppedTasks"));
         Metrics.remove(factory.createMetricName("SmallMessagePendingTasks"));
         Metrics.remove(factory.createMetricName("SmallMessageCompletedTasks"));
         Metrics.remove(factory.createMetricName("SmallMessageDroppedTasks"));
+        Metrics.remove(factory.createMetricName("UrgentMessagePendingTasks"));
+        Metrics.remove(factory.createMetricName("UrgentMessageCompletedTasks"));
+        Metrics.remove(factory.createMetricName("UrgentMessageDroppedTasks"));
+        Metrics.remove(factory.createMetricName("MessagesPerFlush"));
+        Metrics.remove(factory.createMetricName("CoalescingDelay"));
+        Metrics.remove(factory.createMetricName("SavedFlushes"));
         Metrics.remove(factory.createMetricName("Timeouts"));
+        for (VerbMetrics metrics : verbMetrics.values())
+        {
+            if (metrics.registered)
+                metrics.release();
+        }
+    }
+
+    /**
+     * Metrics for the messages of a given verb exchanged with an IP.  Sizes and queue times are those of the
+     * messages sent, round trip and remote processing times are those of the requests answered.
+     */
+    public class VerbMetrics
+    {
+        /** Time messages spent in the outbound queue, in microseconds */
+        public final Histogram queueTime;
+        /** Serialized size of the messages, in bytes */
+        public final Histogram messageSize;
+        /** Time between sending a request and handling its response, in microseconds */
+        public final Histogram roundTripTime;
+        /** Time the peer reported it spent handling requests, in microseconds */
+        public final Histogram remoteProcessingTime;
+
+        private final MessagingService.Verb verb;
+        private final boolean registered;
+
+        private VerbMetrics(MessagingService.Verb verb, boolean registered)
+        {
+            this.verb = verb;
+            this.registered = registered;
+            queueTime = histogram(verb + "-QueueTime");
+            messageSize = histogram(verb + "-MessageSize");
+            roundTripTime = histogram(verb + "-RoundTripTime");
+            remoteProcessingTime = histogram(verb + "-RemoteProcessingTime");
+        }
+
+        private Histogram histogram(String name)
+        {
+            return registered
+                   ? Metrics.histogram(factory.createMetricName(name))
+                   : new ClearableHistogram(new EstimatedHistogramReservoir());
+        }
+
+        private void release()
+        {
+            Metrics.remove(factory.createMetricName(verb + "-QueueTime"));
+            Metrics.remove(factory.createMetricName(verb + "-MessageSize"));
+            Metrics.remove(factory.createMetricName(verb + "-RoundTripTime"));
+            Metrics.remove(factory.createMetricName(verb + "-RemoteProcessingTime"));
+        }
     }
 }
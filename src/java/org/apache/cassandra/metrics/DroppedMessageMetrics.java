@@ -30,9 +30,13 @@ public class DroppedMessageMetrics
     /** Number of dropped messages */
     public final Meter dropped;
 
+    /** Number of messages dropped because the deadline given by their sender had passed, also counted as dropped */
+    public final Meter expired;
+
     public DroppedMessageMetrics(MessagingService.Verb verb)
     {
         MetricNameFactory factory = new DefaultNameFactory("DroppedMessage", verb.toString());
         dropped = Metrics.meter(factory.createMetricName("Dropped"));
+        expired = Metrics.meter(factory.createMetricName("Expired"));
     }
 }
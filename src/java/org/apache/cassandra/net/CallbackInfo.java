@@ -30,6 +30,8 @@ public class CallbackInfo
 {
     protected final InetAddress target;
     protected final IAsyncCallback callback;
+    // the verb of the request, or null if unknown
+    protected final MessagingService.Verb verb;
     protected final IVersionedSerializer<?> serializer;
     private final boolean failureCallback;
 
@@ -42,9 +44,24 @@ public class CallbackInfo
      * @param failureCallback True when we have a callback to handle failures
      */
     public CallbackInfo(InetAddress target, IAsyncCallback callback, IVersionedSerializer<?> serializer, boolean failureCallback)
+    {
+        this(target, callback, null, serializer, failureCallback);
+    }
+
+    /**
+     * Create CallbackInfo without sent message
+     *
+     * @param target target to send message
+     * @param callback
+     * @param verb verb of the request sent to target
+     * @param serializer serializer to deserialize response message
+     * @param failureCallback True when we have a callback to handle failures
+     */
+    public CallbackInfo(InetAddress target, IAsyncCallback callback, MessagingService.Verb verb, IVersionedSerializer<?> serializer, boolean failureCallback)
     {
         this.target = target;
         this.callback = callback;
+        this.verb = verb;
         this.serializer = serializer;
         this.failureCallback = failureCallback;
     }
@@ -64,6 +81,7 @@ public class CallbackInfo
         return "CallbackInfo(" +
                "target=" + target +
                ", callback=" + callback +
+               ", verb=" + verb +
                ", serializer=" + serializer +
                ", failureCallback=" + failureCallback +
                ')';
@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Checksum;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import net.jpountz.xxhash.XXHashFactory;
+
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.CompactMutationSerializer;
+import org.apache.cassandra.db.UnknownColumnFamilyException;
+import org.apache.cassandra.utils.FBUtilities;
+
+/**
+ * Reads the messages of an incoming messaging connection on a shared Netty event loop, instead of
+ * dedicating a thread to each connection like IncomingTcpConnection.
+ *
+ * The accept thread reads the connection header, then hands the socket over: this handler answers the
+ * handshake, and then decodes the exact same stream IncomingTcpConnection would, decompressing it first
+ * if it is LZ4 compressed.  Frames are only deserialized once they have been fully received.
+ */
+public class IncomingMessageHandler extends ByteToMessageDecoder implements Closeable
+{
+    private static final Logger logger = LoggerFactory.getLogger(IncomingMessageHandler.class);
+
+    public static final boolean ENABLED = Boolean.valueOf(System.getProperty(Config.PROPERTY_PREFIX + "itc_netty_enabled", "false"));
+    private static final int EVENT_LOOP_THREADS = Integer.getInteger(Config.PROPERTY_PREFIX + "itc_event_loop_threads", FBUtilities.getAvailableProcessors());
+
+    private static final EventLoopGroup eventLoops = ENABLED
+                                                   ? new NioEventLoopGroup(EVENT_LOOP_THREADS, new NamedThreadFactory("MessagingService-Incoming"))
+                                                   : null;
+
+    // see LZ4BlockOutputStream: magic, token, compressed length, original length and checksum
+    private static final byte[] LZ4_MAGIC = new byte[]{ 'L', 'Z', '4', 'B', 'l', 'o', 'c', 'k' };
+    private static final int LZ4_HEADER_LENGTH = LZ4_MAGIC.length + 1 + 4 + 4 + 4;
+    private static final int LZ4_METHOD_RAW = 0x10;
+    private static final int LZ4_METHOD_LZ4 = 0x20;
+    private static final int LZ4_COMPRESSION_LEVEL_BASE = 10;
+
+    private final int version;
+    private final boolean compressed;
+    // the deserializer of the mutations sent in the compact encoding, if the other node asked to use it
+    private final CompactMutationSerializer mutationSerializer;
+    private final Set<Closeable> group;
+
+    private Channel channel;
+    private InetAddress from;
+
+    private LZ4FastDecompressor decompressor;
+    private Checksum checksum;
+    private byte[] compressedBlock;
+    private byte[] block;
+    // the decompressed stream that isn't decoded yet, if the connection is compressed
+    private ByteBuf decompressed;
+    private boolean endOfStream;
+
+    @VisibleForTesting
+    IncomingMessageHandler(int version, boolean compressed, boolean compactMutations, Set<Closeable> group)
+    {
+        this.version = version;
+        this.compressed = compressed;
+        this.mutationSerializer = compactMutations ? CompactMutationSerializer.forReceiving() : null;
+        this.group = group;
+    }
+
+    /**
+     * @return whether a messaging connection with this header can be read by an event loop rather than
+     * an IncomingTcpConnection: SSL sockets aren't backed by a channel, neither old nor Snappy
+     * compressed connections are supported, and the event loops are gone once MessagingService has shut down.
+     */
+    public static boolean canHandle(Socket socket, int version, boolean compressed)
+    {
+        return ENABLED
+               && !eventLoops.isShuttingDown()
+               && socket.getChannel() != null
+               && version >= MessagingService.VERSION_20
+               && version <= MessagingService.current_version
+               && !(compressed && version < MessagingService.VERSION_21);
+    }
+
+    /**
+     * Registers the channel of @param socket, whose connection header has been read, with an event loop.
+     *
+     * @return the handler reading the connection, which removes itself from @param group once closed
+     */
+    @SuppressWarnings("resource")
+    public static IncomingMessageHandler register(Socket socket, int version, boolean compressed, boolean compactMutations, Set<Closeable> group)
+    {
+        if (DatabaseDescriptor.getInternodeRecvBufferSize() != null)
+        {
+            try
+            {
+                socket.setReceiveBufferSize(DatabaseDescriptor.getInternodeRecvBufferSize());
+            }
+            catch (SocketException se)
+            {
+                logger.warn("Failed to set receive buffer size on internode socket.", se);
+            }
+        }
+
+        IncomingMessageHandler handler = new IncomingMessageHandler(version, compressed, compactMutations, group);
+        SocketChannel channel = socket.getChannel();
+        NioSocketChannel nettyChannel = new NioSocketChannel(channel);
+        nettyChannel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+        nettyChannel.pipeline().addLast("messageDecoder", handler);
+        handler.channel = nettyChannel;
+        group.add(handler);
+        eventLoops.register(nettyChannel);
+        return handler;
+    }
+
+    /**
+     * Shuts the event loops down, closing the connections they still read.
+     */
+    public static void shutdown()
+    {
+        if (eventLoops != null)
+            eventLoops.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception
+    {
+        // handshake (true) endpoint versions: if this version is < the MS version the other node
+        // is trying to connect with, the other node will disconnect
+        ByteBuf buf = ctx.alloc().buffer(4);
+        buf.writeInt(MessagingService.current_version | (mutationSerializer == null ? 0 : MessagingService.COMPACT_MUTATIONS_VERSION_FLAG));
+        ctx.writeAndFlush(buf);
+        super.channelActive(ctx);
+    }
+
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception
+    {
+        if (from == null && !readHandshake(ctx, in))
+            return;
+
+        if (!compressed)
+        {
+            readMessages(in);
+            return;
+        }
+
+        while (!endOfStream && readBlock(in))
+        {
+            readMessages(decompressed);
+            decompressed.discardSomeReadBytes();
+        }
+        // like IncomingTcpConnection, close the connection once the other node has closed its stream
+        if (endOfStream)
+            ctx.close();
+    }
+
+    private boolean readHandshake(ChannelHandlerContext ctx, ByteBuf in) throws IOException
+    {
+        // max version, then the address of the other node
+        if (in.readableBytes() < 5 || in.readableBytes() < 5 + in.getByte(in.readerIndex() + 4))
+            return false;
+
+        int maxVersion = in.readInt();
+        byte[] address = new byte[in.readByte()];
+        in.readBytes(address);
+        from = InetAddress.getByAddress(address);
+        // record the (true) version of the endpoint
+        MessagingService.instance().setVersion(from, maxVersion);
+        logger.debug("Set version for {} to {} (will use {})", from, maxVersion, MessagingService.instance().getVersion(from));
+
+        if (compressed)
+        {
+            logger.debug("Upgrading incoming connection to be compressed");
+            decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+            checksum = XXHashFactory.fastestInstance().newStreamingHash32(OutboundTcpConnection.LZ4_HASH_SEED).asChecksum();
+            decompressed = ctx.alloc().buffer();
+        }
+        return true;
+    }
+
+    /**
+     * Decompresses the next block written by the LZ4BlockOutputStream of the other node, if it has been fully received.
+     */
+    private boolean readBlock(ByteBuf in) throws IOException
+    {
+        if (in.readableBytes() < LZ4_HEADER_LENGTH)
+            return false;
+
+        int start = in.readerIndex();
+        for (int i = 0; i < LZ4_MAGIC.length; i++)
+        {
+            if (in.getByte(start + i) != LZ4_MAGIC[i])
+                throw new IOException("Stream is corrupted");
+        }
+        int token = in.getUnsignedByte(start + LZ4_MAGIC.length);
+        int method = token & 0xF0;
+        int compressionLevel = LZ4_COMPRESSION_LEVEL_BASE + (token & 0x0F);
+        int compressedLength = Integer.reverseBytes(in.getInt(start + LZ4_MAGIC.length + 1));
+        int originalLength = Integer.reverseBytes(in.getInt(start + LZ4_MAGIC.length + 5));
+        int check = Integer.reverseBytes(in.getInt(start + LZ4_MAGIC.length + 9));
+        if ((method != LZ4_METHOD_RAW && method != LZ4_METHOD_LZ4)
+            || originalLength > 1 << compressionLevel
+            || originalLength < 0
+            || compressedLength < 0
+            || (originalLength == 0) != (compressedLength == 0)
+            || (method == LZ4_METHOD_RAW && originalLength != compressedLength))
+            throw new IOException("Stream is corrupted");
+
+        if (in.readableBytes() < LZ4_HEADER_LENGTH + compressedLength)
+            return false;
+        in.skipBytes(LZ4_HEADER_LENGTH);
+
+        if (originalLength == 0)
+        {
+            // the other node closed its stream
+            if (check != 0)
+                throw new IOException("Stream is corrupted");
+            endOfStream = true;
+            return false;
+        }
+
+        if (block == null || block.length < originalLength)
+            block = new byte[originalLength];
+        if (method == LZ4_METHOD_RAW)
+        {
+            in.readBytes(block, 0, originalLength);
+        }
+        else
+        {
+            if (compressedBlock == null || compressedBlock.length < compressedLength)
+                compressedBlock = new byte[compressedLength];
+            in.readBytes(compressedBlock, 0, compressedLength);
+            if (decompressor.decompress(compressedBlock, 0, block, 0, originalLength) != compressedLength)
+                throw new IOException("Stream is corrupted");
+        }
+
+        checksum.reset();
+        checksum.update(block, 0, originalLength);
+        if ((int) checksum.getValue() != check)
+            throw new IOException("Stream is corrupted");
+
+        decompressed.writeBytes(block, 0, originalLength);
+        return true;
+    }
+
+    /**
+     * Reads and delivers the messages that have been fully received.
+     */
+    private void readMessages(ByteBuf in) throws IOException
+    {
+        int length;
+        while ((length = frameLength(in)) >= 0)
+            readMessage(in, length);
+    }
+
+    private void readMessage(ByteBuf in, int length) throws IOException
+    {
+        int start = in.readerIndex();
+        MessagingService.validateMagic(in.getInt(start));
+        ByteBufInputStream input = new ByteBufInputStream(in.slice(start + 4, length - 4));
+        in.skipBytes(length);
+
+        int id = input.readInt();
+        long timestamp = System.currentTimeMillis();
+        // make sure to readInt, even if cross_node_to is not enabled
+        int partial = input.readInt();
+        if (DatabaseDescriptor.hasCrossNodeTimeout())
+            timestamp = (timestamp & 0xFFFFFFFF00000000L) | (((partial & 0xFFFFFFFFL) << 2) >> 2);
+
+        MessageIn message = MessageIn.read(input, version, id, mutationSerializer);
+        // null if the callback expired; nothing to do
+        if (message != null)
+            MessagingService.instance().receive(message, id, timestamp);
+    }
+
+    /**
+     * @return the length of the frame starting at the reader index of @param in, as written by
+     * OutboundTcpConnection.writeInternal, or -1 if it hasn't been fully received yet
+     */
+    private static int frameLength(ByteBuf in) throws IOException
+    {
+        int start = in.readerIndex();
+        int end = in.writerIndex();
+        // magic, id and timestamp, then the address of the sender
+        int position = start + 12;
+        if (position + 1 > end)
+            return -1;
+        position += 1 + in.getByte(position);
+        // verb and parameter count
+        if (position + 8 > end)
+            return -1;
+        int parameterCount = in.getInt(position + 4);
+        position += 8;
+        for (int i = 0; i < parameterCount; i++)
+        {
+            if (position + 2 > end)
+                return -1;
+            position += 2 + in.getUnsignedShort(position);
+            if (position + 4 > end)
+                return -1;
+            position += 4 + checkLength(in.getInt(position));
+        }
+        if (position + 4 > end)
+            return -1;
+        position += 4 + checkLength(in.getInt(position));
+        return position > end ? -1 : position - start;
+    }
+
+    private static int checkLength(int length) throws IOException
+    {
+        if (length < 0)
+            throw new IOException("Invalid length " + length + " in message frame");
+        return length;
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception
+    {
+        if (decompressed != null)
+        {
+            decompressed.release();
+            decompressed = null;
+        }
+        group.remove(this);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+    {
+        if (cause instanceof DecoderException && cause.getCause() != null)
+            cause = cause.getCause();
+
+        if (cause instanceof UnknownColumnFamilyException)
+            logger.warn("UnknownColumnFamilyException reading from socket; closing", cause);
+        else if (cause instanceof IOException)
+            logger.debug("IOException reading from socket; closing", cause);
+        else
+            logger.error("Unexpected exception reading from socket; closing", cause);
+        ctx.close();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception
+    {
+        group.remove(this);
+        super.channelInactive(ctx);
+    }
+
+    public void close()
+    {
+        channel.close();
+        group.remove(this);
+    }
+}
@@ -35,6 +35,7 @@ import net.jpountz.xxhash.XXHashFactory;
 import org.apache.cassandra.config.Config;
 import org.xerial.snappy.SnappyInputStream;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.CompactMutationSerializer;
 import org.apache.cassandra.db.UnknownColumnFamilyException;
 import org.apache.cassandra.gms.Gossiper;
 import org.apache.cassandra.io.util.NIODataInputStream;
@@ -47,15 +48,18 @@ public class IncomingTcpConnection extends Thread implements Closeable
 
     private final int version;
     private final boolean compressed;
+    // the deserializer of the mutations sent in the compact encoding, if the other node asked to use it
+    private final CompactMutationSerializer mutationSerializer;
     private final Socket socket;
     private final Set<Closeable> group;
     public InetAddress from;
 
-    public IncomingTcpConnection(int version, boolean compressed, Socket socket, Set<Closeable> group)
+    public IncomingTcpConnection(int version, boolean compressed, boolean compactMutations, Socket socket, Set<Closeable> group)
     {
         super("MessagingService-Incoming-" + socket.getInetAddress());
         this.version = version;
         this.compressed = compressed;
+        this.mutationSerializer = compactMutations ? CompactMutationSerializer.forReceiving() : null;
         this.socket = socket;
         this.group = group;
         if (DatabaseDescriptor.getInternodeRecvBufferSize() != null)
@@ -133,7 +137,7 @@ public class IncomingTcpConnection extends Thread implements Closeable
         DataOutputStream out = new DataOutputStream(socket.getOutputStream());
         // if this version is < the MS version the other node is trying
         // to connect with, the other node will disconnect
-        out.writeInt(MessagingService.current_version);
+        out.writeInt(MessagingService.current_version | (mutationSerializer == null ? 0 : MessagingService.COMPACT_MUTATIONS_VERSION_FLAG));
         out.flush();
         DataInput in = new DataInputStream(socket.getInputStream());
         int maxVersion = in.readInt();
@@ -186,7 +190,7 @@ public class IncomingTcpConnection extends Thread implements Closeable
         if (DatabaseDescriptor.hasCrossNodeTimeout())
             timestamp = (timestamp & 0xFFFFFFFF00000000L) | (((partial & 0xFFFFFFFFL) << 2) >> 2);
 
-        MessageIn message = MessageIn.read(input, version, id);
+        MessageIn message = MessageIn.read(input, version, id, mutationSerializer);
         if (message == null)
         {
             // callback expired; nothing to do
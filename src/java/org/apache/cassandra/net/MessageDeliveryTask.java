@@ -30,9 +30,14 @@ public class MessageDeliveryTask implements Runnable
 {
     private static final Logger logger = LoggerFactory.getLogger(MessageDeliveryTask.class);
 
+    // when the current thread started handling its message, so that replies can tell how long that took
+    private static final ThreadLocal<Long> processingStart = new ThreadLocal<>();
+
     private final MessageIn message;
     private final long constructionTime;
     private final int id;
+    // when the sender stops waiting for a response, as far as droppable verbs are concerned
+    private final long deadline;
 
     public MessageDeliveryTask(MessageIn message, int id, long timestamp)
     {
@@ -40,16 +45,31 @@ public class MessageDeliveryTask implements Runnable
         this.message = message;
         this.id = id;
         constructionTime = timestamp;
+
+        // the time the sender had left is relative to when it wrote the message: counting it from when we got it
+        // makes up for the network time rather than depending on both clocks agreeing
+        int timeLeft = message.getTimeLeft();
+        deadline = timeLeft < 0 || !MessagingService.DROPPABLE_VERBS.contains(message.verb)
+                 ? RequestDeadline.NONE
+                 : System.currentTimeMillis() + timeLeft;
     }
 
     public void run()
     {
         MessagingService.Verb verb = message.verb;
-        if (MessagingService.DROPPABLE_VERBS.contains(verb)
-            && System.currentTimeMillis() > constructionTime + message.getTimeout())
+        if (MessagingService.DROPPABLE_VERBS.contains(verb))
         {
-            MessagingService.instance().incrementDroppedMessages(verb);
-            return;
+            long now = System.currentTimeMillis();
+            if (now > constructionTime + message.getTimeout())
+            {
+                MessagingService.instance().incrementDroppedMessages(verb);
+                return;
+            }
+            if (now > deadline)
+            {
+                MessagingService.instance().incrementExpiredMessages(verb);
+                return;
+            }
         }
 
         IVerbHandler verbHandler = MessagingService.instance().getVerbHandler(verb);
@@ -61,8 +81,16 @@ public class MessageDeliveryTask implements Runnable
 
         try
         {
+            RequestDeadline.set(deadline);
+            processingStart.set(System.nanoTime());
             verbHandler.doVerb(message, id);
         }
+        catch (RequestDeadline.ExpiredException e)
+        {
+            // the sender has stopped waiting, so don't bother it with a failure response
+            MessagingService.instance().incrementExpiredMessages(verb);
+            return;
+        }
         catch (IOException ioe)
         {
             handleFailure(ioe);
@@ -78,11 +106,26 @@ public class MessageDeliveryTask implements Runnable
             handleFailure(t);
             throw t;
         }
+        finally
+        {
+            RequestDeadline.clear();
+            processingStart.remove();
+        }
 
         if (GOSSIP_VERBS.contains(message.verb))
             Gossiper.instance.setLastProcessedMessageAt(constructionTime);
     }
 
+    /**
+     * @return how long the current thread has been handling its message for, in nanoseconds, or -1 if it isn't
+     * handling one
+     */
+    static long processingTime()
+    {
+        Long start = processingStart.get();
+        return start == null ? -1 : System.nanoTime() - start;
+    }
+
     private void handleFailure(Throwable t)
     {
         if (message.doCallbackOnFailure())
@@ -20,6 +20,7 @@ package org.apache.cassandra.net;
 import java.io.DataInput;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.Map;
 
@@ -30,6 +31,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.CompactMutationSerializer;
 import org.apache.cassandra.io.IVersionedSerializer;
 import org.apache.cassandra.io.util.FileUtils;
 
@@ -58,6 +60,15 @@ public class MessageIn<T>
     }
 
     public static <T2> MessageIn<T2> read(DataInput in, int version, int id) throws IOException
+    {
+        return read(in, version, id, null);
+    }
+
+    /**
+     * @param mutationSerializer if not null, the deserializer of the mutations received in the compact encoding
+     * over the connection @param in reads from
+     */
+    public static <T2> MessageIn<T2> read(DataInput in, int version, int id, CompactMutationSerializer mutationSerializer) throws IOException
     {
         InetAddress from = CompactEndpointSerializationHelper.deserialize(in);
 
@@ -82,6 +93,9 @@ public class MessageIn<T>
         }
 
         int payloadSize = in.readInt();
+        if (mutationSerializer != null && verb == MessagingService.Verb.MUTATION)
+            return MessageIn.create(from, (T2) mutationSerializer.deserialize(in, version), parameters, verb, version);
+
         IVersionedSerializer<T2> serializer = (IVersionedSerializer<T2>) MessagingService.verbSerializers.get(verb);
         if (serializer instanceof MessagingService.CallbackDeterminedSerializer)
         {
@@ -120,6 +134,25 @@ public class MessageIn<T>
         return DatabaseDescriptor.getTimeout(verb);
     }
 
+    /**
+     * @return the time the sender had left to wait for a response when it wrote this message, in milliseconds,
+     * or -1 if it didn't tell
+     */
+    public int getTimeLeft()
+    {
+        byte[] timeLeft = parameters.get(MessagingService.TIME_LEFT_PARAM);
+        return timeLeft == null ? -1 : ByteBuffer.wrap(timeLeft).getInt();
+    }
+
+    /**
+     * @return how long the sender of this response took to handle the request, in microseconds, or -1 if unknown
+     */
+    public int getProcessingTime()
+    {
+        byte[] processingTime = parameters.get(MessagingService.PROCESSING_TIME_PARAM);
+        return processingTime == null ? -1 : ByteBuffer.wrap(processingTime).getInt();
+    }
+
     public String toString()
     {
         StringBuilder sbuf = new StringBuilder();
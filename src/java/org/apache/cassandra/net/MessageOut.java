@@ -28,8 +28,11 @@ import com.google.common.collect.ImmutableMap;
 
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.CompactMutationSerializer;
+import org.apache.cassandra.db.Mutation;
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataOutputBuffer;
 import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.utils.FBUtilities;
@@ -46,6 +49,8 @@ public class MessageOut<T>
     public final T payload;
     public final IVersionedSerializer<T> serializer;
     public final Map<String, byte[]> parameters;
+    // when the sender stops waiting for a response, in System.currentTimeMillis() terms, or RequestDeadline.NONE
+    public final long deadline;
     private long payloadSize = -1;
     private int payloadSizeVersion = -1;
 
@@ -73,19 +78,39 @@ public class MessageOut<T>
 
     @VisibleForTesting
     public MessageOut(InetAddress from, MessagingService.Verb verb, T payload, IVersionedSerializer<T> serializer, Map<String, byte[]> parameters)
+    {
+        this(from, verb, payload, serializer, parameters, RequestDeadline.NONE);
+    }
+
+    private MessageOut(InetAddress from, MessagingService.Verb verb, T payload, IVersionedSerializer<T> serializer, Map<String, byte[]> parameters, long deadline)
     {
         this.from = from;
         this.verb = verb;
         this.payload = payload;
         this.serializer = serializer;
         this.parameters = parameters;
+        this.deadline = deadline;
     }
 
     public MessageOut<T> withParameter(String key, byte[] value)
     {
         ImmutableMap.Builder<String, byte[]> builder = ImmutableMap.builder();
         builder.putAll(parameters).put(key, value);
-        return new MessageOut<T>(verb, payload, serializer, builder.build());
+        return new MessageOut<T>(from, verb, payload, serializer, builder.build(), deadline);
+    }
+
+    /**
+     * @return this message, telling its recipient that nobody waits for a response after @param deadline,
+     * in System.currentTimeMillis() terms
+     */
+    public MessageOut<T> withDeadline(long deadline)
+    {
+        return new MessageOut<T>(from, verb, payload, serializer, parameters, deadline);
+    }
+
+    public boolean isExpired(long nowMillis)
+    {
+        return nowMillis > deadline;
     }
 
     private Stage getStage()
@@ -106,23 +131,55 @@ public class MessageOut<T>
     }
 
     public void serialize(DataOutputPlus out, int version) throws IOException
+    {
+        serializeHeader(out, version);
+
+        long longSize = payloadSize(version);
+        assert longSize <= Integer.MAX_VALUE; // larger values are supported in sstables but not messages
+        out.writeInt((int) longSize);
+        if (payload != null)
+            serializer.serialize(payload, out, version);
+    }
+
+    /**
+     * Serializes this mutation message, with its payload in the compact encoding of the connection it is sent over.
+     *
+     * @return the size of the payload
+     */
+    public int serialize(DataOutputPlus out, int version, CompactMutationSerializer mutationSerializer) throws IOException
+    {
+        assert verb == MessagingService.Verb.MUTATION;
+        // the payload goes first since its size has to be written before it; it's rarely bigger than usual
+        DataOutputBuffer buffer = new DataOutputBuffer((int) Math.max(payloadSize(version), 16));
+        mutationSerializer.serialize((Mutation) payload, buffer, version);
+
+        serializeHeader(out, version);
+        out.writeInt(buffer.getLength());
+        out.write(buffer.getData(), 0, buffer.getLength());
+        return buffer.getLength();
+    }
+
+    private void serializeHeader(DataOutputPlus out, int version) throws IOException
     {
         CompactEndpointSerializationHelper.serialize(from, out);
 
         out.writeInt(verb.ordinal());
-        out.writeInt(parameters.size());
+        out.writeInt(parameters.size() + (deadline == RequestDeadline.NONE ? 0 : 1));
         for (Map.Entry<String, byte[]> entry : parameters.entrySet())
         {
             out.writeUTF(entry.getKey());
             out.writeInt(entry.getValue().length);
             out.write(entry.getValue());
         }
-
-        long longSize = payloadSize(version);
-        assert longSize <= Integer.MAX_VALUE; // larger values are supported in sstables but not messages
-        out.writeInt((int) longSize);
-        if (payload != null)
-            serializer.serialize(payload, out, version);
+        if (deadline != RequestDeadline.NONE)
+        {
+            // the time left when the message is written rather than the deadline itself, so that the recipient
+            // doesn't depend on the clocks of both nodes agreeing, and doesn't count the time spent in our queues
+            long timeLeft = Math.max(0, deadline - System.currentTimeMillis());
+            out.writeUTF(MessagingService.TIME_LEFT_PARAM);
+            out.writeInt(TypeSizes.NATIVE.sizeof(0));
+            out.writeInt((int) Math.min(timeLeft, Integer.MAX_VALUE));
+        }
     }
 
     public int serializedSize(int version)
@@ -137,6 +194,12 @@ public class MessageOut<T>
             size += TypeSizes.NATIVE.sizeof(entry.getValue().length);
             size += entry.getValue().length;
         }
+        if (deadline != RequestDeadline.NONE)
+        {
+            size += TypeSizes.NATIVE.sizeof(MessagingService.TIME_LEFT_PARAM);
+            size += TypeSizes.NATIVE.sizeof(0);
+            size += TypeSizes.NATIVE.sizeof(0);
+        }
 
         long longSize = payloadSize(version);
         assert longSize <= Integer.MAX_VALUE; // larger values are supported in sstables but not messages
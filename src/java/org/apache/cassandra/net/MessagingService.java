@@ -20,6 +20,7 @@ package org.apache.cassandra.net;
 import java.io.*;
 import java.lang.management.ManagementFactory;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ServerSocketChannel;
@@ -32,6 +33,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 
+import com.codahale.metrics.Gauge;
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -61,6 +63,7 @@ import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.locator.ILatencySubscriber;
 import org.apache.cassandra.metrics.ConnectionMetrics;
+import org.apache.cassandra.metrics.DefaultNameFactory;
 import org.apache.cassandra.metrics.DroppedMessageMetrics;
 import org.apache.cassandra.repair.messages.RepairMessage;
 import org.apache.cassandra.security.SSLFactory;
@@ -72,6 +75,8 @@ import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.utils.*;
 import org.apache.cassandra.utils.concurrent.SimpleCondition;
 
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+
 public final class MessagingService implements MessagingServiceMBean
 {
     public static final String MBEAN_NAME = "org.apache.cassandra.net:type=MessagingService";
@@ -86,6 +91,13 @@ public final class MessagingService implements MessagingServiceMBean
     public static final String FAILURE_CALLBACK_PARAM = "CAL_BAC";
     public static final byte[] ONE_BYTE = new byte[1];
     public static final String FAILURE_RESPONSE_PARAM = "FAIL";
+    public static final String TIME_LEFT_PARAM = "TIME_LEFT";
+    public static final String PROCESSING_TIME_PARAM = "PROCESSING_TIME";
+
+    // set in the header of the connections wanting to send mutations in the compact encoding (see
+    // CompactMutationSerializer), and in the version their peer sends back if it agrees
+    public static final int COMPACT_MUTATIONS_HEADER_FLAG = 1 << 4;
+    public static final int COMPACT_MUTATIONS_VERSION_FLAG = 1 << 16;
 
     /**
      * we preface every message with this number so the recipient can validate the sender is sane
@@ -297,6 +309,21 @@ public final class MessagingService implements MessagingServiceMBean
                                                                    Verb.PAGED_RANGE,
                                                                    Verb.REQUEST_RESPONSE);
 
+    /**
+     * Verbs that are sent over their own connection, so that they don't queue up behind client requests and
+     * responses: delaying gossip and echoes when a node is overloaded gets healthy nodes convicted.
+     */
+    public static final EnumSet<Verb> URGENT_VERBS = EnumSet.of(Verb.GOSSIP_DIGEST_SYN,
+                                                                Verb.GOSSIP_DIGEST_ACK,
+                                                                Verb.GOSSIP_DIGEST_ACK2,
+                                                                Verb.GOSSIP_SHUTDOWN,
+                                                                Verb.ECHO,
+                                                                Verb.DEFINITIONS_UPDATE,
+                                                                Verb.MIGRATION_REQUEST,
+                                                                Verb.SCHEMA_CHECK,
+                                                                Verb.REPLICATION_FINISHED,
+                                                                Verb.SNAPSHOT);
+
     // total dropped message counts for server lifetime
     private final Map<Verb, DroppedMessageMetrics> droppedMessages = new EnumMap<Verb, DroppedMessageMetrics>(Verb.class);
     // dropped count when last requested for the Recent api.  high concurrency isn't necessary here.
@@ -354,6 +381,7 @@ public final class MessagingService implements MessagingServiceMBean
             public Object apply(Pair<Integer, ExpiringMap.CacheableObject<CallbackInfo>> pair)
             {
                 final CallbackInfo expiredCallbackInfo = pair.right.value;
+                ConnectionMetrics.callbackExpiryLag.update(TimeUnit.NANOSECONDS.toMicros(pair.right.expiryLag(System.nanoTime())));
                 maybeAddLatency(expiredCallbackInfo.callback, expiredCallbackInfo.target, pair.right.timeout);
                 ConnectionMetrics.totalTimeouts.mark();
                 getConnectionPool(expiredCallbackInfo.target).incrementTimeout();
@@ -379,6 +407,13 @@ public final class MessagingService implements MessagingServiceMBean
         };
 
         callbacks = new ExpiringMap<Integer, CallbackInfo>(DatabaseDescriptor.getMinRpcTimeout(), timeoutReporter);
+        Metrics.register(DefaultNameFactory.createMetricName(ConnectionMetrics.TYPE_NAME, "Callbacks", null), new Gauge<Integer>()
+        {
+            public Integer getValue()
+            {
+                return callbacks.size();
+            }
+        });
 
         MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
         try
@@ -579,7 +614,7 @@ public final class MessagingService implements MessagingServiceMBean
     {
         assert message.verb != Verb.MUTATION; // mutations need to call the overload with a ConsistencyLevel
         int messageId = nextId();
-        CallbackInfo previous = callbacks.put(messageId, new CallbackInfo(to, cb, callbackDeserializers.get(message.verb), failureCallback), timeout);
+        CallbackInfo previous = callbacks.put(messageId, new CallbackInfo(to, cb, message.verb, callbackDeserializers.get(message.verb), failureCallback), timeout);
         assert previous == null : String.format("Callback already exists for id %d! (%s)", messageId, previous);
         return messageId;
     }
@@ -637,6 +672,7 @@ public final class MessagingService implements MessagingServiceMBean
     public int sendRR(MessageOut message, InetAddress to, IAsyncCallback cb, long timeout, boolean failureCallback)
     {
         int id = addCallback(cb, message, to, timeout, failureCallback);
+        message = withDeadline(message, timeout);
         sendOneWay(failureCallback ? message.withParameter(FAILURE_CALLBACK_PARAM, ONE_BYTE) : message, id, to);
         return id;
     }
@@ -659,10 +695,22 @@ public final class MessagingService implements MessagingServiceMBean
                       boolean allowHints)
     {
         int id = addCallback(handler, message, to, message.getTimeout(), handler.consistencyLevel, allowHints);
-        sendOneWay(message.withParameter(FAILURE_CALLBACK_PARAM, ONE_BYTE), id, to);
+        sendOneWay(withDeadline(message, message.getTimeout()).withParameter(FAILURE_CALLBACK_PARAM, ONE_BYTE), id, to);
         return id;
     }
 
+    /**
+     * Tells the recipient of a droppable request when its callback, which expires after @param timeout, stops
+     * waiting for the response, unless the request already has an earlier deadline.
+     */
+    private static <T> MessageOut<T> withDeadline(MessageOut<T> message, long timeout)
+    {
+        if (!DROPPABLE_VERBS.contains(message.verb))
+            return message;
+        long deadline = System.currentTimeMillis() + timeout;
+        return deadline < message.deadline ? message.withDeadline(deadline) : message;
+    }
+
     public void sendOneWay(MessageOut message, InetAddress to)
     {
         sendOneWay(message, nextId(), to);
@@ -670,6 +718,10 @@ public final class MessagingService implements MessagingServiceMBean
 
     public void sendReply(MessageOut message, int id, InetAddress to)
     {
+        // tell the requester how long we took to handle its request, when that's what we're replying to
+        long processingTime = MessageDeliveryTask.processingTime();
+        if (processingTime >= 0)
+            message = message.withParameter(PROCESSING_TIME_PARAM, ByteBuffer.allocate(4).putInt((int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMicros(processingTime))).array());
         sendOneWay(message, id, to);
     }
 
@@ -734,6 +786,7 @@ public final class MessagingService implements MessagingServiceMBean
         {
             for (SocketThread th : socketThreads)
                 th.close();
+            IncomingMessageHandler.shutdown();
         }
         catch (IOException e)
         {
@@ -840,6 +893,15 @@ public final class MessagingService implements MessagingServiceMBean
         return versions.containsKey(endpoint);
     }
 
+    /**
+     * Counts a message dropped because the deadline its sender gave has passed, which is also a dropped message.
+     */
+    public void incrementExpiredMessages(Verb verb)
+    {
+        incrementDroppedMessages(verb);
+        droppedMessages.get(verb).expired.mark();
+    }
+
     public void incrementDroppedMessages(Verb verb)
     {
         assert DROPPABLE_VERBS.contains(verb) : "Verb " + verb + " should not legally be dropped";
@@ -905,9 +967,17 @@ public final class MessagingService implements MessagingServiceMBean
                     logger.debug("Connection version {} from {}", version, socket.getInetAddress());
                     socket.setSoTimeout(0);
 
+                    boolean compressed = MessagingService.getBits(header, 2, 1) == 1;
+                    boolean compactMutations = (header & COMPACT_MUTATIONS_HEADER_FLAG) != 0;
+                    if (!isStream && IncomingMessageHandler.canHandle(socket, version, compressed))
+                    {
+                        IncomingMessageHandler.register(socket, version, compressed, compactMutations, connections);
+                        continue;
+                    }
+
                     Thread thread = isStream
                                   ? new IncomingStreamingConnection(version, socket, connections)
-                                  : new IncomingTcpConnection(version, MessagingService.getBits(header, 2, 1) == 1, socket, connections);
+                                  : new IncomingTcpConnection(version, compressed, compactMutations, socket, connections);
                     thread.start();
                     connections.add((Closeable) thread);
                 }
@@ -1001,6 +1071,30 @@ public final class MessagingService implements MessagingServiceMBean
         return droppedTasks;
     }
 
+    public Map<String, Integer> getUrgentMessagePendingTasks()
+    {
+        Map<String, Integer> pendingTasks = new HashMap<String, Integer>(connectionManagers.size());
+        for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
+            pendingTasks.put(entry.getKey().getHostAddress(), entry.getValue().urgentMessages.getPendingMessages());
+        return pendingTasks;
+    }
+
+    public Map<String, Long> getUrgentMessageCompletedTasks()
+    {
+        Map<String, Long> completedTasks = new HashMap<String, Long>(connectionManagers.size());
+        for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
+            completedTasks.put(entry.getKey().getHostAddress(), entry.getValue().urgentMessages.getCompletedMesssages());
+        return completedTasks;
+    }
+
+    public Map<String, Long> getUrgentMessageDroppedTasks()
+    {
+        Map<String, Long> droppedTasks = new HashMap<String, Long>(connectionManagers.size());
+        for (Map.Entry<InetAddress, OutboundTcpConnectionPool> entry : connectionManagers.entrySet())
+            droppedTasks.put(entry.getKey().getHostAddress(), entry.getValue().urgentMessages.getDroppedMessages());
+        return droppedTasks;
+    }
+
     public Map<String, Integer> getDroppedMessages()
     {
         Map<String, Integer> map = new HashMap<String, Integer>(droppedMessages.size());
@@ -58,6 +58,21 @@ public interface MessagingServiceMBean
      */
     public Map<String, Long> getSmallMessageDroppedTasks();
 
+    /**
+     * Pending tasks for urgent message TCP Connections
+     */
+    public Map<String, Integer> getUrgentMessagePendingTasks();
+
+    /**
+     * Completed tasks for urgent message TCP Connections
+     */
+    public Map<String, Long> getUrgentMessageCompletedTasks();
+
+    /**
+     * Dropped tasks for urgent message TCP Connections
+     */
+    public Map<String, Long> getUrgentMessageDroppedTasks();
+
     /**
      * dropped message counts for server lifetime
      */
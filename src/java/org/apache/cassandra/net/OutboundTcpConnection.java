@@ -41,9 +41,11 @@ import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.xxhash.XXHashFactory;
 
+import org.apache.cassandra.db.CompactMutationSerializer;
 import org.apache.cassandra.io.util.DataOutputStreamPlus;
 import org.apache.cassandra.io.util.BufferedDataOutputStreamPlus;
 import org.apache.cassandra.io.util.WrappedDataOutputStreamPlus;
+import org.apache.cassandra.metrics.ConnectionMetrics;
 import org.apache.cassandra.tracing.TraceState;
 import org.apache.cassandra.tracing.Tracing;
 import org.apache.cassandra.utils.CoalescingStrategies;
@@ -71,6 +73,12 @@ public class OutboundTcpConnection extends Thread
     private static final String INTRADC_TCP_NODELAY_PROPERTY = PREFIX + "otc_intradc_tcp_nodelay";
     private static final boolean INTRADC_TCP_NODELAY = Boolean.valueOf(System.getProperty(INTRADC_TCP_NODELAY_PROPERTY, "true"));
 
+    /*
+     * Ask peers to accept mutations in the compact encoding of CompactMutationSerializer. Defaults to enabled.
+     */
+    private static final String COMPACT_MUTATIONS_PROPERTY = PREFIX + "otc_compact_mutations";
+    private static final boolean COMPACT_MUTATIONS = Boolean.valueOf(System.getProperty(COMPACT_MUTATIONS_PROPERTY, "true"));
+
     /*
      * Size of buffer in output stream
      */
@@ -95,6 +103,7 @@ public class OutboundTcpConnection extends Thread
         case "MOVINGAVERAGE":
         case "FIXED":
         case "DISABLED":
+        case "ADAPTIVE":
             logger.info("OutboundTcpConnection using coalescing strategy {}", strategy);
             break;
             default:
@@ -127,6 +136,8 @@ public class OutboundTcpConnection extends Thread
     private final CoalescingStrategy cs;
     private DataOutputStreamPlus out;
     private Socket socket;
+    // the serializer of the mutations sent in the compact encoding, if the peer agreed to it for the current socket
+    private CompactMutationSerializer mutationSerializer;
     private volatile long completed;
     private final AtomicLong dropped = new AtomicLong();
     private volatile int currentMsgBufferCount = 0;
@@ -215,6 +226,11 @@ public class OutboundTcpConnection extends Thread
 
                     if (qm.isTimedOut(TimeUnit.MILLISECONDS.toNanos(m.getTimeout()), System.nanoTime()))
                         dropped.incrementAndGet();
+                    else if (qm.isExpired(System.currentTimeMillis()))
+                    {
+                        dropped.incrementAndGet();
+                        MessagingService.instance().incrementExpiredMessages(m.verb);
+                    }
                     else if (socket != null || connect())
                         writeConnected(qm, count == 1 && backlog.isEmpty());
                     else
@@ -249,6 +265,11 @@ public class OutboundTcpConnection extends Thread
         return dropped.get();
     }
 
+    public CoalescingStrategy getCoalescingStrategy()
+    {
+        return cs;
+    }
+
     private boolean shouldCompressConnection()
     {
         // assumes version >= 1.2
@@ -281,8 +302,11 @@ public class OutboundTcpConnection extends Thread
                 }
             }
 
+            ConnectionMetrics.VerbMetrics metrics = poolReference.verbMetrics(qm.message.verb);
+            metrics.queueTime.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - qm.timestampNanos));
+
             long timestampMillis = NanoTimeToCurrentTimeMillis.convert(qm.timestampNanos);
-            writeInternal(qm.message, qm.id, timestampMillis);
+            metrics.messageSize.update(writeInternal(qm.message, qm.id, timestampMillis));
 
             completed++;
             if (flush)
@@ -318,7 +342,10 @@ public class OutboundTcpConnection extends Thread
         }
     }
 
-    private void writeInternal(MessageOut message, int id, long timestamp) throws IOException
+    /**
+     * @return the serialized size of @param message
+     */
+    private int writeInternal(MessageOut message, int id, long timestamp) throws IOException
     {
         out.writeInt(MessagingService.PROTOCOL_MAGIC);
 
@@ -330,20 +357,29 @@ public class OutboundTcpConnection extends Thread
         // int cast cuts off the high-order half of the timestamp, which we can assume remains
         // the same between now and when the recipient reconstructs it.
         out.writeInt((int) timestamp);
+        if (mutationSerializer != null && message.verb == MessagingService.Verb.MUTATION)
+        {
+            int payloadSize = message.serialize(out, targetVersion, mutationSerializer);
+            return message.serializedSize(targetVersion) - (int) message.payloadSize(targetVersion) + payloadSize;
+        }
         message.serialize(out, targetVersion);
+        return message.serializedSize(targetVersion);
     }
 
-    private static void writeHeader(DataOutput out, int version, boolean compressionEnabled) throws IOException
+    private static void writeHeader(DataOutput out, int version, boolean compressionEnabled, boolean compactMutations) throws IOException
     {
         // 2 bits: unused.  used to be "serializer type," which was always Binary
         // 1 bit: compression
         // 1 bit: streaming mode
-        // 3 bits: unused
+        // 1 bit: compact mutations
+        // 2 bits: unused
         // 8 bits: version
         // 15 bits: unused
         int header = 0;
         if (compressionEnabled)
             header |= 4;
+        if (compactMutations)
+            header |= MessagingService.COMPACT_MUTATIONS_HEADER_FLAG;
         header |= (version << 8);
         out.writeInt(header);
     }
@@ -363,6 +399,7 @@ public class OutboundTcpConnection extends Thread
             }
             out = null;
             socket = null;
+            mutationSerializer = null;
         }
     }
 
@@ -404,11 +441,14 @@ public class OutboundTcpConnection extends Thread
                 out = new BufferedDataOutputStreamPlus(socket.getChannel(), BUFFER_SIZE);
 
                 out.writeInt(MessagingService.PROTOCOL_MAGIC);
-                writeHeader(out, targetVersion, shouldCompressConnection());
+                writeHeader(out, targetVersion, shouldCompressConnection(), COMPACT_MUTATIONS);
                 out.flush();
 
                 DataInputStream in = new DataInputStream(socket.getInputStream());
-                int maxTargetVersion = handshakeVersion(in);
+                int handshake = handshakeVersion(in);
+                int maxTargetVersion = handshake & ~MessagingService.COMPACT_MUTATIONS_VERSION_FLAG;
+                if (COMPACT_MUTATIONS && (handshake & MessagingService.COMPACT_MUTATIONS_VERSION_FLAG) != 0)
+                    mutationSerializer = CompactMutationSerializer.forSending();
                 if (maxTargetVersion == NO_VERSION)
                 {
                     // no version is returned, so disconnect an try again: we will either get
@@ -552,6 +592,12 @@ public class OutboundTcpConnection extends Thread
             return droppable && timestampNanos < nowNanos - maxTimeNanos;
         }
 
+        /** only droppable messages are dropped once their sender's deadline has passed */
+        boolean isExpired(long nowMillis)
+        {
+            return droppable && message.isExpired(nowMillis);
+        }
+
         boolean shouldRetry()
         {
             return !droppable;
@@ -44,6 +44,7 @@ public class OutboundTcpConnectionPool
     private final CountDownLatch started;
     public final OutboundTcpConnection smallMessages;
     public final OutboundTcpConnection largeMessages;
+    public final OutboundTcpConnection urgentMessages;
     // pointer to the reset Address.
     private InetAddress resetEndpoint;
     private ConnectionMetrics metrics;
@@ -56,6 +57,7 @@ public class OutboundTcpConnectionPool
 
         smallMessages = new OutboundTcpConnection(this);
         largeMessages = new OutboundTcpConnection(this);
+        urgentMessages = new OutboundTcpConnection(this);
     }
 
     /**
@@ -64,20 +66,27 @@ public class OutboundTcpConnectionPool
      */
     OutboundTcpConnection getConnection(MessageOut msg)
     {
-        return msg.payloadSize(smallMessages.getTargetVersion()) > LARGE_MESSAGE_THRESHOLD
-               ? largeMessages
+        if (msg.payloadSize(smallMessages.getTargetVersion()) > LARGE_MESSAGE_THRESHOLD)
+            return largeMessages;
+        return MessagingService.URGENT_VERBS.contains(msg.verb)
+               ? urgentMessages
                : smallMessages;
     }
 
+    ConnectionMetrics.VerbMetrics verbMetrics(MessagingService.Verb verb)
+    {
+        return metrics.forVerb(verb);
+    }
+
     void reset()
     {
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages })
+        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages, urgentMessages })
             conn.closeSocket(false);
     }
 
     public void resetToNewerVersion(int version)
     {
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages })
+        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages, urgentMessages })
         {
             if (version > conn.getTargetVersion())
                 conn.softCloseSocket();
@@ -93,7 +102,7 @@ public class OutboundTcpConnectionPool
     {
         SystemKeyspace.updatePreferredIP(id, remoteEP);
         resetEndpoint = remoteEP;
-        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages })
+        for (OutboundTcpConnection conn : new OutboundTcpConnection[] { smallMessages, largeMessages, urgentMessages })
             conn.softCloseSocket();
 
         // release previous metrics and create new one with reset address
@@ -170,6 +179,7 @@ public class OutboundTcpConnectionPool
     {
         smallMessages.start();
         largeMessages.start();
+        urgentMessages.start();
 
         metrics = new ConnectionMetrics(id, this);
 
@@ -203,6 +213,8 @@ public class OutboundTcpConnectionPool
             largeMessages.closeSocket(true);
         if (smallMessages != null)
             smallMessages.closeSocket(true);
+        if (urgentMessages != null)
+            urgentMessages.closeSocket(true);
 
         metrics.release();
     }
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+/**
+ * The deadline of the message the current thread is handling, after which the node that sent it has stopped
+ * waiting for a response.  Long local operations check it now and then, so that they can be abandoned once
+ * nobody is waiting for their result anymore.
+ */
+public final class RequestDeadline
+{
+    public static final long NONE = Long.MAX_VALUE;
+
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    private RequestDeadline()
+    {
+    }
+
+    /**
+     * @return the deadline of the message the current thread is handling, in System.currentTimeMillis() terms,
+     * or NONE
+     */
+    public static long current()
+    {
+        Long current = deadline.get();
+        return current == null ? NONE : current;
+    }
+
+    static void set(long deadlineMillis)
+    {
+        if (deadlineMillis == NONE)
+            deadline.remove();
+        else
+            deadline.set(deadlineMillis);
+    }
+
+    static void clear()
+    {
+        deadline.remove();
+    }
+
+    /**
+     * @throws ExpiredException if @param deadlineMillis, as returned by current(), has passed
+     */
+    public static void check(long deadlineMillis)
+    {
+        if (deadlineMillis != NONE && System.currentTimeMillis() > deadlineMillis)
+            throw new ExpiredException();
+    }
+
+    /**
+     * Thrown to abandon the handling of a message whose deadline has passed.
+     */
+    public static class ExpiredException extends RuntimeException
+    {
+        ExpiredException()
+        {
+            super("The deadline of the request has passed", null, false, false);
+        }
+    }
+}
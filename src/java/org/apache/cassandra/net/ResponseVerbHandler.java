@@ -22,6 +22,7 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.metrics.ConnectionMetrics;
 import org.apache.cassandra.tracing.Tracing;
 
 public class ResponseVerbHandler implements IVerbHandler
@@ -30,7 +31,8 @@ public class ResponseVerbHandler implements IVerbHandler
 
     public void doVerb(MessageIn message, int id)
     {
-        long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - MessagingService.instance().getRegisteredCallbackAge(id));
+        long latencyNanos = System.nanoTime() - MessagingService.instance().getRegisteredCallbackAge(id);
+        long latency = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
         CallbackInfo callbackInfo = MessagingService.instance().removeRegisteredCallback(id);
         if (callbackInfo == null)
         {
@@ -41,6 +43,14 @@ public class ResponseVerbHandler implements IVerbHandler
         }
 
         Tracing.trace("Processing response from {}", message.from);
+        if (callbackInfo.verb != null)
+        {
+            ConnectionMetrics.VerbMetrics metrics = MessagingService.instance().getConnectionPool(message.from).verbMetrics(callbackInfo.verb);
+            metrics.roundTripTime.update(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            int processingTime = message.getProcessingTime();
+            if (processingTime >= 0)
+                metrics.remoteProcessingTime.update(processingTime);
+        }
         IAsyncCallback cb = callbackInfo.callback;
         if (message.isFailureResponse())
         {
@@ -48,6 +48,7 @@ import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.exceptions.InvalidRequestException;
 import org.apache.cassandra.io.compress.CompressionParameters;
+import org.apache.cassandra.io.util.DiskAccessOptions;
 import org.apache.cassandra.locator.AbstractReplicationStrategy;
 import org.apache.cassandra.service.StorageService;
 import org.apache.cassandra.utils.ByteBufferUtil;
@@ -99,6 +100,7 @@ public class LegacySchemaTables
                 + "compression_parameters text,"
                 + "default_time_to_live int,"
                 + "default_validator text,"
+                + "disk_access_mode text,"
                 + "dropped_columns map<text, bigint>,"
                 + "gc_grace_seconds int,"
                 + "is_dense boolean,"
@@ -879,6 +881,7 @@ public class LegacySchemaTables
         adder.add("compression_parameters", json(table.compressionParameters.asThriftOptions()));
         adder.add("default_time_to_live", table.getDefaultTimeToLive());
         adder.add("default_validator", table.getDefaultValidator().toString());
+        adder.add("disk_access_mode", table.getDiskAccess().toString());
         adder.add("gc_grace_seconds", table.getGcGraceSeconds());
         adder.add("key_validator", table.getKeyValidator().toString());
         adder.add("local_read_repair_chance", table.getDcLocalReadRepairChance());
@@ -1091,6 +1094,8 @@ public class LegacySchemaTables
             cfm.defaultTimeToLive(result.getInt("default_time_to_live"));
         if (result.has("speculative_retry"))
             cfm.speculativeRetry(CFMetaData.SpeculativeRetry.fromString(result.getString("speculative_retry")));
+        if (result.has("disk_access_mode"))
+            cfm.diskAccess(DiskAccessOptions.fromString(result.getString("disk_access_mode")));
         cfm.compactionStrategyClass(CFMetaData.createCompactionStrategy(result.getString("compaction_strategy_class")));
         cfm.compressionParameters(CompressionParameters.create(fromJsonMap(result.getString("compression_parameters"))));
         cfm.compactionStrategyOptions(fromJsonMap(result.getString("compaction_strategy_options")));
@@ -144,9 +144,17 @@ public abstract class AbstractReadExecutor
      * @return an executor appropriate for the configured speculative read policy
      */
     public static AbstractReadExecutor getReadExecutor(ReadCommand command, ConsistencyLevel consistencyLevel) throws UnavailableException
+    {
+        return getReadExecutor(command, consistencyLevel, StorageProxy.getLiveSortedEndpoints(Keyspace.open(command.ksName), command.key));
+    }
+
+    /**
+     * @return an executor appropriate for the configured speculative read policy, reading from @param allReplicas,
+     * the live replicas of the partition read, closest first
+     */
+    public static AbstractReadExecutor getReadExecutor(ReadCommand command, ConsistencyLevel consistencyLevel, List<InetAddress> allReplicas) throws UnavailableException
     {
         Keyspace keyspace = Keyspace.open(command.ksName);
-        List<InetAddress> allReplicas = StorageProxy.getLiveSortedEndpoints(keyspace, command.key);
         ReadRepairDecision repairDecision = Schema.instance.getCFMetaData(command.ksName, command.cfName).newReadRepairDecision();
         List<InetAddress> targetReplicas = consistencyLevel.filterForQuery(keyspace, allReplicas, repairDecision);
 
@@ -35,8 +35,10 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.concurrent.SEPExecutor;
 import org.apache.cassandra.concurrent.Stage;
 import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.concurrent.TracingAwareExecutorService;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.Schema;
@@ -1214,6 +1216,16 @@ public class StorageProxy implements StorageProxyMBean
      */
     public static List<Row> read(List<ReadCommand> commands, ConsistencyLevel consistencyLevel, ClientState state)
     throws UnavailableException, IsBootstrappingException, ReadFailureException, ReadTimeoutException, InvalidRequestException
+    {
+        return read(commands, consistencyLevel, state, null);
+    }
+
+    /**
+     * As {@link #read(List, ConsistencyLevel, ClientState)}, with the live replicas of the partition read by each of
+     * @param commands, closest first, if they have been looked up already by {@link #getLiveSortedEndpoints(List)}.
+     */
+    public static List<Row> read(List<ReadCommand> commands, ConsistencyLevel consistencyLevel, ClientState state, List<List<InetAddress>> replicas)
+    throws UnavailableException, IsBootstrappingException, ReadFailureException, ReadTimeoutException, InvalidRequestException
     {
         if (StorageService.instance.isBootstrapMode() && !systemKeyspaceQuery(commands))
         {
@@ -1223,7 +1235,7 @@ public class StorageProxy implements StorageProxyMBean
 
         return consistencyLevel.isSerialConsistency()
              ? readWithPaxos(commands, consistencyLevel, state)
-             : readRegular(commands, consistencyLevel);
+             : readRegular(commands, consistencyLevel, replicas);
     }
 
     private static List<Row> readWithPaxos(List<ReadCommand> commands, ConsistencyLevel consistencyLevel, ClientState state)
@@ -1265,7 +1277,7 @@ public class StorageProxy implements StorageProxyMBean
                 throw new ReadFailureException(consistencyLevel, e.received, e.failures, e.blockFor, false);
             }
 
-            rows = fetchRows(commands, consistencyForCommitOrFetch);
+            rows = fetchRows(commands, consistencyForCommitOrFetch, null);
         }
         catch (UnavailableException e)
         {
@@ -1298,7 +1310,7 @@ public class StorageProxy implements StorageProxyMBean
         return rows;
     }
 
-    private static List<Row> readRegular(List<ReadCommand> commands, ConsistencyLevel consistencyLevel)
+    private static List<Row> readRegular(List<ReadCommand> commands, ConsistencyLevel consistencyLevel, List<List<InetAddress>> replicas)
     throws UnavailableException, ReadFailureException, ReadTimeoutException
     {
         long start = System.nanoTime();
@@ -1306,7 +1318,7 @@ public class StorageProxy implements StorageProxyMBean
 
         try
         {
-            rows = fetchRows(commands, consistencyLevel);
+            rows = fetchRows(commands, consistencyLevel, replicas);
         }
         catch (UnavailableException e)
         {
@@ -1345,8 +1357,10 @@ public class StorageProxy implements StorageProxyMBean
      * 3. Wait for a response from R replicas
      * 4. If the digests (if any) match the data return the data
      * 5. else carry out read repair by getting data from all the nodes.
+     *
+     * The replica locations of @param initialCommands are @param initialReplicas, if they have been looked up already.
      */
-    private static List<Row> fetchRows(List<ReadCommand> initialCommands, ConsistencyLevel consistencyLevel)
+    private static List<Row> fetchRows(List<ReadCommand> initialCommands, ConsistencyLevel consistencyLevel, List<List<InetAddress>> initialReplicas)
     throws UnavailableException, ReadFailureException, ReadTimeoutException
     {
         List<Row> rows = new ArrayList<>(initialCommands.size());
@@ -1367,13 +1381,23 @@ public class StorageProxy implements StorageProxyMBean
                 ReadCommand command = commands.get(i);
                 assert !command.isDigestQuery();
 
-                AbstractReadExecutor exec = AbstractReadExecutor.getReadExecutor(command, consistencyLevel);
+                // (getReadExecutor may modify the replicas it is given, which can be read once per page)
+                AbstractReadExecutor exec = initialReplicas == null || commands != initialCommands
+                                          ? AbstractReadExecutor.getReadExecutor(command, consistencyLevel)
+                                          : AbstractReadExecutor.getReadExecutor(command, consistencyLevel, new ArrayList<>(initialReplicas.get(i)));
                 exec.executeAsync();
                 readExecutors[i] = exec;
             }
 
+            // a thread that has reserved a local reader has performed its local reads already, and must not wait
+            // for any other replica if one of them failed
+            boolean readLocally = hasReservedLocalReader();
             for (AbstractReadExecutor exec : readExecutors)
+            {
+                if (readLocally && !exec.handler.await(0, TimeUnit.NANOSECONDS))
+                    throw new ReadFailureException(consistencyLevel, exec.handler.getReceivedCount(), 1, exec.handler.blockfor, exec.resolver.isDataPresent());
                 exec.maybeTryAdditionalReplicas();
+            }
 
             // read results and make a second pass for any digest mismatches
             List<ReadCommand> repairCommands = null;
@@ -1586,6 +1610,63 @@ public class StorageProxy implements StorageProxyMBean
         return getLiveSortedEndpoints(keyspace, StorageService.getPartitioner().decorateKey(key));
     }
 
+    /**
+     * @return the live replicas of the partition read by each of @param commands, closest first
+     */
+    public static List<List<InetAddress>> getLiveSortedEndpoints(List<ReadCommand> commands)
+    {
+        List<List<InetAddress>> endpoints = new ArrayList<>(commands.size());
+        for (ReadCommand command : commands)
+            endpoints.add(getLiveSortedEndpoints(Keyspace.open(command.ksName), command.key));
+        return endpoints;
+    }
+
+    /**
+     * @return whether this node is expected to serve @param commands alone, i.e. whether it is the closest of the live
+     * @param replicas of each of their partitions, and if @param cachedOnly, whether these partitions are in its row
+     * cache. Only meaningful for reads at ONE or LOCAL_ONE.
+     */
+    public static boolean isLocalRead(List<ReadCommand> commands, List<List<InetAddress>> replicas, boolean cachedOnly)
+    {
+        if (!OPTIMIZE_LOCAL_REQUESTS)
+            return false;
+
+        for (int i = 0; i < commands.size(); i++)
+        {
+            List<InetAddress> endpoints = replicas.get(i);
+            if (endpoints.isEmpty() || !endpoints.get(0).equals(FBUtilities.getBroadcastAddress()))
+                return false;
+
+            ReadCommand command = commands.get(i);
+            if (cachedOnly && Keyspace.open(command.ksName).getColumnFamilyStore(command.cfName).getRawCachedRow(StorageService.getPartitioner().decorateKey(command.key)) == null)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reserves a READ stage worker for the calling thread, which then performs the local reads it issues itself until
+     * {@link #releaseLocalReader()}, so that the reads served by this node alone never wait.
+     *
+     * @return false, reserving nothing, if every worker is busy or some reads are waiting for one
+     */
+    public static boolean reserveLocalReader()
+    {
+        TracingAwareExecutorService stage = StageManager.getStage(Stage.READ);
+        return stage instanceof SEPExecutor && ((SEPExecutor) stage).reserveWorker();
+    }
+
+    public static void releaseLocalReader()
+    {
+        ((SEPExecutor) StageManager.getStage(Stage.READ)).releaseWorker();
+    }
+
+    private static boolean hasReservedLocalReader()
+    {
+        TracingAwareExecutorService stage = StageManager.getStage(Stage.READ);
+        return stage instanceof SEPExecutor && ((SEPExecutor) stage).hasReservedWorker();
+    }
+
     private static List<InetAddress> getLiveSortedEndpoints(Keyspace keyspace, RingPosition pos)
     {
         List<InetAddress> liveEndpoints = StorageService.instance.getLiveNaturalEndpoints(keyspace, pos);
@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.service.pager;
 
+import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -47,7 +48,7 @@ class MultiPartitionPager implements QueryPager
     private int remaining;
     private int current;
 
-    MultiPartitionPager(List<ReadCommand> commands, ConsistencyLevel consistencyLevel, ClientState cState, boolean localQuery, PagingState state, int limitForQuery)
+    MultiPartitionPager(List<ReadCommand> commands, ConsistencyLevel consistencyLevel, ClientState cState, boolean localQuery, PagingState state, int limitForQuery, List<List<InetAddress>> replicas)
     {
         int i = 0;
         // If it's not the beginning (state != null), we need to find where we were and skip previous commands
@@ -66,7 +67,7 @@ class MultiPartitionPager implements QueryPager
 
         pagers = new SinglePartitionPager[commands.size() - i];
         // 'i' is on the first non exhausted pager for the previous page (or the first one)
-        pagers[0] = makePager(commands.get(i), consistencyLevel, cState, localQuery, state);
+        pagers[0] = makePager(commands.get(i), consistencyLevel, cState, localQuery, state, replicas == null ? null : replicas.get(i));
         timestamp = commands.get(i).timestamp;
 
         // Following ones haven't been started yet
@@ -75,17 +76,17 @@ class MultiPartitionPager implements QueryPager
             ReadCommand command = commands.get(j);
             if (command.timestamp != timestamp)
                 throw new IllegalArgumentException("All commands must have the same timestamp or weird results may happen.");
-            pagers[j - i] = makePager(command, consistencyLevel, cState, localQuery, null);
+            pagers[j - i] = makePager(command, consistencyLevel, cState, localQuery, null, replicas == null ? null : replicas.get(j));
         }
 
         remaining = state == null ? limitForQuery : state.remaining;
     }
 
-    private static SinglePartitionPager makePager(ReadCommand command, ConsistencyLevel consistencyLevel, ClientState cState, boolean localQuery, PagingState state)
+    private static SinglePartitionPager makePager(ReadCommand command, ConsistencyLevel consistencyLevel, ClientState cState, boolean localQuery, PagingState state, List<InetAddress> replicas)
     {
         return command instanceof SliceFromReadCommand
-             ? new SliceQueryPager((SliceFromReadCommand)command, consistencyLevel, cState, localQuery, state)
-             : new NamesQueryPager((SliceByNamesReadCommand)command, consistencyLevel, cState, localQuery);
+             ? new SliceQueryPager((SliceFromReadCommand)command, consistencyLevel, cState, localQuery, state, replicas)
+             : new NamesQueryPager((SliceByNamesReadCommand)command, consistencyLevel, cState, localQuery, replicas);
     }
 
     public PagingState state()
@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.service.pager;
 
+import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
@@ -37,6 +38,8 @@ public class NamesQueryPager implements SinglePartitionPager
     private final ConsistencyLevel consistencyLevel;
     private final ClientState state;
     private final boolean localQuery;
+    // the live replicas of the partition, closest first, if looked up ahead of the query
+    private final List<InetAddress> replicas;
 
     private volatile boolean queried;
 
@@ -51,12 +54,13 @@ public class NamesQueryPager implements SinglePartitionPager
      * count every cell individually) and the names filter asks for more than pageSize columns.
      */
     // Don't use directly, use QueryPagers method instead
-    NamesQueryPager(SliceByNamesReadCommand command, ConsistencyLevel consistencyLevel, ClientState state, boolean localQuery)
+    NamesQueryPager(SliceByNamesReadCommand command, ConsistencyLevel consistencyLevel, ClientState state, boolean localQuery, List<InetAddress> replicas)
     {
         this.command = command;
         this.consistencyLevel = consistencyLevel;
         this.state = state;
         this.localQuery = localQuery;
+        this.replicas = replicas;
     }
 
     public ByteBuffer key()
@@ -90,7 +94,7 @@ public class NamesQueryPager implements SinglePartitionPager
         queried = true;
         return localQuery
              ? Collections.singletonList(command.getRow(Keyspace.open(command.ksName)))
-             : StorageProxy.read(Collections.<ReadCommand>singletonList(command), consistencyLevel, state);
+             : StorageProxy.read(Collections.<ReadCommand>singletonList(command), consistencyLevel, state, replicas == null ? null : Collections.singletonList(replicas));
     }
 
     public int maxRemaining()
@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.service.pager;
 
+import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
@@ -83,27 +84,27 @@ public class QueryPagers
         }
     }
 
-    private static QueryPager pager(ReadCommand command, ConsistencyLevel consistencyLevel, ClientState cState, boolean local, PagingState state)
+    private static QueryPager pager(ReadCommand command, ConsistencyLevel consistencyLevel, ClientState cState, boolean local, PagingState state, List<InetAddress> replicas)
     {
         if (command instanceof SliceByNamesReadCommand)
-            return new NamesQueryPager((SliceByNamesReadCommand)command, consistencyLevel, cState, local);
+            return new NamesQueryPager((SliceByNamesReadCommand)command, consistencyLevel, cState, local, replicas);
         else
-            return new SliceQueryPager((SliceFromReadCommand)command, consistencyLevel, cState, local, state);
+            return new SliceQueryPager((SliceFromReadCommand)command, consistencyLevel, cState, local, state, replicas);
     }
 
-    private static QueryPager pager(Pageable command, ConsistencyLevel consistencyLevel, ClientState cState, boolean local, PagingState state)
+    private static QueryPager pager(Pageable command, ConsistencyLevel consistencyLevel, ClientState cState, boolean local, PagingState state, List<List<InetAddress>> replicas)
     {
         if (command instanceof Pageable.ReadCommands)
         {
             List<ReadCommand> commands = ((Pageable.ReadCommands)command).commands;
             if (commands.size() == 1)
-                return pager(commands.get(0), consistencyLevel, cState, local, state);
+                return pager(commands.get(0), consistencyLevel, cState, local, state, replicas == null ? null : replicas.get(0));
 
-            return new MultiPartitionPager(commands, consistencyLevel, cState, local, state, ((Pageable.ReadCommands) command).limitForQuery);
+            return new MultiPartitionPager(commands, consistencyLevel, cState, local, state, ((Pageable.ReadCommands) command).limitForQuery, replicas);
         }
         else if (command instanceof ReadCommand)
         {
-            return pager((ReadCommand)command, consistencyLevel, cState, local, state);
+            return pager((ReadCommand)command, consistencyLevel, cState, local, state, (List<InetAddress>) null);
         }
         else
         {
@@ -118,17 +119,26 @@ public class QueryPagers
 
     public static QueryPager pager(Pageable command, ConsistencyLevel consistencyLevel, ClientState cState)
     {
-        return pager(command, consistencyLevel, cState, false, null);
+        return pager(command, consistencyLevel, cState, false, null, null);
     }
 
     public static QueryPager pager(Pageable command, ConsistencyLevel consistencyLevel, ClientState cState, PagingState state)
     {
-        return pager(command, consistencyLevel, cState, false, state);
+        return pager(command, consistencyLevel, cState, false, state, null);
+    }
+
+    /**
+     * As {@link #pager(Pageable, ConsistencyLevel, ClientState, PagingState)}, with the live replicas of the partition
+     * read by each of the {@link Pageable.ReadCommands} @param command, closest first, if they have been looked up already.
+     */
+    public static QueryPager pager(Pageable command, ConsistencyLevel consistencyLevel, ClientState cState, PagingState state, List<List<InetAddress>> replicas)
+    {
+        return pager(command, consistencyLevel, cState, false, state, replicas);
     }
 
     public static QueryPager localPager(Pageable command)
     {
-        return pager(command, null, null, true, null);
+        return pager(command, null, null, true, null, null);
     }
 
     /**
@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.service.pager;
 
+import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
@@ -40,20 +41,28 @@ public class SliceQueryPager extends AbstractQueryPager implements SinglePartiti
 
     private final SliceFromReadCommand command;
     private final ClientState cstate;
+    // the live replicas of the partition, closest first, if looked up ahead of the query
+    private final List<InetAddress> replicas;
 
     private volatile Composite lastReturned;
 
     // Don't use directly, use QueryPagers method instead
     SliceQueryPager(SliceFromReadCommand command, ConsistencyLevel consistencyLevel, ClientState cstate, boolean localQuery)
+    {
+        this(command, consistencyLevel, cstate, localQuery, null);
+    }
+
+    SliceQueryPager(SliceFromReadCommand command, ConsistencyLevel consistencyLevel, ClientState cstate, boolean localQuery, List<InetAddress> replicas)
     {
         super(consistencyLevel, command.filter.count, localQuery, command.ksName, command.cfName, command.filter, command.timestamp);
         this.command = command;
         this.cstate = cstate;
+        this.replicas = replicas;
     }
 
-    SliceQueryPager(SliceFromReadCommand command, ConsistencyLevel consistencyLevel, ClientState cstate, boolean localQuery, PagingState state)
+    SliceQueryPager(SliceFromReadCommand command, ConsistencyLevel consistencyLevel, ClientState cstate, boolean localQuery, PagingState state, List<InetAddress> replicas)
     {
-        this(command, consistencyLevel, cstate, localQuery);
+        this(command, consistencyLevel, cstate, localQuery, replicas);
 
         if (state != null)
         {
@@ -88,7 +97,7 @@ public class SliceQueryPager extends AbstractQueryPager implements SinglePartiti
         ReadCommand pageCmd = command.withUpdatedFilter(filter);
         return localQuery
              ? Collections.singletonList(pageCmd.getRow(Keyspace.open(command.ksName)))
-             : StorageProxy.read(Collections.singletonList(pageCmd), consistencyLevel, cstate);
+             : StorageProxy.read(Collections.singletonList(pageCmd), consistencyLevel, cstate, replicas == null ? null : Collections.singletonList(replicas));
     }
 
     protected boolean containsPreviousLast(Row first)
@@ -31,6 +31,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.primitives.Ints;
 
 import org.apache.cassandra.io.compress.CompressionMetadata;
+import org.apache.cassandra.io.compress.ICompressor;
 import org.apache.cassandra.utils.WrappedRunnable;
 
 /**
@@ -39,6 +40,9 @@ import org.apache.cassandra.utils.WrappedRunnable;
 public class CompressedInputStream extends InputStream
 {
     private final CompressionInfo info;
+    private final ICompressor compressor;
+    // index of the next chunk to decompress in info.chunks
+    private int chunkIndex = 0;
     // chunk buffer
     private final BlockingQueue<byte[]> dataBuffer;
 
@@ -68,6 +72,7 @@ public class CompressedInputStream extends InputStream
     public CompressedInputStream(InputStream source, CompressionInfo info)
     {
         this.info = info;
+        this.compressor = info.compressor();
         this.checksum =  new Adler32();
         this.buffer = new byte[info.parameters.chunkLength()];
         // buffer is limited to store up to 1024 chunks
@@ -106,8 +111,17 @@ public class CompressedInputStream extends InputStream
 
     private void decompress(byte[] compressed) throws IOException
     {
-        // uncompress
-        validBufferBytes = info.parameters.sstableCompressor.uncompress(compressed, 0, compressed.length - checksumBytes.length, buffer, 0);
+        // uncompress, unless the chunk is stored as is
+        int length = compressed.length - checksumBytes.length;
+        if (info.chunks[chunkIndex++].compressed)
+        {
+            validBufferBytes = compressor.uncompress(compressed, 0, length, buffer, 0);
+        }
+        else
+        {
+            System.arraycopy(compressed, 0, buffer, 0, length);
+            validBufferBytes = length;
+        }
         totalCompressedBytesRead += compressed.length;
 
         // validate crc randomly
@@ -19,11 +19,14 @@ package org.apache.cassandra.streaming.compress;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.util.BitSet;
 
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.IVersionedSerializer;
 import org.apache.cassandra.io.compress.CompressionMetadata;
 import org.apache.cassandra.io.compress.CompressionParameters;
+import org.apache.cassandra.io.compress.ICompressor;
+import org.apache.cassandra.io.compress.IDictionaryCompressor;
 import org.apache.cassandra.io.util.DataOutputPlus;
 
 /**
@@ -31,27 +34,73 @@ import org.apache.cassandra.io.util.DataOutputPlus;
  */
 public class CompressionInfo
 {
-    public static final IVersionedSerializer<CompressionInfo> serializer = new CompressionInfoSerializer();
+    public static final CompressionInfoSerializer serializer = new CompressionInfoSerializer();
 
     public final CompressionMetadata.Chunk[] chunks;
     public final CompressionParameters parameters;
+    // the dictionary the sstable was compressed with, if any
+    public final byte[] dictionary;
 
     public CompressionInfo(CompressionMetadata.Chunk[] chunks, CompressionParameters parameters)
+    {
+        this(chunks, parameters, null);
+    }
+
+    public CompressionInfo(CompressionMetadata.Chunk[] chunks, CompressionParameters parameters, byte[] dictionary)
     {
         assert chunks != null && parameters != null;
+        assert dictionary == null || parameters.sstableCompressor instanceof IDictionaryCompressor;
         this.chunks = chunks;
         this.parameters = parameters;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @return the compressor for the streamed chunks, which uses the dictionary if there is one.
+     */
+    public ICompressor compressor()
+    {
+        return dictionary == null
+             ? parameters.sstableCompressor
+             : ((IDictionaryCompressor) parameters.sstableCompressor).withDictionary(dictionary);
+    }
+
+    /**
+     * @return true if the chunks were compressed with a dictionary or if some of them are stored uncompressed.
+     */
+    public boolean hasExtensions()
+    {
+        if (dictionary != null)
+            return true;
+        for (CompressionMetadata.Chunk chunk : chunks)
+        {
+            if (!chunk.compressed)
+                return true;
+        }
+        return false;
     }
 
-    static class CompressionInfoSerializer implements IVersionedSerializer<CompressionInfo>
+    /**
+     * Serializes a CompressionInfo as it always has been, or, for sstable versions that can have a compression
+     * dictionary or chunks stored uncompressed, followed by the dictionary and by which of the chunks are stored
+     * uncompressed.  Whether the latter is used is decided by the sstable version of the stream header, which is
+     * sent before the CompressionInfo.
+     */
+    public static class CompressionInfoSerializer implements IVersionedSerializer<CompressionInfo>
     {
         public void serialize(CompressionInfo info, DataOutputPlus out, int version) throws IOException
+        {
+            serialize(info, out, version, false);
+        }
+
+        public void serialize(CompressionInfo info, DataOutputPlus out, int version, boolean withExtensions) throws IOException
         {
             if (info == null)
             {
                 out.writeInt(-1);
                 return;
             }
+            assert withExtensions || !info.hasExtensions();
 
             int chunkCount = info.chunks.length;
             out.writeInt(chunkCount);
@@ -59,9 +108,33 @@ public class CompressionInfo
                 CompressionMetadata.Chunk.serializer.serialize(info.chunks[i], out, version);
             // compression params
             CompressionParameters.serializer.serialize(info.parameters, out, version);
+
+            if (!withExtensions)
+                return;
+
+            out.writeInt(info.dictionary == null ? 0 : info.dictionary.length);
+            if (info.dictionary != null)
+                out.write(info.dictionary);
+            long[] words = uncompressedChunks(info).toLongArray();
+            out.writeInt(words.length);
+            for (long word : words)
+                out.writeLong(word);
+        }
+
+        private static BitSet uncompressedChunks(CompressionInfo info)
+        {
+            BitSet uncompressed = new BitSet();
+            for (int i = 0; i < info.chunks.length; i++)
+                uncompressed.set(i, !info.chunks[i].compressed);
+            return uncompressed;
         }
 
         public CompressionInfo deserialize(DataInput in, int version) throws IOException
+        {
+            return deserialize(in, version, false);
+        }
+
+        public CompressionInfo deserialize(DataInput in, int version, boolean withExtensions) throws IOException
         {
             // chunks
             int chunkCount = in.readInt();
@@ -74,10 +147,36 @@ public class CompressionInfo
 
             // compression params
             CompressionParameters parameters = CompressionParameters.serializer.deserialize(in, version);
-            return new CompressionInfo(chunks, parameters);
+
+            if (!withExtensions)
+                return new CompressionInfo(chunks, parameters);
+
+            byte[] dictionary = null;
+            int dictionaryLength = in.readInt();
+            if (dictionaryLength > 0)
+            {
+                if (!(parameters.sstableCompressor instanceof IDictionaryCompressor))
+                    throw new IOException(parameters.sstableCompressor.getClass().getSimpleName() + " doesn't support dictionaries");
+                dictionary = new byte[dictionaryLength];
+                in.readFully(dictionary);
+            }
+
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++)
+                words[i] = in.readLong();
+            BitSet uncompressed = BitSet.valueOf(words);
+            for (int i = uncompressed.nextSetBit(0); i >= 0 && i < chunkCount; i = uncompressed.nextSetBit(i + 1))
+                chunks[i] = new CompressionMetadata.Chunk(chunks[i].offset, chunks[i].length, false);
+
+            return new CompressionInfo(chunks, parameters, dictionary);
         }
 
         public long serializedSize(CompressionInfo info, int version)
+        {
+            return serializedSize(info, version, false);
+        }
+
+        public long serializedSize(CompressionInfo info, int version, boolean withExtensions)
         {
             if (info == null)
                 return TypeSizes.NATIVE.sizeof(-1);
@@ -89,6 +188,12 @@ public class CompressionInfo
                 size += CompressionMetadata.Chunk.serializer.serializedSize(info.chunks[i], version);
             // compression params
             size += CompressionParameters.serializer.serializedSize(info.parameters, version);
+
+            if (withExtensions)
+            {
+                size += TypeSizes.NATIVE.sizeof(0) + (info.dictionary == null ? 0 : info.dictionary.length);
+                size += TypeSizes.NATIVE.sizeof(0) + uncompressedChunks(info).toLongArray().length * TypeSizes.NATIVE.sizeof(0L);
+            }
             return size;
         }
     }
@@ -27,6 +27,7 @@ import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.IVersionedSerializer;
 import org.apache.cassandra.io.compress.CompressionMetadata;
 import org.apache.cassandra.io.sstable.format.SSTableFormat;
+import org.apache.cassandra.io.sstable.format.Version;
 import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.streaming.compress.CompressionInfo;
@@ -130,6 +131,13 @@ public class FileMessageHeader
 
     static class FileMessageHeaderSerializer implements IVersionedSerializer<FileMessageHeader>
     {
+        // sstables of versions that can have a compression dictionary or chunks stored uncompressed are streamed with them
+        private static boolean hasCompressionExtensions(SSTableFormat.Type format, String sstableVersion)
+        {
+            Version version = format.info.getVersion(sstableVersion);
+            return version.hasCompressionDictionary() || version.hasUncompressedChunks();
+        }
+
         public void serialize(FileMessageHeader header, DataOutputPlus out, int version) throws IOException
         {
             UUIDSerializer.serializer.serialize(header.cfId, out, version);
@@ -150,7 +158,7 @@ public class FileMessageHeader
                 out.writeLong(section.left);
                 out.writeLong(section.right);
             }
-            CompressionInfo.serializer.serialize(header.compressionInfo, out, version);
+            CompressionInfo.serializer.serialize(header.compressionInfo, out, version, hasCompressionExtensions(header.format, header.version));
             out.writeLong(header.repairedAt);
             out.writeInt(header.sstableLevel);
         }
@@ -170,7 +178,7 @@ public class FileMessageHeader
             List<Pair<Long, Long>> sections = new ArrayList<>(count);
             for (int k = 0; k < count; k++)
                 sections.add(Pair.create(in.readLong(), in.readLong()));
-            CompressionInfo compressionInfo = CompressionInfo.serializer.deserialize(in, MessagingService.current_version);
+            CompressionInfo compressionInfo = CompressionInfo.serializer.deserialize(in, MessagingService.current_version, hasCompressionExtensions(format, sstableVersion));
             long repairedAt = in.readLong();
             int sstableLevel = in.readInt();
             return new FileMessageHeader(cfId, sequenceNumber, sstableVersion, format, estimatedKeys, sections, compressionInfo, repairedAt, sstableLevel);
@@ -193,7 +201,7 @@ public class FileMessageHeader
                 size += TypeSizes.NATIVE.sizeof(section.left);
                 size += TypeSizes.NATIVE.sizeof(section.right);
             }
-            size += CompressionInfo.serializer.serializedSize(header.compressionInfo, version);
+            size += CompressionInfo.serializer.serializedSize(header.compressionInfo, version, hasCompressionExtensions(header.format, header.version));
             size += TypeSizes.NATIVE.sizeof(header.sstableLevel);
             return size;
         }
@@ -66,7 +66,7 @@ public class OutgoingFileMessage extends StreamMessage
         if (sstable.compression)
         {
             CompressionMetadata meta = sstable.getCompressionMetadata();
-            compressionInfo = new CompressionInfo(meta.getChunksForSections(sections), meta.parameters);
+            compressionInfo = new CompressionInfo(meta.getChunksForSections(sections), meta.parameters, meta.dictionary());
         }
         this.header = new FileMessageHeader(sstable.metadata.cfId,
                                             sequenceNumber,
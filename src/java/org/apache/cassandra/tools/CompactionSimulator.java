@@ -0,0 +1,905 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.tools;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import com.clearspring.analytics.stream.cardinality.ICardinality;
+import org.apache.commons.cli.*;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.compaction.DateTieredCompactionStrategy;
+import org.apache.cassandra.db.compaction.LeveledManifest;
+import org.apache.cassandra.db.compaction.SizeTieredCompactionStrategy;
+import org.apache.cassandra.io.sstable.Component;
+import org.apache.cassandra.io.sstable.Descriptor;
+import org.apache.cassandra.io.sstable.metadata.CompactionMetadata;
+import org.apache.cassandra.io.sstable.metadata.MetadataComponent;
+import org.apache.cassandra.io.sstable.metadata.MetadataType;
+import org.apache.cassandra.io.sstable.metadata.StatsMetadata;
+import org.apache.cassandra.utils.Pair;
+
+import static org.apache.cassandra.tools.BulkLoader.CmdLineOptions;
+
+/**
+ * Replays a synthetic write load on top of a table's sstables and reports how a compaction strategy would cope
+ * with it over time: write amplification, sstables touched per read and space overhead.
+ *
+ * Nothing but the sstables metadata is ever read.  An sstable is reduced to its size, number of partitions, timestamps,
+ * level and the fraction of the token ring it covers, and a compaction to an estimate of its output.  Writes are
+ * assumed to pick partitions uniformly at random out of a fixed number of distinct partitions, so that the partitions
+ * of any sstable are a uniform sample of its token range, and compactions are assumed to keep up with the load.
+ */
+public class CompactionSimulator
+{
+    private static final String TOOL_NAME = "sstablesimulator";
+    private static final String HELP_OPTION = "help";
+    private static final String STRATEGY_OPTION = "strategy";
+    private static final String STRATEGY_OPTIONS_OPTION = "options";
+    private static final String WRITE_RATE_OPTION = "write-rate";
+    private static final String FLUSH_SIZE_OPTION = "flush-size";
+    private static final String PARTITIONS_OPTION = "partitions";
+    private static final String PARTITION_SIZE_OPTION = "partition-size";
+    private static final String DURATION_OPTION = "duration";
+    private static final String REPORT_INTERVAL_OPTION = "report-interval";
+
+    private static final double DEFAULT_WRITE_RATE_MB = 1;
+    private static final int DEFAULT_FLUSH_SIZE_MB = 64;
+    private static final int DEFAULT_PARTITION_SIZE = 1024;
+    private static final int DEFAULT_DURATION_HOURS = 24;
+    private static final int DEFAULT_REPORT_INTERVAL_MINUTES = 60;
+
+    private final Strategy strategy;
+    private final double partitions;
+    private final long partitionSize;
+    private final long flushSize;
+    private final long flushInterval;
+
+    private final List<SimulatedSSTable> live = new ArrayList<>();
+    private long now;
+    private long bytesFlushed;
+    private long bytesCompacted;
+    // highest space overhead seen since the last call to takePeakSpaceOverhead(), compactions in progress included
+    private double peakSpaceOverhead;
+
+    /**
+     * @param partitions the number of distinct partitions writes are spread over
+     * @param partitionSize the serialized size in bytes of a partition
+     * @param flushSize the amount of data in bytes written between two flushes
+     * @param flushInterval the time in microseconds between two flushes
+     * @param now the timestamp in microseconds at which the simulation starts
+     */
+    CompactionSimulator(Strategy strategy, double partitions, long partitionSize, long flushSize, long flushInterval, long now)
+    {
+        this.strategy = strategy;
+        this.partitions = partitions;
+        this.partitionSize = partitionSize;
+        this.flushSize = flushSize;
+        this.flushInterval = flushInterval;
+        this.now = now;
+    }
+
+    void add(SimulatedSSTable sstable)
+    {
+        live.add(sstable);
+    }
+
+    /**
+     * Flushes a memtable worth of writes, and runs all the compactions the strategy asks for afterwards.
+     */
+    void flush()
+    {
+        now += flushInterval;
+
+        // writes overwriting a partition already in the memtable don't make it to the sstable
+        double writes = (double) flushSize / partitionSize;
+        double keys = -partitions * Math.expm1(-writes / partitions);
+        SimulatedSSTable flushed = new SimulatedSSTable((long) (keys * partitionSize), keys, now - flushInterval, now, 0, 0, 1);
+        live.add(flushed);
+        bytesFlushed += flushed.size;
+
+        compact();
+    }
+
+    void compact()
+    {
+        Task task;
+        while ((task = strategy.next(live, now)) != null)
+        {
+            List<SimulatedSSTable> outputs = merge(task.inputs, task.level, task.maxSSTableSize);
+            long outputSize = 0;
+            for (SimulatedSSTable output : outputs)
+                outputSize += output.size;
+
+            // the inputs are only deleted once the outputs are fully written
+            peakSpaceOverhead = Math.max(peakSpaceOverhead, (liveSize() + outputSize) / logicalSize());
+
+            live.removeAll(task.inputs);
+            live.addAll(outputs);
+            bytesCompacted += outputSize;
+        }
+        peakSpaceOverhead = Math.max(peakSpaceOverhead, spaceOverhead());
+    }
+
+    /**
+     * @return the sstables resulting from the compaction of @param inputs into @param level, each of them
+     * at most @param maxSSTableSize bytes large.
+     */
+    List<SimulatedSSTable> merge(List<SimulatedSSTable> inputs, int level, long maxSSTableSize)
+    {
+        List<Segment> segments = segments(inputs);
+        double keys = 0;
+        long size = 0;
+        double inputKeys = 0;
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        for (SimulatedSSTable sstable : inputs)
+        {
+            size += sstable.size;
+            inputKeys += sstable.keys;
+            minTimestamp = Math.min(minTimestamp, sstable.minTimestamp);
+            maxTimestamp = Math.max(maxTimestamp, sstable.maxTimestamp);
+        }
+        for (Segment segment : segments)
+            keys += segment.keys;
+
+        if (keys == 0)
+            return Collections.emptyList();
+
+        double bytesPerKey = size / inputKeys;
+        long outputSize = (long) (keys * bytesPerKey);
+        int count = (int) Math.max(1, Math.ceil((double) outputSize / maxSSTableSize));
+        double keysPerOutput = keys / count;
+
+        // cut the merged range into sstables holding the same number of partitions
+        List<SimulatedSSTable> outputs = new ArrayList<>(count);
+        double left = segments.get(0).left;
+        double pending = 0;
+        for (Segment segment : segments)
+        {
+            double position = segment.left;
+            double remaining = segment.keys;
+            while (pending + remaining >= keysPerOutput && outputs.size() < count - 1)
+            {
+                double taken = keysPerOutput - pending;
+                double right = position + (segment.right - position) * taken / remaining;
+                outputs.add(new SimulatedSSTable((long) (keysPerOutput * bytesPerKey), keysPerOutput, minTimestamp, maxTimestamp, level, left, right));
+                left = position = right;
+                remaining -= taken;
+                pending = 0;
+            }
+            pending += remaining;
+        }
+        double right = segments.get(segments.size() - 1).right;
+        outputs.add(new SimulatedSSTable((long) (pending * bytesPerKey), pending, minTimestamp, maxTimestamp, level, left, right));
+        return outputs;
+    }
+
+    /**
+     * Splits the token ring at the bounds of @param sstables, and estimates the number of distinct partitions they
+     * hold in each of the resulting segments.  Segments that no sstable covers are left out.
+     */
+    private List<Segment> segments(Collection<SimulatedSSTable> sstables)
+    {
+        TreeSet<Double> bounds = new TreeSet<>();
+        for (SimulatedSSTable sstable : sstables)
+        {
+            bounds.add(sstable.left);
+            bounds.add(sstable.right);
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        Double left = null;
+        for (Double right : bounds)
+        {
+            if (left != null)
+            {
+                // the chance that a partition of the segment is in none of the sstables covering it
+                double absent = 1;
+                boolean covered = false;
+                for (SimulatedSSTable sstable : sstables)
+                {
+                    if (sstable.left <= left && right <= sstable.right)
+                    {
+                        absent *= 1 - sstable.density(partitions);
+                        covered = true;
+                    }
+                }
+                if (covered)
+                    segments.add(new Segment(left, right, partitions * (right - left) * (1 - absent)));
+            }
+            left = right;
+        }
+        return segments;
+    }
+
+    private double distinctKeys()
+    {
+        double keys = 0;
+        for (Segment segment : segments(live))
+            keys += segment.keys;
+        return keys;
+    }
+
+    double writeAmplification()
+    {
+        return bytesFlushed == 0 ? 0 : (double) (bytesFlushed + bytesCompacted) / bytesFlushed;
+    }
+
+    /**
+     * @return the average number of sstables holding data for a partition
+     */
+    double sstablesPerRead()
+    {
+        double distinct = distinctKeys();
+        if (distinct == 0)
+            return 0;
+
+        double keys = 0;
+        for (SimulatedSSTable sstable : live)
+            keys += sstable.keys;
+        return keys / distinct;
+    }
+
+    /**
+     * @return the ratio of the live sstables size to the size the table would have if it was fully compacted
+     */
+    double spaceOverhead()
+    {
+        double logicalSize = logicalSize();
+        return logicalSize == 0 ? 0 : liveSize() / logicalSize;
+    }
+
+    /**
+     * @return the highest space overhead since the last call, counting the space used by the outputs of
+     * compactions before their inputs are deleted
+     */
+    double takePeakSpaceOverhead()
+    {
+        double peak = peakSpaceOverhead;
+        peakSpaceOverhead = spaceOverhead();
+        return peak;
+    }
+
+    private double logicalSize()
+    {
+        double keys = 0;
+        long size = 0;
+        for (SimulatedSSTable sstable : live)
+        {
+            keys += sstable.keys;
+            size += sstable.size;
+        }
+        return keys == 0 ? 0 : distinctKeys() * size / keys;
+    }
+
+    long liveSize()
+    {
+        long size = 0;
+        for (SimulatedSSTable sstable : live)
+            size += sstable.size;
+        return size;
+    }
+
+    int liveCount()
+    {
+        return live.size();
+    }
+
+    /**
+     * The parts of an sstable that compaction strategies look at.  The sstable covers the [left, right) fraction of
+     * the token ring, and its @param keys partitions are spread uniformly over it.
+     */
+    static class SimulatedSSTable
+    {
+        final long size;
+        final double keys;
+        final long minTimestamp;
+        final long maxTimestamp;
+        final int level;
+        final double left;
+        final double right;
+
+        SimulatedSSTable(long size, double keys, long minTimestamp, long maxTimestamp, int level, double left, double right)
+        {
+            this.size = size;
+            this.keys = keys;
+            this.minTimestamp = minTimestamp;
+            this.maxTimestamp = maxTimestamp;
+            this.level = level;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * @return the fraction of the partitions falling into our token range that we hold
+         */
+        double density(double partitions)
+        {
+            return Math.min(1, keys / (partitions * (right - left)));
+        }
+
+        boolean overlaps(SimulatedSSTable other)
+        {
+            return left < other.right && other.left < right;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("SimulatedSSTable(size=%d, keys=%.0f, level=%d, range=[%f, %f))", size, keys, level, left, right);
+        }
+    }
+
+    private static class Segment
+    {
+        final double left;
+        final double right;
+        final double keys;
+
+        Segment(double left, double right, double keys)
+        {
+            this.left = left;
+            this.right = right;
+            this.keys = keys;
+        }
+    }
+
+    static class Task
+    {
+        final List<SimulatedSSTable> inputs;
+        final int level;
+        final long maxSSTableSize;
+
+        Task(List<SimulatedSSTable> inputs, int level, long maxSSTableSize)
+        {
+            this.inputs = inputs;
+            this.level = level;
+            this.maxSSTableSize = maxSSTableSize;
+        }
+    }
+
+    /**
+     * The sstable selection logic of a compaction strategy.  Read hotness isn't known offline, so whenever the real
+     * strategy breaks ties by hotness we pick the candidates holding the least data instead.
+     */
+    static abstract class Strategy
+    {
+        protected final int minThreshold;
+        protected final int maxThreshold;
+
+        protected Strategy(Map<String, String> options)
+        {
+            minThreshold = getInt(options, CFMetaData.DEFAULT_MIN_COMPACTION_THRESHOLD, "min_threshold");
+            maxThreshold = getInt(options, CFMetaData.DEFAULT_MAX_COMPACTION_THRESHOLD, "max_threshold");
+        }
+
+        /**
+         * @return the next compaction to run, or null if there is none
+         */
+        abstract Task next(List<SimulatedSSTable> live, long now);
+
+        static Strategy create(String name, Map<String, String> options)
+        {
+            switch (name)
+            {
+                case "STCS":
+                case "SizeTieredCompactionStrategy":
+                    return new SizeTiered(options);
+                case "LCS":
+                case "LeveledCompactionStrategy":
+                    return new Leveled(options);
+                case "DTCS":
+                case "DateTieredCompactionStrategy":
+                    return new DateTiered(options);
+                default:
+                    throw new IllegalArgumentException("Unknown compaction strategy " + name);
+            }
+        }
+
+        protected static int getInt(Map<String, String> options, int defaultValue, String key)
+        {
+            String value = options.get(key);
+            return value == null ? defaultValue : Integer.parseInt(value);
+        }
+
+        protected static double getDouble(Map<String, String> options, double defaultValue, String key)
+        {
+            String value = options.get(key);
+            return value == null ? defaultValue : Double.parseDouble(value);
+        }
+    }
+
+    static class SizeTiered extends Strategy
+    {
+        private final long minSSTableSize;
+        private final double bucketLow;
+        private final double bucketHigh;
+
+        SizeTiered(Map<String, String> options)
+        {
+            super(options);
+            minSSTableSize = (long) getDouble(options, 50L * 1024L * 1024L, "min_sstable_size");
+            bucketLow = getDouble(options, 0.5, "bucket_low");
+            bucketHigh = getDouble(options, 1.5, "bucket_high");
+        }
+
+        Task next(List<SimulatedSSTable> live, long now)
+        {
+            List<SimulatedSSTable> bucket = mostInterestingBucket(live);
+            return bucket.isEmpty() ? null : new Task(bucket, 0, Long.MAX_VALUE);
+        }
+
+        List<SimulatedSSTable> mostInterestingBucket(List<SimulatedSSTable> sstables)
+        {
+            List<Pair<SimulatedSSTable, Long>> pairs = new ArrayList<>(sstables.size());
+            for (SimulatedSSTable sstable : sstables)
+                pairs.add(Pair.create(sstable, sstable.size));
+
+            List<SimulatedSSTable> best = Collections.emptyList();
+            long bestSize = Long.MAX_VALUE;
+            for (List<SimulatedSSTable> bucket : SizeTieredCompactionStrategy.getBuckets(pairs, bucketHigh, bucketLow, minSSTableSize))
+            {
+                if (bucket.size() < minThreshold)
+                    continue;
+
+                bucket = smallestFirst(bucket).subList(0, Math.min(bucket.size(), maxThreshold));
+                long size = 0;
+                for (SimulatedSSTable sstable : bucket)
+                    size += sstable.size;
+                if (bucket.size() > best.size() || (bucket.size() == best.size() && size < bestSize))
+                {
+                    best = bucket;
+                    bestSize = size;
+                }
+            }
+            return best;
+        }
+
+        private static List<SimulatedSSTable> smallestFirst(List<SimulatedSSTable> sstables)
+        {
+            List<SimulatedSSTable> sorted = new ArrayList<>(sstables);
+            Collections.sort(sorted, new Comparator<SimulatedSSTable>()
+            {
+                public int compare(SimulatedSSTable o1, SimulatedSSTable o2)
+                {
+                    return Long.compare(o1.size, o2.size);
+                }
+            });
+            return sorted;
+        }
+    }
+
+    static class Leveled extends Strategy
+    {
+        private static final int MAX_COMPACTING_L0 = 32;
+
+        private final long maxSSTableSize;
+        private final SizeTiered l0;
+        // where the last compaction out of each level ended, so that levels are compacted round-robin
+        private final double[] lastCompacted = new double[LeveledManifest.MAX_LEVEL_COUNT];
+
+        Leveled(Map<String, String> options)
+        {
+            super(options);
+            maxSSTableSize = getInt(options, 160, "sstable_size_in_mb") * 1024L * 1024L;
+            l0 = new SizeTiered(options);
+        }
+
+        Task next(List<SimulatedSSTable> live, long now)
+        {
+            List<List<SimulatedSSTable>> levels = new ArrayList<>(LeveledManifest.MAX_LEVEL_COUNT);
+            for (int i = 0; i < LeveledManifest.MAX_LEVEL_COUNT; i++)
+                levels.add(new ArrayList<SimulatedSSTable>());
+            for (SimulatedSSTable sstable : live)
+                levels.get(Math.min(sstable.level, LeveledManifest.MAX_LEVEL_COUNT - 1)).add(sstable);
+
+            for (int i = levels.size() - 2; i > 0; i--)
+            {
+                List<SimulatedSSTable> level = levels.get(i);
+                long size = 0;
+                for (SimulatedSSTable sstable : level)
+                    size += sstable.size;
+                if ((double) size / LeveledManifest.maxBytesForLevel(i, maxSSTableSize) <= 1.001)
+                    continue;
+
+                // before proceeding with a higher level, see if L0 is far enough behind to warrant STCS
+                if (levels.get(0).size() > MAX_COMPACTING_L0)
+                {
+                    List<SimulatedSSTable> bucket = l0.mostInterestingBucket(levels.get(0));
+                    if (!bucket.isEmpty())
+                        return new Task(bucket, 0, Long.MAX_VALUE);
+                }
+
+                // L0 is fine, proceed with this level
+                SimulatedSSTable candidate = null;
+                for (SimulatedSSTable sstable : level)
+                {
+                    if (sstable.left >= lastCompacted[i] && (candidate == null || sstable.left < candidate.left))
+                        candidate = sstable;
+                }
+                if (candidate == null)
+                {
+                    for (SimulatedSSTable sstable : level)
+                    {
+                        if (candidate == null || sstable.left < candidate.left)
+                            candidate = sstable;
+                    }
+                }
+                lastCompacted[i] = candidate.right;
+                return new Task(withOverlapping(Collections.singletonList(candidate), levels.get(i + 1)), i + 1, maxSSTableSize);
+            }
+
+            // higher levels are happy, time for a standard, non-STCS L0 compaction
+            List<SimulatedSSTable> level0 = levels.get(0);
+            if (level0.isEmpty())
+                return null;
+            return level0Task(level0, levels.get(1));
+        }
+
+        /**
+         * Picks the L0 candidates like LeveledManifest.getCandidatesFor(0): the oldest sstables along with whatever
+         * overlaps them in L0, at most MAX_COMPACTING_L0 of them, only promoted to L1 once they add up to a full sstable.
+         */
+        private Task level0Task(List<SimulatedSSTable> level0, List<SimulatedSSTable> level1)
+        {
+            List<SimulatedSSTable> sorted = oldestFirst(level0);
+            List<SimulatedSSTable> remaining = new ArrayList<>(sorted);
+            List<SimulatedSSTable> candidates = new ArrayList<>();
+            for (SimulatedSSTable sstable : sorted)
+            {
+                if (candidates.contains(sstable))
+                    continue;
+
+                for (Iterator<SimulatedSSTable> iter = remaining.iterator(); iter.hasNext(); )
+                {
+                    SimulatedSSTable other = iter.next();
+                    if (other == sstable || other.overlaps(sstable))
+                    {
+                        candidates.add(other);
+                        iter.remove();
+                    }
+                }
+
+                if (candidates.size() > MAX_COMPACTING_L0)
+                {
+                    candidates = oldestFirst(candidates).subList(0, MAX_COMPACTING_L0);
+                    break;
+                }
+            }
+
+            long size = 0;
+            for (SimulatedSSTable sstable : candidates)
+                size += sstable.size;
+            // leave everything in L0 if we didn't end up with a full sstable's worth of data
+            int level = 0;
+            if (size > maxSSTableSize)
+            {
+                candidates = withOverlapping(candidates, level1);
+                level = 1;
+            }
+            return candidates.size() < 2 ? null : new Task(candidates, level, maxSSTableSize);
+        }
+
+        private static List<SimulatedSSTable> oldestFirst(List<SimulatedSSTable> sstables)
+        {
+            List<SimulatedSSTable> sorted = new ArrayList<>(sstables);
+            Collections.sort(sorted, new Comparator<SimulatedSSTable>()
+            {
+                public int compare(SimulatedSSTable o1, SimulatedSSTable o2)
+                {
+                    return Long.compare(o1.minTimestamp, o2.minTimestamp);
+                }
+            });
+            return sorted;
+        }
+
+        private static List<SimulatedSSTable> withOverlapping(List<SimulatedSSTable> candidates, List<SimulatedSSTable> nextLevel)
+        {
+            List<SimulatedSSTable> inputs = new ArrayList<>(candidates);
+            for (SimulatedSSTable sstable : nextLevel)
+            {
+                for (SimulatedSSTable candidate : candidates)
+                {
+                    if (candidate.overlaps(sstable))
+                    {
+                        inputs.add(sstable);
+                        break;
+                    }
+                }
+            }
+            return inputs;
+        }
+    }
+
+    static class DateTiered extends Strategy
+    {
+        private final long baseTime;
+        private final long maxSSTableAge;
+
+        DateTiered(Map<String, String> options)
+        {
+            super(options);
+            baseTime = TimeUnit.SECONDS.toMicros(getInt(options, 60, "base_time_seconds"));
+            maxSSTableAge = Math.round(getDouble(options, 365, "max_sstable_age_days") * TimeUnit.DAYS.toMicros(1));
+        }
+
+        Task next(List<SimulatedSSTable> live, long now)
+        {
+            List<Pair<SimulatedSSTable, Long>> pairs = new ArrayList<>(live.size());
+            for (SimulatedSSTable sstable : live)
+            {
+                if (sstable.maxTimestamp >= now - maxSSTableAge)
+                    pairs.add(Pair.create(sstable, sstable.minTimestamp));
+            }
+
+            // the incoming window needs minThreshold sstables, any other one only 2
+            for (List<SimulatedSSTable> bucket : DateTieredCompactionStrategy.getBuckets(pairs, baseTime, minThreshold, now))
+            {
+                if (bucket.size() >= minThreshold || (bucket.size() >= 2 && bucket.get(0).minTimestamp / baseTime != now / baseTime))
+                    return new Task(bucket.subList(0, Math.min(bucket.size(), maxThreshold)), 0, Long.MAX_VALUE);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @param args sstables of the table to simulate, followed by the options described in the usage message
+     */
+    public static void main(String[] args)
+    {
+        Options options = Options.parseArgs(args);
+        PrintStream out = System.out;
+        try
+        {
+            // sstables of the table as it is now, by level
+            Map<Integer, List<ExistingSSTable>> levels = new TreeMap<>();
+            Set<Descriptor> descriptors = new TreeSet<>(new Comparator<Descriptor>()
+            {
+                public int compare(Descriptor d1, Descriptor d2)
+                {
+                    return Integer.compare(d1.generation, d2.generation);
+                }
+            });
+            for (String filename : options.filenames)
+            {
+                if (!new File(filename).exists())
+                {
+                    out.println("Skipping inexisting file " + filename);
+                    continue;
+                }
+                descriptors.add(Descriptor.fromFilename(filename));
+            }
+
+            ICardinality cardinality = null;
+            long totalSize = 0;
+            long totalKeys = 0;
+            long now = 0;
+            for (Descriptor descriptor : descriptors)
+            {
+                Map<MetadataType, MetadataComponent> metadata = descriptor.getMetadataSerializer().deserialize(descriptor, EnumSet.of(MetadataType.STATS, MetadataType.COMPACTION));
+                StatsMetadata stats = (StatsMetadata) metadata.get(MetadataType.STATS);
+                CompactionMetadata compaction = (CompactionMetadata) metadata.get(MetadataType.COMPACTION);
+                if (stats == null || compaction == null)
+                {
+                    out.println("Skipping sstable without metadata " + descriptor);
+                    continue;
+                }
+
+                long size = new File(descriptor.filenameFor(Component.DATA)).length();
+                List<ExistingSSTable> level = levels.get(stats.sstableLevel);
+                if (level == null)
+                    levels.put(stats.sstableLevel, level = new ArrayList<>());
+                level.add(new ExistingSSTable(stats, size, compaction.cardinalityEstimator.cardinality()));
+
+                cardinality = cardinality == null ? compaction.cardinalityEstimator : cardinality.merge(compaction.cardinalityEstimator);
+                totalSize += size;
+                totalKeys += compaction.cardinalityEstimator.cardinality();
+                now = Math.max(now, stats.maxTimestamp);
+            }
+
+            double partitions = options.partitions;
+            if (partitions <= 0)
+            {
+                if (cardinality == null)
+                    throw new IllegalArgumentException("The number of partitions must be given when simulating without sstables");
+                partitions = cardinality.cardinality();
+            }
+            long partitionSize = options.partitionSize;
+            if (partitionSize <= 0)
+                partitionSize = totalKeys == 0 ? DEFAULT_PARTITION_SIZE : Math.max(1, totalSize / totalKeys);
+            if (now <= 0)
+                now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+
+            long flushInterval = (long) (TimeUnit.SECONDS.toMicros(1) * options.flushSize / options.writeRate);
+            CompactionSimulator simulator = new CompactionSimulator(Strategy.create(options.strategy, options.strategyOptions),
+                                                                    partitions,
+                                                                    partitionSize,
+                                                                    options.flushSize,
+                                                                    flushInterval,
+                                                                    now);
+
+            // we don't know the token range of each sstable, so we assume the ones of each level split the ring evenly
+            for (Map.Entry<Integer, List<ExistingSSTable>> level : levels.entrySet())
+            {
+                int count = level.getValue().size();
+                for (int i = 0; i < count; i++)
+                {
+                    ExistingSSTable sstable = level.getValue().get(i);
+                    double left = level.getKey() == 0 ? 0 : (double) i / count;
+                    double right = level.getKey() == 0 ? 1 : (double) (i + 1) / count;
+                    simulator.add(new SimulatedSSTable(sstable.size, sstable.keys, sstable.stats.minTimestamp, sstable.stats.maxTimestamp, level.getKey(), left, right));
+                }
+            }
+
+            out.printf("Simulating %s with %.0f partitions of %d bytes, written at %.2f MB/s and flushed every %d MB%n",
+                       options.strategy, partitions, partitionSize, options.writeRate / (1024 * 1024), options.flushSize / (1024 * 1024));
+            out.printf("%10s %10s %12s %12s %12s %12s%n", "Hours", "SSTables", "Size (MB)", "SSTables/read", "Peak space", "Write amp");
+            simulator.compact();
+            report(out, simulator, 0);
+
+            long elapsed = 0;
+            long nextReport = TimeUnit.MINUTES.toMicros(options.reportInterval);
+            long duration = TimeUnit.HOURS.toMicros(options.duration);
+            while (elapsed < duration)
+            {
+                simulator.flush();
+                elapsed += flushInterval;
+                if (elapsed >= nextReport || elapsed >= duration)
+                {
+                    report(out, simulator, elapsed);
+                    nextReport += TimeUnit.MINUTES.toMicros(options.reportInterval);
+                }
+            }
+            System.exit(0);
+        }
+        catch (Exception e)
+        {
+            System.err.println(e.getMessage());
+            e.printStackTrace(System.err);
+            System.exit(1);
+        }
+    }
+
+    private static void report(PrintStream out, CompactionSimulator simulator, long elapsed)
+    {
+        out.printf("%10.2f %10d %12d %12.2f %12.2f %12.2f%n",
+                   (double) elapsed / TimeUnit.HOURS.toMicros(1),
+                   simulator.liveCount(),
+                   simulator.liveSize() / (1024 * 1024),
+                   simulator.sstablesPerRead(),
+                   simulator.takePeakSpaceOverhead(),
+                   simulator.writeAmplification());
+    }
+
+    private static class ExistingSSTable
+    {
+        final StatsMetadata stats;
+        final long size;
+        final long keys;
+
+        ExistingSSTable(StatsMetadata stats, long size, long keys)
+        {
+            this.stats = stats;
+            this.size = size;
+            this.keys = keys;
+        }
+    }
+
+    private static class Options
+    {
+        public final List<String> filenames;
+        public String strategy;
+        public Map<String, String> strategyOptions = new HashMap<>();
+        public double writeRate;
+        public long flushSize;
+        public double partitions;
+        public long partitionSize;
+        public int duration;
+        public int reportInterval;
+
+        private Options(List<String> filenames)
+        {
+            this.filenames = filenames;
+        }
+
+        public static Options parseArgs(String cmdArgs[])
+        {
+            CommandLineParser parser = new GnuParser();
+            CmdLineOptions options = getCmdLineOptions();
+            try
+            {
+                CommandLine cmd = parser.parse(options, cmdArgs, false);
+
+                if (cmd.hasOption(HELP_OPTION))
+                {
+                    printUsage(options);
+                    System.exit(0);
+                }
+
+                if (!cmd.hasOption(STRATEGY_OPTION))
+                    errorMsg("Missing compaction strategy (see option --" + STRATEGY_OPTION + ")", options);
+
+                Options opts = new Options(Arrays.asList(cmd.getArgs()));
+                opts.strategy = cmd.getOptionValue(STRATEGY_OPTION);
+                if (cmd.hasOption(STRATEGY_OPTIONS_OPTION))
+                {
+                    for (String option : cmd.getOptionValue(STRATEGY_OPTIONS_OPTION).split(","))
+                    {
+                        String[] kv = option.split("=", 2);
+                        if (kv.length != 2)
+                            errorMsg("Invalid compaction option " + option + ", expected key=value", options);
+                        opts.strategyOptions.put(kv[0].trim(), kv[1].trim());
+                    }
+                }
+                opts.writeRate = Double.parseDouble(cmd.getOptionValue(WRITE_RATE_OPTION, String.valueOf(DEFAULT_WRITE_RATE_MB))) * 1024 * 1024;
+                opts.flushSize = Long.parseLong(cmd.getOptionValue(FLUSH_SIZE_OPTION, String.valueOf(DEFAULT_FLUSH_SIZE_MB))) * 1024 * 1024;
+                opts.partitions = Double.parseDouble(cmd.getOptionValue(PARTITIONS_OPTION, "0"));
+                opts.partitionSize = Long.parseLong(cmd.getOptionValue(PARTITION_SIZE_OPTION, "0"));
+                opts.duration = Integer.parseInt(cmd.getOptionValue(DURATION_OPTION, String.valueOf(DEFAULT_DURATION_HOURS)));
+                opts.reportInterval = Integer.parseInt(cmd.getOptionValue(REPORT_INTERVAL_OPTION, String.valueOf(DEFAULT_REPORT_INTERVAL_MINUTES)));
+                if (opts.writeRate <= 0 || opts.flushSize <= 0 || opts.reportInterval <= 0)
+                    errorMsg("Write rate, flush size and report interval must be positive", options);
+
+                return opts;
+            }
+            catch (ParseException | NumberFormatException e)
+            {
+                errorMsg(e.getMessage(), options);
+                return null;
+            }
+        }
+
+        private static void errorMsg(String msg, CmdLineOptions options)
+        {
+            System.err.println(msg);
+            printUsage(options);
+            System.exit(1);
+        }
+
+        private static CmdLineOptions getCmdLineOptions()
+        {
+            CmdLineOptions options = new CmdLineOptions();
+            options.addOption("h", HELP_OPTION,                           "display this help message");
+            options.addOption("s", STRATEGY_OPTION,         "strategy",   "compaction strategy to simulate: STCS, LCS or DTCS");
+            options.addOption("o", STRATEGY_OPTIONS_OPTION, "options",    "comma separated compaction options, e.g. sstable_size_in_mb=160,min_threshold=4");
+            options.addOption("w", WRITE_RATE_OPTION,       "MB/s",       "rate at which data is written (default: " + DEFAULT_WRITE_RATE_MB + ")");
+            options.addOption("f", FLUSH_SIZE_OPTION,       "MB",         "amount of data written between flushes (default: " + DEFAULT_FLUSH_SIZE_MB + ")");
+            options.addOption("p", PARTITIONS_OPTION,       "count",      "number of distinct partitions written (default: estimated from the sstables)");
+            options.addOption("z", PARTITION_SIZE_OPTION,   "bytes",      "size of a partition (default: estimated from the sstables, or " + DEFAULT_PARTITION_SIZE + ")");
+            options.addOption("d", DURATION_OPTION,         "hours",      "simulated time (default: " + DEFAULT_DURATION_HOURS + ")");
+            options.addOption("r", REPORT_INTERVAL_OPTION,  "minutes",    "time between reports (default: " + DEFAULT_REPORT_INTERVAL_MINUTES + ")");
+            return options;
+        }
+
+        public static void printUsage(CmdLineOptions options)
+        {
+            String usage = String.format("%s [options] [<filename>]*", TOOL_NAME);
+            StringBuilder header = new StringBuilder();
+            header.append("--\n");
+            header.append("Simulate a compaction strategy on top of the provided sstables of a table, using only their metadata, " +
+                          "and report the write amplification, sstables per read and space amplification it would lead to over time.");
+            header.append("\n--\n");
+            header.append("Options are:");
+            new HelpFormatter().printHelp(usage, header.toString(), options, "");
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.transport;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Meter;
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.metrics.ClientMetrics;
+
+/**
+ * {@link ChannelInboundHandlerAdapter} implementation which stops reading from a client connection while it has too
+ * many requests in flight, or while the server as a whole does.  A request is in flight from the time it is decoded
+ * until its response has been flushed, and the bytes it accounts for are those of its frame, which is only released
+ * then.  A connection is also paused while it isn't writable, i.e. while its unflushed responses are above the write
+ * buffer high water mark.  Be aware this <strong>MUST</strong> be shared between all child channels.
+ *
+ * The per connection state is only ever touched from the event loop of its channel: requests are counted as they are
+ * read, and {@link Message.Dispatcher} releases them from the same event loop once their response is flushed.
+ */
+@ChannelHandler.Sharable
+final class InFlightLimitHandler extends ChannelInboundHandlerAdapter
+{
+    private static final Logger logger = LoggerFactory.getLogger(InFlightLimitHandler.class);
+
+    private static final AttributeKey<InFlight> attributeKey = AttributeKey.valueOf("INFLIGHT");
+
+    private static final AtomicLong requests = new AtomicLong();
+    private static final AtomicLong bytes = new AtomicLong();
+    private static final AtomicInteger throttled = new AtomicInteger();
+    private static final Meter throttlings = ClientMetrics.instance.addMeter("throttledNativeConnectionEvents");
+    // the connections paused because of the global limits, which have to be resumed by whichever connection brings
+    // the server back under them
+    private static final Queue<Channel> waiting = new ConcurrentLinkedQueue<>();
+
+    private static class InFlight
+    {
+        int requests;
+        long bytes;
+        boolean paused;
+        boolean waiting;
+    }
+
+    static void registerMetrics()
+    {
+        ClientMetrics.instance.addCounter("throttledNativeConnections", new Callable<Integer>()
+        {
+            public Integer call()
+            {
+                return throttled.get();
+            }
+        });
+        ClientMetrics.instance.addCounter("inFlightNativeRequests", new Callable<Integer>()
+        {
+            public Integer call()
+            {
+                return (int) requests.get();
+            }
+        });
+        ClientMetrics.instance.addCounter("inFlightNativeKilobytes", new Callable<Integer>()
+        {
+            public Integer call()
+            {
+                return (int) (bytes.get() / 1024);
+            }
+        });
+    }
+
+    @VisibleForTesting
+    static int throttledConnections()
+    {
+        return throttled.get();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception
+    {
+        if (msg instanceof Message.Request)
+        {
+            InFlight inFlight = ctx.channel().attr(attributeKey).get();
+            if (inFlight == null)
+            {
+                inFlight = new InFlight();
+                ctx.channel().attr(attributeKey).set(inFlight);
+            }
+
+            long size = sizeOf(((Message.Request) msg).getSourceFrame());
+            inFlight.requests++;
+            inFlight.bytes += size;
+            requests.incrementAndGet();
+            bytes.addAndGet(size);
+            update(ctx.channel(), inFlight);
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception
+    {
+        InFlight inFlight = ctx.channel().attr(attributeKey).get();
+        if (inFlight != null)
+            update(ctx.channel(), inFlight);
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception
+    {
+        InFlight inFlight = ctx.channel().attr(attributeKey).get();
+        if (inFlight != null && inFlight.paused)
+        {
+            // the requests still in flight are released as their responses go through the Dispatcher anyway
+            inFlight.paused = false;
+            throttled.decrementAndGet();
+        }
+        ctx.fireChannelInactive();
+    }
+
+    /**
+     * Releases a request of @param channel read by this handler, once the response to @param sourceFrame has been
+     * flushed.  Must be called from the event loop of the channel.
+     */
+    static void release(Channel channel, Frame sourceFrame)
+    {
+        InFlight inFlight = channel.attr(attributeKey).get();
+        if (inFlight == null)
+            return;
+
+        long size = sizeOf(sourceFrame);
+        inFlight.requests--;
+        inFlight.bytes -= size;
+        requests.decrementAndGet();
+        bytes.addAndGet(-size);
+        if (inFlight.paused)
+            update(channel, inFlight);
+        if (!waiting.isEmpty() && !overGlobalLimits())
+            resumeWaiting();
+    }
+
+    private static long sizeOf(Frame frame)
+    {
+        return frame.body.writerIndex();
+    }
+
+    private static void update(Channel channel, InFlight inFlight)
+    {
+        boolean overGlobalLimits = overGlobalLimits();
+        boolean pause = !channel.isWritable() || overLimits(inFlight) || overGlobalLimits;
+        if (pause != inFlight.paused)
+        {
+            inFlight.paused = pause;
+            channel.config().setAutoRead(!pause);
+            if (pause)
+            {
+                logger.trace("Pausing reads from {} with {} requests and {} bytes in flight", channel, inFlight.requests, inFlight.bytes);
+                throttled.incrementAndGet();
+                throttlings.mark();
+            }
+            else
+            {
+                logger.trace("Resuming reads from {}", channel);
+                throttled.decrementAndGet();
+            }
+        }
+
+        if (pause && overGlobalLimits && !inFlight.waiting)
+        {
+            inFlight.waiting = true;
+            waiting.add(channel);
+            // we may have been added after the release that brought the server back under its limits
+            if (!overGlobalLimits())
+                resumeWaiting();
+        }
+    }
+
+    private static void resumeWaiting()
+    {
+        Channel channel;
+        while ((channel = waiting.poll()) != null)
+        {
+            final Channel toResume = channel;
+            toResume.eventLoop().execute(new Runnable()
+            {
+                public void run()
+                {
+                    InFlight inFlight = toResume.attr(attributeKey).get();
+                    inFlight.waiting = false;
+                    if (inFlight.paused && toResume.isActive())
+                        update(toResume, inFlight);
+                }
+            });
+        }
+    }
+
+    private static boolean overLimits(InFlight inFlight)
+    {
+        return overLimit(inFlight.requests, DatabaseDescriptor.getNativeTransportMaxInFlightRequestsPerConnection())
+            || overLimit(inFlight.bytes, DatabaseDescriptor.getNativeTransportMaxInFlightBytesPerConnection());
+    }
+
+    private static boolean overGlobalLimits()
+    {
+        return overLimit(requests.get(), DatabaseDescriptor.getNativeTransportMaxInFlightRequests())
+            || overLimit(bytes.get(), DatabaseDescriptor.getNativeTransportMaxInFlightBytes());
+    }
+
+    // Setting a limit to -1 disables it.
+    private static boolean overLimit(long value, long limit)
+    {
+        return limit > 0 && value >= limit;
+    }
+}
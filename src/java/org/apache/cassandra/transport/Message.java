@@ -37,14 +37,18 @@ import io.netty.channel.*;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.handler.codec.MessageToMessageEncoder;
 
+import com.codahale.metrics.Meter;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.metrics.ClientMetrics;
 import org.apache.cassandra.service.ClientWarn;
 import org.apache.cassandra.transport.messages.*;
 import org.apache.cassandra.service.QueryState;
+import org.apache.cassandra.service.StorageProxy;
 import org.apache.cassandra.utils.JVMStabilityInspector;
 
 /**
@@ -211,6 +215,15 @@ public abstract class Message
 
         public abstract Response execute(QueryState queryState);
 
+        /**
+         * @return whether this request is expected to complete locally and cheaply enough to be executed by the
+         * event loop that read it, see {@link Config.InlineExecution}
+         */
+        public boolean canExecuteInline(Config.InlineExecution inlineExecution)
+        {
+            return false;
+        }
+
         public void setTracingRequested()
         {
             this.tracingRequested = true;
@@ -325,7 +338,10 @@ public abstract class Message
             Codec<Message> codec = (Codec<Message>)message.type.codec;
             try
             {
-                int messageSize = codec.encodedSize(message, version);
+                // rows are appended to a composite buffer as they're encoded, so only the bytes preceding them
+                // have to be sized, see ResultMessage.Rows.encodeComposite
+                boolean composite = message instanceof ResultMessage.Rows;
+                int messageSize = composite ? 4 : codec.encodedSize(message, version);
                 ByteBuf body;
                 if (message instanceof Response)
                 {
@@ -379,14 +395,21 @@ public abstract class Message
                     }
                 }
 
-                try
+                if (composite)
                 {
-                    codec.encode(message, body, version);
+                    body = ((ResultMessage.Rows)message).encodeComposite(body, version);
                 }
-                catch (Throwable e)
+                else
                 {
-                    body.release();
-                    throw e;
+                    try
+                    {
+                        codec.encode(message, body, version);
+                    }
+                    catch (Throwable e)
+                    {
+                        body.release();
+                        throw e;
+                    }
                 }
 
                 results.add(Frame.create(message.type, message.getStreamId(), version, flags, body));
@@ -454,7 +477,10 @@ public abstract class Message
                     for (ChannelHandlerContext channel : channels)
                         channel.flush();
                     for (FlushItem item : flushed)
+                    {
+                        InFlightLimitHandler.release(item.ctx.channel(), item.sourceFrame);
                         item.sourceFrame.release();
+                    }
 
                     channels.clear();
                     flushed.clear();
@@ -490,7 +516,11 @@ public abstract class Message
         @Override
         public void channelRead0(ChannelHandlerContext ctx, Request request)
         {
+            dispatch(ctx, request);
+        }
 
+        void dispatch(ChannelHandlerContext ctx, Request request)
+        {
             final Response response;
             final ServerConnection connection;
 
@@ -562,6 +592,61 @@ public abstract class Message
         }
     }
 
+    /**
+     * Executes the requests that can be on the event loop that read them, and hands the others to the
+     * {@link Dispatcher} that follows it on the request executor.
+     */
+    @ChannelHandler.Sharable
+    public static class InlineDispatcher extends ChannelInboundHandlerAdapter
+    {
+        private static final Meter inlineRequests = ClientMetrics.instance.addMeter("inlineNativeRequests");
+
+        private final Dispatcher dispatcher;
+        private final Config.InlineExecution inlineExecution;
+
+        public InlineDispatcher(Dispatcher dispatcher, Config.InlineExecution inlineExecution)
+        {
+            this.dispatcher = dispatcher;
+            this.inlineExecution = inlineExecution;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg)
+        {
+            // the only requests executed inline are local reads, which must not wait for a READ stage worker either
+            if (msg instanceof Request && canExecuteInline((Request) msg) && StorageProxy.reserveLocalReader())
+            {
+                try
+                {
+                    inlineRequests.mark();
+                    dispatcher.dispatch(ctx, (Request) msg);
+                }
+                finally
+                {
+                    StorageProxy.releaseLocalReader();
+                }
+            }
+            else
+            {
+                ctx.fireChannelRead(msg);
+            }
+        }
+
+        private boolean canExecuteInline(Request request)
+        {
+            try
+            {
+                return request.canExecuteInline(inlineExecution);
+            }
+            catch (Throwable t)
+            {
+                JVMStabilityInspector.inspectThrowable(t);
+                // let the request executor report it
+                return false;
+            }
+        }
+    }
+
     /**
      * Include the channel info in the logged information for unexpected errors, and (if {@link #alwaysLogAtError} is
      * false then choose the log level based on the type of exception (some are clearly client issues and shouldn't be
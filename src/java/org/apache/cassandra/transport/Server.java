@@ -48,6 +48,7 @@ import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import io.netty.util.internal.logging.Slf4JLoggerFactory;
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.EncryptionOptions;
 import org.apache.cassandra.db.marshal.AbstractType;
@@ -194,6 +195,7 @@ public class Server implements CassandraDaemon.Server
                 return connectionTracker.getConnectedClients();
             }
         });
+        InFlightLimitHandler.registerMetrics();
     }
 
     private void close()
@@ -264,6 +266,10 @@ public class Server implements CassandraDaemon.Server
         private static final Frame.Encoder frameEncoder = new Frame.Encoder();
         private static final Message.Dispatcher dispatcher = new Message.Dispatcher();
         private static final ConnectionLimitHandler connectionLimitHandler = new ConnectionLimitHandler();
+        private static final InFlightLimitHandler inFlightLimitHandler = new InFlightLimitHandler();
+        private static final Message.InlineDispatcher inlineDispatcher = DatabaseDescriptor.getNativeTransportInlineExecution() == Config.InlineExecution.disabled
+                                                                       ? null
+                                                                       : new Message.InlineDispatcher(dispatcher, DatabaseDescriptor.getNativeTransportInlineExecution());
 
         private final Server server;
 
@@ -295,6 +301,10 @@ public class Server implements CassandraDaemon.Server
             pipeline.addLast("messageDecoder", messageDecoder);
             pipeline.addLast("messageEncoder", messageEncoder);
 
+            // Counts the requests on the event loop, before they are handed to the executor.
+            pipeline.addLast("inFlightLimitHandler", inFlightLimitHandler);
+            if (inlineDispatcher != null)
+                pipeline.addLast("inlineDispatcher", inlineDispatcher);
             pipeline.addLast(server.eventExecutorGroup, "executor", dispatcher);
         }
     }
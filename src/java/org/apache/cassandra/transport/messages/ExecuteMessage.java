@@ -24,12 +24,15 @@ import java.util.UUID;
 import com.google.common.collect.ImmutableMap;
 import io.netty.buffer.ByteBuf;
 
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.cql3.CQLStatement;
 import org.apache.cassandra.cql3.QueryHandler;
 import org.apache.cassandra.cql3.QueryOptions;
 import org.apache.cassandra.cql3.statements.ParsedStatement;
+import org.apache.cassandra.cql3.statements.SelectStatement;
 import org.apache.cassandra.db.ConsistencyLevel;
 import org.apache.cassandra.exceptions.PreparedQueryNotFoundException;
+import org.apache.cassandra.exceptions.RequestValidationException;
 import org.apache.cassandra.service.ClientState;
 import org.apache.cassandra.service.QueryState;
 import org.apache.cassandra.tracing.Tracing;
@@ -98,6 +101,29 @@ public class ExecuteMessage extends Message.Request
         this.options = options;
     }
 
+    @Override
+    public boolean canExecuteInline(Config.InlineExecution inlineExecution)
+    {
+        // tracing a request costs more than handing it off
+        if (isTracingRequested())
+            return false;
+
+        ParsedStatement.Prepared prepared = ClientState.getCQLQueryHandler().getPrepared(statementId);
+        if (prepared == null || !(prepared.statement instanceof SelectStatement))
+            return false;
+
+        try
+        {
+            options.prepare(prepared.boundNames);
+            return ((SelectStatement) prepared.statement).isLocalRead(options, inlineExecution == Config.InlineExecution.cached_reads);
+        }
+        catch (RequestValidationException e)
+        {
+            // let execute() report it
+            return false;
+        }
+    }
+
     public Message.Response execute(QueryState state)
     {
         try
@@ -20,6 +20,7 @@ package org.apache.cassandra.transport.messages;
 import java.util.*;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 
 import org.apache.cassandra.cql3.ColumnSpecification;
 import org.apache.cassandra.cql3.CQLStatement;
@@ -219,6 +220,38 @@ public abstract class ResultMessage extends Message.Response
             this.result = result;
         }
 
+        /**
+         * Encodes this message as codec would, after what is already written to @param head, into a composite
+         * buffer which references the biggest values of the result rather than copying them.  @param head is part
+         * of the returned buffer, or released if this throws.
+         */
+        public ByteBuf encodeComposite(ByteBuf head, int version)
+        {
+            CompositeByteBuf body;
+            try
+            {
+                head.writeInt(kind.id);
+                body = CBUtil.allocator.compositeBuffer(Integer.MAX_VALUE);
+            }
+            catch (Throwable e)
+            {
+                head.release();
+                throw e;
+            }
+
+            try
+            {
+                ResultSet.Codec.addComponent(body, head);
+                ResultSet.codec.encode(result, body, version);
+                return body;
+            }
+            catch (Throwable e)
+            {
+                body.release();
+                throw e;
+            }
+        }
+
         public CqlResult toThriftResult()
         {
             return result.toThriftResult();
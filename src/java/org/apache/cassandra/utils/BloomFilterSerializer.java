@@ -19,6 +19,7 @@ package org.apache.cassandra.utils;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 
 import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.io.ISerializer;
@@ -48,6 +49,16 @@ class BloomFilterSerializer implements ISerializer<BloomFilter>
         return createFilter(hashes, bs);
     }
 
+    /**
+     * Maps the bitset of a serialized filter in place, see OffHeapBitSet.map.
+     */
+    @SuppressWarnings("resource")
+    public BloomFilter map(DataInput in, FileChannel channel) throws IOException
+    {
+        int hashes = in.readInt();
+        return createFilter(hashes, OffHeapBitSet.map(in, channel));
+    }
+
     BloomFilter createFilter(int hashes, IBitSet bs)
     {
         return new BloomFilter(hashes, bs);
@@ -517,6 +517,18 @@ public class ByteBufferUtil
         return 0;
     }
 
+    /**
+     * @return the length of the longest common prefix of the remaining bytes of @param bytes1 and @param bytes2.
+     */
+    public static int sharedPrefixLength(ByteBuffer bytes1, ByteBuffer bytes2)
+    {
+        int length = Math.min(bytes1.remaining(), bytes2.remaining());
+        int i = 0;
+        while (i < length && bytes1.get(bytes1.position() + i) == bytes2.get(bytes2.position() + i))
+            i++;
+        return i;
+    }
+
     public static ByteBuffer bytes(InetAddress address)
     {
         return ByteBuffer.wrap(address.getAddress());
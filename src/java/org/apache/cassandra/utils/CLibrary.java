@@ -159,7 +159,7 @@ public final class CLibrary
             int sublen = (int) Math.min(Integer.MAX_VALUE, len);
             trySkipCache(fd, offset, sublen);
             len -= sublen;
-            offset -= sublen;
+            offset += sublen;
         }
     }
 
@@ -117,9 +117,21 @@ public class CoalescingStrategies
         private RandomAccessFile ras;
         private final String displayName;
 
-        protected CoalescingStrategy(Parker parker, Logger logger, String displayName)
+        // only updated by the thread coalescing, for metrics
+        private volatile long flushes;
+        private volatile long messages;
+        private volatile long parkedNanos;
+
+        protected CoalescingStrategy(final Parker parker, Logger logger, String displayName)
         {
-            this.parker = parker;
+            this.parker = new Parker()
+            {
+                public void park(long nanos)
+                {
+                    parkedNanos += nanos;
+                    parker.park(nanos);
+                }
+            };
             this.logger = logger;
             this.displayName = displayName;
             if (DEBUG_COALESCING)
@@ -211,6 +223,32 @@ public class CoalescingStrategies
         {
             Preconditions.checkArgument(out.isEmpty(), "out list should be empty");
             coalesceInternal(input, out, maxItems);
+            flushes++;
+            messages += out.size();
+        }
+
+        /**
+         * @return the number of batches returned by coalesce(), each of which the caller is expected to flush at once
+         */
+        public long getFlushes()
+        {
+            return flushes;
+        }
+
+        /**
+         * @return the number of elements returned by coalesce()
+         */
+        public long getMessages()
+        {
+            return messages;
+        }
+
+        /**
+         * @return the total time this strategy parked the coalescing thread for, in nanoseconds
+         */
+        public long getParkedNanos()
+        {
+            return parkedNanos;
         }
 
         protected abstract <C extends Coalescable> void coalesceInternal(BlockingQueue<C> input, List<C> out, int maxItems) throws InterruptedException;
@@ -430,6 +468,90 @@ public class CoalescingStrategies
         }
     }
 
+    /*
+     * A feedback driven strategy that never adds more than the coalescing window to the latency of a batch, and
+     * only parks when that pays off on this connection.  The time it parks for grows by an eighth of the window each
+     * time parking gathers more messages, and is halved each time it doesn't, down to not parking at all.  While it
+     * doesn't park, messages are sent right away, until the moving average of the gaps between them shows that
+     * another message can be expected within the window, at which point it tries parking again.
+     */
+    @VisibleForTesting
+    static class AdaptiveCoalescingStrategy extends CoalescingStrategy
+    {
+        private static final int STEPS = 8;
+
+        private final long maxCoalesceWindow;
+        private final long step;
+        private long window = 0;
+        // exponential moving average of the gaps between messages, negative until the first gap is known
+        private long averageGap = -1;
+        private long lastSample = Long.MIN_VALUE;
+
+        public AdaptiveCoalescingStrategy(int maxCoalesceWindow, Parker parker, Logger logger, String displayName)
+        {
+            super(parker, logger, displayName);
+            this.maxCoalesceWindow = TimeUnit.MICROSECONDS.toNanos(maxCoalesceWindow);
+            this.step = Math.max(1, this.maxCoalesceWindow / STEPS);
+        }
+
+        private void logSample(long nanos)
+        {
+            debugTimestamp(nanos);
+            if (lastSample != Long.MIN_VALUE)
+            {
+                long gap = Math.max(0, nanos - lastSample);
+                averageGap = averageGap < 0 ? gap : averageGap + (gap - averageGap) / STEPS;
+            }
+            lastSample = Math.max(lastSample, nanos);
+        }
+
+        @VisibleForTesting
+        long window()
+        {
+            return window;
+        }
+
+        @Override
+        protected <C extends Coalescable> void coalesceInternal(BlockingQueue<C> input, List<C> out, int maxItems) throws InterruptedException
+        {
+            if (input.drainTo(out, maxItems) == 0)
+            {
+                out.add(input.take());
+                input.drainTo(out, maxItems - 1);
+            }
+
+            for (Coalescable qm : out)
+                logSample(qm.timestampNanos());
+            debugGap(averageGap);
+
+            if (out.size() >= maxItems)
+                return;
+
+            if (window == 0)
+            {
+                if (averageGap < 0 || averageGap >= maxCoalesceWindow)
+                    return;
+                window = step;
+            }
+
+            int count = out.size();
+            parker.park(window);
+            input.drainTo(out, maxItems - count);
+            for (int i = count; i < out.size(); i++)
+                logSample(out.get(i).timestampNanos());
+
+            if (out.size() > count)
+                window = Math.min(maxCoalesceWindow, window + step);
+            else
+                window = window / 2 < step ? 0 : window / 2;
+        }
+
+        @Override
+        public String toString() {
+            return "Adaptive";
+        }
+    }
+
     /*
      * A fixed strategy as a backup in case MovingAverage or TimeHorizongMovingAverage fails in some scenario
      */
@@ -514,6 +636,9 @@ public class CoalescingStrategies
         case "DISABLED":
             classname = DisabledCoalescingStrategy.class.getName();
             break;
+        case "ADAPTIVE":
+            classname = AdaptiveCoalescingStrategy.class.getName();
+            break;
         default:
             classname = strategy;
         }
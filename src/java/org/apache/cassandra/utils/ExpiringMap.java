@@ -17,9 +17,10 @@
  */
 package org.apache.cassandra.utils;
 
-import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -32,9 +33,23 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.cassandra.concurrent.DebuggableScheduledThreadPoolExecutor;
 
+/**
+ * A map whose entries expire after a per-entry timeout.
+ *
+ * Expiration is driven by a hashed timer wheel: every TICK_MILLIS, the reaper only looks at the bucket of the wheel
+ * holding the entries that are due, instead of scanning the whole map.  Putting and removing entries is O(1): both
+ * only enqueue the entry for the reaper, which owns the wheel and (un)links it there on its next tick.  An entry
+ * expires at most one tick after its timeout, whatever the default expiration of the map.
+ */
 public class ExpiringMap<K, V>
 {
     private static final Logger logger = LoggerFactory.getLogger(ExpiringMap.class);
+
+    private static final long TICK_MILLIS = Long.getLong("cassandra.expiring_map_tick_ms", 10);
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    // must be a power of two; entries further away than WHEEL_SIZE ticks are skipped over until their turn comes
+    private static final int WHEEL_SIZE = 1024;
+
     private volatile boolean shutdown;
 
     public static class CacheableObject<T>
@@ -43,6 +58,14 @@ public class ExpiringMap<K, V>
         public final long timeout;
         private final long createdAt;
 
+        // the following are only accessed by the reaper
+        private Object key;
+        private long deadlineTick;
+        private boolean cancelled;
+        private Bucket bucket;
+        private CacheableObject<T> prev;
+        private CacheableObject<T> next;
+
         private CacheableObject(T value, long timeout)
         {
             assert value != null;
@@ -51,9 +74,53 @@ public class ExpiringMap<K, V>
             this.createdAt = System.nanoTime();
         }
 
-        private boolean isReadyToDieAt(long atNano)
+        private long expiresAt()
+        {
+            return createdAt + TimeUnit.MILLISECONDS.toNanos(timeout);
+        }
+
+        /**
+         * @return how long after its timeout this object has expired, in nanoseconds, if it expires at @param atNano
+         */
+        public long expiryLag(long atNano)
         {
-            return atNano - createdAt > TimeUnit.MILLISECONDS.toNanos(timeout);
+            return atNano - expiresAt();
+        }
+    }
+
+    /**
+     * The entries expiring at the same tick modulo WHEEL_SIZE, as a doubly linked list.
+     */
+    @SuppressWarnings("unchecked")
+    private static class Bucket
+    {
+        private CacheableObject head;
+        private CacheableObject tail;
+
+        void add(CacheableObject co)
+        {
+            co.bucket = this;
+            co.prev = tail;
+            if (tail == null)
+                head = co;
+            else
+                tail.next = co;
+            tail = co;
+        }
+
+        void unlink(CacheableObject co)
+        {
+            if (co.prev == null)
+                head = co.next;
+            else
+                co.prev.next = co.next;
+            if (co.next == null)
+                tail = co.prev;
+            else
+                co.next.prev = co.prev;
+            co.bucket = null;
+            co.prev = null;
+            co.next = null;
         }
     }
 
@@ -62,6 +129,16 @@ public class ExpiringMap<K, V>
 
     private final ConcurrentMap<K, CacheableObject<V>> cache = new ConcurrentHashMap<K, CacheableObject<V>>();
     private final long defaultExpiration;
+    private final Function<Pair<K,CacheableObject<V>>, ?> postExpireHook;
+
+    // entries put (resp. removed or replaced) since the last tick, for the reaper to (un)link them in the wheel
+    private final Queue<CacheableObject<V>> added = new ConcurrentLinkedQueue<>();
+    private final Queue<CacheableObject<V>> removed = new ConcurrentLinkedQueue<>();
+
+    // only accessed by the reaper
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final long startedAt = System.nanoTime();
+    private long lastTick = -1;
 
     public ExpiringMap(long defaultExpiration)
     {
@@ -75,34 +152,90 @@ public class ExpiringMap<K, V>
     public ExpiringMap(long defaultExpiration, final Function<Pair<K,CacheableObject<V>>, ?> postExpireHook)
     {
         this.defaultExpiration = defaultExpiration;
+        this.postExpireHook = postExpireHook;
 
         if (defaultExpiration <= 0)
         {
             throw new IllegalArgumentException("Argument specified must be a positive number");
         }
 
+        for (int i = 0; i < wheel.length; i++)
+            wheel[i] = new Bucket();
+
         Runnable runnable = new Runnable()
         {
             public void run()
             {
-                long start = System.nanoTime();
-                int n = 0;
-                for (Map.Entry<K, CacheableObject<V>> entry : cache.entrySet())
+                expire(System.nanoTime());
+            }
+        };
+        service.scheduleWithFixedDelay(runnable, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Advances the wheel up to @param now, expiring the entries that are due.  Only called by the reaper.
+     */
+    private void expire(long now)
+    {
+        long currentTick = (now - startedAt) / TICK_NANOS;
+        if (currentTick <= lastTick)
+            return;
+
+        long firstTick = lastTick + 1;
+        CacheableObject<V> co;
+        while ((co = added.poll()) != null)
+        {
+            if (co.cancelled)
+                continue;
+            // round up, so that nothing expires before its timeout
+            long deadlineTick = Math.max(firstTick, (co.expiresAt() - startedAt + TICK_NANOS - 1) / TICK_NANOS);
+            co.deadlineTick = deadlineTick;
+            wheel[(int) (deadlineTick & (WHEEL_SIZE - 1))].add(co);
+        }
+
+        while ((co = removed.poll()) != null)
+        {
+            // removed before the reaper could link it: make sure it never is
+            if (co.bucket == null)
+                co.cancelled = true;
+            else
+                co.bucket.unlink(co);
+        }
+
+        int n = 0;
+        // after a long pause there is no point going around the wheel more than once
+        for (long tick = Math.max(firstTick, currentTick - WHEEL_SIZE + 1); tick <= currentTick; tick++)
+        {
+            Bucket bucket = wheel[(int) (tick & (WHEEL_SIZE - 1))];
+            for (co = bucket.head; co != null; )
+            {
+                CacheableObject<V> next = co.next;
+                // entries due in a later turn of the wheel stay where they are
+                if (co.deadlineTick <= currentTick)
                 {
-                    if (entry.getValue().isReadyToDieAt(start))
-                    {
-                        if (cache.remove(entry.getKey()) != null)
-                        {
-                            n++;
-                            if (postExpireHook != null)
-                                postExpireHook.apply(Pair.create(entry.getKey(), entry.getValue()));
-                        }
-                    }
+                    bucket.unlink(co);
+                    n += expire(co);
                 }
-                logger.trace("Expired {} entries", n);
+                co = next;
             }
-        };
-        service.scheduleWithFixedDelay(runnable, defaultExpiration / 2, defaultExpiration / 2, TimeUnit.MILLISECONDS);
+        }
+        lastTick = currentTick;
+
+        if (n > 0)
+            logger.trace("Expired {} entries", n);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int expire(CacheableObject<V> co)
+    {
+        K key = (K) co.key;
+        // the entry may have been removed or replaced since the reaper last heard of it
+        if (!cache.remove(key, co))
+            return 0;
+
+        if (postExpireHook != null)
+            postExpireHook.apply(Pair.create(key, co));
+        return 1;
     }
 
     public void shutdownBlocking()
@@ -121,7 +254,8 @@ public class ExpiringMap<K, V>
     public void reset()
     {
         shutdown = false;
-        cache.clear();
+        for (K key : cache.keySet())
+            remove(key);
     }
 
     public V put(K key, V value)
@@ -139,8 +273,14 @@ public class ExpiringMap<K, V>
             // See comments in CustomTThreadPoolServer.serve, CASSANDRA-3335, and CASSANDRA-3727.
             Uninterruptibles.sleepUninterruptibly(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
         }
-        CacheableObject<V> previous = cache.put(key, new CacheableObject<V>(value, timeout));
-        return (previous == null) ? null : previous.value;
+        CacheableObject<V> co = new CacheableObject<V>(value, timeout);
+        co.key = key;
+        CacheableObject<V> previous = cache.put(key, co);
+        added.add(co);
+        if (previous == null)
+            return null;
+        removed.add(previous);
+        return previous.value;
     }
 
     public V get(K key)
@@ -152,7 +292,10 @@ public class ExpiringMap<K, V>
     public V remove(K key)
     {
         CacheableObject<V> co = cache.remove(key);
-        return co == null ? null : co.value;
+        if (co == null)
+            return null;
+        removed.add(co);
+        return co.value;
     }
 
     /**
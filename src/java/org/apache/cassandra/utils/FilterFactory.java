@@ -19,6 +19,7 @@ package org.apache.cassandra.utils;
 
 import java.io.DataInput;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 
 import org.apache.cassandra.io.util.DataOutputPlus;
 import org.apache.cassandra.utils.obs.IBitSet;
@@ -45,6 +46,15 @@ public class FilterFactory
         return BloomFilter.serializer.deserialize(input, offheap);
     }
 
+    /**
+     * Like deserialize with offheap, but maps the filter's bits from @param channel, which @param input reads from
+     * without buffering, instead of copying them off heap.
+     */
+    public static IFilter map(DataInput input, FileChannel channel) throws IOException
+    {
+        return BloomFilter.serializer.map(input, channel);
+    }
+
     /**
      * @return A BloomFilter with the lowest practical false positive
      *         probability for the given number of elements.
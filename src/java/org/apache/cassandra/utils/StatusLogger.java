@@ -74,8 +74,13 @@ public class StatusLogger
         {
             pendingSmallMessages += n;
         }
+        int pendingUrgentMessages = 0;
+        for (int n : MessagingService.instance().getUrgentMessagePendingTasks().values())
+        {
+            pendingUrgentMessages += n;
+        }
         logger.info(String.format("%-25s%10s%10s",
-                                  "MessagingService", "n/a", pendingLargeMessages + "/" + pendingSmallMessages));
+                                  "MessagingService", "n/a", pendingLargeMessages + "/" + pendingSmallMessages + "/" + pendingUrgentMessages));
 
         // Global key/row cache information
         AutoSavingCache<KeyCacheKey, RowIndexEntry> keyCache = CacheService.instance.keyCache;
@@ -86,7 +86,8 @@ public abstract class MemoryUtil
 
     public static long getAddress(ByteBuffer buffer)
     {
-        assert buffer.getClass() == DIRECT_BYTE_BUFFER_CLASS;
+        // read only buffers are a subclass, but have their address in the same field
+        assert buffer.isDirect();
         return unsafe.getLong(buffer, DIRECT_BYTE_BUFFER_ADDRESS_OFFSET);
     }
 
@@ -20,8 +20,10 @@ package org.apache.cassandra.utils.obs;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 
 import org.apache.cassandra.db.TypeSizes;
+import org.apache.cassandra.io.util.MappedMemory;
 import org.apache.cassandra.io.util.Memory;
 
 /**
@@ -31,6 +33,10 @@ import org.apache.cassandra.io.util.Memory;
 public class OffHeapBitSet implements IBitSet
 {
     private final Memory bytes;
+    // Bits are kept in increasing byte order, while the serialized form is a sequence of big endian longs.  A bitset
+    // mapped from its serialized form uses it as is, so the bytes of each long are in reverse order: 7 is xor-ed
+    // with byte indexes to find them.  0 otherwise.
+    private final int byteIndexMask;
 
     public OffHeapBitSet(long numBits)
     {
@@ -42,6 +48,7 @@ public class OffHeapBitSet implements IBitSet
         {
             long byteCount = wordCount * 8L;
             bytes = Memory.allocate(byteCount);
+            byteIndexMask = 0;
         }
         catch (OutOfMemoryError e)
         {
@@ -51,9 +58,10 @@ public class OffHeapBitSet implements IBitSet
         clear();
     }
 
-    private OffHeapBitSet(Memory bytes)
+    private OffHeapBitSet(Memory bytes, int byteIndexMask)
     {
         this.bytes = bytes;
+        this.byteIndexMask = byteIndexMask;
     }
 
     public long capacity()
@@ -69,7 +77,7 @@ public class OffHeapBitSet implements IBitSet
 
     public boolean get(long index)
     {
-        long i = index >> 3;
+        long i = (index >> 3) ^ byteIndexMask;
         long bit = index & 0x7;
         int bitmask = 0x1 << bit;
         return (bytes.getByte(i) & bitmask) != 0;
@@ -77,7 +85,7 @@ public class OffHeapBitSet implements IBitSet
 
     public void set(long index)
     {
-        long i = index >> 3;
+        long i = (index >> 3) ^ byteIndexMask;
         long bit = index & 0x7;
         int bitmask = 0x1 << bit;
         bytes.setByte(i, (byte) (bitmask | bytes.getByte(i)));
@@ -85,12 +93,12 @@ public class OffHeapBitSet implements IBitSet
 
     public void set(long offset, byte b)
     {
-        bytes.setByte(offset, b);
+        bytes.setByte(offset ^ byteIndexMask, b);
     }
 
     public void clear(long index)
     {
-        long i = index >> 3;
+        long i = (index >> 3) ^ byteIndexMask;
         long bit = index & 0x7;
         int bitmask = 0x1 << bit;
         int nativeByte = (bytes.getByte(i) & 0xFF);
@@ -108,14 +116,14 @@ public class OffHeapBitSet implements IBitSet
         out.writeInt((int) (bytes.size() / 8));
         for (long i = 0; i < bytes.size();)
         {
-            long value = ((bytes.getByte(i++) & 0xff) << 0) 
-                       + ((bytes.getByte(i++) & 0xff) << 8)
-                       + ((bytes.getByte(i++) & 0xff) << 16)
-                       + ((long) (bytes.getByte(i++) & 0xff) << 24)
-                       + ((long) (bytes.getByte(i++) & 0xff) << 32)
-                       + ((long) (bytes.getByte(i++) & 0xff) << 40)
-                       + ((long) (bytes.getByte(i++) & 0xff) << 48)
-                       + ((long) bytes.getByte(i++) << 56);
+            long value = ((bytes.getByte(i++ ^ byteIndexMask) & 0xff) << 0)
+                       + ((bytes.getByte(i++ ^ byteIndexMask) & 0xff) << 8)
+                       + ((bytes.getByte(i++ ^ byteIndexMask) & 0xff) << 16)
+                       + ((long) (bytes.getByte(i++ ^ byteIndexMask) & 0xff) << 24)
+                       + ((long) (bytes.getByte(i++ ^ byteIndexMask) & 0xff) << 32)
+                       + ((long) (bytes.getByte(i++ ^ byteIndexMask) & 0xff) << 40)
+                       + ((long) (bytes.getByte(i++ ^ byteIndexMask) & 0xff) << 48)
+                       + ((long) bytes.getByte(i++ ^ byteIndexMask) << 56);
             out.writeLong(value);
         }
     }
@@ -142,7 +150,21 @@ public class OffHeapBitSet implements IBitSet
             memory.setByte(i++, (byte) (v >>> 48));
             memory.setByte(i++, (byte) (v >>> 56));
         }
-        return new OffHeapBitSet(memory);
+        return new OffHeapBitSet(memory, 0);
+    }
+
+    /**
+     * Maps a serialized bitset in place instead of copying it off heap.
+     *
+     * @param in reads from @param channel without buffering; the channel is positioned right after the bitset
+     */
+    public static OffHeapBitSet map(DataInput in, FileChannel channel) throws IOException
+    {
+        long byteCount = in.readInt() * 8L;
+        long position = channel.position();
+        Memory memory = MappedMemory.map(channel, position, byteCount);
+        channel.position(position + byteCount);
+        return new OffHeapBitSet(memory, 7);
     }
 
     public void close()
@@ -168,7 +190,7 @@ public class OffHeapBitSet implements IBitSet
         long h = 0;
         for (long i = bytes.size(); --i >= 0;)
         {
-            h ^= bytes.getByte(i);
+            h ^= bytes.getByte(i ^ byteIndexMask);
             h = (h << 1) | (h >>> 63); // rotate left
         }
         return (int) ((h >> 32) ^ h) + 0x98761234;
@@ -90,6 +90,14 @@ public class EncodedDataInputStream extends AbstractDataInput implements DataInp
     }
 
     private long vintDecode() throws IOException
+    {
+        return readVLong(input);
+    }
+
+    /**
+     * Reads a long written by EncodedDataOutputStream#writeVLong (or writeLong) from @param input.
+     */
+    public static long readVLong(DataInput input) throws IOException
     {
         byte firstByte = input.readByte();
         int len = vintDecodeSize(firstByte);
@@ -105,7 +113,7 @@ public class EncodedDataInputStream extends AbstractDataInput implements DataInp
         return (vintIsNegative(firstByte) ? (i ^ -1L) : i);
     }
 
-    private int vintDecodeSize(byte value)
+    private static int vintDecodeSize(byte value)
     {
         if (value >= -112)
         {
@@ -118,7 +126,7 @@ public class EncodedDataInputStream extends AbstractDataInput implements DataInp
         return -111 - value;
     }
 
-    private boolean vintIsNegative(byte value)
+    private static boolean vintIsNegative(byte value)
     {
         return value < -120 || (value >= -112 && value < 0);
     }
@@ -17,6 +17,7 @@
  */
 package org.apache.cassandra.utils.vint;
 
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -68,10 +69,19 @@ public class EncodedDataOutputStream extends UnbufferedDataOutputStreamPlus
     }
 
     private void vintEncode(long i) throws IOException
+    {
+        writeVLong(i, this);
+    }
+
+    /**
+     * Writes @param i to @param out with the same encoding as writeLong, for callers that only need to
+     * encode a few fields and would rather not wrap their output.
+     */
+    public static void writeVLong(long i, DataOutput out) throws IOException
     {
         if (i >= -112 && i <= 127)
         {
-            writeByte((byte) i);
+            out.writeByte((byte) i);
             return;
         }
         int len = -112;
@@ -86,13 +96,13 @@ public class EncodedDataOutputStream extends UnbufferedDataOutputStreamPlus
             tmp = tmp >> 8;
             len--;
         }
-        writeByte((byte) len);
+        out.writeByte((byte) len);
         len = (len < -120) ? -(len + 120) : -(len + 112);
         for (int idx = len; idx != 0; idx--)
         {
             int shiftbits = (idx - 1) * 8;
             long mask = 0xFFL << shiftbits;
-            writeByte((byte) ((i & mask) >> shiftbits));
+            out.writeByte((byte) ((i & mask) >> shiftbits));
         }
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SEPExecutorTest
+{
+    private final SharedExecutorPool pool = new SharedExecutorPool("SEPExecutorTest");
+    private SEPExecutor executor;
+
+    @After
+    public void shutdown() throws InterruptedException
+    {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testReservedWorkerRunsTasksInline()
+    {
+        executor = (SEPExecutor) pool.newExecutor(2, 16, "internal", "testReservedWorkerRunsTasksInline");
+
+        assertTrue(executor.reserveWorker());
+        assertTrue(executor.hasReservedWorker());
+        assertEquals(1, executor.getActiveCount());
+
+        final AtomicReference<Thread> ranOn = new AtomicReference<>();
+        executor.maybeExecuteImmediately(new Runnable()
+        {
+            public void run()
+            {
+                ranOn.set(Thread.currentThread());
+            }
+        });
+        assertSame(Thread.currentThread(), ranOn.get());
+        assertEquals(1, executor.getActiveCount());
+
+        executor.releaseWorker();
+        assertFalse(executor.hasReservedWorker());
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    @Test
+    public void testNoWorkerToReserve() throws Exception
+    {
+        executor = (SEPExecutor) pool.newExecutor(1, 16, "internal", "testNoWorkerToReserve");
+
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        Future<?> busy = executor.submit(new Runnable()
+        {
+            public void run()
+            {
+                running.countDown();
+                try
+                {
+                    done.await();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+
+        // the only worker is busy
+        assertFalse(executor.reserveWorker());
+        assertFalse(executor.hasReservedWorker());
+
+        done.countDown();
+        busy.get(10, TimeUnit.SECONDS);
+
+        assertTrue(executor.reserveWorker());
+        executor.releaseWorker();
+    }
+
+    @Test
+    public void testReservationIsPerThread() throws Exception
+    {
+        executor = (SEPExecutor) pool.newExecutor(2, 16, "internal", "testReservationIsPerThread");
+
+        assertTrue(executor.reserveWorker());
+        try
+        {
+            final AtomicReference<Thread> ranOn = new AtomicReference<>();
+            final CountDownLatch ran = new CountDownLatch(1);
+            Thread other = new Thread()
+            {
+                public void run()
+                {
+                    assertFalse(executor.hasReservedWorker());
+                    executor.maybeExecuteImmediately(new Runnable()
+                    {
+                        public void run()
+                        {
+                            ranOn.set(Thread.currentThread());
+                            ran.countDown();
+                        }
+                    });
+                }
+            };
+            other.start();
+            other.join();
+
+            assertTrue(ran.await(10, TimeUnit.SECONDS));
+            assertNotSame(Thread.currentThread(), ranOn.get());
+        }
+        finally
+        {
+            executor.releaseWorker();
+        }
+    }
+}
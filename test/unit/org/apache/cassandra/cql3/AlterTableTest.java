@@ -17,11 +17,15 @@
  */
 package org.apache.cassandra.cql3;
 
+import org.apache.cassandra.config.Config;
 import org.apache.cassandra.db.ColumnFamilyStore;
 import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.DiskAccessOptions;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class AlterTableTest extends CQLTester
 {
@@ -110,4 +114,28 @@ public class AlterTableTest extends CQLTester
         assertEquals(256, cfs.metadata.getMinIndexInterval());
         assertEquals(512, cfs.metadata.getMaxIndexInterval());
     }
+
+    @Test
+    public void testAlterDiskAccessMode() throws Throwable
+    {
+        String tableName = createTable("CREATE TABLE %s (id text PRIMARY KEY, content text)");
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE).getColumnFamilyStore(tableName);
+        assertEquals(DiskAccessOptions.DEFAULT, cfs.metadata.getDiskAccess());
+
+        alterTable("ALTER TABLE %s WITH disk_access_mode = {'index' : 'mmap', 'data' : 'standard'}");
+        assertEquals(new DiskAccessOptions(Config.DiskAccessMode.mmap, Config.DiskAccessMode.standard), cfs.metadata.getDiskAccess());
+
+        // sstables written after the change use the new modes, so their index file is mapped
+        execute("INSERT INTO %s (id, content) VALUES ('test', 'first test')");
+        cfs.forceBlockingFlush();
+        for (SSTableReader sstable : cfs.getSSTables())
+            assertTrue(sstable.getMappedSize() > 0);
+        assertRows(execute("SELECT * FROM %s"), row("test", "first test"));
+
+        alterTable("ALTER TABLE %s WITH caching = 'none'");
+        assertEquals(Config.DiskAccessMode.standard, cfs.metadata.getDiskAccess().data);
+
+        assertInvalid("ALTER TABLE %s WITH disk_access_mode = {'index' : 'mmap_index_only'}");
+        assertInvalid("ALTER TABLE %s WITH disk_access_mode = {'summary' : 'mmap'}");
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.cql3;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.db.ConsistencyLevel;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.service.ClientState;
+import org.apache.cassandra.service.QueryState;
+import org.apache.cassandra.service.StorageProxy;
+import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.transport.Message;
+import org.apache.cassandra.transport.messages.ExecuteMessage;
+import org.apache.cassandra.transport.messages.ResultMessage;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static org.junit.Assert.*;
+
+public class InlineExecutionTest extends CQLTester
+{
+    @BeforeClass
+    public static void setUpRing()
+    {
+        // this node replicates every partition
+        StorageService.instance.getTokenMetadata().updateNormalToken(StorageService.getPartitioner().getMinimumToken(), FBUtilities.getBroadcastAddress());
+    }
+
+    private ExecuteMessage executeMessage(String query, ConsistencyLevel cl, int key)
+    {
+        return executeMessage(query, cl, 100, key);
+    }
+
+    private ExecuteMessage executeMessage(String query, ConsistencyLevel cl, int pageSize, int... keys)
+    {
+        ResultMessage.Prepared prepared = QueryProcessor.prepare(String.format(query, KEYSPACE + "." + currentTable()), ClientState.forInternalCalls(), false);
+        List<ByteBuffer> values = new ArrayList<>();
+        for (int key : keys)
+            values.add(Int32Type.instance.decompose(key));
+        QueryOptions options = QueryOptions.create(cl, values, false, pageSize, null, null);
+        return new ExecuteMessage(prepared.statementId, options);
+    }
+
+    private static ResultMessage.Rows rows(Message.Response response)
+    {
+        assertTrue(response.toString(), response instanceof ResultMessage.Rows);
+        return (ResultMessage.Rows) response;
+    }
+
+    @Test
+    public void testLocalRead() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        execute("INSERT INTO %s (k, v) VALUES (0, 0)");
+
+        ExecuteMessage message = executeMessage("SELECT v FROM %s WHERE k = ?", ConsistencyLevel.ONE, 0);
+        assertTrue(message.canExecuteInline(Config.InlineExecution.local_reads));
+        assertNotNull(message.options.getPreparedRead());
+
+        // the read is not cached
+        assertFalse(executeMessage("SELECT v FROM %s WHERE k = ?", ConsistencyLevel.ONE, 0).canExecuteInline(Config.InlineExecution.cached_reads));
+
+        assertTrue(StorageProxy.reserveLocalReader());
+        try
+        {
+            assertEquals(1, rows(message.execute(QueryState.forInternalCalls())).result.size());
+        }
+        finally
+        {
+            StorageProxy.releaseLocalReader();
+        }
+    }
+
+    @Test
+    public void testPagedLocalRead() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int, c int, PRIMARY KEY (k, c))");
+        execute("INSERT INTO %s (k, c) VALUES (0, 0)");
+        execute("INSERT INTO %s (k, c) VALUES (0, 1)");
+        execute("INSERT INTO %s (k, c) VALUES (1, 0)");
+
+        ExecuteMessage message = executeMessage("SELECT * FROM %s WHERE k IN (?, ?)", ConsistencyLevel.LOCAL_ONE, 2, 0, 1);
+        assertTrue(message.canExecuteInline(Config.InlineExecution.local_reads));
+
+        assertTrue(StorageProxy.reserveLocalReader());
+        try
+        {
+            // the first page of the three rows
+            assertEquals(2, rows(message.execute(QueryState.forInternalCalls())).result.size());
+        }
+        finally
+        {
+            StorageProxy.releaseLocalReader();
+        }
+    }
+
+    @Test
+    public void testNotLocalRead() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+
+        ExecuteMessage message = executeMessage("SELECT v FROM %s WHERE k = ?", ConsistencyLevel.QUORUM, 0);
+        assertFalse(message.canExecuteInline(Config.InlineExecution.local_reads));
+        // rejected before the read was built
+        assertNull(message.options.getPreparedRead());
+
+        message = executeMessage("SELECT count(*) FROM %s WHERE k = ?", ConsistencyLevel.ONE, 0);
+        assertFalse(message.canExecuteInline(Config.InlineExecution.local_reads));
+        assertNull(message.options.getPreparedRead());
+    }
+
+    @Test
+    public void testHandedOffRead() throws Throwable
+    {
+        createTable("CREATE TABLE %s (k int PRIMARY KEY, v int)");
+        execute("INSERT INTO %s (k, v) VALUES (0, 0)");
+
+        ExecuteMessage message = executeMessage("SELECT v FROM %s WHERE k = ?", ConsistencyLevel.ONE, 0);
+        assertTrue(message.canExecuteInline(Config.InlineExecution.local_reads));
+
+        // executed by another thread, with no local reader reserved
+        assertEquals(1, rows(message.execute(QueryState.forInternalCalls())).result.size());
+    }
+}
@@ -18,12 +18,24 @@
 */
 package org.apache.cassandra.db;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
 import org.apache.cassandra.config.KSMetaData;
+import org.apache.cassandra.db.columniterator.OnDiskAtomIterator;
 import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.filter.QueryFilter;
 import org.apache.cassandra.exceptions.ConfigurationException;
@@ -32,12 +44,15 @@ import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class CollationControllerTest
 {
     private static final String KEYSPACE1 = "CollationControllerTest";
     private static final String CF = "Standard1";
     private static final String CFGCGRACE = "StandardGCGS0";
+    private static final String CFPROBES = "StandardProbes";
 
     @BeforeClass
     public static void defineSchema() throws ConfigurationException
@@ -47,7 +62,8 @@ public class CollationControllerTest
                                     SimpleStrategy.class,
                                     KSMetaData.optsWithRF(1),
                                     SchemaLoader.standardCFMD(KEYSPACE1, CF),
-                                    SchemaLoader.standardCFMD(KEYSPACE1, CFGCGRACE).gcGraceSeconds(0));
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CFGCGRACE).gcGraceSeconds(0),
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CFPROBES));
     }
 
     @Test
@@ -135,4 +151,216 @@ public class CollationControllerTest
         controller = new CollationController(cfs, filter, gcBefore);
         assert ColumnFamilyStore.removeDeleted(controller.getTopLevelColumns(true), gcBefore) == null;
     }
+
+    @Test
+    public void testProbesMatchSequentialReads()
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CFPROBES);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+        DecoratedKey dk = Util.dk("probed");
+
+        // each sstable has a column of its own, and overwrites the common one
+        for (int i = 0; i < 4; i++)
+        {
+            Mutation rm = new Mutation(KEYSPACE1, dk.getKey());
+            rm.add(cfs.name, Util.cellname("c" + i), ByteBufferUtil.bytes(i), i);
+            rm.add(cfs.name, Util.cellname("common"), ByteBufferUtil.bytes(i), i);
+            rm.applyUnsafe();
+            cfs.forceBlockingFlush();
+        }
+
+        assertProbedReadMatches(cfs, Util.namesQueryFilter(cfs, dk, "c0", "c1", "c2", "c3", "common"), 4);
+        assertProbedReadMatches(cfs, QueryFilter.getIdentityFilter(dk, cfs.name, System.currentTimeMillis()), 4);
+    }
+
+    @Test
+    public void testProbesEliminatedByRowTombstoneAreClosed()
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CFPROBES);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+        DecoratedKey dk = Util.dk("deleted");
+
+        for (int i = 0; i < 2; i++)
+        {
+            Mutation rm = new Mutation(KEYSPACE1, dk.getKey());
+            rm.add(cfs.name, Util.cellname("c"), ByteBufferUtil.bytes(i), i);
+            rm.applyUnsafe();
+            cfs.forceBlockingFlush();
+        }
+        Mutation rm = new Mutation(KEYSPACE1, dk.getKey());
+        rm.delete(cfs.name, 10);
+        rm.add(cfs.name, Util.cellname("d"), ByteBufferUtil.bytes(20), 20);
+        rm.applyUnsafe();
+        cfs.forceBlockingFlush();
+
+        // the memtables don't tell the older sstables are shadowed, so they are probed but never merged
+        assertProbedReadMatches(cfs, Util.namesQueryFilter(cfs, dk, "c", "d"), 1);
+        assertProbedReadMatches(cfs, QueryFilter.getIdentityFilter(dk, cfs.name, System.currentTimeMillis()), 1);
+    }
+
+    @Test
+    public void testProbeFailureIsPropagated()
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CFPROBES);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+        DecoratedKey dk = Util.dk("failing");
+
+        for (int i = 0; i < 2; i++)
+        {
+            Mutation rm = new Mutation(KEYSPACE1, dk.getKey());
+            rm.add(cfs.name, Util.cellname("c" + i), ByteBufferUtil.bytes(i), i);
+            rm.applyUnsafe();
+            cfs.forceBlockingFlush();
+        }
+
+        ProbeExecutor executor = new ProbeExecutor(new RuntimeException("probe failure"));
+        ExecutorService previous = CollationController.setProbeExecutor(executor);
+        try
+        {
+            new CollationController(cfs, Util.namesQueryFilter(cfs, dk, "c0", "c1"), Integer.MIN_VALUE).getTopLevelColumns(true);
+            fail("The probe failure should have been propagated");
+        }
+        catch (RuntimeException e)
+        {
+            assertEquals("probe failure", e.getMessage());
+        }
+        finally
+        {
+            CollationController.setProbeExecutor(previous);
+        }
+    }
+
+    /**
+     * Checks that reading @param filter with probes gives the same result as reading it sequentially, and that the
+     * iterators of the probes the read didn't merge were closed too.
+     */
+    private static void assertProbedReadMatches(ColumnFamilyStore cfs, QueryFilter filter, int sstablesIterated)
+    {
+        ExecutorService previous = CollationController.setProbeExecutor(null);
+        ProbeExecutor executor = new ProbeExecutor(null);
+        try
+        {
+            CollationController sequential = new CollationController(cfs, filter, Integer.MIN_VALUE);
+            ColumnFamily expected = sequential.getTopLevelColumns(true);
+            assertEquals(sstablesIterated, sequential.getSstablesIterated());
+
+            CollationController.setProbeExecutor(executor);
+            CollationController probed = new CollationController(cfs, filter, Integer.MIN_VALUE);
+            assertEquals(expected, probed.getTopLevelColumns(true));
+            assertEquals(sstablesIterated, probed.getSstablesIterated());
+        }
+        finally
+        {
+            CollationController.setProbeExecutor(previous);
+        }
+
+        assertEquals(cfs.getSSTables().size(), executor.opened.size());
+        for (TrackedIterator iter : executor.opened)
+            assertTrue(iter.closed);
+    }
+
+    /**
+     * Runs the probes inline as they are submitted, keeping track of the iterators they open.
+     */
+    private static class ProbeExecutor extends AbstractExecutorService
+    {
+        private final RuntimeException failure;
+        private final List<TrackedIterator> opened = new ArrayList<>();
+
+        private ProbeExecutor(RuntimeException failure)
+        {
+            this.failure = failure;
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable)
+        {
+            return new FutureTask<>(new Callable<T>()
+            {
+                @SuppressWarnings("unchecked")
+                public T call() throws Exception
+                {
+                    if (failure != null)
+                        throw failure;
+                    TrackedIterator iter = new TrackedIterator((OnDiskAtomIterator) callable.call());
+                    opened.add(iter);
+                    return (T) iter;
+                }
+            });
+        }
+
+        public void execute(Runnable command)
+        {
+            command.run();
+        }
+
+        public void shutdown()
+        {
+        }
+
+        public List<Runnable> shutdownNow()
+        {
+            return Collections.emptyList();
+        }
+
+        public boolean isShutdown()
+        {
+            return false;
+        }
+
+        public boolean isTerminated()
+        {
+            return false;
+        }
+
+        public boolean awaitTermination(long timeout, TimeUnit unit)
+        {
+            return false;
+        }
+    }
+
+    private static class TrackedIterator implements OnDiskAtomIterator
+    {
+        private final OnDiskAtomIterator wrapped;
+        private boolean closed;
+
+        private TrackedIterator(OnDiskAtomIterator wrapped)
+        {
+            this.wrapped = wrapped;
+        }
+
+        public ColumnFamily getColumnFamily()
+        {
+            return wrapped.getColumnFamily();
+        }
+
+        public DecoratedKey getKey()
+        {
+            return wrapped.getKey();
+        }
+
+        public boolean hasNext()
+        {
+            return wrapped.hasNext();
+        }
+
+        public OnDiskAtom next()
+        {
+            return wrapped.next();
+        }
+
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        public void close() throws IOException
+        {
+            closed = true;
+            wrapped.close();
+        }
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.CellNameType;
+import org.apache.cassandra.db.composites.CompoundDenseCellNameType;
+import org.apache.cassandra.db.composites.Composite;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.io.sstable.format.Version;
+import org.apache.cassandra.io.sstable.format.big.BigFormat;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+
+import static org.apache.cassandra.utils.ByteBufferUtil.bytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompactAtomSerializerTest
+{
+    private static final CellNameType type = new CompoundDenseCellNameType(Arrays.<AbstractType<?>>asList(UTF8Type.instance, Int32Type.instance));
+    private static final Version version = BigFormat.latestVersion;
+    private static final long TIMESTAMP = 1445000000000000L;
+    private static final int BLOCK_SIZE = 20;
+
+    @Test
+    public void testSerializedSize() throws IOException
+    {
+        List<OnDiskAtom> atoms = atoms();
+        OnDiskAtom.Serializer legacy = type.onDiskAtomSerializer();
+        OnDiskAtom.Serializer serializer = legacy.forPartition(version);
+        assertTrue(serializer instanceof CompactAtomSerializer);
+
+        long size = 0;
+        long legacySize = 0;
+        DataOutputBuffer out = new DataOutputBuffer();
+        for (int i = 0; i < atoms.size(); i++)
+        {
+            if (i % BLOCK_SIZE == 0)
+                serializer.startBlock();
+            size += serializer.serializedSizeForSSTable(atoms.get(i));
+            legacySize += legacy.serializedSizeForSSTable(atoms.get(i));
+            serializer.serializeForSSTable(atoms.get(i), out);
+        }
+
+        assertEquals(size, out.getLength());
+        assertTrue(size < legacySize);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        List<OnDiskAtom> atoms = atoms();
+        byte[] serialized = serialize(atoms);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized));
+        Iterator<OnDiskAtom> iter = AbstractCell.onDiskIterator(in, ColumnSerializer.Flag.LOCAL, Integer.MIN_VALUE, version, type);
+        for (OnDiskAtom atom : atoms)
+        {
+            assertTrue(iter.hasNext());
+            assertEquals(atom, iter.next());
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testReadFromBlockStart() throws IOException
+    {
+        List<OnDiskAtom> atoms = atoms();
+        byte[] serialized = serialize(atoms);
+
+        // readers seek straight to a column index block, so it must not depend on the atoms before it
+        DataOutputBuffer firstBlock = new DataOutputBuffer();
+        OnDiskAtom.Serializer serializer = type.onDiskAtomSerializer().forPartition(version);
+        for (int i = 0; i < BLOCK_SIZE; i++)
+            serializer.serializeForSSTable(atoms.get(i), firstBlock);
+
+        int offset = firstBlock.getLength();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized, offset, serialized.length - offset));
+        AtomDeserializer deserializer = new AtomDeserializer(type, in, ColumnSerializer.Flag.LOCAL, Integer.MIN_VALUE, version);
+        for (int i = BLOCK_SIZE; i < atoms.size(); i++)
+        {
+            assertTrue(deserializer.hasNext());
+            assertEquals(0, deserializer.compareNextTo(atoms.get(i).name()));
+            // skipped atoms still have to advance the delta state
+            if (i % 3 == 0)
+                deserializer.skipNext();
+            else
+                assertEquals(atoms.get(i), deserializer.readNext());
+        }
+        assertFalse(deserializer.hasNext());
+    }
+
+    private static byte[] serialize(List<OnDiskAtom> atoms) throws IOException
+    {
+        OnDiskAtom.Serializer serializer = type.onDiskAtomSerializer().forPartition(version);
+        DataOutputBuffer out = new DataOutputBuffer();
+        for (int i = 0; i < atoms.size(); i++)
+        {
+            if (i % BLOCK_SIZE == 0)
+                serializer.startBlock();
+            serializer.serializeForSSTable(atoms.get(i), out);
+        }
+        out.writeShort(0);
+        return Arrays.copyOf(out.getData(), out.getLength());
+    }
+
+    private static List<OnDiskAtom> atoms()
+    {
+        List<OnDiskAtom> atoms = new ArrayList<>();
+        for (int i = 0; i < 3 * BLOCK_SIZE; i++)
+        {
+            String prefix = "clustering-" + (i / 10);
+            if (i % 10 == 0)
+            {
+                Composite start = type.make(prefix);
+                atoms.add(new RangeTombstone(start, start.end(), TIMESTAMP - i, 1600000000));
+                continue;
+            }
+
+            CellName name = type.makeCellName(prefix, i);
+            if (i % 7 == 3)
+                atoms.add(new BufferExpiringCell(name, bytes("value" + i), TIMESTAMP + i * 13, 3600, 1700000000 + i));
+            else if (i % 11 == 5)
+                atoms.add(new BufferDeletedCell(name, 1700000000 + i, TIMESTAMP - i));
+            else
+                atoms.add(new BufferCell(name, bytes("value" + i), TIMESTAMP + i));
+        }
+        return atoms;
+    }
+}
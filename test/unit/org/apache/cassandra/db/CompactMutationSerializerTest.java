@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.KSMetaData;
+import org.apache.cassandra.db.composites.CellNameType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.net.MessagingService;
+
+import static org.apache.cassandra.utils.ByteBufferUtil.bytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompactMutationSerializerTest
+{
+    private static final String KEYSPACE = "CompactMutationSerializerTest";
+    private static final long TIMESTAMP = 1445000000000000L;
+    private static final int VERSION = MessagingService.current_version;
+
+    private static CFMetaData table1;
+    private static CFMetaData table2;
+
+    @BeforeClass
+    public static void defineSchema() throws ConfigurationException
+    {
+        table1 = CFMetaData.denseCFMetaData(KEYSPACE, "Standard1", UTF8Type.instance);
+        table2 = CFMetaData.denseCFMetaData(KEYSPACE, "Standard2", UTF8Type.instance);
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE,
+                                    SimpleStrategy.class,
+                                    KSMetaData.optsWithRF(1),
+                                    table1,
+                                    table2);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        List<Mutation> mutations = mutations();
+        CompactMutationSerializer serializer = CompactMutationSerializer.forSending();
+        DataOutputBuffer out = new DataOutputBuffer();
+        long legacySize = 0;
+        for (Mutation mutation : mutations)
+        {
+            serializer.serialize(mutation, out, VERSION);
+            legacySize += Mutation.serializer.serializedSize(mutation, VERSION);
+        }
+        // names, table ids and timestamps repeat from one mutation to the next
+        assertTrue(out.getLength() < legacySize / 2);
+
+        CompactMutationSerializer deserializer = CompactMutationSerializer.forReceiving();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength()));
+        for (Mutation mutation : mutations)
+        {
+            Mutation deserialized = deserializer.deserialize(in, VERSION);
+            assertEquals(mutation.key(), deserialized.key());
+            assertEquals(mutation.getColumnFamilyIds(), deserialized.getColumnFamilyIds());
+            for (ColumnFamily cf : mutation.getColumnFamilies())
+                assertEquals(cf, deserialized.getColumnFamily(cf.id()));
+        }
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testDictionaryWrapAround() throws IOException
+    {
+        // more names than the dictionary holds, then the earliest ones again, which have been replaced since
+        List<Mutation> mutations = new ArrayList<>();
+        for (int round = 0; round < 2; round++)
+        {
+            for (int i = 0; i < CompactMutationSerializer.NAME_DICTIONARY_SIZE + 100; i += 10)
+            {
+                Mutation mutation = new Mutation(KEYSPACE, bytes("key" + i));
+                ColumnFamily cf = mutation.addOrGet(table1);
+                for (int j = i; j < i + 10; j++)
+                    cf.addColumn(new BufferCell(cf.getComparator().makeCellName("column" + j), bytes(j), TIMESTAMP));
+                mutations.add(mutation);
+            }
+        }
+
+        CompactMutationSerializer serializer = CompactMutationSerializer.forSending();
+        DataOutputBuffer out = new DataOutputBuffer();
+        for (Mutation mutation : mutations)
+            serializer.serialize(mutation, out, VERSION);
+
+        CompactMutationSerializer deserializer = CompactMutationSerializer.forReceiving();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength()));
+        for (Mutation mutation : mutations)
+            assertEquals(mutation.getColumnFamily(table1.cfId), deserializer.deserialize(in, VERSION).getColumnFamily(table1.cfId));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void testDictionaryMismatch() throws IOException
+    {
+        List<Mutation> mutations = mutations();
+        CompactMutationSerializer serializer = CompactMutationSerializer.forSending();
+        serializer.serialize(mutations.get(0), new DataOutputBuffer(), VERSION);
+        DataOutputBuffer out = new DataOutputBuffer();
+        serializer.serialize(mutations.get(1), out, VERSION);
+
+        // a receiver that hasn't seen the first mutation doesn't know the table and names it refers to
+        CompactMutationSerializer deserializer = CompactMutationSerializer.forReceiving();
+        try
+        {
+            deserializer.deserialize(new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength())), VERSION);
+            fail("the dictionary entries of another connection should not be found");
+        }
+        catch (IOException e)
+        {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("invalid dictionary index"));
+        }
+    }
+
+    private static List<Mutation> mutations()
+    {
+        List<Mutation> mutations = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+        {
+            Mutation mutation = new Mutation(KEYSPACE, bytes("key" + i));
+            ColumnFamily cf = mutation.addOrGet(table1);
+            CellNameType type = cf.getComparator();
+            cf.addColumn(new BufferCell(type.makeCellName("name"), bytes("value" + i), TIMESTAMP + i));
+            cf.addColumn(new BufferCell(type.makeCellName("email"), bytes("value" + i + "@example.com"), TIMESTAMP + i));
+            if (i % 3 == 0)
+                cf.addColumn(new BufferExpiringCell(type.makeCellName("session"), bytes("token" + i), TIMESTAMP + i, 3600, 1700000000 + i));
+            if (i % 5 == 0)
+                cf.addColumn(new BufferDeletedCell(type.makeCellName("phone"), 1700000000 + i, TIMESTAMP + i));
+            // a name that is never sent again
+            cf.addColumn(new BufferCell(type.makeCellName("event-" + i), bytes(i), TIMESTAMP + i));
+
+            if (i % 4 == 0)
+            {
+                ColumnFamily other = mutation.addOrGet(table2);
+                other.delete(new DeletionInfo(TIMESTAMP + i - 1, 1700000000 + i));
+                other.addColumn(new BufferCell(other.getComparator().makeCellName("count"), bytes(i), TIMESTAMP + i));
+            }
+            mutations.add(mutation);
+        }
+        return mutations;
+    }
+}
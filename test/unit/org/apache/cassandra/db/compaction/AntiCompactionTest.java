@@ -24,9 +24,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -256,6 +258,69 @@ public class AntiCompactionTest
         assertEquals(nonRepairedKeys, 60);
     }
 
+    @Test
+    public void antiCompactTenWithFailingGroup() throws Exception
+    {
+        Keyspace keyspace = Keyspace.open(KEYSPACE1);
+        ColumnFamilyStore store = keyspace.getColumnFamilyStore(CF);
+        store.disableAutoCompaction();
+
+        for (int table = 0; table < 10; table++)
+        {
+            generateSStable(store,Integer.toString(table));
+        }
+        Collection<SSTableReader> sstables = store.getUnrepairedSSTables();
+        assertEquals(10, sstables.size());
+
+        // the first row of this sstable claims a key longer than the whole file, so its group fails to anticompact
+        SSTableReader corrupt = Iterables.get(sstables, 3);
+        try (RandomAccessFile file = new RandomAccessFile(corrupt.getFilename(), "rw"))
+        {
+            file.writeShort(0xFFFF);
+        }
+
+        Range<Token> range = new Range<Token>(new BytesToken("0".getBytes()), new BytesToken("4".getBytes()));
+        List<Range<Token>> ranges = Arrays.asList(range);
+
+        try (LifecycleTransaction txn = store.getTracker().tryModify(sstables, OperationType.ANTICOMPACTION);
+             Refs<SSTableReader> refs = Refs.ref(sstables))
+        {
+            CompactionManager.instance.performAnticompaction(store, ranges, refs, txn, 1000);
+            fail("Anticompaction should have failed");
+        }
+        catch (CorruptSSTableException e)
+        {
+            assertEquals(corrupt.getFilename(), e.path.getPath());
+        }
+
+        // every group either replaced its sstables or was aborted and kept them
+        assertTrue(store.getSSTables().contains(corrupt));
+        assertFalse(corrupt.isRepaired());
+        assertEquals(0, store.getTracker().getCompacting().size());
+        int keys = 0;
+        for (SSTableReader sstable : store.getSSTables())
+        {
+            assertFalse(sstable.isMarkedCompacted());
+            assertEquals(1, sstable.selfRef().globalCount());
+            if (sstable == corrupt)
+            {
+                keys += 10;
+                continue;
+            }
+            try (ISSTableScanner scanner = sstable.getScanner())
+            {
+                while (scanner.hasNext())
+                {
+                    SSTableIdentityIterator row = (SSTableIdentityIterator) scanner.next();
+                    if (sstable.isRepaired())
+                        assertTrue(range.contains(row.getKey().getToken()));
+                    keys++;
+                }
+            }
+        }
+        assertEquals(100, keys);
+    }
+
     @Test
     public void shouldMutateRepairedAt() throws InterruptedException, IOException
     {
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.KSMetaData;
+import org.apache.cassandra.db.ColumnFamilyStore;
+import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.db.Mutation;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.utils.ByteBufferUtil;
+
+import static org.junit.Assert.*;
+
+public class BackgroundCompactionQueueTest
+{
+    private static final String KEYSPACE1 = "BackgroundCompactionQueueTest";
+    private static final String CF_STANDARD1 = "Standard1";
+    private static final String CF_STANDARD2 = "Standard2";
+    private static final String CF_LEVELED = "Leveled";
+
+    @BeforeClass
+    public static void defineSchema() throws ConfigurationException
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE1,
+                                    SimpleStrategy.class,
+                                    KSMetaData.optsWithRF(1),
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARD1),
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARD2),
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_LEVELED)
+                                                .compactionStrategyClass(LeveledCompactionStrategy.class)
+                                                .compactionStrategyOptions(Collections.singletonMap("sstable_size_in_mb", "1")));
+    }
+
+    private static ColumnFamilyStore cfs(String name)
+    {
+        return Keyspace.open(KEYSPACE1).getColumnFamilyStore(name);
+    }
+
+    @Test
+    public void testHighestScoreFirst()
+    {
+        BackgroundCompactionQueue queue = new BackgroundCompactionQueue();
+        ColumnFamilyStore cfs1 = cfs(CF_STANDARD1);
+        ColumnFamilyStore cfs2 = cfs(CF_STANDARD2);
+
+        queue.add(cfs1, 1);
+        queue.add(cfs2, 3);
+
+        assertSame(cfs2, queue.poll());
+        assertSame(cfs1, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testLatestSubmissionScores()
+    {
+        BackgroundCompactionQueue queue = new BackgroundCompactionQueue();
+        ColumnFamilyStore cfs1 = cfs(CF_STANDARD1);
+        ColumnFamilyStore cfs2 = cfs(CF_STANDARD2);
+
+        queue.add(cfs1, 5);
+        queue.add(cfs2, 3);
+        // a flush or compaction of cfs1 lowered its backlog
+        queue.add(cfs1, 1);
+
+        assertSame(cfs2, queue.poll());
+        assertSame(cfs1, queue.poll());
+        assertSame(cfs1, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testEqualPriorityInSubmissionOrder()
+    {
+        BackgroundCompactionQueue queue = new BackgroundCompactionQueue();
+        ColumnFamilyStore cfs1 = cfs(CF_STANDARD1);
+        ColumnFamilyStore cfs2 = cfs(CF_STANDARD2);
+
+        queue.add(cfs2, 2);
+        queue.add(cfs1, 2);
+
+        assertSame(cfs2, queue.poll());
+        queue.finished(cfs2);
+        assertSame(cfs1, queue.poll());
+    }
+
+    @Test
+    public void testRunningCompactionsLowerPriority()
+    {
+        BackgroundCompactionQueue queue = new BackgroundCompactionQueue();
+        ColumnFamilyStore cfs1 = cfs(CF_STANDARD1);
+        ColumnFamilyStore cfs2 = cfs(CF_STANDARD2);
+
+        queue.add(cfs1, 3);
+        queue.add(cfs1, 3);
+        queue.add(cfs2, 2);
+
+        assertSame(cfs1, queue.poll());
+        // cfs1 is now at 3 / 2 while it compacts
+        assertEquals(1.5, queue.snapshot().get(KEYSPACE1 + '.' + CF_STANDARD1), 0);
+        assertSame(cfs2, queue.poll());
+
+        queue.finished(cfs1);
+        queue.finished(cfs2);
+        assertSame(cfs1, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testRemove()
+    {
+        BackgroundCompactionQueue queue = new BackgroundCompactionQueue();
+        ColumnFamilyStore cfs1 = cfs(CF_STANDARD1);
+        ColumnFamilyStore cfs2 = cfs(CF_STANDARD2);
+
+        queue.add(cfs1, 3);
+        queue.add(cfs1, 3);
+        queue.add(cfs2, 1);
+
+        // withdraws a single check of cfs1
+        queue.remove(cfs1);
+        assertSame(cfs1, queue.poll());
+        queue.finished(cfs1);
+
+        queue.remove(cfs2);
+        // nothing to withdraw
+        queue.remove(cfs2);
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testSnapshot()
+    {
+        BackgroundCompactionQueue queue = new BackgroundCompactionQueue();
+        queue.add(cfs(CF_STANDARD1), 1);
+        queue.add(cfs(CF_STANDARD2), 4);
+
+        Map<String, Double> snapshot = queue.snapshot();
+        assertEquals(2, snapshot.size());
+        Map.Entry<String, Double> first = snapshot.entrySet().iterator().next();
+        assertEquals(KEYSPACE1 + '.' + CF_STANDARD2, first.getKey());
+        assertEquals(4, first.getValue(), 0);
+    }
+
+    @Test
+    public void testScoreGrowsWithBacklog()
+    {
+        ColumnFamilyStore cfs = cfs(CF_LEVELED);
+        cfs.disableAutoCompaction();
+        try
+        {
+            double empty = BackgroundCompactionQueue.score(cfs);
+            assertEquals(1, empty, 0);
+
+            for (int i = 0; i < 8; i++)
+            {
+                Mutation rm = new Mutation(KEYSPACE1, ByteBufferUtil.bytes(String.valueOf(i)));
+                rm.add(CF_LEVELED, Util.cellname("0"), ByteBufferUtil.EMPTY_BYTE_BUFFER, i);
+                rm.applyUnsafe();
+                cfs.forceBlockingFlush();
+            }
+
+            // the flushed sstables all wait in L0
+            assertTrue(BackgroundCompactionQueue.score(cfs) > empty);
+        }
+        finally
+        {
+            cfs.enableAutoCompaction();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.db.compaction;
+
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.Util;
+import org.apache.cassandra.config.KSMetaData;
+import org.apache.cassandra.db.*;
+import org.apache.cassandra.exceptions.ConfigurationException;
+import org.apache.cassandra.io.sstable.ISSTableScanner;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.locator.SimpleStrategy;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.FBUtilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class RawCompactedRowTest
+{
+    private static final String KEYSPACE1 = "RawCompactedRowTest";
+    private static final String CF_STANDARD1 = "Standard1";
+
+    @BeforeClass
+    public static void defineSchema() throws ConfigurationException
+    {
+        SchemaLoader.prepareServer();
+        SchemaLoader.createKeyspace(KEYSPACE1,
+                                    SimpleStrategy.class,
+                                    KSMetaData.optsWithRF(1),
+                                    SchemaLoader.standardCFMD(KEYSPACE1, CF_STANDARD1));
+    }
+
+    @Test
+    public void testDisjointRowsSurviveCopy() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF_STANDARD1);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+
+        // two sstables without any overlapping partition, so every row is a candidate for a raw copy
+        for (int i = 0; i < 2; i++)
+        {
+            for (int j = 0; j < 50; j++)
+                insert(cfs, Integer.toString(i * 50 + j), 100);
+            cfs.forceBlockingFlush();
+        }
+        assertEquals(2, cfs.getSSTables().size());
+
+        CompactionManager.instance.performMaximal(cfs, false);
+        assertEquals(1, cfs.getSSTables().size());
+
+        for (int i = 0; i < 100; i++)
+        {
+            DecoratedKey key = Util.dk(Integer.toString(i));
+            ColumnFamily cf = Util.getColumnFamily(Keyspace.open(KEYSPACE1), key, CF_STANDARD1);
+            assertNotNull(cf);
+            assertEquals(100, cf.getColumnCount());
+        }
+        assertEquals(100, Util.getRangeSlice(cfs).size());
+    }
+
+    @Test
+    public void testPurgeableRowIsNotCopied() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF_STANDARD1);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+
+        DecoratedKey key = Util.dk("deleted");
+        Mutation rm = new Mutation(KEYSPACE1, key.getKey());
+        rm.add(CF_STANDARD1, Util.cellname("c"), ByteBufferUtil.EMPTY_BYTE_BUFFER, 0);
+        rm.applyUnsafe();
+        cfs.forceBlockingFlush();
+
+        // keep a live cell next to the partition tombstone so the sstable isn't fully expired
+        rm = new Mutation(KEYSPACE1, key.getKey());
+        rm.delete(CF_STANDARD1, 1);
+        rm.add(CF_STANDARD1, Util.cellname("d"), ByteBufferUtil.EMPTY_BYTE_BUFFER, 2);
+        rm.applyUnsafe();
+        cfs.forceBlockingFlush();
+
+        // compact only the sstable holding the tombstone, with a gcBefore that makes it droppable
+        SSTableReader deletion = null;
+        for (SSTableReader sstable : cfs.getSSTables())
+        {
+            if (sstable.getMaxTimestamp() == 2)
+                deletion = sstable;
+        }
+        assertNotNull(deletion);
+
+        Set<SSTableReader> compacting = Collections.singleton(deletion);
+        try (CompactionController controller = new CompactionController(cfs, compacting, Integer.MAX_VALUE);
+             ISSTableScanner scanner = deletion.getScanner())
+        {
+            // the data in the other sstable is older, so the tombstone can't be dropped and the row is copied
+            assertNotNull(RawCompactedRow.tryCreate(controller, scanner.next(), deletion.descriptor.version));
+        }
+
+        try (CompactionController controller = new CompactionController(cfs, Collections.<SSTableReader>emptySet(), Integer.MAX_VALUE);
+             ISSTableScanner scanner = deletion.getScanner())
+        {
+            // with nothing else to shadow, the tombstone is purgeable and the row has to be merged
+            assertNull(RawCompactedRow.tryCreate(controller, scanner.next(), deletion.descriptor.version));
+        }
+    }
+
+    @Test
+    public void testStatsArePerRow() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF_STANDARD1);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+
+        insert(cfs, "a", 10, 1);
+        insert(cfs, "b", 20, 100);
+        cfs.forceBlockingFlush();
+        SSTableReader sstable = cfs.getSSTables().iterator().next();
+
+        try (CompactionController controller = new CompactionController(cfs, Collections.singleton(sstable), Integer.MIN_VALUE);
+             ISSTableScanner scanner = sstable.getScanner())
+        {
+            RawCompactedRow row = RawCompactedRow.tryCreate(controller, scanner.next(), sstable.descriptor.version);
+            assertNotNull(row);
+            assertEquals(Util.dk("a"), row.key);
+            assertEquals(10, row.columnStats().columnCount);
+            assertEquals(1, row.columnStats().minTimestamp);
+            assertEquals(1, row.columnStats().maxTimestamp);
+            row.close();
+
+            row = RawCompactedRow.tryCreate(controller, scanner.next(), sstable.descriptor.version);
+            assertNotNull(row);
+            assertEquals(20, row.columnStats().columnCount);
+            assertEquals(100, row.columnStats().minTimestamp);
+            row.close();
+        }
+    }
+
+    @Test
+    public void testDigestMatchesLazilyCompactedRow() throws Exception
+    {
+        ColumnFamilyStore cfs = Keyspace.open(KEYSPACE1).getColumnFamilyStore(CF_STANDARD1);
+        cfs.clearUnsafe();
+        cfs.disableAutoCompaction();
+
+        // older data for both rows elsewhere keeps the partition tombstone from being purgeable
+        insert(cfs, "a", 1, 0);
+        insert(cfs, "b", 1, 0);
+        cfs.forceBlockingFlush();
+        SSTableReader older = cfs.getSSTables().iterator().next();
+
+        insert(cfs, "a", 10, 1);
+        Mutation rm = new Mutation(KEYSPACE1, ByteBufferUtil.bytes("b"));
+        rm.delete(CF_STANDARD1, 5);
+        rm.applyUnsafe();
+        insert(cfs, "b", 3, 10);
+        cfs.forceBlockingFlush();
+        SSTableReader sstable = null;
+        for (SSTableReader candidate : cfs.getSSTables())
+        {
+            if (candidate != older)
+                sstable = candidate;
+        }
+
+        try (CompactionController controller = new CompactionController(cfs, Collections.singleton(sstable), Integer.MIN_VALUE);
+             ISSTableScanner rawScanner = sstable.getScanner();
+             ISSTableScanner lazyScanner = sstable.getScanner())
+        {
+            for (int i = 0; i < 2; i++)
+            {
+                RawCompactedRow raw = RawCompactedRow.tryCreate(controller, rawScanner.next(), sstable.descriptor.version);
+                assertNotNull(raw);
+                MessageDigest rawDigest = FBUtilities.newMessageDigest("MD5");
+                raw.update(rawDigest);
+
+                MessageDigest lazyDigest = FBUtilities.newMessageDigest("MD5");
+                new LazilyCompactedRow(controller, Collections.singletonList(lazyScanner.next())).update(lazyDigest);
+
+                assertArrayEquals(lazyDigest.digest(), rawDigest.digest());
+            }
+        }
+    }
+
+    private static void insert(ColumnFamilyStore cfs, String key, int cells)
+    {
+        insert(cfs, key, cells, 0);
+    }
+
+    private static void insert(ColumnFamilyStore cfs, String key, int cells, long timestamp)
+    {
+        Mutation rm = new Mutation(KEYSPACE1, ByteBufferUtil.bytes(key));
+        for (int i = 0; i < cells; i++)
+            rm.add(cfs.name, Util.cellname(Integer.toString(i)), ByteBufferUtil.bytes(i), timestamp);
+        rm.applyUnsafe();
+    }
+}
@@ -26,6 +26,8 @@ import java.util.*;
 
 import static org.apache.commons.io.FileUtils.readFileToByteArray;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.After;
 import org.junit.Test;
@@ -35,6 +37,7 @@ import org.apache.cassandra.db.composites.CellNames;
 import org.apache.cassandra.db.composites.SimpleDenseCellNameType;
 import org.apache.cassandra.db.marshal.BytesType;
 import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.cassandra.io.sstable.metadata.MetadataCollector;
 import org.apache.cassandra.io.util.ChannelProxy;
 import org.apache.cassandra.io.util.FileMark;
@@ -78,6 +81,93 @@ public class CompressedSequentialWriterTest extends SequentialWriterTest
         runTests("Snappy");
     }
 
+    @Test
+    public void testDeflateDictionaryWriter() throws IOException
+    {
+        compressor = DeflateCompressor.create(Collections.singletonMap(DeflateCompressor.DICTIONARY_LENGTH_KB, "4"));
+        runTests("DeflateDictionary");
+
+        // random data has nothing worth a dictionary, so also write data that has
+        File f = File.createTempFile("DeflateDictionary_text", "1");
+        String filename = f.getAbsolutePath();
+        StringBuilder builder = new StringBuilder();
+        Random r = new Random(0);
+        while (builder.length() < CompressionParameters.DEFAULT_CHUNK_LENGTH * 4)
+            builder.append(String.format("{\"id\":%d,\"name\":\"user%d\",\"active\":%b}", r.nextInt(), r.nextInt(1000), r.nextBoolean()));
+        byte[] data = builder.toString().getBytes("UTF-8");
+
+        try (ChannelProxy channel = new ChannelProxy(f))
+        {
+            MetadataCollector sstableMetadataCollector = new MetadataCollector(new SimpleDenseCellNameType(BytesType.instance)).replayPosition(null);
+            try (CompressedSequentialWriter writer = new CompressedSequentialWriter(f, filename + ".metadata", new CompressionParameters(compressor), sstableMetadataCollector))
+            {
+                writer.write(data);
+                writer.finish();
+            }
+
+            CompressionMetadata metadata = new CompressionMetadata(filename + ".metadata", f.length());
+            assertTrue(metadata.hasDictionary());
+            try (RandomAccessReader reader = CompressedRandomAccessReader.open(channel, metadata))
+            {
+                byte[] result = new byte[(int) reader.length()];
+                reader.readFully(result);
+                assertTrue(Arrays.equals(data, result));
+            }
+        }
+        finally
+        {
+            f.delete();
+            new File(filename + ".metadata").delete();
+        }
+    }
+
+    @Test
+    public void testUncompressedChunks() throws IOException, ConfigurationException
+    {
+        File f = File.createTempFile("UncompressedChunks", "1");
+        String filename = f.getAbsolutePath();
+        int chunkLength = CompressionParameters.DEFAULT_CHUNK_LENGTH;
+        // an incompressible chunk, a compressible one, then an incompressible partial chunk
+        byte[] data = new byte[chunkLength * 2 + 100];
+        Random r = new Random(0);
+        r.nextBytes(data);
+        Arrays.fill(data, chunkLength, chunkLength * 2, (byte) 42);
+
+        try (ChannelProxy channel = new ChannelProxy(f))
+        {
+            MetadataCollector sstableMetadataCollector = new MetadataCollector(new SimpleDenseCellNameType(BytesType.instance)).replayPosition(null);
+            CompressionParameters parameters = new CompressionParameters(LZ4Compressor.instance, chunkLength, Collections.singletonMap(CompressionParameters.MIN_COMPRESS_RATIO, "1.1"));
+            try (CompressedSequentialWriter writer = new CompressedSequentialWriter(f, filename + ".metadata", parameters, sstableMetadataCollector))
+            {
+                writer.write(data, 0, chunkLength - 10);
+                FileMark mark = writer.mark();
+                // rewinding into a chunk stored as is has to read it back as is
+                writer.write(new byte[chunkLength]);
+                writer.resetAndTruncate(mark);
+                writer.write(data, chunkLength - 10, data.length - (chunkLength - 10));
+                writer.finish();
+            }
+
+            CompressionMetadata metadata = new CompressionMetadata(filename + ".metadata", f.length());
+            assertTrue(metadata.hasUncompressedChunks());
+            assertFalse(metadata.chunkFor(0).compressed);
+            assertTrue(metadata.chunkFor(chunkLength).compressed);
+            assertFalse(metadata.chunkFor(chunkLength * 2).compressed);
+            assertEquals(chunkLength, metadata.chunkFor(0).length);
+            try (RandomAccessReader reader = CompressedRandomAccessReader.open(channel, metadata))
+            {
+                byte[] result = new byte[(int) reader.length()];
+                reader.readFully(result);
+                assertTrue(Arrays.equals(data, result));
+            }
+        }
+        finally
+        {
+            f.delete();
+            new File(filename + ".metadata").delete();
+        }
+    }
+
     private void testWrite(File f, int bytesToTest) throws IOException
     {
         final String filename = f.getAbsolutePath();
@@ -205,6 +295,10 @@ public class CompressedSequentialWriterTest extends SequentialWriterTest
             Assert.assertEquals(2, offsets.readInt());
             Assert.assertEquals(0, offsets.readLong());
             int offset = (int) offsets.readLong();
+            // no compression dictionary
+            Assert.assertEquals(0, offsets.readInt());
+            // no uncompressed chunk
+            Assert.assertEquals(0, offsets.readInt());
             byte[] compressed = readFileToByteArray(file);
             byte[] uncompressed = new byte[fullContents.length];
             LZ4Compressor.instance.uncompress(compressed, 0, offset - 4, uncompressed, 0);
@@ -42,6 +42,7 @@ public class CompressorTest
     ICompressor[] compressors = new ICompressor[] {
             LZ4Compressor.create(Collections.<String, String>emptyMap()),
             DeflateCompressor.create(Collections.<String, String>emptyMap()),
+            DeflateCompressor.instance.withDictionary(ByteBufferUtil.bytes("Cassandra, Cassandra, Cassandra").array()),
             SnappyCompressor.create(Collections.<String, String>emptyMap())
     };
 
@@ -20,8 +20,10 @@ package org.apache.cassandra.io.sstable;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 
 import com.google.common.collect.ImmutableMap;
@@ -38,14 +40,18 @@ import org.apache.cassandra.config.Schema;
 import org.apache.cassandra.cql3.QueryProcessor;
 import org.apache.cassandra.cql3.UntypedResultSet;
 import org.apache.cassandra.db.Keyspace;
+import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.sstable.format.SSTableReader;
 import org.apache.cassandra.service.StorageService;
+import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.FBUtilities;
 import org.apache.cassandra.utils.OutputHandler;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class CQLSSTableWriterTest
 {
@@ -304,4 +310,125 @@ public class CQLSSTableWriterTest
         UntypedResultSet rs = QueryProcessor.executeInternal("SELECT * FROM cql_keyspace2.table2;");
         assertEquals(threads.length * NUMBER_WRITES_IN_RUNNABLE, rs.size());
     }
+
+    @Test
+    public void testConcurrentModeWithTokenRanges() throws Exception
+    {
+        final String KS = "cql_keyspace3";
+        final String TABLE = "table3";
+
+        File tempdir = Files.createTempDir();
+        File dataDir = new File(tempdir.getAbsolutePath() + File.separator + KS + File.separator + TABLE);
+        assert dataDir.mkdirs();
+
+        String schema = "CREATE TABLE cql_keyspace3.table3 ("
+                      + "  k int,"
+                      + "  v int,"
+                      + "  PRIMARY KEY (k, v)"
+                      + ")";
+        String insert = "INSERT INTO cql_keyspace3.table3 (k, v) VALUES (?, ?)";
+
+        // split the keys in two, whatever the partitioner, every thread writing some keys of both ranges
+        IPartitioner partitioner = StorageService.getPartitioner();
+        Token min = partitioner.getMinimumToken();
+        Token split = partitioner.getToken(ByteBufferUtil.bytes(50));
+        List<Range<Token>> ranges = Arrays.asList(new Range<>(min, split), new Range<>(split, min));
+
+        final CQLSSTableWriter writer = CQLSSTableWriter.builder()
+                                                        .inDirectory(dataDir)
+                                                        .forTable(schema)
+                                                        .withPartitioner(partitioner)
+                                                        .using(insert)
+                                                        .concurrent()
+                                                        .withTokenRanges(ranges)
+                                                        .build();
+
+        final int threadCount = 4;
+        final List<Exception> exceptions = new ArrayList<>();
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            final int id = i;
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        for (int k = id; k < 100; k += threadCount)
+                            for (int v = 0; v < NUMBER_WRITES_IN_RUNNABLE; v++)
+                                writer.addRow(k, v);
+                    }
+                    catch (Exception e)
+                    {
+                        synchronized (exceptions)
+                        {
+                            exceptions.add(e);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        writer.close();
+        if (!exceptions.isEmpty())
+            throw exceptions.get(0);
+
+        // one sstable per thread and range
+        String[] dataFiles = dataDir.list(new FilenameFilter()
+        {
+            public boolean accept(File dir, String name)
+            {
+                return name.endsWith("-Data.db");
+            }
+        });
+        assertEquals(threadCount * ranges.size(), dataFiles.length);
+
+        // each of them holding the keys of a single range
+        int[] sstablesPerRange = new int[ranges.size()];
+        CFMetaData cfm = Schema.instance.getCFMetaData(KS, TABLE);
+        for (String dataFile : dataFiles)
+        {
+            Descriptor desc = Descriptor.fromFilename(new File(dataDir, dataFile).getAbsolutePath());
+            SSTableReader sstable = SSTableReader.openForBatch(desc, SSTable.componentsFor(desc), cfm, partitioner);
+            try
+            {
+                int range = ranges.get(0).contains(sstable.first.getToken()) ? 0 : 1;
+                assertTrue(ranges.get(range).contains(sstable.first.getToken()));
+                assertTrue(ranges.get(range).contains(sstable.last.getToken()));
+                sstablesPerRange[range]++;
+            }
+            finally
+            {
+                sstable.selfRef().release();
+            }
+        }
+        assertEquals(threadCount, sstablesPerRange[0]);
+        assertEquals(threadCount, sstablesPerRange[1]);
+
+        SSTableLoader loader = new SSTableLoader(dataDir, new SSTableLoader.Client()
+        {
+            private String keyspace;
+
+            public void init(String keyspace)
+            {
+                this.keyspace = keyspace;
+                for (Range<Token> range : StorageService.instance.getLocalRanges(KS))
+                    addRangeForEndpoint(range, FBUtilities.getBroadcastAddress());
+                setPartitioner(StorageService.getPartitioner());
+            }
+
+            public CFMetaData getTableMetadata(String tableName)
+            {
+                return Schema.instance.getCFMetaData(keyspace, tableName);
+            }
+        }, new OutputHandler.SystemOutput(false, false));
+
+        loader.stream().get();
+
+        UntypedResultSet rs = QueryProcessor.executeInternal("SELECT * FROM cql_keyspace3.table3;");
+        assertEquals(100 * NUMBER_WRITES_IN_RUNNABLE, rs.size());
+    }
 }
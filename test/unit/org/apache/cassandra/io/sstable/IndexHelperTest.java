@@ -18,7 +18,10 @@
 */
 package org.apache.cassandra.io.sstable;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -26,8 +29,13 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 import org.apache.cassandra.Util;
+import org.apache.cassandra.db.TypeSizes;
 import org.apache.cassandra.db.composites.*;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.Int32Type;
 import org.apache.cassandra.db.marshal.IntegerType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.io.util.DataOutputBuffer;
 import static org.apache.cassandra.io.sstable.IndexHelper.IndexInfo;
 
 public class IndexHelperTest
@@ -67,4 +75,68 @@ public class IndexHelperTest
         assertEquals(2, IndexHelper.indexFor(cn(100L), indexes, comp, true, 2));
         assertEquals(-1, IndexHelper.indexFor(cn(100L), indexes, comp, true, 4));
     }
+
+    @Test
+    public void testPrefixCompressedIndex() throws Exception
+    {
+        CellNameType comp = new CompoundDenseCellNameType(Arrays.<AbstractType<?>>asList(UTF8Type.instance, Int32Type.instance));
+
+        // more than a few restart intervals, the last one being partial
+        List<IndexInfo> indexes = new ArrayList<>();
+        long offset = 0;
+        for (int i = 0; i < 5 * PrefixCompressedColumnIndex.RESTART_INTERVAL + 3; i++)
+        {
+            long width = 1000 + i;
+            indexes.add(new IndexInfo(name(comp, i * 10), name(comp, i * 10 + 7), offset, width));
+            offset += width;
+        }
+
+        PrefixCompressedColumnIndex compressed = PrefixCompressedColumnIndex.create(indexes, comp);
+        DataOutputBuffer out = new DataOutputBuffer();
+        compressed.serialize(out);
+        assertEquals(out.getLength(), compressed.serializedSize(TypeSizes.NATIVE));
+        compressed = PrefixCompressedColumnIndex.deserialize(new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength())), comp);
+
+        assertEquals(indexes.size(), compressed.size());
+        // forwards, resuming from the previous entry
+        for (int i = 0; i < indexes.size(); i++)
+            assertSameIndexInfo(comp, indexes.get(i), compressed.get(i));
+        // backwards, and repeatedly, where the previous entry can't be resumed from
+        for (int i = indexes.size() - 1; i >= 0; i--)
+        {
+            assertSameIndexInfo(comp, indexes.get(i), compressed.get(i));
+            assertSameIndexInfo(comp, indexes.get(i), compressed.get(i));
+        }
+        // across restart intervals
+        for (int i : new int[]{ 3, 40, 5, 17, 16, 15, indexes.size() - 1, 0 })
+            assertSameIndexInfo(comp, indexes.get(i), compressed.get(i));
+
+        // every lookup has to land on the same block as a binary search over the deserialized list
+        int[] lastIndexes = { -1, 0, 7, PrefixCompressedColumnIndex.RESTART_INTERVAL, indexes.size() - 1, indexes.size() };
+        for (int n = -5; n < indexes.size() * 10 + 5; n++)
+        {
+            for (int lastIndex : lastIndexes)
+            {
+                for (boolean reversed : new boolean[]{ false, true })
+                {
+                    assertEquals(String.format("name %d, lastIndex %d, reversed %b", n, lastIndex, reversed),
+                                 IndexHelper.indexFor(name(comp, n), indexes, comp, reversed, lastIndex),
+                                 IndexHelper.indexFor(name(comp, n), compressed, comp, reversed, lastIndex));
+                }
+            }
+        }
+    }
+
+    private static void assertSameIndexInfo(CellNameType comp, IndexInfo expected, IndexInfo actual)
+    {
+        assertEquals(0, comp.compare(expected.firstName, actual.firstName));
+        assertEquals(0, comp.compare(expected.lastName, actual.lastName));
+        assertEquals(expected.offset, actual.offset);
+        assertEquals(expected.width, actual.width);
+    }
+
+    private static CellName name(CellNameType comp, int i)
+    {
+        return comp.makeCellName(String.format("partition-clustering-%05d", i / 100), i);
+    }
 }
@@ -19,6 +19,9 @@ package org.apache.cassandra.io.sstable;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.*;
@@ -31,7 +34,9 @@ import org.apache.cassandra.db.*;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.RandomPartitioner;
 import org.apache.cassandra.io.sstable.format.SSTableReader;
+import org.apache.cassandra.io.util.BufferedDataOutputStreamPlus;
 import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.io.util.DataOutputStreamPlus;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.Pair;
@@ -93,6 +98,43 @@ public class IndexSummaryTest
         random.right.close();
     }
 
+    @Test
+    public void testMappedSerialization() throws IOException
+    {
+        Pair<List<DecoratedKey>, IndexSummary> random = generateRandomIndex(100, 1);
+        File file = File.createTempFile("IndexSummaryTest", ".db");
+        try (DataOutputStreamPlus out = new BufferedDataOutputStreamPlus(new FileOutputStream(file)))
+        {
+            IndexSummary.serializer.serialize(random.right, out, true);
+            out.writeUTF("JUNK");
+        }
+
+        try (FileInputStream in = new FileInputStream(file);
+             DataInputStream dis = new DataInputStream(in);
+             IndexSummary is = IndexSummary.serializer.deserialize(dis, DatabaseDescriptor.getPartitioner(), true, 1, 1, in.getChannel()))
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                assertEquals(i, is.binarySearch(random.left.get(i)));
+                assertEquals(random.right.getPosition(i), is.getPosition(i));
+            }
+            assertEquals(random.right.getOffHeapSize(), is.getOffHeapSize());
+            // the channel is left right after the summary
+            assertEquals("JUNK", dis.readUTF());
+
+            // resampling copies the mapped entries it keeps
+            try (IndexSummary downsampled = downsample(is, BASE_SAMPLING_LEVEL / 2, 1, DatabaseDescriptor.getPartitioner()))
+            {
+                assertEquals(entriesAtSamplingLevel(BASE_SAMPLING_LEVEL / 2, is.getMaxNumberOfEntries()), downsampled.size());
+            }
+        }
+        finally
+        {
+            file.delete();
+            random.right.close();
+        }
+    }
+
     @Test
     public void testAddEmptyKey() throws Exception
     {
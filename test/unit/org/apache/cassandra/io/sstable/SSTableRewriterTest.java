@@ -33,6 +33,7 @@ import org.junit.Test;
 
 import org.apache.cassandra.SchemaLoader;
 import org.apache.cassandra.Util;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.config.KSMetaData;
 import org.apache.cassandra.db.*;
 import org.apache.cassandra.db.compaction.AbstractCompactedRow;
@@ -152,6 +153,50 @@ public class SSTableRewriterTest extends SchemaLoader
         assertEquals(1, filecounts);
     }
 
+    @Test
+    public void testKeyCacheCarriedOverWithoutEarlyOpening() throws InterruptedException
+    {
+        Keyspace keyspace = Keyspace.open(KEYSPACE);
+        ColumnFamilyStore cfs = keyspace.getColumnFamilyStore(CF);
+        truncate(cfs);
+
+        SSTableReader s = writeFile(cfs, 1000);
+        cfs.addSSTable(s);
+        Set<SSTableReader> sstables = new HashSet<>(cfs.getSSTables());
+        List<DecoratedKey> cachedKeys = new ArrayList<>();
+        for (int i = 0; i < 5000; i += 100)
+        {
+            DecoratedKey key = StorageService.getPartitioner().decorateKey(ByteBufferUtil.bytes(i));
+            assertNotNull(s.getPosition(key, SSTableReader.Operator.EQ));
+            cachedKeys.add(key);
+        }
+
+        try (AbstractCompactionStrategy.ScannerList scanners = cfs.getCompactionStrategyManager().getScanners(sstables);
+             LifecycleTransaction txn = cfs.getTracker().tryModify(sstables, OperationType.UNKNOWN);
+             SSTableRewriter writer = new SSTableRewriter(cfs, txn, 1000, false, false);)
+        {
+            ISSTableScanner scanner = scanners.scanners.get(0);
+            CompactionController controller = new CompactionController(cfs, sstables, cfs.gcBefore(System.currentTimeMillis()));
+            writer.switchWriter(getWriter(cfs, s.descriptor.directory));
+            while (scanner.hasNext())
+            {
+                AbstractCompactedRow row = new LazilyCompactedRow(controller, Arrays.asList(scanner.next()));
+                writer.append(row);
+            }
+            writer.finish();
+        }
+        SSTableDeletingTask.waitForDeletions();
+
+        SSTableReader compacted = Iterables.getOnlyElement(cfs.getSSTables());
+        for (DecoratedKey key : cachedKeys)
+        {
+            RowIndexEntry cached = compacted.getCachedPosition(key, false);
+            assertNotNull(cached);
+            assertEquals(compacted.getPosition(key, SSTableReader.Operator.EQ, false).position, cached.position);
+        }
+        validateCFS(cfs);
+    }
+
     @Test
     public void getPositionsTest() throws InterruptedException
     {
@@ -834,6 +879,60 @@ public class SSTableRewriterTest extends SchemaLoader
     }
 
 
+    @Test
+    public void testPreheatReadsOnlyGivenRows()
+    {
+        Keyspace keyspace = Keyspace.open(KEYSPACE);
+        ColumnFamilyStore cfs = keyspace.getColumnFamilyStore(CF);
+        truncate(cfs);
+
+        // 10 wide rows of ~10KB, over the 4KB column_index_size_in_kb of the test config, and 10 narrow ones
+        SSTableReader wide = Iterables.getOnlyElement(writeFiles(cfs, 1, 10, 10, 1000));
+        SSTableReader narrow = Iterables.getOnlyElement(writeFiles(cfs, 1, 10, 1, 100));
+        try
+        {
+            List<Pair<Long, Long>> wideRows = rowRanges(wide, 10);
+            List<Pair<Long, Long>> narrowRows = rowRanges(narrow, 10);
+            for (Pair<Long, Long> row : wideRows)
+                assertTrue(row.right - row.left > DatabaseDescriptor.getColumnIndexSize());
+
+            List<Pair<Long, Long>> rows = new ArrayList<>(Arrays.asList(wideRows.get(2), wideRows.get(5)));
+            assertEquals(2L * DatabaseDescriptor.getColumnIndexSize(), SSTableRewriter.preheat(wide, rows));
+            assertTrue(rows.isEmpty());
+
+            rows = new ArrayList<>(Arrays.asList(narrowRows.get(0), narrowRows.get(3), narrowRows.get(9)));
+            long expected = 0;
+            for (Pair<Long, Long> row : rows)
+                expected += row.right - row.left;
+            assertEquals(expected, SSTableRewriter.preheat(narrow, rows));
+            assertTrue(rows.isEmpty());
+
+            // rows written past the end of the reader are left for the next one
+            Pair<Long, Long> unopened = Pair.create(narrow.uncompressedLength(), narrow.uncompressedLength() + 100);
+            rows = new ArrayList<>(Arrays.asList(narrowRows.get(1), unopened));
+            assertEquals(narrowRows.get(1).right - narrowRows.get(1).left, SSTableRewriter.preheat(narrow, rows));
+            assertEquals(Collections.singletonList(unopened), rows);
+        }
+        finally
+        {
+            wide.selfRef().release();
+            narrow.selfRef().release();
+        }
+    }
+
+    private static List<Pair<Long, Long>> rowRanges(SSTableReader reader, int count)
+    {
+        List<Long> starts = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            starts.add(reader.getPosition(StorageService.getPartitioner().decorateKey(ByteBufferUtil.bytes(i)), SSTableReader.Operator.EQ).position);
+        starts.add(reader.uncompressedLength());
+
+        List<Pair<Long, Long>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            rows.add(Pair.create(starts.get(i), starts.get(i + 1)));
+        return rows;
+    }
+
     private void validateKeys(Keyspace ks)
     {
         for (int i = 0; i < 100; i++)
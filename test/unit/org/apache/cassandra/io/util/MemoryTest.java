@@ -18,8 +18,12 @@
 */
 package org.apache.cassandra.io.util;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.junit.Test;
@@ -45,6 +49,34 @@ public class MemoryTest
         memory.close();
     }
 
+    @Test
+    public void testMappedMemory() throws IOException
+    {
+        byte[] bytes = new byte[1100];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        File file = File.createTempFile("MemoryTest", "mapped");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+        {
+            raf.write(bytes);
+            FileChannel channel = raf.getChannel();
+
+            Memory memory = MappedMemory.map(channel, 100, 1000);
+            Assert.assertEquals(1000, memory.size());
+            ByteBuffer canon = ByteBuffer.wrap(bytes, 100, 1000).slice().order(ByteOrder.nativeOrder());
+            test(canon, memory);
+            memory.close();
+
+            // an empty region maps nothing
+            memory = MappedMemory.map(channel, 1100, 0);
+            Assert.assertEquals(0, memory.size());
+            memory.close();
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
     private static void test(ByteBuffer canon, Memory memory)
     {
         ByteBuffer hollow = MemoryUtil.getHollowDirectByteBuffer();
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.io.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentedFileTest
+{
+    @Test
+    public void testBoundsRoundTrip() throws IOException
+    {
+        DataOutputBuffer out = new DataOutputBuffer();
+        try (SegmentedFile.Builder mmapped = new MmappedSegmentedFile.Builder();
+             SegmentedFile.Builder buffered = new BufferedSegmentedFile.Builder())
+        {
+            mmapped.serializeBounds(out);
+            buffered.serializeBounds(out);
+        }
+
+        // whatever the global modes, the bounds the summary records are read back
+        DataInputStream in = input(out);
+        List<Long> ibounds = SegmentedFile.Builder.deserializeBounds(in, false);
+        List<Long> dbounds = SegmentedFile.Builder.deserializeBounds(in, true);
+        assertEquals(Collections.singletonList(0L), ibounds);
+        assertEquals(Collections.<Long>emptyList(), dbounds);
+        assertEquals(-1, in.read());
+
+        // a mapped file can't use the bounds recorded for a buffered one, but the reverse is fine
+        try (SegmentedFile.Builder mmapped = new MmappedSegmentedFile.Builder();
+             SegmentedFile.Builder buffered = new BufferedSegmentedFile.Builder())
+        {
+            assertFalse(mmapped.canUseBounds(dbounds));
+            assertTrue(mmapped.canUseBounds(ibounds));
+            assertTrue(buffered.canUseBounds(ibounds));
+            assertTrue(buffered.canUseBounds(dbounds));
+        }
+    }
+
+    @Test
+    public void testLegacyBounds() throws IOException
+    {
+        String mode = DatabaseDescriptor.getDiskAccessMode().name();
+
+        // the index builder of the time recorded bounds, the data one didn't
+        DataOutputBuffer out = new DataOutputBuffer();
+        out.writeUTF(mode);
+        out.writeInt(2);
+        out.writeLong(0);
+        out.writeLong(42);
+        out.writeUTF(mode);
+
+        DataInputStream in = input(out);
+        assertEquals(Arrays.asList(0L, 42L), SegmentedFile.Builder.deserializeBounds(in, true));
+        assertEquals(Collections.<Long>emptyList(), SegmentedFile.Builder.deserializeBounds(in, false));
+        assertEquals(-1, in.read());
+
+        // summaries written under another global mode can't be parsed past it
+        out = new DataOutputBuffer();
+        out.writeUTF(mode.equals(Config.DiskAccessMode.mmap.name()) ? Config.DiskAccessMode.standard.name() : Config.DiskAccessMode.mmap.name());
+        assertNull(SegmentedFile.Builder.deserializeBounds(input(out), true));
+    }
+
+    private static DataInputStream input(DataOutputBuffer out)
+    {
+        return new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength()));
+    }
+}
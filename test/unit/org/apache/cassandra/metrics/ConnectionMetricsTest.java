@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.metrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Test;
+
+import org.apache.cassandra.net.IMessageSink;
+import org.apache.cassandra.net.IVerbHandler;
+import org.apache.cassandra.net.MessageDeliveryTask;
+import org.apache.cassandra.net.MessageIn;
+import org.apache.cassandra.net.MessageOut;
+import org.apache.cassandra.net.MessagingService;
+
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+import static org.junit.Assert.*;
+
+public class ConnectionMetricsTest
+{
+    private static final String[] VERB_METRICS = { "QueueTime", "MessageSize", "RoundTripTime", "RemoteProcessingTime" };
+
+    @After
+    public void tearDown()
+    {
+        MessagingService.instance().clearMessageSinks();
+    }
+
+    private static boolean isRegistered(InetAddress address, MessagingService.Verb verb, String metric)
+    {
+        MetricNameFactory factory = new DefaultNameFactory(ConnectionMetrics.TYPE_NAME, address.getHostAddress());
+        return Metrics.getMetrics().containsKey(factory.createMetricName(verb + "-" + metric).getMetricName());
+    }
+
+    @Test
+    public void testVerbMetrics() throws IOException
+    {
+        InetAddress address = InetAddress.getByName("127.0.0.5");
+        ConnectionMetrics metrics = new ConnectionMetrics(address, null);
+
+        // registered the first time the verb is used, and shared from then on
+        for (String metric : VERB_METRICS)
+            assertFalse(isRegistered(address, MessagingService.Verb.READ, metric));
+        ConnectionMetrics.VerbMetrics read = metrics.forVerb(MessagingService.Verb.READ);
+        assertSame(read, metrics.forVerb(MessagingService.Verb.READ));
+        for (String metric : VERB_METRICS)
+        {
+            assertTrue(isRegistered(address, MessagingService.Verb.READ, metric));
+            assertFalse(isRegistered(address, MessagingService.Verb.MUTATION, metric));
+        }
+        assertNotSame(read.queueTime, metrics.forVerb(MessagingService.Verb.MUTATION).queueTime);
+
+        read.messageSize.update(100);
+        assertEquals(1, read.messageSize.getCount());
+        assertEquals(0, metrics.forVerb(MessagingService.Verb.MUTATION).messageSize.getCount());
+
+        metrics.release();
+        for (String metric : VERB_METRICS)
+        {
+            assertFalse(isRegistered(address, MessagingService.Verb.READ, metric));
+            assertFalse(isRegistered(address, MessagingService.Verb.MUTATION, metric));
+        }
+    }
+
+    @Test
+    public void testVerbMetricsAfterRelease() throws IOException
+    {
+        InetAddress address = InetAddress.getByName("127.0.0.6");
+        ConnectionMetrics metrics = new ConnectionMetrics(address, null);
+        metrics.release();
+
+        // a connection still writing after its pool was closed can update them, but they are never registered
+        ConnectionMetrics.VerbMetrics read = metrics.forVerb(MessagingService.Verb.READ);
+        read.queueTime.update(10);
+        assertEquals(1, read.queueTime.getCount());
+        assertSame(read, metrics.forVerb(MessagingService.Verb.READ));
+        for (String metric : VERB_METRICS)
+            assertFalse(isRegistered(address, MessagingService.Verb.READ, metric));
+    }
+
+    @Test
+    public void testProcessingTime() throws IOException
+    {
+        final List<MessageOut> replies = new CopyOnWriteArrayList<>();
+        MessagingService.instance().addMessageSink(new IMessageSink()
+        {
+            public boolean allowOutgoingMessage(MessageOut message, int id, InetAddress to)
+            {
+                replies.add(message);
+                return false;
+            }
+
+            public boolean allowIncomingMessage(MessageIn message, int id)
+            {
+                return false;
+            }
+        });
+        MessagingService.instance().registerVerbHandlers(MessagingService.Verb._TRACE, new IVerbHandler()
+        {
+            public void doVerb(MessageIn message, int id)
+            {
+                Uninterruptibles.sleepUninterruptibly(20, TimeUnit.MILLISECONDS);
+                MessagingService.instance().sendReply(new MessageOut(MessagingService.Verb.REQUEST_RESPONSE), id, message.from);
+            }
+        });
+
+        // replies sent while handling a request tell how long handling it took
+        InetAddress from = InetAddress.getByName("127.0.0.7");
+        MessageIn<?> request = MessageIn.create(from, null, Collections.<String, byte[]>emptyMap(), MessagingService.Verb._TRACE, MessagingService.current_version);
+        new MessageDeliveryTask(request, 1, System.currentTimeMillis()).run();
+        assertEquals(1, replies.size());
+
+        MessageIn<?> reply = MessageIn.create(from, null, replies.get(0).parameters, MessagingService.Verb.REQUEST_RESPONSE, MessagingService.current_version);
+        assertTrue(String.valueOf(reply.getProcessingTime()), reply.getProcessingTime() >= TimeUnit.MILLISECONDS.toMicros(20));
+
+        // but not the ones sent from anywhere else
+        MessagingService.instance().sendReply(new MessageOut(MessagingService.Verb.REQUEST_RESPONSE), 2, from);
+        assertEquals(2, replies.size());
+        assertNull(replies.get(1).parameters.get(MessagingService.PROCESSING_TIME_PARAM));
+        assertEquals(-1, MessageIn.create(from, null, Collections.<String, byte[]>emptyMap(), MessagingService.Verb.REQUEST_RESPONSE, MessagingService.current_version).getProcessingTime());
+    }
+}
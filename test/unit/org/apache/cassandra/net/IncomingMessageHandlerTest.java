@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHashFactory;
+
+import org.apache.cassandra.io.util.DataOutputStreamPlus;
+import org.apache.cassandra.io.util.WrappedDataOutputStreamPlus;
+
+import static org.junit.Assert.*;
+
+public class IncomingMessageHandlerTest
+{
+    private static final InetAddress FROM;
+    static
+    {
+        try
+        {
+            FROM = InetAddress.getByName("127.0.0.2");
+        }
+        catch (Exception e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+
+    private final List<MessageIn> received = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown()
+    {
+        MessagingService.instance().clearMessageSinks();
+        MessagingService.instance().resetVersion(FROM);
+    }
+
+    private EmbeddedChannel connect(boolean compressed)
+    {
+        MessagingService.instance().addMessageSink(new IMessageSink()
+        {
+            public boolean allowOutgoingMessage(MessageOut message, int id, InetAddress to)
+            {
+                return false;
+            }
+
+            public boolean allowIncomingMessage(MessageIn message, int id)
+            {
+                received.add(message);
+                return false;
+            }
+        });
+        Set<Closeable> group = new HashSet<>();
+        EmbeddedChannel channel = new EmbeddedChannel(new IncomingMessageHandler(MessagingService.current_version, compressed, false, group));
+
+        // the handshake is answered as soon as the connection is active
+        ByteBuf handshake = (ByteBuf) channel.readOutbound();
+        assertEquals(MessagingService.current_version, handshake.readInt());
+        handshake.release();
+        return channel;
+    }
+
+    private static void writeHandshake(DataOutputStreamPlus out, int maxVersion) throws IOException
+    {
+        out.writeInt(maxVersion);
+        CompactEndpointSerializationHelper.serialize(FROM, out);
+    }
+
+    private static void writeMessage(DataOutputStreamPlus out, int id, MessageOut message) throws IOException
+    {
+        // see OutboundTcpConnection.writeInternal
+        out.writeInt(MessagingService.PROTOCOL_MAGIC);
+        out.writeInt(id);
+        out.writeInt((int) System.currentTimeMillis());
+        message.serialize(out, MessagingService.current_version);
+    }
+
+    private static MessageOut message()
+    {
+        return new MessageOut<>(FROM, MessagingService.Verb.GOSSIP_SHUTDOWN, null, null, Collections.<String, byte[]>emptyMap())
+               .withParameter("key", new byte[]{ 1, 2, 3 });
+    }
+
+    private static OutputStream compressing(OutputStream out)
+    {
+        // see OutboundTcpConnection.connect
+        return new LZ4BlockOutputStream(out,
+                                        1 << 14,
+                                        LZ4Factory.fastestInstance().fastCompressor(),
+                                        XXHashFactory.fastestInstance().newStreamingHash32(OutboundTcpConnection.LZ4_HASH_SEED).asChecksum(),
+                                        true);
+    }
+
+    @Test
+    public void testPartialFrames() throws IOException
+    {
+        EmbeddedChannel channel = connect(false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStreamPlus out = new WrappedDataOutputStreamPlus(bytes);
+        writeHandshake(out, MessagingService.current_version);
+        writeMessage(out, 1, message());
+        writeMessage(out, 2, message());
+        out.flush();
+
+        // every byte arrives on its own: only whole frames are delivered
+        byte[] stream = bytes.toByteArray();
+        int firstFrameEnd = stream.length - (stream.length - 9) / 2;
+        for (int i = 0; i < stream.length; i++)
+        {
+            channel.writeInbound(Unpooled.wrappedBuffer(stream, i, 1));
+            int expected = i + 1 < firstFrameEnd ? 0 : i + 1 < stream.length ? 1 : 2;
+            assertEquals("after " + (i + 1) + " bytes", expected, received.size());
+        }
+
+        assertEquals(MessagingService.Verb.GOSSIP_SHUTDOWN, received.get(0).verb);
+        assertEquals(FROM, received.get(0).from);
+        assertArrayEquals(new byte[]{ 1, 2, 3 }, (byte[]) received.get(1).parameters.get("key"));
+        assertTrue(channel.isOpen());
+        channel.finish();
+    }
+
+    @Test
+    public void testCompressedBlocks() throws IOException
+    {
+        EmbeddedChannel channel = connect(true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStreamPlus out = new WrappedDataOutputStreamPlus(bytes);
+        writeHandshake(out, MessagingService.current_version);
+        out.flush();
+
+        // enough messages to span several blocks, with frames split across them
+        int count = 2000;
+        assertTrue(count * message().serializedSize(MessagingService.current_version) > 2 << 14);
+        DataOutputStreamPlus compressed = new WrappedDataOutputStreamPlus(compressing(bytes));
+        for (int i = 0; i < count; i++)
+            writeMessage(compressed, i, message());
+        compressed.flush();
+
+        byte[] stream = bytes.toByteArray();
+        int chunk = 1000;
+        for (int i = 0; i < stream.length; i += chunk)
+            channel.writeInbound(Unpooled.wrappedBuffer(stream, i, Math.min(chunk, stream.length - i)));
+
+        assertEquals(count, received.size());
+        assertEquals(FROM, received.get(count - 1).from);
+        assertTrue(channel.isOpen());
+        channel.finish();
+    }
+
+    @Test
+    public void testEndOfStream() throws IOException
+    {
+        EmbeddedChannel channel = connect(true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStreamPlus out = new WrappedDataOutputStreamPlus(bytes);
+        writeHandshake(out, MessagingService.current_version);
+        out.flush();
+        DataOutputStreamPlus compressed = new WrappedDataOutputStreamPlus(compressing(bytes));
+        writeMessage(compressed, 1, message());
+        // writes the last block, then the empty block that ends the stream
+        compressed.close();
+
+        channel.writeInbound(Unpooled.wrappedBuffer(bytes.toByteArray()));
+        assertEquals(1, received.size());
+        assertFalse(channel.isOpen());
+        channel.finish();
+    }
+
+    @Test
+    public void testCorruptedBlock() throws IOException
+    {
+        EmbeddedChannel channel = connect(true);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStreamPlus out = new WrappedDataOutputStreamPlus(bytes);
+        writeHandshake(out, MessagingService.current_version);
+        out.flush();
+        DataOutputStreamPlus compressed = new WrappedDataOutputStreamPlus(compressing(bytes));
+        writeMessage(compressed, 1, message());
+        compressed.flush();
+
+        byte[] stream = bytes.toByteArray();
+        stream[stream.length - 1] ^= 1;
+        channel.writeInbound(Unpooled.wrappedBuffer(stream));
+        assertEquals(0, received.size());
+        assertFalse(channel.isOpen());
+        channel.finish();
+    }
+
+    @Test
+    public void testVersionMismatch() throws IOException
+    {
+        // a newer node connects with our version, and tells us its own in the handshake
+        EmbeddedChannel channel = connect(false);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStreamPlus out = new WrappedDataOutputStreamPlus(bytes);
+        writeHandshake(out, MessagingService.current_version + 1);
+        writeMessage(out, 1, message());
+        out.flush();
+
+        channel.writeInbound(Unpooled.wrappedBuffer(bytes.toByteArray()));
+        assertEquals(MessagingService.current_version + 1, MessagingService.instance().getRawVersion(FROM));
+        assertEquals(MessagingService.current_version, MessagingService.instance().getVersion(FROM));
+        assertEquals(1, received.size());
+        channel.finish();
+
+        // connections at a version we can't read are left to IncomingTcpConnection
+        try (SocketChannel socket = SocketChannel.open())
+        {
+            assertFalse(IncomingMessageHandler.canHandle(socket.socket(), MessagingService.current_version + 1, false));
+            assertFalse(IncomingMessageHandler.canHandle(socket.socket(), MessagingService.VERSION_12, false));
+            assertFalse(IncomingMessageHandler.canHandle(socket.socket(), MessagingService.VERSION_20, true));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.gms.GossipDigest;
+import org.apache.cassandra.gms.GossipDigestSyn;
+import org.apache.cassandra.io.IVersionedSerializer;
+import org.apache.cassandra.io.util.DataOutputPlus;
+import org.apache.cassandra.service.StorageService;
+
+import static org.junit.Assert.*;
+
+public class OutboundTcpConnectionPoolTest
+{
+    private static OutboundTcpConnectionPool pool;
+
+    @BeforeClass
+    public static void setUp() throws Exception
+    {
+        SchemaLoader.prepareServer();
+        // never started, so no socket is opened
+        pool = new OutboundTcpConnectionPool(InetAddress.getByName("127.0.0.2"));
+    }
+
+    @Test
+    public void testUrgentVerbs()
+    {
+        GossipDigestSyn syn = new GossipDigestSyn("Test Cluster",
+                                                  StorageService.getPartitioner().getClass().getCanonicalName(),
+                                                  Collections.<GossipDigest>emptyList());
+        assertSame(pool.urgentMessages, pool.getConnection(new MessageOut<>(MessagingService.Verb.GOSSIP_DIGEST_SYN, syn, GossipDigestSyn.serializer)));
+        assertSame(pool.urgentMessages, pool.getConnection(new MessageOut(MessagingService.Verb.ECHO)));
+
+        for (MessagingService.Verb verb : MessagingService.URGENT_VERBS)
+            assertSame(verb.toString(), pool.urgentMessages, pool.getConnection(message(verb, 100)));
+    }
+
+    @Test
+    public void testOtherVerbs()
+    {
+        assertSame(pool.smallMessages, pool.getConnection(message(MessagingService.Verb.MUTATION, 100)));
+        assertSame(pool.smallMessages, pool.getConnection(message(MessagingService.Verb.REQUEST_RESPONSE, 100)));
+        assertSame(pool.smallMessages, pool.getConnection(message(MessagingService.Verb.READ, 100)));
+    }
+
+    @Test
+    public void testLargeMessages()
+    {
+        int large = (int) OutboundTcpConnectionPool.LARGE_MESSAGE_THRESHOLD + 1;
+        assertSame(pool.largeMessages, pool.getConnection(message(MessagingService.Verb.MUTATION, large)));
+        // urgent messages don't get to hold up the urgent connection with a large payload either
+        assertSame(pool.largeMessages, pool.getConnection(message(MessagingService.Verb.DEFINITIONS_UPDATE, large)));
+    }
+
+    private static MessageOut<Integer> message(MessagingService.Verb verb, int payloadSize)
+    {
+        return new MessageOut<>(verb, payloadSize, new IVersionedSerializer<Integer>()
+        {
+            public void serialize(Integer size, DataOutputPlus out, int version) throws IOException
+            {
+                out.write(new byte[size]);
+            }
+
+            public Integer deserialize(DataInput in, int version)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            public long serializedSize(Integer size, int version)
+            {
+                return size;
+            }
+        });
+    }
+}
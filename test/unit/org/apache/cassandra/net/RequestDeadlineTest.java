@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Meter;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.cassandra.SchemaLoader;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.metrics.DefaultNameFactory;
+import org.apache.cassandra.metrics.MetricNameFactory;
+
+import static org.apache.cassandra.metrics.CassandraMetricsRegistry.Metrics;
+import static org.junit.Assert.*;
+
+public class RequestDeadlineTest
+{
+    private static final MessagingService.Verb VERB = MessagingService.Verb._TRACE;
+
+    private static final AtomicInteger executed = new AtomicInteger();
+    private static final AtomicLong handlerDeadline = new AtomicLong();
+    private static volatile long handlerSleep;
+
+    private static Meter dropped;
+    private static Meter expired;
+
+    @BeforeClass
+    public static void setUp()
+    {
+        SchemaLoader.prepareServer();
+        MessagingService.instance().registerVerbHandlers(VERB, new IVerbHandler()
+        {
+            public void doVerb(MessageIn message, int id) throws IOException
+            {
+                executed.incrementAndGet();
+                handlerDeadline.set(RequestDeadline.current());
+                if (handlerSleep > 0)
+                {
+                    try
+                    {
+                        Thread.sleep(handlerSleep);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        throw new AssertionError(e);
+                    }
+                    RequestDeadline.check(RequestDeadline.current());
+                }
+            }
+        });
+        MetricNameFactory factory = new DefaultNameFactory("DroppedMessage", VERB.toString());
+        dropped = Metrics.meter(factory.createMetricName("Dropped"));
+        expired = Metrics.meter(factory.createMetricName("Expired"));
+    }
+
+    @Before
+    public void reset()
+    {
+        executed.set(0);
+        handlerDeadline.set(0);
+        handlerSleep = 0;
+    }
+
+    private static MessageIn<?> message(int timeLeft)
+    {
+        byte[] parameter = ByteBuffer.allocate(4).putInt(0, timeLeft).array();
+        return MessageIn.create(InetAddress.getLoopbackAddress(),
+                                null,
+                                Collections.singletonMap(MessagingService.TIME_LEFT_PARAM, parameter),
+                                VERB,
+                                MessagingService.current_version);
+    }
+
+    private static MessageIn<?> roundTrip(MessageOut<?> message) throws IOException
+    {
+        DataOutputBuffer out = new DataOutputBuffer();
+        message.serialize(out, MessagingService.current_version);
+        assertEquals(message.serializedSize(MessagingService.current_version), out.getLength());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength()));
+        return MessageIn.read(in, MessagingService.current_version, 1);
+    }
+
+    @Test
+    public void testTimeLeftPropagation() throws IOException
+    {
+        MessageOut<?> message = new MessageOut<>(VERB);
+        assertEquals(-1, roundTrip(message).getTimeLeft());
+
+        // the time left when the message is written is sent, rather than the deadline itself
+        long deadline = System.currentTimeMillis() + 10000;
+        MessageIn<?> received = roundTrip(message.withParameter("key", new byte[]{ 1 }).withDeadline(deadline));
+        int timeLeft = received.getTimeLeft();
+        assertTrue(String.valueOf(timeLeft), timeLeft > 9000 && timeLeft <= 10000);
+        assertArrayEquals(new byte[]{ 1 }, received.parameters.get("key"));
+
+        // an expired deadline is sent as no time left at all
+        assertEquals(0, roundTrip(message.withDeadline(System.currentTimeMillis() - 1000)).getTimeLeft());
+    }
+
+    @Test
+    public void testDeadlineSetWhileHandling()
+    {
+        long before = System.currentTimeMillis();
+        new MessageDeliveryTask(message(10000), 1, System.currentTimeMillis()).run();
+
+        assertEquals(1, executed.get());
+        assertTrue(handlerDeadline.get() >= before + 10000 && handlerDeadline.get() <= System.currentTimeMillis() + 10000);
+        assertEquals(RequestDeadline.NONE, RequestDeadline.current());
+    }
+
+    @Test
+    public void testExpiredMessageNotExecuted() throws InterruptedException
+    {
+        long droppedBefore = dropped.getCount();
+        long expiredBefore = expired.getCount();
+
+        MessageDeliveryTask task = new MessageDeliveryTask(message(0), 1, System.currentTimeMillis());
+        Thread.sleep(10);
+        task.run();
+
+        assertEquals(0, executed.get());
+        assertEquals(expiredBefore + 1, expired.getCount());
+        assertEquals(droppedBefore + 1, dropped.getCount());
+    }
+
+    @Test
+    public void testExpiredWhileHandling()
+    {
+        long expiredBefore = expired.getCount();
+
+        // the handler notices the deadline has passed, and gives up without a failure response
+        handlerSleep = 100;
+        new MessageDeliveryTask(message(10), 1, System.currentTimeMillis()).run();
+
+        assertEquals(1, executed.get());
+        assertEquals(expiredBefore + 1, expired.getCount());
+        assertEquals(RequestDeadline.NONE, RequestDeadline.current());
+    }
+
+    @Test
+    public void testExpiredMessageNotSent() throws Exception
+    {
+        long expiredBefore = expired.getCount();
+
+        // nothing listens there, but expired messages are dropped before connecting
+        InetAddress to = InetAddress.getByName("127.0.0.4");
+        MessageOut<?> message = new MessageOut<>(VERB).withDeadline(System.currentTimeMillis() - 1000);
+        MessagingService.instance().sendOneWay(message, to);
+
+        OutboundTcpConnection connection = MessagingService.instance().getConnectionPool(to).getConnection(message);
+        long end = System.currentTimeMillis() + 10000;
+        while (connection.getDroppedMessages() == 0 && System.currentTimeMillis() < end)
+            Thread.sleep(10);
+
+        assertEquals(1, connection.getDroppedMessages());
+        assertEquals(0, connection.getCompletedMesssages());
+        assertEquals(expiredBefore + 1, expired.getCount());
+        MessagingService.instance().destroyConnectionPool(to);
+    }
+}
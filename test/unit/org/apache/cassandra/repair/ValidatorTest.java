@@ -39,6 +39,7 @@ import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Range;
 import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.io.sstable.ColumnStats;
+import org.apache.cassandra.io.sstable.format.Version;
 import org.apache.cassandra.locator.SimpleStrategy;
 import org.apache.cassandra.net.MessageIn;
 import org.apache.cassandra.net.MessageOut;
@@ -142,7 +143,7 @@ public class ValidatorTest
             super(key);
         }
 
-        public RowIndexEntry write(long currentPosition, SequentialWriter out) throws IOException
+        public RowIndexEntry write(long currentPosition, SequentialWriter out, Version version) throws IOException
         {
             throw new UnsupportedOperationException();
         }
@@ -26,15 +26,23 @@ import java.util.*;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 import org.apache.cassandra.db.composites.*;
 import org.apache.cassandra.db.marshal.BytesType;
 import org.apache.cassandra.io.compress.CompressedSequentialWriter;
 import org.apache.cassandra.io.compress.CompressionMetadata;
 import org.apache.cassandra.io.compress.CompressionParameters;
+import org.apache.cassandra.io.compress.DeflateCompressor;
+import org.apache.cassandra.io.compress.LZ4Compressor;
 import org.apache.cassandra.io.compress.SnappyCompressor;
 import org.apache.cassandra.io.sstable.Component;
 import org.apache.cassandra.io.sstable.Descriptor;
 import org.apache.cassandra.io.sstable.metadata.MetadataCollector;
+import org.apache.cassandra.io.util.DataOutputBuffer;
+import org.apache.cassandra.net.MessagingService;
 import org.apache.cassandra.utils.Pair;
 
 /**
@@ -56,6 +64,85 @@ public class CompressedInputStreamTest
     {
         testCompressedReadWith(new long[]{1L, 122L, 123L, 124L, 456L}, true);
     }
+    @Test
+    public void testUncompressedChunksRead() throws Exception
+    {
+        int chunkLength = CompressionParameters.DEFAULT_CHUNK_LENGTH;
+        // an incompressible chunk, a compressible one, then an incompressible partial chunk
+        byte[] data = new byte[chunkLength * 2 + 100];
+        Random r = new Random(0);
+        r.nextBytes(data);
+        Arrays.fill(data, chunkLength, chunkLength * 2, (byte) 42);
+
+        CompressionParameters param = new CompressionParameters(LZ4Compressor.instance, chunkLength, Collections.singletonMap(CompressionParameters.MIN_COMPRESS_RATIO, "1.1"));
+        CompressionInfo info = testStreamedReadWith(param, data);
+        assertFalse(info.chunks[0].compressed);
+        assertTrue(info.chunks[1].compressed);
+        assertFalse(info.chunks[2].compressed);
+    }
+
+    @Test
+    public void testDictionaryRead() throws Exception
+    {
+        StringBuilder builder = new StringBuilder();
+        Random r = new Random(0);
+        while (builder.length() < CompressionParameters.DEFAULT_CHUNK_LENGTH * 4)
+            builder.append(String.format("{\"id\":%d,\"name\":\"user%d\",\"active\":%b}", r.nextInt(), r.nextInt(1000), r.nextBoolean()));
+
+        CompressionParameters param = new CompressionParameters(DeflateCompressor.create(Collections.singletonMap(DeflateCompressor.DICTIONARY_LENGTH_KB, "4")));
+        CompressionInfo info = testStreamedReadWith(param, builder.toString().getBytes("UTF-8"));
+        assertTrue(info.dictionary != null);
+    }
+
+    /**
+     * Writes @param data to a compressed file of the current sstable version, sends all its chunks along with the
+     * CompressionInfo, serialized with the dictionary and chunks stored uncompressed, and checks they read back.
+     * @return the CompressionInfo received
+     */
+    private CompressionInfo testStreamedReadWith(CompressionParameters param, byte[] data) throws Exception
+    {
+        File tmp = new File(File.createTempFile("cassandra", "unittest").getParent(), "lb-1-big-Data.db");
+        Descriptor desc = Descriptor.fromFilename(tmp.getAbsolutePath());
+        MetadataCollector collector = new MetadataCollector(new SimpleDenseCellNameType(BytesType.instance));
+        try
+        {
+            try (CompressedSequentialWriter writer = new CompressedSequentialWriter(tmp, desc.filenameFor(Component.COMPRESSION_INFO), param, collector))
+            {
+                writer.write(data);
+                writer.finish();
+            }
+
+            CompressionMetadata comp = CompressionMetadata.create(tmp.getAbsolutePath());
+            CompressionMetadata.Chunk[] chunks = comp.getChunksForSections(Collections.singletonList(Pair.create(0L, (long) data.length)));
+            CompressionInfo sent = new CompressionInfo(chunks, comp.parameters, comp.dictionary());
+            comp.close();
+
+            DataOutputBuffer out = new DataOutputBuffer();
+            CompressionInfo.serializer.serialize(sent, out, MessagingService.current_version, true);
+            assert out.getLength() == CompressionInfo.serializer.serializedSize(sent, MessagingService.current_version, true);
+            CompressionInfo info = CompressionInfo.serializer.deserialize(new DataInputStream(new ByteArrayInputStream(out.getData(), 0, out.getLength())), MessagingService.current_version, true);
+            assertArrayEquals(sent.chunks, info.chunks);
+            assertArrayEquals(sent.dictionary, info.dictionary);
+
+            byte[] toRead = new byte[(int) tmp.length()];
+            try (RandomAccessFile f = new RandomAccessFile(tmp, "r"))
+            {
+                f.readFully(toRead);
+            }
+
+            CompressedInputStream input = new CompressedInputStream(new ByteArrayInputStream(toRead), info);
+            byte[] result = new byte[data.length];
+            new DataInputStream(input).readFully(result);
+            assertArrayEquals(data, result);
+            return info;
+        }
+        finally
+        {
+            tmp.delete();
+            new File(desc.filenameFor(Component.COMPRESSION_INFO)).delete();
+        }
+    }
+
     /**
      * @param valuesToCheck array of longs of range(0-999)
      * @throws Exception
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.apache.cassandra.tools.CompactionSimulator.SimulatedSSTable;
+import org.apache.cassandra.tools.CompactionSimulator.Strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactionSimulatorTest
+{
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void testMergeDisjointSSTables()
+    {
+        CompactionSimulator simulator = simulator("STCS");
+        SimulatedSSTable left = new SimulatedSSTable(100 * MB, 1000, 0, 1, 1, 0, 0.5);
+        SimulatedSSTable right = new SimulatedSSTable(100 * MB, 1000, 0, 1, 1, 0.5, 1);
+
+        List<SimulatedSSTable> merged = simulator.merge(Arrays.asList(left, right), 2, Long.MAX_VALUE);
+        assertEquals(1, merged.size());
+        assertEquals(2000, merged.get(0).keys, 0.001);
+        assertEquals(200 * MB, merged.get(0).size);
+        assertEquals(0, merged.get(0).left, 0);
+        assertEquals(1, merged.get(0).right, 0);
+    }
+
+    @Test
+    public void testMergeSplitsOutput()
+    {
+        CompactionSimulator simulator = simulator("LCS");
+        SimulatedSSTable sstable = new SimulatedSSTable(100 * MB, 1000, 0, 1, 0, 0, 1);
+
+        List<SimulatedSSTable> merged = simulator.merge(Collections.singletonList(sstable), 1, 10 * MB);
+        assertEquals(10, merged.size());
+        double keys = 0;
+        for (int i = 0; i < merged.size(); i++)
+        {
+            keys += merged.get(i).keys;
+            assertEquals(i / 10.0, merged.get(i).left, 0.0001);
+            assertEquals((i + 1) / 10.0, merged.get(i).right, 0.0001);
+        }
+        assertEquals(1000, keys, 0.001);
+    }
+
+    @Test
+    public void testLeveledTradesWritesForReads()
+    {
+        CompactionSimulator stcs = simulator("STCS");
+        CompactionSimulator lcs = simulator("LCS");
+        for (int i = 0; i < 200; i++)
+        {
+            stcs.flush();
+            lcs.flush();
+        }
+
+        assertTrue(lcs.sstablesPerRead() < stcs.sstablesPerRead());
+        assertTrue(lcs.writeAmplification() > stcs.writeAmplification());
+        assertTrue(lcs.spaceOverhead() < stcs.spaceOverhead());
+    }
+
+    @Test
+    public void testLeveledFallsBehindInL0()
+    {
+        Strategy lcs = Strategy.create("LCS", Collections.singletonMap("sstable_size_in_mb", "10"));
+        List<SimulatedSSTable> live = new ArrayList<>();
+        // L1 holds 110MB out of the 100MB it should
+        for (int i = 0; i < 11; i++)
+            live.add(new SimulatedSSTable(10 * MB, 1000, 0, 1, 1, i / 11.0, (i + 1) / 11.0));
+        // and L0 is too far behind, but no four of its sstables are similar enough in size to size-tier
+        for (int i = 0; i < 33; i++)
+            live.add(new SimulatedSSTable((50 * MB) << i, 1000, i, i + 1, 0, 0, 1));
+
+        CompactionSimulator.Task task = lcs.next(live, 0);
+        assertEquals(2, task.level);
+        assertEquals(1, task.inputs.size());
+        assertEquals(1, task.inputs.get(0).level);
+
+        // with four sstables of the same size, those are size-tiered in L0 first
+        for (int i = 0; i < 3; i++)
+            live.add(new SimulatedSSTable(50 * MB, 1000, 100 + i, 101 + i, 0, 0, 1));
+        task = lcs.next(live, 0);
+        assertEquals(0, task.level);
+        assertEquals(Long.MAX_VALUE, task.maxSSTableSize);
+        assertEquals(4, task.inputs.size());
+        for (SimulatedSSTable sstable : task.inputs)
+            assertEquals(50 * MB, sstable.size);
+    }
+
+    @Test
+    public void testLeveledCompactsL0IntoL1()
+    {
+        Strategy lcs = Strategy.create("LCS", Collections.singletonMap("sstable_size_in_mb", "10"));
+        List<SimulatedSSTable> live = new ArrayList<>();
+        // L1 is within its limit, half of it overlapping the L0 sstables
+        for (int i = 0; i < 5; i++)
+            live.add(new SimulatedSSTable(10 * MB, 1000, 0, 1, 1, i / 10.0, (i + 1) / 10.0));
+        for (int i = 0; i < 40; i++)
+            live.add(new SimulatedSSTable(MB, 100, i, i + 1, 0, 0, 0.45));
+
+        // even with more than 32 sstables in L0, the oldest 32 go to L1 rather than being size-tiered
+        CompactionSimulator.Task task = lcs.next(live, 0);
+        assertEquals(1, task.level);
+        assertEquals(37, task.inputs.size());
+        for (SimulatedSSTable sstable : task.inputs)
+            assertTrue(sstable.level == 1 || sstable.minTimestamp < 32);
+
+        // not enough data in L0 for a full sstable, so it is only compacted within L0
+        live = Arrays.asList(new SimulatedSSTable(MB, 100, 0, 1, 0, 0, 0.5),
+                             new SimulatedSSTable(MB, 100, 1, 2, 0, 0.25, 0.75),
+                             new SimulatedSSTable(10 * MB, 1000, 0, 1, 1, 0, 1));
+        task = lcs.next(live, 0);
+        assertEquals(0, task.level);
+        assertEquals(2, task.inputs.size());
+    }
+
+    private static CompactionSimulator simulator(String strategy)
+    {
+        // a table of about 100MB that is overwritten every few flushes
+        return new CompactionSimulator(Strategy.create(strategy, Collections.singletonMap("sstable_size_in_mb", "10")),
+                                       100000,
+                                       1024,
+                                       10 * MB,
+                                       TimeUnit.SECONDS.toMicros(10),
+                                       0);
+    }
+}
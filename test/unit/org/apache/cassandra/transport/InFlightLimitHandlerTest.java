@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.transport;
+
+import java.util.EnumSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.transport.messages.OptionsMessage;
+
+import static org.junit.Assert.*;
+
+public class InFlightLimitHandlerTest
+{
+    private static final int MB = 1024 * 1024;
+
+    // shared between all the channels, like in the server pipeline
+    private final InFlightLimitHandler handler = new InFlightLimitHandler();
+
+    private int requestsPerConnection;
+    private long bytesPerConnection;
+    private int requests;
+
+    @Before
+    public void saveLimits()
+    {
+        requestsPerConnection = DatabaseDescriptor.getNativeTransportMaxInFlightRequestsPerConnection();
+        bytesPerConnection = DatabaseDescriptor.getNativeTransportMaxInFlightBytesPerConnection();
+        requests = DatabaseDescriptor.getNativeTransportMaxInFlightRequests();
+    }
+
+    @After
+    public void restoreLimits()
+    {
+        DatabaseDescriptor.setNativeTransportMaxInFlightRequestsPerConnection(requestsPerConnection);
+        DatabaseDescriptor.setNativeTransportMaxInFlightBytesPerConnectionInMB((int) (bytesPerConnection / MB));
+        DatabaseDescriptor.setNativeTransportMaxInFlightRequests(requests);
+    }
+
+    private static Message.Request request(int size)
+    {
+        Message.Request request = new OptionsMessage();
+        request.setSourceFrame(Frame.create(Message.Type.OPTIONS, 0, Server.CURRENT_VERSION, EnumSet.noneOf(Frame.Header.Flag.class), Unpooled.wrappedBuffer(new byte[size])));
+        return request;
+    }
+
+    private static Message.Request read(EmbeddedChannel channel, int size)
+    {
+        Message.Request request = request(size);
+        channel.writeInbound(request);
+        assertSame(request, channel.readInbound());
+        return request;
+    }
+
+    private static void release(EmbeddedChannel channel, Message.Request request)
+    {
+        InFlightLimitHandler.release(channel, request.getSourceFrame());
+    }
+
+    @Test
+    public void testRequestsPerConnection()
+    {
+        DatabaseDescriptor.setNativeTransportMaxInFlightRequestsPerConnection(2);
+        int throttled = InFlightLimitHandler.throttledConnections();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        Message.Request first = read(channel, 10);
+        assertTrue(channel.config().isAutoRead());
+        Message.Request second = read(channel, 10);
+        assertFalse(channel.config().isAutoRead());
+        assertEquals(throttled + 1, InFlightLimitHandler.throttledConnections());
+
+        release(channel, first);
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(throttled, InFlightLimitHandler.throttledConnections());
+
+        release(channel, second);
+        assertTrue(channel.config().isAutoRead());
+        channel.finish();
+    }
+
+    @Test
+    public void testBytesPerConnection()
+    {
+        DatabaseDescriptor.setNativeTransportMaxInFlightBytesPerConnectionInMB(2);
+        int throttled = InFlightLimitHandler.throttledConnections();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        Message.Request small = read(channel, MB / 2);
+        Message.Request large = read(channel, MB);
+        assertTrue(channel.config().isAutoRead());
+        Message.Request last = read(channel, MB / 2);
+        assertFalse(channel.config().isAutoRead());
+        assertEquals(throttled + 1, InFlightLimitHandler.throttledConnections());
+
+        // releasing a single byte would be enough to go back under the limit
+        release(channel, small);
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(throttled, InFlightLimitHandler.throttledConnections());
+
+        release(channel, large);
+        release(channel, last);
+        channel.finish();
+    }
+
+    @Test
+    public void testGlobalLimitResumesWaitingConnection()
+    {
+        DatabaseDescriptor.setNativeTransportMaxInFlightRequests(2);
+        int throttled = InFlightLimitHandler.throttledConnections();
+        EmbeddedChannel busy = new EmbeddedChannel(handler);
+        EmbeddedChannel waiting = new EmbeddedChannel(handler);
+
+        Message.Request busyRequest = read(busy, 10);
+        assertTrue(busy.config().isAutoRead());
+        Message.Request waitingRequest = read(waiting, 10);
+        // the connection that reached the global limit is the one paused
+        assertTrue(busy.config().isAutoRead());
+        assertFalse(waiting.config().isAutoRead());
+        assertEquals(throttled + 1, InFlightLimitHandler.throttledConnections());
+
+        // a release on another connection resumes it, from its own event loop
+        release(busy, busyRequest);
+        assertFalse(waiting.config().isAutoRead());
+        waiting.runPendingTasks();
+        assertTrue(waiting.config().isAutoRead());
+        assertEquals(throttled, InFlightLimitHandler.throttledConnections());
+
+        release(waiting, waitingRequest);
+        busy.finish();
+        waiting.finish();
+    }
+
+    @Test
+    public void testCloseWhilePaused()
+    {
+        DatabaseDescriptor.setNativeTransportMaxInFlightRequestsPerConnection(1);
+        int throttled = InFlightLimitHandler.throttledConnections();
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        Message.Request request = read(channel, 10);
+        assertFalse(channel.config().isAutoRead());
+        assertEquals(throttled + 1, InFlightLimitHandler.throttledConnections());
+
+        // channelInactive is fired from the event loop
+        channel.close();
+        channel.runPendingTasks();
+        assertEquals(throttled, InFlightLimitHandler.throttledConnections());
+
+        // the response to the request still in flight is released later on, which must not count it again
+        release(channel, request);
+        assertEquals(throttled, InFlightLimitHandler.throttledConnections());
+        channel.finish();
+    }
+}
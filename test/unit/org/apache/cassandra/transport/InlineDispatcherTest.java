@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.transport;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import org.apache.cassandra.concurrent.SEPExecutor;
+import org.apache.cassandra.concurrent.Stage;
+import org.apache.cassandra.concurrent.StageManager;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.service.QueryState;
+import org.apache.cassandra.transport.messages.OptionsMessage;
+
+import static org.junit.Assert.*;
+
+public class InlineDispatcherTest
+{
+    private static EmbeddedChannel channel()
+    {
+        EmbeddedChannel channel = new EmbeddedChannel(new Message.InlineDispatcher(new Message.Dispatcher(), Config.InlineExecution.local_reads))
+        {
+            @Override
+            protected SocketAddress remoteAddress0()
+            {
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(), 9042);
+            }
+        };
+        channel.attr(Connection.attributeKey).set(new ServerConnection(channel, Server.CURRENT_VERSION, new Connection.Tracker()
+        {
+            public void addConnection(Channel ch, Connection connection)
+            {
+            }
+        }));
+        return channel;
+    }
+
+    private static TestRequest request(EmbeddedChannel channel, Boolean inline)
+    {
+        TestRequest request = new TestRequest(inline);
+        request.attach(channel.attr(Connection.attributeKey).get());
+        return request;
+    }
+
+    @Test
+    public void testInlineExecution()
+    {
+        // a READ worker can only be reserved once nothing is running or queued there
+        awaitIdleReadStage();
+        EmbeddedChannel channel = channel();
+        TestRequest request = request(channel, true);
+
+        // the embedded event loop cannot run the flusher the response is queued to
+        channel.pipeline().fireChannelRead(request);
+
+        assertSame(Thread.currentThread(), request.executedOn.get());
+        assertTrue(request.executedOnReservedReader);
+        assertFalse(readStage().hasReservedWorker());
+        assertNull(channel.readInbound());
+    }
+
+    @Test
+    public void testHandOff()
+    {
+        EmbeddedChannel channel = channel();
+        TestRequest request = request(channel, false);
+
+        channel.writeInbound(request);
+
+        assertSame(request, channel.readInbound());
+        assertNull(request.executedOn.get());
+    }
+
+    @Test
+    public void testFailureHandedOff()
+    {
+        EmbeddedChannel channel = channel();
+        TestRequest request = request(channel, null);
+
+        channel.writeInbound(request);
+
+        // the request executor reports the failure
+        assertSame(request, channel.readInbound());
+        assertNull(request.executedOn.get());
+    }
+
+    @Test
+    public void testSaturatedReadStage() throws Exception
+    {
+        final CountDownLatch running = new CountDownLatch(DatabaseDescriptor.getConcurrentReaders());
+        final CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < DatabaseDescriptor.getConcurrentReaders(); i++)
+        {
+            readStage().execute(new Runnable()
+            {
+                public void run()
+                {
+                    running.countDown();
+                    try
+                    {
+                        done.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+        }
+
+        try
+        {
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+
+            EmbeddedChannel channel = channel();
+            TestRequest request = request(channel, true);
+
+            channel.writeInbound(request);
+
+            // executing the request inline would wait for a READ worker
+            assertSame(request, channel.readInbound());
+            assertNull(request.executedOn.get());
+        }
+        finally
+        {
+            done.countDown();
+            awaitIdleReadStage();
+        }
+    }
+
+    private static void awaitIdleReadStage()
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (readStage().getActiveCount() > 0 || readStage().getPendingTasks() > 0)
+        {
+            assertTrue("READ stage still busy", System.nanoTime() < deadline);
+            Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static SEPExecutor readStage()
+    {
+        return (SEPExecutor) StageManager.getStage(Stage.READ);
+    }
+
+    private static class TestRequest extends OptionsMessage
+    {
+        // whether the request can be executed inline, or null if checking it fails
+        private final Boolean inline;
+        private final AtomicReference<Thread> executedOn = new AtomicReference<>();
+        private volatile boolean executedOnReservedReader;
+
+        private TestRequest(Boolean inline)
+        {
+            this.inline = inline;
+        }
+
+        @Override
+        public boolean canExecuteInline(Config.InlineExecution inlineExecution)
+        {
+            if (inline == null)
+                throw new IllegalStateException("test failure");
+            return inline;
+        }
+
+        @Override
+        public Message.Response execute(QueryState state)
+        {
+            executedOn.set(Thread.currentThread());
+            executedOnReservedReader = readStage().hasReservedWorker();
+            return super.execute(state);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.*;
 
 import io.netty.buffer.Unpooled;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 
 import org.junit.Test;
 import org.apache.cassandra.cql3.*;
@@ -258,4 +259,41 @@ public class SerDeserTest
 
         assertEquals(decodedMeta, decodedMetaWithoutIndexes);
     }
+
+    @Test
+    public void compositeResultSetSerializationTest()
+    {
+        List<ColumnSpecification> columnNames = new ArrayList<>();
+        columnNames.add(new ColumnSpecification("ks", "cf", new ColumnIdentifier("k", false), Int32Type.instance));
+        columnNames.add(new ColumnSpecification("ks", "cf", new ColumnIdentifier("v", false), BytesType.instance));
+        ResultSet rs = new ResultSet(columnNames);
+
+        // small values, on heap values big enough to be referenced, values off heap, which are always copied, and nulls
+        for (int i = 0; i < 100; i++)
+        {
+            ByteBuffer value;
+            if (i % 4 == 0)
+                value = null;
+            else if (i % 4 == 1)
+                value = ByteBuffer.wrap(new byte[i]);
+            else if (i % 4 == 2)
+                value = ByteBuffer.wrap(new byte[2000 * i]);
+            else
+                value = ByteBuffer.allocateDirect(2000 * i);
+            if (value != null)
+                value.put(0, (byte) i);
+            rs.addRow(Arrays.asList(Int32Type.instance.decompose(i), value));
+        }
+
+        ByteBuf expected = Unpooled.buffer(ResultSet.codec.encodedSize(rs, Server.VERSION_3));
+        ResultSet.codec.encode(rs, expected, Server.VERSION_3);
+
+        CompositeByteBuf composite = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        ResultSet.codec.encode(rs, composite, Server.VERSION_3);
+        assertEquals(expected, composite);
+
+        ResultSet decoded = ResultSet.codec.decode(composite, Server.VERSION_3);
+        assertEquals(rs.rows, decoded.rows);
+        composite.release();
+    }
 }
@@ -210,6 +210,49 @@ public class BloomFilterTest
         FileUtils.closeQuietly(in);
     }
 
+    @Test
+    public void testMappedFilter() throws IOException
+    {
+        Iterator<ByteBuffer> keys = new KeyGenerator.RandomStringGenerator(1, FilterTestHelper.ELEMENTS);
+        while (keys.hasNext())
+            bf.add(FilterTestHelper.wrap(keys.next()));
+
+        File file = FileUtils.createTempFile("bloomFilterTest-", ".dat");
+        try (DataOutputStreamPlus out = new BufferedDataOutputStreamPlus(new FileOutputStream(file)))
+        {
+            FilterFactory.serialize(bf, out);
+            out.writeUTF("JUNK");
+        }
+
+        try (FileInputStream in = new FileInputStream(file);
+             DataInputStream stream = new DataInputStream(in);
+             IFilter mapped = FilterFactory.map(stream, in.getChannel()))
+        {
+            // the mapped filter must answer exactly like the one it was serialized from
+            keys = new KeyGenerator.RandomStringGenerator(1, FilterTestHelper.ELEMENTS);
+            while (keys.hasNext())
+                Assert.assertTrue(mapped.isPresent(FilterTestHelper.wrap(keys.next())));
+            keys = new KeyGenerator.RandomStringGenerator(2, FilterTestHelper.ELEMENTS);
+            while (keys.hasNext())
+            {
+                FilterKey key = FilterTestHelper.wrap(keys.next());
+                Assert.assertEquals(bf.isPresent(key), mapped.isPresent(key));
+            }
+            Assert.assertEquals("JUNK", stream.readUTF());
+
+            // and serialize to the same bytes
+            DataOutputBuffer expected = new DataOutputBuffer();
+            FilterFactory.serialize(bf, expected);
+            DataOutputBuffer actual = new DataOutputBuffer();
+            FilterFactory.serialize(mapped, actual);
+            Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
     @Test
     public void testMurmur3FilterHash()
     {
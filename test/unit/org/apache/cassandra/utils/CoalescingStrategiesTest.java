@@ -430,6 +430,71 @@ public class CoalescingStrategiesTest
         assertTrue(parker.parks.isEmpty());
     }
 
+    @Test
+    public void testAdaptiveCoalescingStrategy() throws Exception
+    {
+        final boolean[] busy = { true };
+        final long[] now = { 0 };
+        cs = CoalescingStrategies.newCoalescingStrategy("ADAPTIVE", 200, new Parker()
+        {
+            public void park(long nanos)
+            {
+                parker.parks.offer(nanos);
+                // while busy, another message arrives whenever we park
+                if (busy[0])
+                    add(now[0] += 10);
+            }
+        }, logger, "Stupendopotamus");
+
+        //An idle connection doesn't park
+        add(0);
+        cs.coalesce(input, output, 128);
+        assertEquals(1, output.size());
+        output.clear();
+        add(now[0] = 10000);
+        cs.coalesce(input, output, 128);
+        assertEquals(1, output.size());
+        assertTrue(parker.parks.isEmpty());
+        output.clear();
+
+        //Once messages arrive 10us apart it starts parking, for longer and longer as long as it pays off
+        for (int i = 0; i < 32; i++)
+            add(now[0] += 10);
+        cs.coalesce(input, output, 128);
+        assertEquals(33, output.size());
+        assertEquals(toNanos(25), parker.parks.poll().longValue());
+        for (long window : new long[]{ 50, 75, 100, 125, 150, 175, 200, 200 })
+        {
+            output.clear();
+            add(now[0] += 10);
+            cs.coalesce(input, output, 128);
+            assertEquals(2, output.size());
+            assertEquals(toNanos(window), parker.parks.poll().longValue());
+        }
+
+        //And backs off when it doesn't
+        busy[0] = false;
+        for (long window : new long[]{ 200, 100, 50, 25 })
+        {
+            output.clear();
+            add(now[0] += 10);
+            cs.coalesce(input, output, 128);
+            assertEquals(1, output.size());
+            assertEquals(toNanos(window), parker.parks.poll().longValue());
+        }
+
+        //Until the connection is idle again
+        output.clear();
+        add(now[0] += 100000);
+        cs.coalesce(input, output, 128);
+        assertEquals(1, output.size());
+        assertTrue(parker.parks.isEmpty());
+
+        assertEquals(16, cs.getFlushes());
+        assertEquals(56, cs.getMessages());
+        assertEquals(toNanos(1475), cs.getParkedNanos());
+    }
+
     void primeTimeHorizonAverage(long micros) throws Exception
     {
         for (long ii = 0; ii < 100000; ii++)
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.cassandra.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExpiringMapTest
+{
+    @Test
+    public void testPerEntryTimeouts()
+    {
+        // the expiry lag of the entries the reaper has expired, checked on this thread
+        final Map<Integer, Long> expired = new ConcurrentHashMap<>();
+        ExpiringMap<Integer, String> map = new ExpiringMap<>(10000, new Function<Pair<Integer, ExpiringMap.CacheableObject<String>>, Object>()
+        {
+            public Object apply(Pair<Integer, ExpiringMap.CacheableObject<String>> pair)
+            {
+                expired.put(pair.left, pair.right.expiryLag(System.nanoTime()));
+                return null;
+            }
+        });
+
+        try
+        {
+            map.put(1, "short", 50);
+            map.put(2, "removed", 50);
+            map.put(3, "replaced", 50);
+            map.put(4, "long", 10000);
+            assertEquals("removed", map.remove(2));
+            assertEquals("replaced", map.put(3, "replacement", 10000));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!expired.containsKey(1) && System.nanoTime() < deadline)
+                Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+            Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+
+            assertTrue(expired.containsKey(1));
+            // never expired before its timeout
+            assertTrue(expired.get(1) >= 0);
+            assertFalse(expired.containsKey(2));
+            assertFalse(expired.containsKey(3));
+            assertFalse(expired.containsKey(4));
+            assertNull(map.get(1));
+            assertEquals("replacement", map.get(3));
+            assertEquals(2, map.size());
+        }
+        finally
+        {
+            map.shutdownBlocking();
+        }
+    }
+}